@@ -0,0 +1,143 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.AccessLogProperties;
+import com.example.agent.infrastructure.logging.ChatAccessLog;
+import com.example.agent.infrastructure.response.ChatStreamFrame;
+import com.example.agent.infrastructure.stream.ChatStreamMetrics;
+import com.example.agent.infrastructure.stream.NdjsonFrameEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每轮对话的日志开销
+ * 三个基准输出同一轮帧流（编码后释放），只有日志方式不同：
+ * noLogging 为不记录日志的基线；perChunkPrintln 复现早期做法——每帧两次 System.out.println，
+ * 加上 LoggingAdvisor 每次请求新建 ObjectMapper 序列化参数；sampledSummary 为当前路径——
+ * {@link ChatStreamMetrics} 统计指标并按 sampleRate 通过 {@link ChatAccessLog} 输出一行汇总。
+ * println 写入丢弃输出的流，不含真实控制台 I/O，是早期做法开销的下限；访问日志经 logback.xml 中的异步追加器入队。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class AccessLogBenchmark {
+
+    /**
+     * 每轮的帧数
+     */
+    @Param({"32", "256"})
+    public int frames;
+
+    /**
+     * 访问日志采样比例，只影响 sampledSummary
+     */
+    @Param({"0.1", "1.0"})
+    public double sampleRate;
+
+    private final NdjsonFrameEncoder encoder =
+            new NdjsonFrameEncoder(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+    private final PrintStream discardingOut = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+    private final Map<String, String> request = Map.of("sessionId", "bench-session", "content", BenchmarkFixtures.QUESTIONS[0]);
+    private List<ChatStreamFrame> turn;
+    private ChatStreamMetrics streamMetrics;
+
+    /**
+     * 生成一轮帧：前八分之一为思考帧，其余为回答帧
+     */
+    @Setup
+    public void setUp() {
+        turn = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            String type = i < frames / 8 ? ChatStreamFrame.TYPE_THINKING : ChatStreamFrame.TYPE_RESPONSE;
+            turn.add(new ChatStreamFrame(type, BenchmarkFixtures.ANSWER.substring(0, 24)));
+        }
+        AccessLogProperties properties = new AccessLogProperties();
+        properties.setSampleRate(sampleRate);
+        streamMetrics = new ChatStreamMetrics(new SimpleMeterRegistry(), new ChatAccessLog(properties));
+    }
+
+    /**
+     * 不记录日志（基线）
+     * @return 输出的字节数
+     */
+    @Benchmark
+    public long noLogging() {
+        return drain(Flux.fromIterable(turn).map(encoder::encode));
+    }
+
+    /**
+     * 逐帧 println 加请求参数序列化（早期做法）
+     * @return 输出的字节数
+     */
+    @Benchmark
+    public long perChunkPrintln() throws JsonProcessingException {
+        Object[] arguments = {request};
+        discardingOut.println("API请求开始: Args=" + Arrays.toString(arguments));
+        long bytes = drain(Flux.fromIterable(turn)
+                .doOnNext(frame -> {
+                    if (ChatStreamFrame.TYPE_THINKING.equals(frame.getType())) {
+                        discardingOut.println("Sending thinking step: " + frame.getContent());
+                    }
+                })
+                .doOnNext(frame -> discardingOut.println("思考和回答流: " + frame.getContent()))
+                .map(encoder::encode));
+        discardingOut.println("API请求结束: 响应=" + new ObjectMapper().writeValueAsString(request));
+        return bytes;
+    }
+
+    /**
+     * 轮次指标加采样的汇总日志（当前做法）
+     * @return 输出的字节数
+     */
+    @Benchmark
+    public long sampledSummary() {
+        return drain(streamMetrics.record("/api/chat/send/thinking", "qwen-turbo", "bench-session",
+                BenchmarkFixtures.QUESTIONS[0], Flux.fromIterable(turn), encoder::encode));
+    }
+
+    /**
+     * 消费一轮帧流并释放缓冲区
+     * @param buffers 帧流
+     * @return 输出的字节数
+     */
+    private static long drain(Flux<DataBuffer> buffers) {
+        long[] bytes = new long[1];
+        buffers.doOnNext(buffer -> {
+            bytes[0] += buffer.readableByteCount();
+            DataBufferUtils.release(buffer);
+        }).blockLast();
+        return bytes[0];
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.QuestionClassifierProperties;
+import com.example.agent.application.config.SegmenterProperties;
+import com.example.agent.domain.chat.service.QuestionClassifier;
+import com.example.agent.infrastructure.text.ChineseSegmenter;
+import com.example.agent.infrastructure.text.LexiconQuestionClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试共用的样本数据和组件构造
+ * 组件按生产配置的默认值直接构造，不启动 Spring 容器，避免容器开销混入测量。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+final class BenchmarkFixtures {
+
+    /**
+     * 典型的客服短问题
+     */
+    static final String[] QUESTIONS = {
+            "我的订单怎么还没发货？",
+            "请问退款多久能到账",
+            "收货地址填错了，怎么修改订单地址？",
+            "优惠券为什么用不了",
+            "北京明天天气怎么样",
+            "帮我写一段Java代码计算1到100的和",
+            "小米手机屏幕碎了可以保修吗",
+            "iPhone15的价格是多少",
+            "我要投诉快递员态度太差了，包裹还破损了",
+            "怎么开电子发票？公司抬头和税号在哪里填"
+    };
+
+    /**
+     * 助手回答样本
+     */
+    static final String ANSWER = "您好，您的订单已经在今天下午由仓库打包，预计明天发出。"
+            + "发货后可以在“我的订单”中查看物流进度，如有其他问题请随时联系我们。";
+
+    static final String SYSTEM_PROMPT = "你是一个专业的客服助手，请用专业、友好的方式回答用户的问题。";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 生成用户与助手交替的历史消息
+     * @param size 消息数
+     * @return 按时间顺序排列的消息
+     */
+    static List<Message> history(int size) {
+        List<Message> history = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            history.add(i % 2 == 0 ? new UserMessage(QUESTIONS[(i / 2) % QUESTIONS.length]) : new AssistantMessage(ANSWER));
+        }
+        return history;
+    }
+
+    /**
+     * 按默认配置构造分词器，词典从 agent 构件的类路径加载
+     * @return 分词器
+     */
+    static ChineseSegmenter segmenter() {
+        return new ChineseSegmenter(new SegmenterProperties(), resourceLoader(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * 按默认配置构造问题分类器，关闭词库文件检查
+     * @return 问题分类器
+     */
+    static QuestionClassifier classifier() {
+        QuestionClassifierProperties properties = new QuestionClassifierProperties();
+        properties.setReloadInterval(Duration.ZERO);
+        return new LexiconQuestionClassifier(properties, resourceLoader(), new SimpleMeterRegistry());
+    }
+
+    static ResourceLoader resourceLoader() {
+        return new DefaultResourceLoader(BenchmarkFixtures.class.getClassLoader());
+    }
+
+    /**
+     * 为字段注入的组件设置依赖
+     * @param target 组件
+     * @param fieldName 字段名
+     * @param value 依赖
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法设置字段 " + fieldName, e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.agent.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口
+ * 接受 JMH 的全部命令行参数；未指定时默认启用 GC/分配率分析器（gc.alloc.rate.norm 即每次操作分配的字节数），
+ * 并把结果以 JSON 写入 jmh-result.json，便于按版本保存和比较。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class BenchmarkMain {
+
+    /**
+     * 默认结果文件
+     */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * 运行基准测试
+     * @param args JMH 命令行参数，例如 "ChatMemory" 只运行名称匹配的基准
+     * @throws Exception 参数错误或运行失败时抛出
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.SessionStoreProperties;
+import com.example.agent.domain.chat.model.MessageRingBuffer;
+import com.example.agent.domain.chat.service.ChatTranscriptRecorder;
+import com.example.agent.infrastructure.store.BoundedChatMemory;
+import com.example.agent.infrastructure.store.CaffeineSessionStoreFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话历史的写入和读取
+ * chatMemory* 为请求路径上的 {@link BoundedChatMemory}（有界会话存储 + 环形缓冲区）；
+ * ringBuffer* 与 arrayList* 在相同容量下比较 {@link MessageRingBuffer} 和早期"ArrayList 超出后 remove(0)"的做法。
+ * 每个线程使用各自的会话和缓冲区，测量的是稳态（已写满、每次写入都淘汰最早消息）下的开销。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ChatMemoryBenchmark {
+
+    /**
+     * 历史容量
+     */
+    @Param({"20", "200", "2000"})
+    public int capacity;
+
+    private final Message message = new UserMessage(BenchmarkFixtures.QUESTIONS[0]);
+    private final List<Message> added = List.of(message);
+    private BoundedChatMemory chatMemory;
+    private MessageRingBuffer<Message> ringBuffer;
+    private List<Message> arrayList;
+    private String sessionId;
+
+    /**
+     * 创建会话存储和缓冲区并写满历史
+     */
+    @Setup
+    public void setUp() {
+        CaffeineSessionStoreFactory factory = new CaffeineSessionStoreFactory(new SessionStoreProperties(), new SimpleMeterRegistry());
+        chatMemory = new BoundedChatMemory(factory.create("bench-memory",
+                BoundedChatMemory.ConversationHistory::retainedBytes), ChatTranscriptRecorder.NOOP);
+        sessionId = "bench-" + Thread.currentThread().getId();
+        ringBuffer = new MessageRingBuffer<>(capacity);
+        arrayList = new ArrayList<>(capacity + 1);
+        for (Message history : BenchmarkFixtures.history(capacity)) {
+            chatMemory.add(sessionId, List.of(history));
+            ringBuffer.add(history);
+            arrayList.add(history);
+        }
+    }
+
+    /**
+     * 向已写满的会话追加一条消息
+     * @return 聊天记忆
+     */
+    @Benchmark
+    public BoundedChatMemory chatMemoryAdd() {
+        chatMemory.add(sessionId, added);
+        return chatMemory;
+    }
+
+    /**
+     * 读取最近 100 条消息（与 ChatController 一致）
+     * @return 消息副本
+     */
+    @Benchmark
+    public List<Message> chatMemoryGetRecent() {
+        return chatMemory.get(sessionId, 100);
+    }
+
+    /**
+     * 向已写满的环形缓冲区追加
+     * @return 被淘汰的消息
+     */
+    @Benchmark
+    public Message ringBufferAdd() {
+        return ringBuffer.add(message);
+    }
+
+    /**
+     * 向已写满的 ArrayList 追加并移除最早的消息（对照）
+     * @return 被淘汰的消息
+     */
+    @Benchmark
+    public Message arrayListAdd() {
+        arrayList.add(message);
+        return arrayList.size() > capacity ? arrayList.remove(0) : null;
+    }
+
+    /**
+     * 读取环形缓冲区最近 20 条消息
+     * @return 内容总长度
+     */
+    @Benchmark
+    public int ringBufferRecent() {
+        return sumLengths(ringBuffer.last(20));
+    }
+
+    /**
+     * 复制 ArrayList 最近 20 条消息（对照）
+     * @return 内容总长度
+     */
+    @Benchmark
+    public int arrayListRecent() {
+        return sumLengths(new ArrayList<>(arrayList.subList(Math.max(0, arrayList.size() - 20), arrayList.size())));
+    }
+
+    private static int sumLengths(List<Message> messages) {
+        int total = 0;
+        for (Message history : messages) {
+            total += history.getContent().length();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.agent.bench;
+
+import com.example.agent.domain.chat.ChatAggregate;
+import com.example.agent.domain.chat.ChatValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天请求校验
+ * 覆盖文本、图片和函数调用三种功能类型的 {@link ChatValidator#validateChatRequest(ChatAggregate)}
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ChatValidatorBenchmark {
+
+    private final ChatValidator validator = new ChatValidator();
+    private ChatAggregate text;
+    private ChatAggregate image;
+    private ChatAggregate function;
+
+    /**
+     * 准备三种功能类型的合法请求
+     */
+    @Setup
+    public void setUp() {
+        text = aggregate("text", BenchmarkFixtures.QUESTIONS[2]);
+
+        image = aggregate("image", "画一只在草地上奔跑的小狗");
+        ChatAggregate.ImageParams imageParams = new ChatAggregate.ImageParams();
+        imageParams.setSize("512x512");
+        imageParams.setN(2);
+        imageParams.setQuality("hd");
+        image.setImageParams(imageParams);
+
+        function = aggregate("function", "查询订单 20240414001 的物流");
+        ChatAggregate.FunctionParams functionParams = new ChatAggregate.FunctionParams();
+        functionParams.setName("queryLogistics");
+        functionParams.setDescription("查询订单物流");
+        functionParams.setArguments("{\"orderId\":\"20240414001\"}");
+        function.setFunctionParams(functionParams);
+    }
+
+    /**
+     * 校验文本对话请求
+     * @return 被校验的请求
+     */
+    @Benchmark
+    public ChatAggregate validateText() {
+        validator.validateChatRequest(text);
+        return text;
+    }
+
+    /**
+     * 校验图片生成请求
+     * @return 被校验的请求
+     */
+    @Benchmark
+    public ChatAggregate validateImage() {
+        validator.validateChatRequest(image);
+        return image;
+    }
+
+    /**
+     * 校验函数调用请求
+     * @return 被校验的请求
+     */
+    @Benchmark
+    public ChatAggregate validateFunction() {
+        validator.validateChatRequest(function);
+        return function;
+    }
+
+    private static ChatAggregate aggregate(String functionType, String content) {
+        ChatAggregate aggregate = new ChatAggregate();
+        aggregate.setContent(content);
+        aggregate.setSessionId("bench-session");
+        aggregate.setFunctionType(functionType);
+        return aggregate;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.ChatContextProperties;
+import com.example.agent.domain.chat.model.ContextWindow;
+import com.example.agent.domain.chat.service.ContextWindowBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 历史消息到上游上下文的转换
+ * contextWindow 为当前请求路径（{@link ContextWindowBuilder} 按 token 预算从最新消息向前截取）；
+ * flattenToStrings 复现早期 ChatController 把全部历史拼成"角色: 内容"字符串数组的做法，作为对照。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ContextWindowBenchmark {
+
+    @Param({"10", "100", "200"})
+    public int historySize;
+
+    private ContextWindowBuilder builder;
+    private List<Message> history;
+    private String question;
+
+    /**
+     * 准备上下文构建器和历史消息
+     */
+    @Setup
+    public void setUp() {
+        builder = new ContextWindowBuilder(new ChatContextProperties(), new SimpleMeterRegistry());
+        history = BenchmarkFixtures.history(historySize);
+        question = BenchmarkFixtures.QUESTIONS[0];
+    }
+
+    /**
+     * 按 token 预算构建上下文窗口
+     * @return 上下文窗口
+     */
+    @Benchmark
+    public ContextWindow contextWindow() {
+        return builder.build(history, BenchmarkFixtures.SYSTEM_PROMPT, question, 2048);
+    }
+
+    /**
+     * 把全部历史拼成字符串数组（对照）
+     * @return 字符串数组
+     */
+    @Benchmark
+    public String[] flattenToStrings() {
+        return history.stream()
+                .map(message -> {
+                    if (message instanceof UserMessage) {
+                        return "user: " + message.getContent();
+                    } else if (message instanceof AssistantMessage) {
+                        return "assistant: " + message.getContent();
+                    }
+                    return "";
+                })
+                .filter(message -> !message.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.agent.bench;
+
+import com.example.agent.infrastructure.cache.HnswIndex;
+import com.example.agent.infrastructure.text.ChineseSegmenter;
+import com.example.agent.infrastructure.text.WeightedLexicon;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * 内存占用与召回率报告
+ * JMH 只能测量时间和分配，这里补充不随调用变化的指标，以一行 JSON 输出到标准输出：
+ * 分词词典和分类词库的实际驻留字节数（JOL 遍历对象图）与组件自身的估算值，
+ * 以及语义缓存 HNSW 索引在不同规模下的驻留字节数和 recall@1（与暴力搜索比较）。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class FootprintReport {
+
+    private static final int[] INDEX_SIZES = {1000, 10000, 50000};
+    private static final int RECALL_QUERIES = 200;
+
+    private FootprintReport() {
+    }
+
+    /**
+     * 输出报告
+     * @param args 不使用
+     * @throws IOException 读取词库失败时抛出
+     */
+    public static void main(String[] args) throws IOException {
+        StringBuilder json = new StringBuilder(512).append('{');
+
+        ChineseSegmenter segmenter = BenchmarkFixtures.segmenter();
+        json.append("\"segmenter\":{")
+                .append("\"estimatedBytes\":").append(segmenter.footprintBytes())
+                .append(",\"retainedBytes\":").append(GraphLayout.parseInstance(segmenter).totalSize())
+                .append('}');
+
+        WeightedLexicon lexicon;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(BenchmarkFixtures.resourceLoader()
+                .getResource("classpath:classifier/question-lexicon.tsv").getInputStream(), StandardCharsets.UTF_8))) {
+            lexicon = WeightedLexicon.parse(reader);
+        }
+        json.append(",\"lexicon\":{")
+                .append("\"terms\":").append(lexicon.termCount())
+                .append(",\"retainedBytes\":").append(GraphLayout.parseInstance(lexicon).totalSize())
+                .append('}');
+
+        json.append(",\"hnsw\":[");
+        for (int i = 0; i < INDEX_SIZES.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendIndexReport(json, INDEX_SIZES[i]);
+        }
+        json.append("]}");
+        System.out.println(json);
+    }
+
+    private static void appendIndexReport(StringBuilder json, int size) {
+        int dimensions = 256;
+        SplittableRandom random = new SplittableRandom(size);
+        HnswIndex<Integer> index = HnswIndexBenchmark.newIndex(dimensions, size);
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = HnswIndexBenchmark.randomUnitVector(random, dimensions);
+            index.add(vectors[i], i);
+        }
+        int hits = 0;
+        for (int q = 0; q < RECALL_QUERIES; q++) {
+            float[] query = HnswIndexBenchmark.randomUnitVector(random, dimensions);
+            Integer found = index.search(query, -1f);
+            if (found != null && found == exactNearest(vectors, query)) {
+                hits++;
+            }
+        }
+        json.append("{\"size\":").append(size)
+                .append(",\"dimensions\":").append(dimensions)
+                .append(",\"retainedBytes\":").append(GraphLayout.parseInstance(index).totalSize())
+                .append(",\"recallAt1\":").append((double) hits / RECALL_QUERIES)
+                .append('}');
+    }
+
+    private static int exactNearest(float[][] vectors, float[] query) {
+        int best = -1;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < vectors.length; i++) {
+            float score = 0;
+            for (int d = 0; d < query.length; d++) {
+                score += vectors[i][d] * query[d];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
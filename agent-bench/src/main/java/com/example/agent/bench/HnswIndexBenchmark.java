@@ -0,0 +1,116 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.SemanticCacheProperties;
+import com.example.agent.infrastructure.cache.HashingQuestionEmbedder;
+import com.example.agent.infrastructure.cache.HnswIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语义缓存的近似最近邻查询
+ * 按语义缓存的默认参数（M、efConstruction、efSearch）构建 {@link HnswIndex}，向量为随机单位向量；
+ * search 测量查询延迟，embedAndSearch 包含把问题哈希为向量的开销。召回率和索引占用见 {@link FootprintReport}。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class HnswIndexBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    /**
+     * 索引中的条目数
+     */
+    @Param({"1000", "10000", "50000"})
+    public int size;
+
+    private final HashingQuestionEmbedder embedder = new HashingQuestionEmbedder();
+    private HnswIndex<Integer> index;
+    private float[][] queries;
+    private float[] embedding;
+    private int next;
+
+    /**
+     * 构建索引并生成查询向量
+     */
+    @Setup
+    public void setUp() {
+        int dimensions = embedder.dimensions();
+        index = newIndex(dimensions, size);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < size; i++) {
+            index.add(randomUnitVector(random, dimensions), i);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomUnitVector(random, dimensions);
+        }
+        embedding = new float[dimensions];
+    }
+
+    /**
+     * 查询最近邻
+     * @return 最近邻的编号
+     */
+    @Benchmark
+    public Integer search() {
+        next = (next + 1) & (QUERIES - 1);
+        return index.search(queries[next], 0f);
+    }
+
+    /**
+     * 把问题哈希为向量后查询最近邻
+     * @return 最近邻的编号
+     */
+    @Benchmark
+    public Integer embedAndSearch() {
+        next = (next + 1) & (QUERIES - 1);
+        embedder.embed(BenchmarkFixtures.QUESTIONS[next % BenchmarkFixtures.QUESTIONS.length], embedding);
+        return index.search(embedding, 0f);
+    }
+
+    /**
+     * 按语义缓存的默认参数创建索引
+     * @param dimensions 向量维度
+     * @param capacity 容量
+     * @return 空索引
+     */
+    static HnswIndex<Integer> newIndex(int dimensions, int capacity) {
+        SemanticCacheProperties defaults = new SemanticCacheProperties();
+        return new HnswIndex<>(dimensions, capacity, defaults.getMaxLinks(), defaults.getEfConstruction(),
+                defaults.getEfSearch());
+    }
+
+    static float[] randomUnitVector(SplittableRandom random, int dimensions) {
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextDouble() * 2 - 1);
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
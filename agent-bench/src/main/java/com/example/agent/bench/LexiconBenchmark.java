@@ -0,0 +1,137 @@
+package com.example.agent.bench;
+
+import com.example.agent.infrastructure.text.LexiconQuestionClassifier;
+import com.example.agent.infrastructure.text.WeightedLexicon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 分类词库打分
+ * automaton 为 {@link WeightedLexicon} 的 Aho-Corasick 单遍扫描，containsChain 对每个词条调用 String.contains，
+ * 复现早期 if-contains 链的做法；terms 为 0 时只使用内置词库，否则再追加相应数量的合成词条。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class LexiconBenchmark {
+
+    private static final String LEXICON = "classifier/question-lexicon.tsv";
+    private static final int SYNTHETIC_CATEGORIES = 32;
+
+    /**
+     * 追加的合成词条数
+     */
+    @Param({"0", "1000", "10000"})
+    public int terms;
+
+    private WeightedLexicon lexicon;
+    private float[] scores;
+    private String[] chainTerms;
+    private int[] chainCategories;
+    private float[] chainWeights;
+    private float[] chainScores;
+    private int next;
+
+    /**
+     * 加载内置词库并追加合成词条
+     * @throws IOException 读取词库失败时抛出
+     */
+    @Setup
+    public void setUp() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                BenchmarkFixtures.resourceLoader().getResource("classpath:" + LEXICON).getInputStream(),
+                StandardCharsets.UTF_8))) {
+            reader.lines().filter(line -> !line.isBlank() && !line.startsWith("#")).forEach(lines::add);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < terms; i++) {
+            StringBuilder term = new StringBuilder();
+            int length = 2 + random.nextInt(3);
+            for (int j = 0; j < length; j++) {
+                term.append((char) ('\u4E00' + random.nextInt(0x5000)));
+            }
+            lines.add(LexiconQuestionClassifier.KIND_DOMAIN + "\t合成" + (i % SYNTHETIC_CATEGORIES) + "\t" + term + "\t1");
+        }
+        lexicon = WeightedLexicon.parse(new BufferedReader(new StringReader(
+                lines.stream().collect(Collectors.joining("\n")))));
+        scores = new float[lexicon.categoryCount()];
+
+        chainTerms = new String[lines.size()];
+        chainCategories = new int[lines.size()];
+        chainWeights = new float[lines.size()];
+        List<String> categories = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String[] fields = lines.get(i).split("\t");
+            String category = fields[0] + '\t' + fields[1];
+            if (!categories.contains(category)) {
+                categories.add(category);
+            }
+            chainTerms[i] = fields[2];
+            chainCategories[i] = categories.indexOf(category);
+            chainWeights[i] = Float.parseFloat(fields[3]);
+        }
+        chainScores = new float[categories.size()];
+    }
+
+    /**
+     * 自动机单遍扫描打分
+     * @return 得分最高的领域
+     */
+    @Benchmark
+    public String automaton() {
+        lexicon.score(question(), scores);
+        return lexicon.findBest(LexiconQuestionClassifier.KIND_DOMAIN, scores);
+    }
+
+    /**
+     * 逐词条 String.contains 打分（对照）
+     * @return 最高得分
+     */
+    @Benchmark
+    public float containsChain() {
+        String question = question();
+        Arrays.fill(chainScores, 0f);
+        float best = 0f;
+        for (int i = 0; i < chainTerms.length; i++) {
+            if (question.contains(chainTerms[i])) {
+                best = Math.max(best, chainScores[chainCategories[i]] += chainWeights[i]);
+            }
+        }
+        return best;
+    }
+
+    private String question() {
+        String[] questions = BenchmarkFixtures.QUESTIONS;
+        next = next + 1 == questions.length ? 0 : next + 1;
+        return questions[next];
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.agent.bench;
+
+import com.example.agent.infrastructure.response.ChatStreamFrame;
+import com.example.agent.infrastructure.stream.NdjsonFrameEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流帧的 NDJSON 序列化
+ * pooledEncoder 为当前写出路径（{@link NdjsonFrameEncoder} 直接写入池化缓冲区）；
+ * objectMapper 复现早期先用 ObjectMapper 生成 String 再按 UTF-8 编码的做法，作为对照。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class NdjsonEncodingBenchmark {
+
+    /**
+     * 帧内容的字符数：单个流式分片、合并后的分片和一段完整回答
+     */
+    @Param({"16", "256", "2048"})
+    public int contentChars;
+
+    private final NdjsonFrameEncoder encoder =
+            new NdjsonFrameEncoder(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChatStreamFrame frame;
+
+    /**
+     * 生成含中文、引号和换行的帧内容
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder content = new StringBuilder(contentChars);
+        String sample = BenchmarkFixtures.ANSWER + "\"quoted\"\n";
+        while (content.length() < contentChars) {
+            content.append(sample, 0, Math.min(sample.length(), contentChars - content.length()));
+        }
+        frame = new ChatStreamFrame(ChatStreamFrame.TYPE_RESPONSE, content.toString());
+    }
+
+    /**
+     * 编码到池化缓冲区后释放
+     * @return 编码后的字节数
+     */
+    @Benchmark
+    public int pooledEncoder() {
+        DataBuffer buffer = encoder.encode(frame);
+        int length = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return length;
+    }
+
+    /**
+     * 用 ObjectMapper 编码（对照）
+     * @return 编码后的字节
+     */
+    @Benchmark
+    public byte[] objectMapper() throws JsonProcessingException {
+        return (objectMapper.writeValueAsString(frame) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
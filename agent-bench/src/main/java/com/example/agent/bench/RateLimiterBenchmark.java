@@ -0,0 +1,101 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.RateLimitProperties;
+import com.example.agent.infrastructure.limit.ChatRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流器在高并发下的吞吐
+ * 64 个线程同时对 {@link ChatRateLimiter#tryAcquire} 取令牌：keys 为 1 时所有线程争用同一组桶，
+ * 为 100000 时接近按会话分散的生产流量；grant 与 reject 分别测量放行（CAS 写）和拒绝（只读）两条路径。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(64)
+public class RateLimiterBenchmark {
+
+    /**
+     * 共享的限流器
+     */
+    @State(Scope.Benchmark)
+    public static class Limiter {
+
+        @Param({"1", "64", "100000"})
+        public int keys;
+
+        @Param({"grant", "reject"})
+        public String outcome;
+
+        ChatRateLimiter rateLimiter;
+        String[] ips;
+        String[] users;
+        String[] sessions;
+
+        /**
+         * 按 outcome 配置桶容量并生成 keys 组 IP、用户和会话
+         */
+        @Setup
+        public void setUp() {
+            RateLimitProperties properties = new RateLimitProperties();
+            properties.setMaxBuckets(keys * 2L);
+            RateLimitProperties.Bucket bucket = "grant".equals(outcome)
+                    ? new RateLimitProperties.Bucket(Integer.MAX_VALUE, Integer.MAX_VALUE)
+                    : new RateLimitProperties.Bucket(1, 1);
+            properties.setIp(bucket);
+            properties.setUser(bucket);
+            properties.setSession(bucket);
+            rateLimiter = new ChatRateLimiter(properties, new SimpleMeterRegistry());
+            ips = new String[keys];
+            users = new String[keys];
+            sessions = new String[keys];
+            for (int i = 0; i < keys; i++) {
+                ips[i] = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255);
+                users[i] = "user-" + i;
+                sessions[i] = "session-" + i;
+            }
+        }
+    }
+
+    /**
+     * 每个线程独立的随机序列
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+
+    /**
+     * 随机取一组 IP、用户和会话取令牌
+     * @param limiter 共享的限流器
+     * @param cursor 当前线程的随机序列
+     * @return 0 表示放行，否则为等待纳秒数
+     */
+    @Benchmark
+    public long tryAcquire(Limiter limiter, Cursor cursor) {
+        int key = cursor.random.nextInt(limiter.keys);
+        return limiter.rateLimiter.tryAcquire(limiter.ips[key], limiter.users[key], limiter.sessions[key]);
+    }
+}
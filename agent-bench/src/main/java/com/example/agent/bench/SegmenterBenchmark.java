@@ -0,0 +1,83 @@
+package com.example.agent.bench;
+
+import com.example.agent.infrastructure.text.ChineseSegmenter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 中文分词
+ * segment 通过回调计数，测量分词本身（应不分配对象）；keywords 为提取关键词的完整开销（含截取子串和去重）。
+ * 词典的内存占用见 {@link FootprintReport}。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class SegmenterBenchmark {
+
+    private ChineseSegmenter segmenter;
+    private TokenCounter counter;
+    private int next;
+
+    /**
+     * 按默认词典构造分词器
+     */
+    @Setup
+    public void setUp() {
+        segmenter = BenchmarkFixtures.segmenter();
+        counter = new TokenCounter();
+    }
+
+    /**
+     * 分词并统计词的总长度
+     * @return 词的总长度
+     */
+    @Benchmark
+    public int segment() {
+        counter.tokens = 0;
+        segmenter.segment(question(), counter);
+        return counter.tokens;
+    }
+
+    /**
+     * 提取关键词
+     * @return 关键词
+     */
+    @Benchmark
+    public List<String> keywords() {
+        return segmenter.keywords(question());
+    }
+
+    private String question() {
+        String[] questions = BenchmarkFixtures.QUESTIONS;
+        next = next + 1 == questions.length ? 0 : next + 1;
+        return questions[next];
+    }
+
+    private static final class TokenCounter implements ChineseSegmenter.TokenSink {
+
+        private int tokens;
+
+        @Override
+        public void accept(CharSequence text, int start, int end) {
+            tokens += end - start;
+        }
+    }
+}
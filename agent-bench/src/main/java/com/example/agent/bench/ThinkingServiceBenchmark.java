@@ -0,0 +1,95 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.ThinkingProperties;
+import com.example.agent.domain.chat.model.QuestionProfile;
+import com.example.agent.domain.chat.model.ThinkingStep;
+import com.example.agent.domain.chat.service.KeywordExtractor;
+import com.example.agent.domain.chat.service.QuestionClassifier;
+import com.example.agent.domain.chat.service.ThinkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 思考步骤的本地分析
+ * analyzeLocally 为 local 模式下 {@link ThinkingService#generateThinkingSteps} 的完整开销
+ * （历史格式化、分词提取关键词、领域和类型分类、拼接上下文分析），classify 和 extractKeywords 拆开测量其中两步。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ThinkingServiceBenchmark {
+
+    private ThinkingService thinkingService;
+    private QuestionClassifier classifier;
+    private KeywordExtractor keywordExtractor;
+    private List<Message> history;
+    private int next;
+
+    /**
+     * 以 local 模式构造思考服务
+     */
+    @Setup
+    public void setUp() {
+        ThinkingProperties properties = new ThinkingProperties();
+        properties.setMode(ThinkingProperties.Mode.LOCAL);
+        classifier = BenchmarkFixtures.classifier();
+        keywordExtractor = BenchmarkFixtures.segmenter();
+        thinkingService = new ThinkingService();
+        BenchmarkFixtures.inject(thinkingService, "thinkingProperties", properties);
+        BenchmarkFixtures.inject(thinkingService, "questionClassifier", classifier);
+        BenchmarkFixtures.inject(thinkingService, "keywordExtractor", keywordExtractor);
+        history = BenchmarkFixtures.history(20);
+    }
+
+    /**
+     * 生成本地思考步骤
+     * @return 思考步骤
+     */
+    @Benchmark
+    public List<ThinkingStep> analyzeLocally() {
+        return thinkingService.generateThinkingSteps(question(), "bench-session", history).collectList().block();
+    }
+
+    /**
+     * 对问题分类
+     * @return 问题画像
+     */
+    @Benchmark
+    public QuestionProfile classify() {
+        return classifier.classify(question());
+    }
+
+    /**
+     * 提取关键词
+     * @return 关键词
+     */
+    @Benchmark
+    public List<String> extractKeywords() {
+        return keywordExtractor.keywords(question());
+    }
+
+    private String question() {
+        String[] questions = BenchmarkFixtures.QUESTIONS;
+        next = next + 1 == questions.length ? 0 : next + 1;
+        return questions[next];
+    }
+}
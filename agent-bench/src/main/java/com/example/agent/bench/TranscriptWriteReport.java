@@ -0,0 +1,175 @@
+package com.example.agent.bench;
+
+import com.example.agent.application.config.ChatPersistenceProperties;
+import com.example.agent.infrastructure.persistence.ChatTranscriptRepository;
+import com.example.agent.infrastructure.persistence.WriteBehindChatTranscriptRecorder;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 会话持久化写入报告
+ * 在 MySQL 模式的嵌入式 H2 上运行 {@link WriteBehindChatTranscriptRecorder}：若干生产线程按目标速率持续调用 record，
+ * 统计时长结束后输出一行 JSON，包括各批大小、速率组合下的持续写入速率（inserts/s）、丢弃数、平均批大小，
+ * 以及消息从入队到事务提交的写入延迟分布。写入线程与请求线程解耦，JMH 的单次调用耗时无法反映这两项，因此单独统计。
+ * 可用系统属性调整：-Dduration=10s、-DbatchSizes=1,32,256、-Drates=2000,20000,0（0 表示不限速）、-Dproducers=4。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class TranscriptWriteReport {
+
+    private static final int SESSIONS = 1000;
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private TranscriptWriteReport() {
+    }
+
+    /**
+     * 输出报告
+     * @param args 不使用
+     * @throws InterruptedException 等待生产线程时被中断
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Duration duration = Duration.parse("PT" + System.getProperty("duration", "10s").toUpperCase());
+        int[] batchSizes = parseInts(System.getProperty("batchSizes", "1,32,256"));
+        int[] rates = parseInts(System.getProperty("rates", "2000,20000,0"));
+        int producers = Integer.getInteger("producers", 4);
+
+        StringBuilder json = new StringBuilder(1024).append("{\"durationMillis\":").append(duration.toMillis())
+                .append(",\"producers\":").append(producers).append(",\"runs\":[");
+        boolean first = true;
+        for (int batchSize : batchSizes) {
+            for (int rate : rates) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                run(json, batchSize, rate, producers, duration);
+            }
+        }
+        json.append("]}");
+        System.out.println(json);
+    }
+
+    private static void run(StringBuilder json, int batchSize, int rate, int producers, Duration duration)
+            throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentiles(PERCENTILES).build().merge(config);
+            }
+        });
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:transcript-" + batchSize + "-" + rate + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("db/chat-schema-h2.sql")).execute(dataSource);
+        ChatPersistenceProperties properties = new ChatPersistenceProperties();
+        properties.setBatchSize(batchSize);
+        properties.setShutdownTimeout(Duration.ofMinutes(1));
+        WriteBehindChatTranscriptRecorder recorder = new WriteBehindChatTranscriptRecorder(
+                new ChatTranscriptRepository(new JdbcTemplate(dataSource), new DataSourceTransactionManager(dataSource),
+                        properties.getDefaultUserId()),
+                properties, meterRegistry);
+        recorder.start();
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + duration.toNanos();
+        long intervalNanos = rate <= 0 ? 0 : TimeUnit.SECONDS.toNanos(producers) / rate;
+        long[] offered = new long[producers];
+        List<Thread> threads = new ArrayList<>(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> offered[producer] = produce(recorder, producer, startNanos, deadline,
+                    intervalNanos), "transcript-producer-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double windowSeconds = (System.nanoTime() - startNanos) / 1e9;
+        double writtenInWindow = meterRegistry.counter("chat.persistence.written").count();
+        recorder.stop();
+        dataSource.destroy();
+
+        long totalOffered = 0;
+        for (long count : offered) {
+            totalOffered += count;
+        }
+        Timer lag = meterRegistry.timer("chat.persistence.write.lag");
+        HistogramSnapshot snapshot = lag.takeSnapshot();
+        json.append("{\"batchSize\":").append(batchSize)
+                .append(",\"targetRate\":").append(rate)
+                .append(",\"offered\":").append(totalOffered)
+                .append(",\"written\":").append((long) meterRegistry.counter("chat.persistence.written").count())
+                .append(",\"dropped\":").append((long) meterRegistry.counter("chat.persistence.dropped").count())
+                .append(",\"insertsPerSecond\":").append(Math.round(writtenInWindow / windowSeconds))
+                .append(",\"meanBatchSize\":").append(meterRegistry.summary("chat.persistence.batch.size").mean())
+                .append(",\"writeLagMillis\":{\"mean\":").append(snapshot.mean(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            json.append(",\"p").append(BigDecimal.valueOf(percentile.percentile() * 100).stripTrailingZeros()
+                            .toPlainString()).append("\":")
+                    .append(percentile.value(TimeUnit.MILLISECONDS));
+        }
+        json.append(",\"max\":").append(snapshot.max(TimeUnit.MILLISECONDS)).append("}}");
+    }
+
+    /**
+     * 一个生产线程：交替写入用户消息和回答，按间隔节流，intervalNanos 为 0 时不限速
+     * @return 调用 record 的次数
+     */
+    private static long produce(WriteBehindChatTranscriptRecorder recorder, int producer, long startNanos,
+                                long deadline, long intervalNanos) {
+        Message question = new UserMessage("我的订单已经三天了还没有发货，能帮我查一下吗？订单号 20240414" + producer);
+        Message answer = new AssistantMessage("您好，已为您查询到订单正在仓库打包，预计今天内发出，发货后会短信通知您物流单号。"
+                + "如果明天仍未收到物流信息，可以在订单详情页联系人工客服为您加急处理。");
+        long count = 0;
+        long next = startNanos;
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                return count;
+            }
+            if (intervalNanos > 0) {
+                if (now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                next += intervalNanos;
+            }
+            recorder.record("session-" + (count * 31 + producer) % SESSIONS, count % 2 == 0 ? question : answer);
+            count++;
+        }
+    }
+
+    private static int[] parseInts(String values) {
+        String[] parts = values.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.agent.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 命令行参数
+ * 参数格式为 --key=value，只写 --key 时值为 true
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+final class Arguments {
+
+    private final Map<String, String> values;
+
+    private Arguments(Map<String, String> values) {
+        this.values = values;
+    }
+
+    /**
+     * 解析命令行参数
+     * @param args 命令行参数
+     * @return 参数
+     * @throws IllegalArgumentException 参数不是 --key=value 格式时抛出
+     */
+    static Arguments parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return new Arguments(values);
+    }
+
+    /**
+     * 获取字符串参数
+     * @param key 参数名
+     * @param defaultValue 默认值
+     * @return 参数值
+     */
+    String getString(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * 获取整数参数
+     * @param key 参数名
+     * @param defaultValue 默认值
+     * @return 参数值
+     */
+    int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * 获取小数参数
+     * @param key 参数名
+     * @param defaultValue 默认值
+     * @return 参数值
+     */
+    double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * 获取布尔参数
+     * @param key 参数名
+     * @param defaultValue 默认值
+     * @return 参数值
+     */
+    boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * 获取时长参数，支持 ms、s、m、h 后缀，没有后缀时按毫秒
+     * @param key 参数名
+     * @param defaultValue 默认值
+     * @return 参数值
+     */
+    Duration getDuration(String key, Duration defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : parseDuration(value);
+    }
+
+    /**
+     * 获取分布参数
+     * @param key 参数名
+     * @param defaultValue 默认值
+     * @return 参数值
+     */
+    Distribution getDistribution(String key, String defaultValue) {
+        return Distribution.parse(values.getOrDefault(key, defaultValue));
+    }
+
+    /**
+     * 解析时长
+     * @param value 时长，如 500ms、30s、2m
+     * @return 时长
+     */
+    static Duration parseDuration(String value) {
+        String text = value.trim();
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        long amount = Long.parseLong(text.replaceAll("[smh]$", ""));
+        switch (text.charAt(text.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            default:
+                return Duration.ofMillis(amount);
+        }
+    }
+}
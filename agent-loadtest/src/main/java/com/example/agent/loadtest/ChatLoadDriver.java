@@ -0,0 +1,469 @@
+package com.example.agent.loadtest;
+
+import com.example.agent.loadtest.LatencyStats.Metric;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.HdrHistogram.Histogram;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufMono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对话接口压测客户端
+ * 以闭环方式模拟并发用户：每个虚拟用户有自己的会话，发送问题后读完整条 NDJSON 流，停顿思考时间后继续下一轮。
+ * 用 HdrHistogram 记录首帧延迟、首条回答帧延迟、帧间隔和整轮耗时，按类别统计失败，并周期采样服务端的堆内存和线程数。
+ * <pre>
+ * java -jar target/loadtest.jar --target=http://localhost:8080 --concurrency=2000 --ramp-up=30s --warmup=30s --duration=2m
+ * </pre>
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class ChatLoadDriver {
+
+    private static final String[] QUESTIONS = {
+            "我的订单已经三天了还没有发货，能帮我查一下吗？",
+            "收到的商品有破损，应该怎么申请退货？",
+            "退款一般多久能到账？",
+            "会员积分可以抵扣运费吗？",
+            "怎么修改收货地址？订单已经付款了。",
+            "发票可以开公司抬头吗，需要提供哪些信息？",
+            "为什么我的优惠券在结算时用不了？",
+            "商品降价了，可以申请价格保护吗？",
+            "账号被锁定了，怎么解锁？",
+            "请对比一下这两款耳机的续航和降噪效果。"
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyStats stats = new LatencyStats();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicLong inflight = new AtomicLong();
+
+    private final String target;
+    private final String path;
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration rampUp;
+    private final Duration warmup;
+    private final Duration thinkTime;
+    private final Duration turnTimeout;
+    private final Duration reportInterval;
+    private final int turnsPerSession;
+    private final boolean uniqueQuestions;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final HttpClient streamClient;
+    private final ServerSampler sampler;
+    private long measuredNanos;
+
+    private ChatLoadDriver(Arguments arguments) {
+        this.target = arguments.getString("target", "http://localhost:8080");
+        this.path = arguments.getString("path", "/api/chat/send/thinking");
+        this.concurrency = arguments.getInt("concurrency", 100);
+        this.duration = arguments.getDuration("duration", Duration.ofMinutes(1));
+        this.rampUp = arguments.getDuration("ramp-up", Duration.ofSeconds(10));
+        this.warmup = arguments.getDuration("warmup", this.rampUp);
+        this.thinkTime = arguments.getDuration("think-time", Duration.ZERO);
+        this.turnTimeout = arguments.getDuration("turn-timeout", Duration.ofMinutes(2));
+        this.reportInterval = arguments.getDuration("report-interval", Duration.ofSeconds(5));
+        this.turnsPerSession = arguments.getInt("turns-per-session", 10);
+        this.uniqueQuestions = arguments.getBoolean("unique-questions", true);
+
+        // 每个虚拟用户同一时刻只占一条连接，连接池上限与并发数一致
+        ConnectionProvider provider = ConnectionProvider.builder("chat-load")
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.streamClient = HttpClient.create(provider).baseUrl(target);
+
+        List<String> metrics = new ArrayList<>(List.of("jvm.memory.used?tag=area:heap", "jvm.threads.live", "process.cpu.usage"));
+        String extra = arguments.getString("server-metrics", "");
+        if (!extra.isBlank()) {
+            metrics.addAll(Arrays.asList(extra.split(",")));
+        }
+        HttpClient metricsClient = HttpClient.create(ConnectionProvider.create("chat-load-metrics", 4)).baseUrl(target);
+        this.sampler = new ServerSampler(metricsClient, metrics);
+    }
+
+    /**
+     * 运行压测
+     * 参数：--target 被测服务地址；--path 对话接口路径；--concurrency 并发用户数；--ramp-up 用户全部启动所需时间；
+     * --warmup 预热时长（期间的数据不计入报告，默认等于 ramp-up）；--duration 统计时长；--think-time 两轮之间的停顿；
+     * --turn-timeout 单轮超时；--turns-per-session 每个会话的轮数，达到后换新会话以限制上下文长度；
+     * --unique-questions 是否给问题加序号，避免相同请求被缓存或合并；--server-metrics 额外采样的 actuator 指标（逗号分隔）；
+     * --report-interval 进度输出间隔；--report 最终报告 JSON 路径；--hgrm-dir 各项延迟的 .hgrm 百分位文件目录
+     * @param args 命令行参数
+     * @throws IOException 写报告失败时抛出
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = Arguments.parse(args);
+        ChatLoadDriver driver = new ChatLoadDriver(arguments);
+        driver.run();
+        String report = arguments.getString("report", null);
+        if (report != null) {
+            Files.writeString(Path.of(report), driver.jsonReport());
+        }
+        String hgrmDir = arguments.getString("hgrm-dir", null);
+        if (hgrmDir != null) {
+            driver.writeHgrm(Path.of(hgrmDir));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 启动全部虚拟用户，运行到预热加统计时长结束，等待进行中的一轮完成后输出报告
+     */
+    private void run() {
+        System.out.printf("target=%s%s concurrency=%d ramp-up=%s warmup=%s duration=%s think-time=%s%n",
+                target, path, concurrency, rampUp, warmup, duration, thinkTime);
+        long start = System.nanoTime();
+        long deadline = start + warmup.toNanos() + duration.toNanos();
+        AtomicLong lastTurns = new AtomicLong();
+
+        Disposable sampling = sampler.start(reportInterval);
+        Disposable reporting = Flux.interval(reportInterval, reportInterval)
+                .subscribe(tick -> progress(System.nanoTime() - start, lastTurns));
+        // 预热期间 JIT 尚未完成、连接和会话仍在建立，到点后丢弃已有记录
+        Disposable warmupReset = Mono.delay(warmup)
+                .subscribe(tick -> {
+                    stats.reset();
+                    resetCounters();
+                    lastTurns.set(0);
+                    System.out.println("warmup finished, statistics reset");
+                });
+
+        Flux.range(0, concurrency)
+                .flatMap(user -> Mono.delay(rampUp.multipliedBy(user).dividedBy(Math.max(1, concurrency)))
+                        .then(userLoop(user, deadline)), concurrency)
+                .then()
+                .block();
+        measuredNanos = System.nanoTime() - start - warmup.toNanos();
+        warmupReset.dispose();
+        reporting.dispose();
+        sampling.dispose();
+        stats.roll();
+        textReport(System.out);
+    }
+
+    /**
+     * 一个虚拟用户的循环：发送一轮对话、停顿、重复，直到截止时间
+     * @param user 用户序号
+     * @param deadline 截止时间（System.nanoTime）
+     * @return 用户结束的信号
+     */
+    private Mono<Void> userLoop(int user, long deadline) {
+        AtomicLong turnNo = new AtomicLong();
+        Mono<Void> pause = thinkTime.isZero() ? Mono.empty() : Mono.delay(thinkTime).then();
+        return Mono.defer(() -> turn(user, turnNo.getAndIncrement()))
+                .then(pause)
+                .repeat(() -> System.nanoTime() < deadline)
+                .then();
+    }
+
+    /**
+     * 发送一轮对话并读取完整的 NDJSON 流
+     * @param user 用户序号
+     * @param turnNo 该用户的轮次
+     * @return 本轮结束的信号，失败已被记录，不会向上传播
+     */
+    private Mono<Void> turn(int user, long turnNo) {
+        String sessionId = "lt-" + runId + "-" + user + "-" + turnNo / Math.max(1, turnsPerSession);
+        String question = QUESTIONS[(int) ((user + turnNo) % QUESTIONS.length)];
+        if (uniqueQuestions) {
+            question = question + "（" + user + "-" + turnNo + "）";
+        }
+        ObjectNode body = objectMapper.createObjectNode()
+                .put("sessionId", sessionId)
+                .put("content", question);
+        TurnTracker tracker = new TurnTracker(System.nanoTime());
+        inflight.incrementAndGet();
+        return streamClient
+                .headers(headers -> headers
+                        .set(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                        .set(HttpHeaderNames.ACCEPT, "application/x-ndjson")
+                        .set("X-Session-Id", sessionId))
+                .post()
+                .uri(path)
+                .send(ByteBufMono.fromString(Mono.just(body.toString())))
+                .response((response, content) -> {
+                    if (response.status().code() != 200) {
+                        tracker.failed = true;
+                        error("http-" + response.status().code());
+                        return content.then();
+                    }
+                    return content.doOnNext(tracker::onBytes).then();
+                })
+                .then()
+                .timeout(turnTimeout)
+                .doOnSuccess(ignored -> tracker.complete())
+                .onErrorResume(e -> {
+                    error(errorKind(e));
+                    return Mono.empty();
+                })
+                .doFinally(signal -> inflight.decrementAndGet());
+    }
+
+    /**
+     * 记录一次失败
+     * @param kind 失败类别
+     */
+    private void error(String kind) {
+        errors.computeIfAbsent(kind, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * 把异常归类为失败类别
+     * @param e 异常
+     * @return 失败类别
+     */
+    private static String errorKind(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (e instanceof PrematureCloseException) {
+            return "premature-close";
+        }
+        if (e instanceof ConnectException || e.getCause() instanceof ConnectException) {
+            return "connect";
+        }
+        return "transport-" + e.getClass().getSimpleName();
+    }
+
+    /**
+     * 预热结束时清零计数
+     */
+    private void resetCounters() {
+        turns.reset();
+        frames.reset();
+        bytes.reset();
+        errors.clear();
+    }
+
+    /**
+     * 输出一行进度：区间吞吐、区间首字延迟和服务端最新指标
+     * @param elapsedNanos 已运行时间
+     * @param lastTurns 上次输出时的完成轮数
+     */
+    private void progress(long elapsedNanos, AtomicLong lastTurns) {
+        Map<Metric, Histogram> interval = stats.roll();
+        long completed = turns.sum();
+        double turnsPerSecond = (completed - lastTurns.getAndSet(completed)) / (reportInterval.toMillis() / 1000.0);
+        Histogram firstAnswer = interval.get(Metric.FIRST_ANSWER);
+        Histogram gap = interval.get(Metric.INTER_FRAME);
+        System.out.printf("t=%ds inflight=%d turns/s=%.1f first-answer p50=%.0fms p99=%.0fms inter-frame p99=%.1fms errors=%d %s%n",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), inflight.get(), turnsPerSecond,
+                millis(firstAnswer.getValueAtPercentile(50)), millis(firstAnswer.getValueAtPercentile(99)),
+                millis(gap.getValueAtPercentile(99)), errorCount(), sampler.last());
+    }
+
+    /**
+     * 输出最终报告
+     * @param out 输出流
+     */
+    private void textReport(PrintStream out) {
+        double seconds = measuredNanos / 1e9;
+        out.println();
+        out.printf("turns=%d turns/s=%.1f frames=%d MB/s=%.2f errors=%d %s%n",
+                turns.sum(), turns.sum() / seconds, frames.sum(), bytes.sum() / seconds / 1e6,
+                errorCount(), errorCounts());
+        out.printf("%-14s %10s %10s %10s %10s %10s %10s %10s%n", "latency(ms)", "count", "p50", "p90", "p99", "p99.9", "max", "mean");
+        for (Metric metric : Metric.values()) {
+            Histogram histogram = stats.total(metric);
+            out.printf("%-14s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", metric.label(), histogram.getTotalCount(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), histogram.getMean() / 1000.0);
+        }
+        out.println("server last=" + sampler.last());
+        out.println("server max=" + sampler.max());
+    }
+
+    /**
+     * 生成 JSON 报告，便于不同配置之间对比
+     * @return JSON 报告
+     */
+    private String jsonReport() {
+        double seconds = measuredNanos / 1e9;
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("target", target + path);
+        root.put("concurrency", concurrency);
+        root.put("durationSeconds", seconds);
+        root.put("turns", turns.sum());
+        root.put("turnsPerSecond", turns.sum() / seconds);
+        root.put("frames", frames.sum());
+        root.put("bytes", bytes.sum());
+        ObjectNode errorNode = root.putObject("errors");
+        errorCounts().forEach(errorNode::put);
+        ObjectNode latency = root.putObject("latencyMillis");
+        for (Metric metric : Metric.values()) {
+            Histogram histogram = stats.total(metric);
+            ObjectNode node = latency.putObject(metric.label());
+            node.put("count", histogram.getTotalCount());
+            node.put("p50", millis(histogram.getValueAtPercentile(50)));
+            node.put("p90", millis(histogram.getValueAtPercentile(90)));
+            node.put("p99", millis(histogram.getValueAtPercentile(99)));
+            node.put("p99.9", millis(histogram.getValueAtPercentile(99.9)));
+            node.put("max", millis(histogram.getMaxValue()));
+            node.put("mean", histogram.getMean() / 1000.0);
+        }
+        ObjectNode server = root.putObject("server");
+        sampler.last().forEach(server.putObject("last")::put);
+        sampler.max().forEach(server.putObject("max")::put);
+        return root.toPrettyString();
+    }
+
+    /**
+     * 写出各项延迟的 .hgrm 百分位分布文件，可用 HdrHistogram 的绘图工具对比
+     * @param dir 目录
+     * @throws IOException 写文件失败时抛出
+     */
+    private void writeHgrm(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Metric metric : Metric.values()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(metric.label() + ".hgrm")))) {
+                stats.total(metric).outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    /**
+     * 获取失败总数
+     * @return 失败总数
+     */
+    private long errorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * 获取按类别统计的失败数
+     * @return 失败类别到次数的映射，按类别排序
+     */
+    private Map<String, Long> errorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((kind, count) -> counts.put(kind, count.sum()));
+        return counts;
+    }
+
+    /**
+     * 微秒转毫秒
+     * @param micros 微秒
+     * @return 毫秒
+     */
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * 一轮对话的接收状态
+     * 按字节切分 NDJSON 行，只读取每行开头的 {"type":" 之后的首字母判断帧类型，避免在压测端解析 JSON 成为瓶颈
+     */
+    private final class TurnTracker {
+
+        private static final int TYPE_OFFSET = "{\"type\":\"".length();
+
+        private final long start;
+        private long lastFrame;
+        private int frameCount;
+        private int lineLength;
+        private byte lineType;
+        private boolean answered;
+        private boolean errorFrame;
+        private boolean failed;
+
+        /**
+         * 构造函数
+         * @param start 发出请求的时间
+         */
+        TurnTracker(long start) {
+            this.start = start;
+        }
+
+        /**
+         * 处理收到的一段字节
+         * @param buf 字节
+         */
+        void onBytes(ByteBuf buf) {
+            bytes.add(buf.readableBytes());
+            for (int i = buf.readerIndex(), end = buf.writerIndex(); i < end; i++) {
+                byte b = buf.getByte(i);
+                if (b == '\n') {
+                    if (lineLength > 0) {
+                        onFrame(lineType, System.nanoTime());
+                    }
+                    lineLength = 0;
+                    lineType = 0;
+                    continue;
+                }
+                if (lineLength == TYPE_OFFSET) {
+                    lineType = b;
+                }
+                lineLength++;
+            }
+        }
+
+        /**
+         * 处理一个完整的帧
+         * @param type 帧类型首字母：t 思考、r 回答、e 错误
+         * @param now 收到帧的时间
+         */
+        private void onFrame(byte type, long now) {
+            frames.increment();
+            if (frameCount++ == 0) {
+                stats.record(Metric.FIRST_FRAME, now - start);
+            } else {
+                stats.record(Metric.INTER_FRAME, now - lastFrame);
+            }
+            lastFrame = now;
+            if (type == 'r' && !answered) {
+                answered = true;
+                stats.record(Metric.FIRST_ANSWER, now - start);
+            } else if (type == 'e') {
+                errorFrame = true;
+            }
+        }
+
+        /**
+         * 流正常结束，错误帧和没有回答的流计为失败
+         */
+        void complete() {
+            if (failed) {
+                return;
+            }
+            if (errorFrame) {
+                error("error-frame");
+            } else if (!answered) {
+                error("no-answer");
+            } else {
+                turns.increment();
+                stats.record(Metric.TURN, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.agent.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DashScope 流式接口的本地桩服务
+ * 实现 text-generation 接口的 SSE 协议（id / event:result / :HTTP_STATUS / data 行），
+ * 首字延迟、字间延迟、回答长度按分布随机取值，并可按比例注入请求失败、流中断和流停滞，
+ * 配合应用的 loadtest 配置，在不消耗真实额度的前提下压测整条对话链路。
+ * <pre>
+ * java -cp target/loadtest.jar com.example.agent.loadtest.DashScopeStubServer \
+ *     --port=18080 --ttft=lognormal:300,1500 --inter-token=lognormal:30,120 --answer-chars=uniform:200-800
+ * </pre>
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class DashScopeStubServer {
+
+    private static final String GENERATION_PATH = "/api/v1/services/aigc/text-generation/generation";
+
+    private static final String CORPUS = "您好，关于您咨询的问题，我们为您整理了以下处理步骤。首先请登录账户进入订单详情页面，"
+            + "确认商品状态和物流信息；如需退换货，请在签收后七天内提交申请并保持商品完好。"
+            + "退款将在审核通过后一到三个工作日原路退回，期间可在消息中心查看进度。"
+            + "如果问题仍未解决，可以联系人工客服，我们会尽快为您处理。";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Distribution ttft;
+    private final Distribution interToken;
+    private final Distribution answerChars;
+    private final int chunkChars;
+    private final double errorRate;
+    private final double streamErrorRate;
+    private final double stallRate;
+
+    private final AtomicLong active = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong injected = new AtomicLong();
+
+    private DashScopeStubServer(Arguments arguments) {
+        this.ttft = arguments.getDistribution("ttft", "lognormal:300,1500");
+        this.interToken = arguments.getDistribution("inter-token", "lognormal:30,120");
+        this.answerChars = arguments.getDistribution("answer-chars", "uniform:200-800");
+        this.chunkChars = Math.max(1, arguments.getInt("chunk-chars", 4));
+        this.errorRate = arguments.getDouble("error-rate", 0);
+        this.streamErrorRate = arguments.getDouble("stream-error-rate", 0);
+        this.stallRate = arguments.getDouble("stall-rate", 0);
+    }
+
+    /**
+     * 启动桩服务
+     * 参数：--port 端口（默认 18080）；--ttft、--inter-token、--answer-chars 分布（毫秒 / 字数）；
+     * --chunk-chars 每帧字数；--error-rate 请求直接失败的比例（429 / 500）；
+     * --stream-error-rate 流中途返回错误事件的比例；--stall-rate 流中途停止输出但不关闭连接的比例
+     * @param args 命令行参数
+     */
+    public static void main(String[] args) {
+        Arguments arguments = Arguments.parse(args);
+        DashScopeStubServer stub = new DashScopeStubServer(arguments);
+        DisposableServer server = HttpServer.create()
+                .port(arguments.getInt("port", 18080))
+                .route(routes -> routes.post(GENERATION_PATH, stub::generate))
+                .bindNow();
+        System.out.printf("DashScope stub listening on %s, ttft=%s inter-token=%s answer-chars=%s chunk-chars=%d "
+                        + "error-rate=%.3f stream-error-rate=%.3f stall-rate=%.3f%n",
+                server.address(), stub.ttft, stub.interToken, stub.answerChars, stub.chunkChars,
+                stub.errorRate, stub.streamErrorRate, stub.stallRate);
+        Flux.interval(Duration.ofSeconds(10))
+                .subscribe(tick -> System.out.printf("stub active=%d started=%d completed=%d injected=%d%n",
+                        stub.active.get(), stub.started.get(), stub.completed.get(), stub.injected.get()));
+        server.onDispose().block();
+    }
+
+    /**
+     * 处理一次生成请求
+     * @param request 请求
+     * @param response 响应
+     * @return 响应发送结果
+     */
+    private Publisher<Void> generate(HttpServerRequest request, HttpServerResponse response) {
+        boolean sse = "enable".equalsIgnoreCase(request.requestHeaders().get("X-DashScope-SSE"))
+                || String.valueOf(request.requestHeaders().get(HttpHeaderNames.ACCEPT)).contains("text/event-stream");
+        return request.receive().aggregate().asString(StandardCharsets.UTF_8)
+                .defaultIfEmpty("{}")
+                .flatMap(body -> {
+                    GenerationRequest generation = parse(body);
+                    String requestId = UUID.randomUUID().toString();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    if (random.nextDouble() < errorRate) {
+                        injected.incrementAndGet();
+                        boolean throttled = random.nextBoolean();
+                        return response.status(throttled ? HttpResponseStatus.TOO_MANY_REQUESTS : HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just(errorJson(throttled ? "Throttling.RateQuota" : "InternalError",
+                                        "injected failure", requestId)))
+                                .then();
+                    }
+                    String answer = answer(generation.maxTokens);
+                    if (!sse) {
+                        return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.delay(Duration.ofMillis(ttft.sample()))
+                                        .map(tick -> resultJson(generation, answer, answer, "stop", requestId)))
+                                .then();
+                    }
+                    return response.header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream;charset=UTF-8")
+                            .header(HttpHeaderNames.CACHE_CONTROL, "no-cache")
+                            .header("X-DashScope-Request-Id", requestId)
+                            .sendString(stream(generation, answer, requestId), StandardCharsets.UTF_8)
+                            .then();
+                });
+    }
+
+    /**
+     * 生成 SSE 事件流
+     * @param generation 请求参数
+     * @param answer 完整回答
+     * @param requestId 请求 ID
+     * @return 事件流
+     */
+    private Flux<String> stream(GenerationRequest generation, String answer, String requestId) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < answer.length(); i += chunkChars) {
+            chunks.add(answer.substring(i, Math.min(answer.length(), i + chunkChars)));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int failAt = random.nextDouble() < streamErrorRate ? random.nextInt(chunks.size()) : -1;
+        int stallAt = failAt < 0 && random.nextDouble() < stallRate ? random.nextInt(chunks.size()) : -1;
+        if (failAt >= 0 || stallAt >= 0) {
+            injected.incrementAndGet();
+        }
+        StringBuilder cumulative = new StringBuilder(answer.length());
+        Flux<String> events = Flux.range(0, chunks.size())
+                .concatMap(i -> {
+                    long delay = i == 0 ? ttft.sample() : interToken.sample();
+                    return Mono.delay(Duration.ofMillis(delay)).map(tick -> {
+                        if (i == failAt) {
+                            return event(i + 1, "error", 500, errorJson("InternalError", "injected stream failure", requestId));
+                        }
+                        String chunk = chunks.get(i);
+                        cumulative.append(chunk);
+                        String text = generation.incremental ? chunk : cumulative.toString();
+                        String finish = i == chunks.size() - 1 ? "stop" : "null";
+                        return event(i + 1, "result", 200, resultJson(generation, text, cumulative, finish, requestId));
+                    });
+                })
+                .takeUntil(event -> event.contains("event:error"));
+        if (stallAt >= 0) {
+            events = events.take(stallAt).concatWith(Flux.never());
+        }
+        return events
+                .doOnSubscribe(subscription -> {
+                    active.incrementAndGet();
+                    started.incrementAndGet();
+                })
+                .doOnComplete(completed::incrementAndGet)
+                .doFinally(signal -> active.decrementAndGet());
+    }
+
+    /**
+     * 拼接一个 SSE 事件
+     * @param id 事件序号
+     * @param type 事件类型
+     * @param status HTTP 状态
+     * @param data 事件数据
+     * @return 事件文本
+     */
+    private static String event(int id, String type, int status, String data) {
+        return "id:" + id + "\nevent:" + type + "\n:HTTP_STATUS/" + status + "\ndata:" + data + "\n\n";
+    }
+
+    /**
+     * 生成结果 JSON，result_format 为 message 时放在 choices 中，否则放在 text 中
+     * @param generation 请求参数
+     * @param text 本帧文本
+     * @param generated 已生成的全部文本，用于统计输出 token
+     * @param finishReason 结束原因
+     * @param requestId 请求 ID
+     * @return 结果 JSON
+     */
+    private String resultJson(GenerationRequest generation, String text, CharSequence generated,
+                              String finishReason, String requestId) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode output = root.putObject("output");
+        if (generation.messageFormat) {
+            ObjectNode choice = output.putArray("choices").addObject();
+            choice.put("finish_reason", finishReason);
+            choice.putObject("message").put("role", "assistant").put("content", text);
+        } else {
+            output.put("finish_reason", finishReason);
+            output.put("text", text);
+        }
+        ObjectNode usage = root.putObject("usage");
+        usage.put("input_tokens", generation.inputChars);
+        usage.put("output_tokens", generated.length());
+        usage.put("total_tokens", generation.inputChars + generated.length());
+        root.put("request_id", requestId);
+        return root.toString();
+    }
+
+    /**
+     * 生成错误 JSON
+     * @param code 错误码
+     * @param message 错误信息
+     * @param requestId 请求 ID
+     * @return 错误 JSON
+     */
+    private String errorJson(String code, String message, String requestId) {
+        return objectMapper.createObjectNode()
+                .put("code", code)
+                .put("message", message)
+                .put("request_id", requestId)
+                .toString();
+    }
+
+    /**
+     * 按长度分布生成回答，不超过请求的 max_tokens（按一字一 token 估算）
+     * @param maxTokens 最大 token 数，0 表示不限制
+     * @return 回答
+     */
+    private String answer(int maxTokens) {
+        int length = (int) Math.max(1, answerChars.sample());
+        if (maxTokens > 0) {
+            length = Math.min(length, maxTokens);
+        }
+        StringBuilder answer = new StringBuilder(length);
+        int offset = ThreadLocalRandom.current().nextInt(CORPUS.length());
+        while (answer.length() < length) {
+            int end = Math.min(CORPUS.length(), offset + length - answer.length());
+            answer.append(CORPUS, offset, end);
+            offset = 0;
+        }
+        return answer.toString();
+    }
+
+    /**
+     * 解析请求体
+     * @param body 请求体
+     * @return 请求参数
+     */
+    private GenerationRequest parse(String body) {
+        GenerationRequest generation = new GenerationRequest();
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            JsonNode parameters = root.path("parameters");
+            generation.incremental = parameters.path("incremental_output").asBoolean(false);
+            generation.messageFormat = "message".equals(parameters.path("result_format").asText());
+            generation.maxTokens = parameters.path("max_tokens").asInt(0);
+            for (JsonNode message : root.path("input").path("messages")) {
+                generation.inputChars += message.path("content").asText().length();
+            }
+            generation.inputChars += root.path("input").path("prompt").asText().length();
+        } catch (Exception e) {
+            // 请求体不是合法 JSON 时按默认参数生成回答
+        }
+        return generation;
+    }
+
+    /**
+     * 桩服务关心的请求参数
+     */
+    private static final class GenerationRequest {
+        private boolean incremental;
+        private boolean messageFormat;
+        private int maxTokens;
+        private int inputChars;
+    }
+}
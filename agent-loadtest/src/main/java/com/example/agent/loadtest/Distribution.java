@@ -0,0 +1,105 @@
+package com.example.agent.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机取值的分布，用于桩服务的延迟和回答长度
+ * 支持以下写法：
+ * <ul>
+ *     <li>fixed:50 —— 固定值</li>
+ *     <li>uniform:20-80 —— 区间内均匀分布</li>
+ *     <li>exponential:50 —— 均值为 50 的指数分布</li>
+ *     <li>lognormal:50,400 —— 中位数 50、p99 为 400 的对数正态分布，适合模拟长尾延迟</li>
+ * </ul>
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+final class Distribution {
+
+    /**
+     * 标准正态分布的 99 分位
+     */
+    private static final double Z_99 = 2.3263;
+
+    private final String spec;
+    private final Kind kind;
+    private final double first;
+    private final double second;
+
+    private Distribution(String spec, Kind kind, double first, double second) {
+        this.spec = spec;
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * 解析分布
+     * @param spec 分布写法
+     * @return 分布
+     * @throws IllegalArgumentException 写法不合法时抛出
+     */
+    static Distribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("分布写法应为 类型:参数，例如 lognormal:50,400: " + spec);
+        }
+        String kind = spec.substring(0, colon).trim();
+        String params = spec.substring(colon + 1).trim();
+        switch (kind) {
+            case "fixed":
+                return new Distribution(spec, Kind.FIXED, Double.parseDouble(params), 0);
+            case "uniform": {
+                String[] range = params.split("-");
+                return new Distribution(spec, Kind.UNIFORM, Double.parseDouble(range[0]), Double.parseDouble(range[1]));
+            }
+            case "exponential":
+                return new Distribution(spec, Kind.EXPONENTIAL, Double.parseDouble(params), 0);
+            case "lognormal": {
+                String[] values = params.split(",");
+                double median = Double.parseDouble(values[0]);
+                double p99 = Double.parseDouble(values[1]);
+                if (median <= 0 || p99 < median) {
+                    throw new IllegalArgumentException("对数正态分布要求 0 < 中位数 <= p99: " + spec);
+                }
+                return new Distribution(spec, Kind.LOGNORMAL, Math.log(median), Math.log(p99 / median) / Z_99);
+            }
+            default:
+                throw new IllegalArgumentException("不支持的分布类型: " + spec);
+        }
+    }
+
+    /**
+     * 取一个值
+     * @return 非负整数
+     */
+    long sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double value;
+        switch (kind) {
+            case UNIFORM:
+                value = first + random.nextDouble() * (second - first);
+                break;
+            case EXPONENTIAL:
+                value = -first * Math.log(1 - random.nextDouble());
+                break;
+            case LOGNORMAL:
+                value = Math.exp(first + second * random.nextGaussian());
+                break;
+            default:
+                value = first;
+        }
+        return Math.max(0, Math.round(value));
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private enum Kind {
+        FIXED, UNIFORM, EXPONENTIAL, LOGNORMAL
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.agent.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测延迟统计
+ * 每项指标一个 HdrHistogram {@link Recorder}，记录端无锁；汇报线程按周期取出区间直方图并累加到全程直方图，
+ * 区间直方图用于进度输出，全程直方图用于最终报告。单位为微秒。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+final class LatencyStats {
+
+    /**
+     * 可记录的最大值：一小时
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final Map<Metric, Recorder> recorders = new EnumMap<>(Metric.class);
+    private final Map<Metric, Histogram> totals = new EnumMap<>(Metric.class);
+    private final Map<Metric, Histogram> intervals = new EnumMap<>(Metric.class);
+
+    LatencyStats() {
+        for (Metric metric : Metric.values()) {
+            recorders.put(metric, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            totals.put(metric, new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+        }
+    }
+
+    /**
+     * 记录一次延迟
+     * @param metric 指标
+     * @param nanos 延迟纳秒数
+     */
+    void record(Metric metric, long nanos) {
+        long micros = Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        recorders.get(metric).recordValue(micros);
+    }
+
+    /**
+     * 结束当前区间：取出区间直方图并累加到全程直方图
+     * @return 各指标本区间的直方图
+     */
+    synchronized Map<Metric, Histogram> roll() {
+        for (Metric metric : Metric.values()) {
+            Histogram interval = recorders.get(metric).getIntervalHistogram(intervals.get(metric));
+            totals.get(metric).add(interval);
+            intervals.put(metric, interval);
+        }
+        return intervals;
+    }
+
+    /**
+     * 丢弃到目前为止的全部记录，用于预热结束时
+     */
+    synchronized void reset() {
+        roll();
+        totals.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * 获取全程直方图，调用前应先 {@link #roll()}
+     * @param metric 指标
+     * @return 全程直方图
+     */
+    synchronized Histogram total(Metric metric) {
+        return totals.get(metric);
+    }
+
+    /**
+     * 延迟指标
+     */
+    enum Metric {
+        /**
+         * 发出请求到收到第一帧（通常是思考帧）
+         */
+        FIRST_FRAME("first-frame"),
+        /**
+         * 发出请求到收到第一条回答帧，即用户感知的首字延迟
+         */
+        FIRST_ANSWER("first-answer"),
+        /**
+         * 相邻两帧的间隔
+         */
+        INTER_FRAME("inter-frame"),
+        /**
+         * 一轮对话从请求到流结束的耗时
+         */
+        TURN("turn");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        /**
+         * 获取指标名
+         * @return 指标名
+         */
+        String label() {
+            return label;
+        }
+    }
+}
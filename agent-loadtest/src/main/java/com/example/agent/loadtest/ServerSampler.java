@@ -0,0 +1,129 @@
+package com.example.agent.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 被测服务的指标采样
+ * 按周期读取 actuator 的 /actuator/metrics 接口，记录每项指标的最新值和最大值（如堆内存、线程数、持久化写入延迟）。
+ * 指标写法为 名称[?tag=键:值][#统计量]，例如 jvm.memory.used?tag=area:heap、chat.persistence.write.lag#MAX，
+ * 未指定统计量时取第一个测量值（gauge 为 VALUE，timer 为 COUNT）。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+final class ServerSampler {
+
+    private final HttpClient client;
+    private final List<String> metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Double> last = new ConcurrentHashMap<>();
+    private final Map<String, Double> max = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     * @param client 指向被测服务的 HTTP 客户端，应使用独立连接池，避免被压测流量占满
+     * @param metrics 需要采样的指标
+     */
+    ServerSampler(HttpClient client, List<String> metrics) {
+        this.client = client;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 开始周期采样
+     * @param interval 采样间隔
+     * @return 用于停止采样的句柄
+     */
+    Disposable start(Duration interval) {
+        return Flux.interval(Duration.ZERO, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(metrics).flatMap(this::sample).then())
+                .subscribe();
+    }
+
+    /**
+     * 获取各指标的最新值
+     * @return 指标名到最新值的映射，按配置顺序排列
+     */
+    Map<String, Double> last() {
+        return ordered(last);
+    }
+
+    /**
+     * 获取各指标的最大值
+     * @return 指标名到最大值的映射，按配置顺序排列
+     */
+    Map<String, Double> max() {
+        return ordered(max);
+    }
+
+    /**
+     * 采样一项指标，失败时忽略（服务可能尚未启动或未开启该指标）
+     * @param spec 指标写法
+     * @return 采样结果
+     */
+    private Mono<Void> sample(String spec) {
+        int hash = spec.indexOf('#');
+        String query = hash < 0 ? spec : spec.substring(0, hash);
+        String statistic = hash < 0 ? null : spec.substring(hash + 1);
+        return client.get()
+                .uri("/actuator/metrics/" + query)
+                .responseSingle((response, body) -> response.status().code() == 200 ? body.asString() : Mono.empty())
+                .doOnNext(json -> {
+                    Double value = extract(json, statistic);
+                    if (value != null) {
+                        last.put(spec, value);
+                        max.merge(spec, value, Math::max);
+                    }
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * 从 actuator 响应中取出测量值
+     * @param json actuator 响应
+     * @param statistic 统计量，为 null 时取第一个
+     * @return 测量值，找不到时返回 null
+     */
+    private Double extract(String json, String statistic) {
+        try {
+            for (JsonNode measurement : objectMapper.readTree(json).path("measurements")) {
+                if (statistic == null || statistic.equalsIgnoreCase(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+        } catch (Exception e) {
+            // 响应不是合法 JSON 时视为本次没有采到
+        }
+        return null;
+    }
+
+    /**
+     * 按配置顺序输出
+     * @param values 指标值
+     * @return 有序的指标值
+     */
+    private Map<String, Double> ordered(Map<String, Double> values) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (String metric : metrics) {
+            Double value = values.get(metric);
+            if (value != null) {
+                result.put(metric, value);
+            }
+        }
+        return result;
+    }
+}
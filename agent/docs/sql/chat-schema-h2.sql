@@ -0,0 +1,27 @@
+-- 嵌入式 H2（MySQL 模式）使用的会话表结构，与 init.sql 中的 chat_session、chat_message 保持一致
+-- init.sql 含 ENGINE、COMMENT 等 H2 不支持的 MySQL 语法，因此单独维护这份脚本；
+-- 打包运行时不依赖工作目录，spring.sql.init 从类路径加载，构建时由 maven-resources-plugin 复制到类路径的 db/ 下
+
+CREATE TABLE IF NOT EXISTS chat_session (
+    id VARCHAR(64) NOT NULL,
+    user_id VARCHAR(64) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    status TINYINT NOT NULL DEFAULT 1,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_chat_session_user_id ON chat_session (user_id);
+CREATE INDEX IF NOT EXISTS idx_chat_session_created_at ON chat_session (created_at);
+
+CREATE TABLE IF NOT EXISTS chat_message (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    session_id VARCHAR(64) NOT NULL,
+    message_type TINYINT NOT NULL DEFAULT 1,
+    content TEXT NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_chat_message_session_id ON chat_message (session_id);
+CREATE INDEX IF NOT EXISTS idx_chat_message_created_at ON chat_message (created_at);
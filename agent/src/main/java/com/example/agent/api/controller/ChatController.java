@@ -1,22 +1,31 @@
 package com.example.agent.api.controller;
 
 
+import com.example.agent.application.config.ChatStreamProperties;
 import com.example.agent.application.exception.BusinessException;
 import com.example.agent.application.service.ChatService;
 import com.example.agent.domain.chat.ChatAggregate;
+import com.example.agent.domain.chat.ChatValidator;
+import com.example.agent.domain.chat.service.RollingSummaryService;
 import com.example.agent.domain.chat.service.ThinkingService;
+import com.example.agent.infrastructure.limit.ChatRateLimiter;
+import com.example.agent.infrastructure.response.ChatStreamFrame;
+import com.example.agent.infrastructure.stream.ChatStreamMetrics;
+import com.example.agent.infrastructure.stream.FrameCoalescer;
+import com.example.agent.infrastructure.stream.NdjsonFrameEncoder;
+import com.example.agent.infrastructure.stream.TurnAccumulator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.memory.ChatMemory;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
-import java.time.Duration;
 import java.util.List;
 
 /**
@@ -38,99 +47,112 @@ import java.util.List;
 @RequestMapping("/api/chat")
 public class ChatController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
+
+    /**
+     * 流式思考接口路径，作为流指标的 endpoint 标签
+     */
+    private static final String THINKING_ENDPOINT = "/api/chat/send/thinking";
+
     private final ChatService chatService;
     private final ThinkingService thinkingService;
-    private final ObjectMapper objectMapper;
     private final ChatMemory chatMemory;
+    private final ChatStreamProperties streamProperties;
+    private final FrameCoalescer frameCoalescer;
+    private final ChatStreamMetrics streamMetrics;
+    private final TurnAccumulator turnAccumulator;
+    private final NdjsonFrameEncoder frameEncoder;
+    private final RollingSummaryService rollingSummaryService;
+    private final ChatRateLimiter rateLimiter;
+    private final ChatValidator chatValidator;
 
     @Autowired
     public ChatController(ChatService chatService, ThinkingService thinkingService, 
-                         ObjectMapper objectMapper, ChatMemory chatMemory) {
+                         ChatMemory chatMemory, ChatStreamProperties streamProperties,
+                         FrameCoalescer frameCoalescer, ChatStreamMetrics streamMetrics,
+                         TurnAccumulator turnAccumulator, NdjsonFrameEncoder frameEncoder,
+                         RollingSummaryService rollingSummaryService, ChatRateLimiter rateLimiter,
+                         ChatValidator chatValidator) {
         this.chatService = chatService;
         this.thinkingService = thinkingService;
-        this.objectMapper = objectMapper;
         this.chatMemory = chatMemory;
+        this.streamProperties = streamProperties;
+        this.frameCoalescer = frameCoalescer;
+        this.streamMetrics = streamMetrics;
+        this.turnAccumulator = turnAccumulator;
+        this.frameEncoder = frameEncoder;
+        this.rollingSummaryService = rollingSummaryService;
+        this.rateLimiter = rateLimiter;
+        this.chatValidator = chatValidator;
     }
 
     /**
      * first 流式 AI 回答
      * @param request
+     * @param sessionHeader X-Session-Id 请求头，会话限流按它计数，必须与请求体中的会话ID一致
      * @return
      */
     @PostMapping(value = "/send/thinking", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<String> sendMessage(@RequestBody ChatRequest request) {
+    public Flux<DataBuffer> sendMessage(@RequestBody ChatRequest request,
+                                        @RequestHeader(value = ChatRateLimiter.SESSION_HEADER, required = false) String sessionHeader) {
         String content = request.getContent();
         String conversationId = request.getSessionId();
+        // 会话ID写入记忆和会话记录表之前先校验长度，超长的ID不能进入批量写入
+        chatValidator.validateSessionId(conversationId);
+        if (!rateLimiter.isSessionHeaderValid(THINKING_ENDPOINT, sessionHeader, conversationId)) {
+            throw new BusinessException("请求头 " + ChatRateLimiter.SESSION_HEADER + " 必须与会话ID一致");
+        }
         
+        // 获取历史消息（不含本轮问题，本轮问题由 ChatService 单独追加）
+        List<Message> fullHistory = chatMemory.get(conversationId, 100);
+
+        // 已被滚动摘要覆盖的早期对话替换为一条摘要消息，必要时在后台继续压缩
+        List<Message> history = rollingSummaryService.compact(conversationId, fullHistory);
+        rollingSummaryService.summarizeIfNeeded(conversationId, fullHistory);
+
         // 创建用户消息并添加到记忆
         UserMessage userMessage = new UserMessage(content);
         chatMemory.add(conversationId, userMessage);
         
-        // 获取历史消息
-        List<Message> history = chatMemory.get(conversationId, 100);
-        
-        // 首先返回思考步骤，传入历史消息
-        Flux<String> thinkingSteps = thinkingService.generateThinkingSteps(content, conversationId, history)
-            .map(step -> {
-                try {
-
-                    // 确保每个思考步骤都作为独立的消息发送
-                    System.out.println("Sending thinking step: " + step.getContent());
-                    ChatResponse response = new ChatResponse("thinking", step.getContent());
-                    return objectMapper.writeValueAsString(response) + "\n";
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    return "";
-                }
-            })
-            .filter(stepContent -> !stepContent.isEmpty())
-            .doOnNext(stepContent -> System.out.println("思考步骤流: " + stepContent));
-
+        // 首先返回思考步骤，传入历史消息；思考调用过载、超时或熔断时跳过思考步骤，
+        // 不让它取消已在进行的回答，回答本身失败时仍由回答分支输出 error 帧
+        Flux<ChatStreamFrame> thinkingSteps = Flux.defer(() -> thinkingService.generateThinkingSteps(content, conversationId, history))
+            .map(step -> new ChatStreamFrame(ChatStreamFrame.TYPE_THINKING, step.getContent()))
+            .onErrorResume(BusinessException.class, e -> {
+                logger.warn("思考步骤生成失败，跳过思考: sessionId={}, error={}", conversationId, e.getMessage());
+                return Flux.empty();
+            });
 
         // 构建ChatAggregate对象
         ChatAggregate chatAggregate = new ChatAggregate();
         chatAggregate.setContent(content);
         chatAggregate.setSessionId(conversationId);
         
-        // 添加历史消息作为上下文
-        String[] contextMessages = history.stream()
-            .map(msg -> {
-                if (msg instanceof UserMessage) {
-                    return "user: " + msg.getContent();
-                } else if (msg instanceof AssistantMessage) {
-                    return "assistant: " + msg.getContent();
-                }
-                return "";
-            })
-            .filter(msg -> !msg.isEmpty())
-            .toArray(String[]::new);
-        chatAggregate.setContextMessages(contextMessages);
-
-        // 使用现有的chat服务获取AI回答
-        Flux<String> aiResponse = chatService.processStreamMessage(chatAggregate)
-            .map(aiContent -> {
-                try {
-                    if (!aiContent.startsWith("思考过程开始") && !aiContent.contains("思考过程结束")) {
-                        // 添加AI响应到记忆
-                        AssistantMessage assistantMessage = new AssistantMessage(aiContent);
-                        chatMemory.add(conversationId, assistantMessage);
-                        
-                        // 返回响应
-                        ChatResponse response = new ChatResponse("response", aiContent);
-                        return objectMapper.writeValueAsString(response) + "\n";
-                    }
-                    return "";
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    return "";
-                }
-            })
-            .filter(responseStr -> !responseStr.isEmpty())
-            .doOnNext(responseStr -> System.out.println("AI回答流: " + responseStr));
-
-        return Flux.concat(thinkingSteps, aiResponse)
-            .delayElements(Duration.ofMillis(50))
-            .doOnError(e -> System.err.println("思考和回答流错误: " + e.getMessage()));
+        // 添加历史消息作为上下文，由 ChatService 按 token 预算裁剪
+        chatAggregate.setContextHistory(history);
+
+        // 使用现有的chat服务获取AI回答，服务选定的模型记录在 chatAggregate 上
+        Flux<String> answerDeltas = chatService.processStreamMessage(chatAggregate)
+            .filter(aiContent -> !aiContent.startsWith("思考过程开始") && !aiContent.contains("思考过程结束"));
+
+        // 整轮回答结束时只向记忆写入一条助手消息
+        Flux<ChatStreamFrame> aiResponse = turnAccumulator.commitOnTerminate(conversationId, answerDeltas)
+            .map(aiContent -> new ChatStreamFrame(ChatStreamFrame.TYPE_RESPONSE, aiContent))
+            // 上游过载、超时或熔断时以一条 error 帧正常结束响应，前端可据此提示用户稍后重试
+            .onErrorResume(BusinessException.class,
+                e -> Flux.just(new ChatStreamFrame(ChatStreamFrame.TYPE_ERROR, e.getMessage())));
+
+        // 并发模式下两路上游请求同时发起，回答片段先进入有界缓冲区，思考流结束后立即按序输出
+        Flux<ChatStreamFrame> combined = streamProperties.isConcurrentThinking()
+            ? Flux.mergeSequential(streamProperties.getAnswerBufferSize(), thinkingSteps, aiResponse)
+            : Flux.concat(thinkingSteps, aiResponse);
+
+        // 按时间窗口和字节数合并增量后直接编码为 NDJSON 字节帧，按回答所用模型统计首帧、帧间隔和整轮耗时，
+        // 轮次结束时按采样输出一行汇总访问日志
+        return streamMetrics.record(THINKING_ENDPOINT, chatAggregate.getModel(), conversationId, content,
+                frameCoalescer.coalesce(combined), frameEncoder::encode)
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+            .doOnError(e -> logger.warn("思考和回答流错误: sessionId={}, error={}", conversationId, e.toString()));
     }
 }
 
@@ -157,42 +179,3 @@ class ChatRequest {
         this.content = content;
     }
 }
-
-/**
- * 聊天响应对象
- */
-class ChatResponse {
-    private String type;    // "thinking" 或 "response"
-    private String content;
-    private Long timestamp;
-
-    public ChatResponse(String type, String content) {
-        this.type = type;
-        this.content = content;
-        this.timestamp = System.currentTimeMillis();
-    }
-
-    public String getType() {
-        return type;
-    }
-
-    public void setType(String type) {
-        this.type = type;
-    }
-
-    public String getContent() {
-        return content;
-    }
-
-    public void setContent(String content) {
-        this.content = content;
-    }
-
-    public Long getTimestamp() {
-        return timestamp;
-    }
-
-    public void setTimestamp(Long timestamp) {
-        this.timestamp = timestamp;
-    }
-} 
\ No newline at end of file
@@ -0,0 +1,264 @@
+package com.example.agent.api.endpoint;
+
+import com.example.agent.infrastructure.jfr.ChatTurnEvent;
+import com.example.agent.infrastructure.jfr.ChunkEmittedEvent;
+import com.example.agent.infrastructure.jfr.MemoryAppendEvent;
+import com.example.agent.infrastructure.jfr.ThinkingPhaseEvent;
+import com.example.agent.infrastructure.jfr.UpstreamStreamEvent;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * JFR 录制的 actuator 端点
+ * 在不连接外部分析工具的情况下录制对话链路的自定义事件（ChatTurn、ThinkingPhase、UpstreamStream、ChunkEmitted、MemoryAppend）
+ * 以及所选 JFR 配置中的 GC、锁竞争、线程等事件，用于把慢轮次和同一时间段的 GC 停顿、锁等待对应起来。
+ * <ul>
+ *     <li>GET /actuator/jfr —— 列出录制</li>
+ *     <li>POST /actuator/jfr/{name} —— 开始录制，可选参数 settings（default 或 profile）、maxAge、maxSize、chunkThreshold</li>
+ *     <li>GET /actuator/jfr/{name} —— 下载录制内容（.jfr 文件）</li>
+ *     <li>DELETE /actuator/jfr/{name} —— 停止并关闭录制，删除其导出文件</li>
+ * </ul>
+ * 同时进行的录制最多 {@value #MAX_RECORDINGS} 个，maxAge、maxSize 超过上限时按上限处理，
+ * 每个录制只保留一个导出文件，因此录制和导出占用的磁盘空间有上界。
+ * 录制内容包含会话 ID，默认配置通过 management.endpoints.web.exposure.exclude 不在 HTTP 上暴露该端点，
+ * 需要 HTTP 访问时应先为 actuator 加上认证或只监听内网管理端口。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+
+    private static final List<Class<? extends Event>> CHAT_EVENTS = List.of(ChatTurnEvent.class,
+            ThinkingPhaseEvent.class, UpstreamStreamEvent.class, ChunkEmittedEvent.class, MemoryAppendEvent.class);
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(30);
+
+    private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * 同时保留的录制数上限
+     */
+    static final int MAX_RECORDINGS = 4;
+
+    /**
+     * 单个录制保留时间的上限
+     */
+    static final Duration MAX_AGE_LIMIT = Duration.ofHours(2);
+
+    /**
+     * 单个录制保留字节数的上限
+     */
+    static final long MAX_SIZE_LIMIT = 512L * 1024 * 1024;
+
+    private final Map<String, Recording> recordings = new LinkedHashMap<>();
+    private Path dumpDirectory;
+
+    /**
+     * 构造函数，JFR 可用时注册自定义事件，使其在录制配置中可见
+     */
+    public FlightRecorderEndpoint() {
+        if (FlightRecorder.isAvailable()) {
+            CHAT_EVENTS.forEach(FlightRecorder::register);
+        }
+    }
+
+    /**
+     * 列出录制
+     * @return 录制名称到录制状态的映射
+     */
+    @ReadOperation
+    public synchronized Map<String, Object> recordings() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("available", FlightRecorder.isAvailable());
+        Map<String, Object> described = new LinkedHashMap<>();
+        recordings.forEach((name, recording) -> described.put(name, describe(recording)));
+        result.put("recordings", described);
+        return result;
+    }
+
+    /**
+     * 开始录制；同名录制已存在时保持不变
+     * @param name 录制名称
+     * @param settings JFR 配置名称，默认 profile
+     * @param maxAge 保留的最长时间，默认 30 分钟，最长 2 小时
+     * @param maxSize 保留的最大字节数，默认 256MB，最大 512MB
+     * @param chunkThreshold ChunkEmitted 事件的阈值，默认 20ms
+     * @return 录制状态
+     * @throws InvalidEndpointRequestException 名称或配置不合法、录制数已达上限、JFR 不可用时抛出
+     */
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Selector String name, @Nullable String settings,
+                                                  @Nullable Duration maxAge, @Nullable Long maxSize,
+                                                  @Nullable Duration chunkThreshold) {
+        validateName(name);
+        if (!FlightRecorder.isAvailable()) {
+            throw new InvalidEndpointRequestException("Flight Recorder is not available", "JFR 不可用");
+        }
+        Recording existing = recordings.get(name);
+        if (existing != null) {
+            return describe(existing);
+        }
+        if (recordings.size() >= MAX_RECORDINGS) {
+            throw new InvalidEndpointRequestException("Too many recordings: " + recordings.keySet(),
+                    "同时进行的录制最多 " + MAX_RECORDINGS + " 个，请先删除不再需要的录制");
+        }
+        Recording recording = new Recording(configuration(settings == null ? "profile" : settings));
+        recording.setName(name);
+        recording.setToDisk(true);
+        recording.setMaxAge(clampMaxAge(maxAge));
+        recording.setMaxSize(clampMaxSize(maxSize));
+        for (Class<? extends Event> eventClass : CHAT_EVENTS) {
+            recording.enable(eventClass);
+        }
+        if (chunkThreshold != null) {
+            recording.enable(ChunkEmittedEvent.class).withThreshold(chunkThreshold);
+        }
+        recording.start();
+        recordings.put(name, recording);
+        logger.info("开始 JFR 录制: name={}, settings={}", name, settings == null ? "profile" : settings);
+        return describe(recording);
+    }
+
+    /**
+     * 下载录制内容，每次导出覆盖该录制上一次的导出文件
+     * @param name 录制名称
+     * @return .jfr 文件，录制不存在时返回 null（404）
+     * @throws IOException 写出录制内容失败时抛出
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized Resource dump(@Selector String name) throws IOException {
+        validateName(name);
+        Recording recording = recordings.get(name);
+        if (recording == null) {
+            return null;
+        }
+        Path file = dumpFile(name);
+        recording.dump(file);
+        return new FileSystemResource(file);
+    }
+
+    /**
+     * 停止并关闭录制，删除其导出文件；需要保留内容时应先下载
+     * @param name 录制名称
+     * @return 关闭前的录制状态，录制不存在时返回 null（404）
+     * @throws IOException 删除导出文件失败时抛出
+     */
+    @DeleteOperation
+    public synchronized Map<String, Object> stop(@Selector String name) throws IOException {
+        validateName(name);
+        Recording recording = recordings.remove(name);
+        if (recording == null) {
+            return null;
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Map<String, Object> description = describe(recording);
+        recording.close();
+        if (dumpDirectory != null) {
+            Files.deleteIfExists(dumpDirectory.resolve(name + ".jfr"));
+        }
+        logger.info("关闭 JFR 录制: name={}", name);
+        return description;
+    }
+
+    /**
+     * 关闭全部录制并删除导出文件
+     */
+    @PreDestroy
+    public synchronized void close() {
+        recordings.values().forEach(Recording::close);
+        recordings.clear();
+        if (dumpDirectory != null) {
+            try (var files = Files.list(dumpDirectory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(dumpDirectory);
+            } catch (IOException e) {
+                logger.warn("删除 JFR 导出文件失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static Configuration configuration(String settings) {
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new InvalidEndpointRequestException("Unknown JFR settings: " + settings, "未知的 JFR 配置: " + settings);
+        }
+    }
+
+    private static Duration clampMaxAge(Duration maxAge) {
+        if (maxAge == null || maxAge.isNegative() || maxAge.isZero()) {
+            return DEFAULT_MAX_AGE;
+        }
+        return maxAge.compareTo(MAX_AGE_LIMIT) > 0 ? MAX_AGE_LIMIT : maxAge;
+    }
+
+    private static long clampMaxSize(Long maxSize) {
+        if (maxSize == null || maxSize <= 0) {
+            return DEFAULT_MAX_SIZE;
+        }
+        return Math.min(maxSize, MAX_SIZE_LIMIT);
+    }
+
+    private static void validateName(String name) {
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new InvalidEndpointRequestException("Invalid recording name: " + name,
+                    "录制名称只能包含字母、数字、点、下划线和连字符");
+        }
+    }
+
+    private Path dumpFile(String name) throws IOException {
+        if (dumpDirectory == null) {
+            dumpDirectory = Files.createTempDirectory("agent-jfr");
+        }
+        return dumpDirectory.resolve(name + ".jfr");
+    }
+
+    private static Map<String, Object> describe(Recording recording) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("name", recording.getName());
+        description.put("state", recording.getState().name());
+        description.put("startTime", recording.getStartTime());
+        description.put("stopTime", recording.getStopTime());
+        description.put("maxAge", recording.getMaxAge());
+        description.put("maxSize", recording.getMaxSize());
+        description.put("size", recording.getSize());
+        return description;
+    }
+}
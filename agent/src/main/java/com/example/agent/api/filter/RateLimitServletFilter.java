@@ -0,0 +1,65 @@
+package com.example.agent.api.filter;
+
+import com.example.agent.infrastructure.limit.ChatRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 聊天接口限流过滤器（Servlet/Tomcat 服务模式）
+ * 令牌不足时直接返回 429 和 Retry-After，不进入控制器
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RateLimitServletFilter extends OncePerRequestFilter {
+
+    private static final byte[] REJECTED_BODY = ChatRateLimiter.REJECTED_BODY.getBytes(StandardCharsets.UTF_8);
+
+    private final ChatRateLimiter rateLimiter;
+
+    /**
+     * 构造函数
+     * @param rateLimiter 聊天接口限流
+     */
+    public RateLimitServletFilter(ChatRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.OPTIONS.matches(request.getMethod()) || !rateLimiter.applies(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientIp = rateLimiter.resolveClientIp(request.getHeader(ChatRateLimiter.FORWARDED_FOR_HEADER),
+                request.getRemoteAddr());
+        long wait = rateLimiter.tryAcquire(clientIp, request.getHeader(ChatRateLimiter.USER_HEADER),
+                request.getHeader(ChatRateLimiter.SESSION_HEADER));
+        if (wait == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ChatRateLimiter.retryAfterSeconds(wait)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.agent.api.filter;
+
+import com.example.agent.infrastructure.limit.ChatRateLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 聊天接口限流过滤器（WebFlux/Reactor Netty 服务模式）
+ * 与 {@link RateLimitServletFilter} 行为一致，令牌不足时直接返回 429 和 Retry-After
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class RateLimitWebFilter implements WebFilter {
+
+    private static final byte[] REJECTED_BODY = ChatRateLimiter.REJECTED_BODY.getBytes(StandardCharsets.UTF_8);
+
+    private final ChatRateLimiter rateLimiter;
+
+    /**
+     * 构造函数
+     * @param rateLimiter 聊天接口限流
+     */
+    public RateLimitWebFilter(ChatRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (HttpMethod.OPTIONS.equals(request.getMethod())
+                || !rateLimiter.applies(request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        HttpHeaders headers = request.getHeaders();
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String clientIp = rateLimiter.resolveClientIp(headers.getFirst(ChatRateLimiter.FORWARDED_FOR_HEADER),
+                remoteAddress == null || remoteAddress.getAddress() == null
+                        ? null : remoteAddress.getAddress().getHostAddress());
+        long wait = rateLimiter.tryAcquire(clientIp, headers.getFirst(ChatRateLimiter.USER_HEADER),
+                headers.getFirst(ChatRateLimiter.SESSION_HEADER));
+        if (wait == 0) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(ChatRateLimiter.retryAfterSeconds(wait)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(REJECTED_BODY.length);
+        DataBuffer body = response.bufferFactory().wrap(REJECTED_BODY);
+        return response.writeWith(Mono.just(body));
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 对话访问日志配置
+ * 对应 application.yml 中 agent.chat.access-log 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.access-log")
+public class AccessLogProperties {
+
+    /**
+     * 是否输出对话访问日志
+     */
+    private boolean enabled = true;
+
+    /**
+     * 采样比例，0 到 1；在每轮开始时决定是否记录该轮
+     */
+    private double sampleRate = 0.1;
+
+    /**
+     * 未被采样的轮次以失败结束（错误帧、异常或客户端断开）时是否仍然记录
+     */
+    private boolean alwaysLogFailures = true;
+
+    /**
+     * 日志中问题内容的最大字符数，超出部分截断，0 表示不记录问题内容
+     */
+    private int maxPayloadChars = 64;
+
+    /**
+     * 访问日志文件，由 logback-spring.xml 读取
+     */
+    private String file = "logs/access.log";
+
+    /**
+     * 异步追加器的队列长度，队列满时丢弃新日志而不阻塞请求线程，由 logback-spring.xml 读取
+     */
+    private int queueSize = 8192;
+
+    /**
+     * 获取是否输出对话访问日志
+     * @return 是否输出
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否输出对话访问日志
+     * @param enabled 是否输出
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取采样比例
+     * @return 采样比例
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 设置采样比例
+     * @param sampleRate 采样比例
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * 获取失败轮次是否总是记录
+     * @return 是否总是记录
+     */
+    public boolean isAlwaysLogFailures() {
+        return alwaysLogFailures;
+    }
+
+    /**
+     * 设置失败轮次是否总是记录
+     * @param alwaysLogFailures 是否总是记录
+     */
+    public void setAlwaysLogFailures(boolean alwaysLogFailures) {
+        this.alwaysLogFailures = alwaysLogFailures;
+    }
+
+    /**
+     * 获取问题内容的最大字符数
+     * @return 最大字符数
+     */
+    public int getMaxPayloadChars() {
+        return maxPayloadChars;
+    }
+
+    /**
+     * 设置问题内容的最大字符数
+     * @param maxPayloadChars 最大字符数
+     */
+    public void setMaxPayloadChars(int maxPayloadChars) {
+        this.maxPayloadChars = maxPayloadChars;
+    }
+
+    /**
+     * 获取访问日志文件
+     * @return 访问日志文件
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * 设置访问日志文件
+     * @param file 访问日志文件
+     */
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    /**
+     * 获取异步追加器的队列长度
+     * @return 队列长度
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * 设置异步追加器的队列长度
+     * @param queueSize 队列长度
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 回答缓存配置
+ * 对应 application.yml 中 agent.chat.cache 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.cache")
+public class ChatAnswerCacheProperties {
+
+    /**
+     * 是否启用回答缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存范围
+     */
+    private Scope scope = Scope.CONTEXT_FREE;
+
+    /**
+     * 缓存条目的存活时间，从写入时开始计算
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * 最大容量，按估算的驻留字节数计算
+     */
+    private long maxWeightBytes = 32L * 1024 * 1024;
+
+    /**
+     * 可缓存回答的最大字符数，更长的回答不缓存
+     */
+    private int maxAnswerChars = 4000;
+
+    /**
+     * 命中时回放的每个片段的字符数
+     */
+    private int replayChunkChars = 16;
+
+    /**
+     * 获取是否启用回答缓存
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否启用回答缓存
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取缓存范围
+     * @return 缓存范围
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * 设置缓存范围
+     * @param scope 缓存范围
+     */
+    public void setScope(Scope scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * 获取缓存条目的存活时间
+     * @return 存活时间
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * 设置缓存条目的存活时间
+     * @param ttl 存活时间
+     */
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * 获取最大容量
+     * @return 最大容量（字节）
+     */
+    public long getMaxWeightBytes() {
+        return maxWeightBytes;
+    }
+
+    /**
+     * 设置最大容量
+     * @param maxWeightBytes 最大容量（字节）
+     */
+    public void setMaxWeightBytes(long maxWeightBytes) {
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * 获取可缓存回答的最大字符数
+     * @return 最大字符数
+     */
+    public int getMaxAnswerChars() {
+        return maxAnswerChars;
+    }
+
+    /**
+     * 设置可缓存回答的最大字符数
+     * @param maxAnswerChars 最大字符数
+     */
+    public void setMaxAnswerChars(int maxAnswerChars) {
+        this.maxAnswerChars = maxAnswerChars;
+    }
+
+    /**
+     * 获取回放片段的字符数
+     * @return 字符数
+     */
+    public int getReplayChunkChars() {
+        return replayChunkChars;
+    }
+
+    /**
+     * 设置回放片段的字符数
+     * @param replayChunkChars 字符数
+     */
+    public void setReplayChunkChars(int replayChunkChars) {
+        this.replayChunkChars = replayChunkChars;
+    }
+
+    /**
+     * 缓存范围
+     */
+    public enum Scope {
+
+        /**
+         * 只缓存没有对话上下文的问题（首轮问题）
+         */
+        CONTEXT_FREE,
+
+        /**
+         * 带上下文的问题也缓存，上下文参与缓存键计算
+         */
+        WITH_CONTEXT
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 上下文窗口配置
+ * 对应 application.yml 中 agent.chat.context 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.context")
+public class ChatContextProperties {
+
+    /**
+     * 模型上下文窗口的总 token 数，历史消息只能使用扣除系统提示词、当前问题和 maxTokens 后的剩余部分
+     */
+    private int windowTokens = 8000;
+
+    /**
+     * 每条消息在角色标记等格式上的额外 token 开销
+     */
+    private int messageOverheadTokens = 4;
+
+    /**
+     * 获取上下文窗口总 token 数
+     * @return 上下文窗口总 token 数
+     */
+    public int getWindowTokens() {
+        return windowTokens;
+    }
+
+    /**
+     * 设置上下文窗口总 token 数
+     * @param windowTokens 上下文窗口总 token 数
+     */
+    public void setWindowTokens(int windowTokens) {
+        this.windowTokens = windowTokens;
+    }
+
+    /**
+     * 获取每条消息的额外 token 开销
+     * @return 额外 token 开销
+     */
+    public int getMessageOverheadTokens() {
+        return messageOverheadTokens;
+    }
+
+    /**
+     * 设置每条消息的额外 token 开销
+     * @param messageOverheadTokens 额外 token 开销
+     */
+    public void setMessageOverheadTokens(int messageOverheadTokens) {
+        this.messageOverheadTokens = messageOverheadTokens;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.agent.application.config;
+
+import com.example.agent.domain.chat.service.ChatTranscriptRecorder;
+import com.example.agent.infrastructure.persistence.ChatTranscriptRepository;
+import com.example.agent.infrastructure.persistence.WriteBehindChatTranscriptRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 会话持久化配置
+ * agent.chat.persistence.enabled 为 true 时将聊天记忆中的消息异步写入数据库，否则不做记录
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Configuration
+public class ChatPersistenceConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "agent.chat.persistence", name = "enabled", havingValue = "true")
+    public WriteBehindChatTranscriptRecorder chatTranscriptRecorder(JdbcTemplate jdbcTemplate,
+                                                                    PlatformTransactionManager transactionManager,
+                                                                    ChatPersistenceProperties properties,
+                                                                    MeterRegistry meterRegistry) {
+        ChatTranscriptRepository repository =
+                new ChatTranscriptRepository(jdbcTemplate, transactionManager, properties.getDefaultUserId());
+        return new WriteBehindChatTranscriptRecorder(repository, properties, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "agent.chat.persistence", name = "enabled", havingValue = "false",
+            matchIfMissing = true)
+    public ChatTranscriptRecorder noopChatTranscriptRecorder() {
+        return ChatTranscriptRecorder.NOOP;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 会话持久化配置
+ * 对应 application.yml 中 agent.chat.persistence 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.persistence")
+public class ChatPersistenceProperties {
+
+    /**
+     * 是否启用会话持久化
+     */
+    private boolean enabled = false;
+
+    /**
+     * 写入队列容量，队列满时按溢出策略处理，请求线程不等待
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单次事务写入的最大消息数
+     */
+    private int batchSize = 256;
+
+    /**
+     * 队列满时的溢出策略
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    /**
+     * 写入失败后的重试次数
+     */
+    private int maxRetries = 1;
+
+    /**
+     * 关闭时等待队列写完的最长时间
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 未登录用户写入 chat_session.user_id 的默认值
+     */
+    private String defaultUserId = "anonymous";
+
+    /**
+     * 获取是否启用会话持久化
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否启用会话持久化
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取写入队列容量
+     * @return 队列容量
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 设置写入队列容量
+     * @param queueCapacity 队列容量
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * 获取单次事务写入的最大消息数
+     * @return 最大消息数
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 设置单次事务写入的最大消息数
+     * @param batchSize 最大消息数
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 获取溢出策略
+     * @return 溢出策略
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * 设置溢出策略
+     * @param overflowPolicy 溢出策略
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * 获取写入失败后的重试次数
+     * @return 重试次数
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * 设置写入失败后的重试次数
+     * @param maxRetries 重试次数
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * 获取关闭时等待队列写完的最长时间
+     * @return 等待时间
+     */
+    public Duration getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    /**
+     * 设置关闭时等待队列写完的最长时间
+     * @param shutdownTimeout 等待时间
+     */
+    public void setShutdownTimeout(Duration shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * 获取默认用户ID
+     * @return 默认用户ID
+     */
+    public String getDefaultUserId() {
+        return defaultUserId;
+    }
+
+    /**
+     * 设置默认用户ID
+     * @param defaultUserId 默认用户ID
+     */
+    public void setDefaultUserId(String defaultUserId) {
+        this.defaultUserId = defaultUserId;
+    }
+
+    /**
+     * 写入队列满时的溢出策略
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * 丢弃新到的消息
+         */
+        DROP_NEWEST,
+
+        /**
+         * 丢弃队列中最早的消息，为新消息腾出位置
+         */
+        DROP_OLDEST
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 聊天流配置
+ * 对应 application.yml 中 agent.chat.stream 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.stream")
+public class ChatStreamProperties {
+
+    /**
+     * 是否并发执行思考流和回答流
+     * true: 两次上游调用同时发起，回答先写入有界缓冲区，思考结束后立即输出
+     * false: 思考流结束后才发起回答请求（原有的串行行为）
+     */
+    private boolean concurrentThinking = true;
+
+    /**
+     * 并发模式下回答流的缓冲区大小（片段数）
+     * 超出后通过背压让上游暂停发送
+     */
+    private int answerBufferSize = 256;
+
+    /**
+     * 增量合并的时间窗口，窗口内的增量合并为一帧输出；为0时不按时间合并
+     */
+    private Duration coalesceWindow = Duration.ofMillis(30);
+
+    /**
+     * 单帧累计的最大字节数，达到后立即输出；不大于0时不按字节数合并
+     */
+    private int coalesceMaxBytes = 256;
+
+    /**
+     * 获取是否并发执行思考流和回答流
+     * @return 是否并发执行
+     */
+    public boolean isConcurrentThinking() {
+        return concurrentThinking;
+    }
+
+    /**
+     * 设置是否并发执行思考流和回答流
+     * @param concurrentThinking 是否并发执行
+     */
+    public void setConcurrentThinking(boolean concurrentThinking) {
+        this.concurrentThinking = concurrentThinking;
+    }
+
+    /**
+     * 获取回答流缓冲区大小
+     * @return 缓冲区大小
+     */
+    public int getAnswerBufferSize() {
+        return answerBufferSize;
+    }
+
+    /**
+     * 设置回答流缓冲区大小
+     * @param answerBufferSize 缓冲区大小
+     */
+    public void setAnswerBufferSize(int answerBufferSize) {
+        this.answerBufferSize = answerBufferSize;
+    }
+
+    /**
+     * 获取增量合并时间窗口
+     * @return 时间窗口
+     */
+    public Duration getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    /**
+     * 设置增量合并时间窗口
+     * @param coalesceWindow 时间窗口
+     */
+    public void setCoalesceWindow(Duration coalesceWindow) {
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    /**
+     * 获取单帧最大字节数
+     * @return 最大字节数
+     */
+    public int getCoalesceMaxBytes() {
+        return coalesceMaxBytes;
+    }
+
+    /**
+     * 设置单帧最大字节数
+     * @param coalesceMaxBytes 最大字节数
+     */
+    public void setCoalesceMaxBytes(int coalesceMaxBytes) {
+        this.coalesceMaxBytes = coalesceMaxBytes;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 滚动摘要配置
+ * 对应 application.yml 中 agent.chat.summary 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.summary")
+public class ChatSummaryProperties {
+
+    /**
+     * 是否启用滚动摘要
+     */
+    private boolean enabled = true;
+
+    /**
+     * 未被摘要覆盖的历史消息达到该数量时触发一次压缩
+     */
+    private int triggerMessages = 20;
+
+    /**
+     * 压缩时保留原文的最近消息数
+     */
+    private int keepRecentMessages = 10;
+
+    /**
+     * 摘要的最大字符数，超出时从最早的要点开始丢弃
+     */
+    private int maxSummaryChars = 800;
+
+    /**
+     * 获取是否启用滚动摘要
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否启用滚动摘要
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取触发压缩的消息数
+     * @return 触发压缩的消息数
+     */
+    public int getTriggerMessages() {
+        return triggerMessages;
+    }
+
+    /**
+     * 设置触发压缩的消息数
+     * @param triggerMessages 触发压缩的消息数
+     */
+    public void setTriggerMessages(int triggerMessages) {
+        this.triggerMessages = triggerMessages;
+    }
+
+    /**
+     * 获取保留原文的最近消息数
+     * @return 保留原文的最近消息数
+     */
+    public int getKeepRecentMessages() {
+        return keepRecentMessages;
+    }
+
+    /**
+     * 设置保留原文的最近消息数
+     * @param keepRecentMessages 保留原文的最近消息数
+     */
+    public void setKeepRecentMessages(int keepRecentMessages) {
+        this.keepRecentMessages = keepRecentMessages;
+    }
+
+    /**
+     * 获取摘要最大字符数
+     * @return 摘要最大字符数
+     */
+    public int getMaxSummaryChars() {
+        return maxSummaryChars;
+    }
+
+    /**
+     * 设置摘要最大字符数
+     * @param maxSummaryChars 摘要最大字符数
+     */
+    public void setMaxSummaryChars(int maxSummaryChars) {
+        this.maxSummaryChars = maxSummaryChars;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模型路由配置
+ * 对应 application.yml 中 agent.chat.routing 前缀的配置项；
+ * routes 按配置顺序匹配，第一条所有条件都满足的路由生效，都不满足时使用 defaultRoute
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.routing")
+public class ModelRoutingProperties {
+
+    /**
+     * 是否按问题分类选择路由，关闭时所有请求使用默认路由
+     */
+    private boolean enabled = true;
+
+    /**
+     * 默认路由名称
+     */
+    private String defaultRoute = "standard";
+
+    /**
+     * 路由表，键为路由名称
+     */
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    /**
+     * 获取是否按问题分类选择路由
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否按问题分类选择路由
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取默认路由名称
+     * @return 路由名称
+     */
+    public String getDefaultRoute() {
+        return defaultRoute;
+    }
+
+    /**
+     * 设置默认路由名称
+     * @param defaultRoute 路由名称
+     */
+    public void setDefaultRoute(String defaultRoute) {
+        this.defaultRoute = defaultRoute;
+    }
+
+    /**
+     * 获取路由表
+     * @return 路由表
+     */
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * 设置路由表
+     * @param routes 路由表
+     */
+    public void setRoutes(Map<String, Route> routes) {
+        this.routes = routes;
+    }
+
+    /**
+     * 单条路由：匹配条件与使用的模型参数，未配置的条件不参与匹配
+     */
+    public static class Route {
+
+        /**
+         * 模型名称
+         */
+        private String model = "qwen-turbo";
+
+        /**
+         * 最大输出 token 数
+         */
+        private int maxTokens = 2048;
+
+        /**
+         * 匹配的功能类型，如 thinking
+         */
+        private List<String> functionTypes = new ArrayList<>();
+
+        /**
+         * 匹配的问题领域
+         */
+        private List<String> domains = new ArrayList<>();
+
+        /**
+         * 匹配的问题类型
+         */
+        private List<String> questionTypes = new ArrayList<>();
+
+        /**
+         * 问题最大字符数，0 表示不限
+         */
+        private int maxQuestionChars;
+
+        /**
+         * 获取模型名称
+         * @return 模型名称
+         */
+        public String getModel() {
+            return model;
+        }
+
+        /**
+         * 设置模型名称
+         * @param model 模型名称
+         */
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        /**
+         * 获取最大输出 token 数
+         * @return 最大输出 token 数
+         */
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        /**
+         * 设置最大输出 token 数
+         * @param maxTokens 最大输出 token 数
+         */
+        public void setMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+
+        /**
+         * 获取匹配的功能类型
+         * @return 功能类型列表
+         */
+        public List<String> getFunctionTypes() {
+            return functionTypes;
+        }
+
+        /**
+         * 设置匹配的功能类型
+         * @param functionTypes 功能类型列表
+         */
+        public void setFunctionTypes(List<String> functionTypes) {
+            this.functionTypes = functionTypes;
+        }
+
+        /**
+         * 获取匹配的问题领域
+         * @return 问题领域列表
+         */
+        public List<String> getDomains() {
+            return domains;
+        }
+
+        /**
+         * 设置匹配的问题领域
+         * @param domains 问题领域列表
+         */
+        public void setDomains(List<String> domains) {
+            this.domains = domains;
+        }
+
+        /**
+         * 获取匹配的问题类型
+         * @return 问题类型列表
+         */
+        public List<String> getQuestionTypes() {
+            return questionTypes;
+        }
+
+        /**
+         * 设置匹配的问题类型
+         * @param questionTypes 问题类型列表
+         */
+        public void setQuestionTypes(List<String> questionTypes) {
+            this.questionTypes = questionTypes;
+        }
+
+        /**
+         * 获取问题最大字符数
+         * @return 最大字符数，0 表示不限
+         */
+        public int getMaxQuestionChars() {
+            return maxQuestionChars;
+        }
+
+        /**
+         * 设置问题最大字符数
+         * @param maxQuestionChars 最大字符数，0 表示不限
+         */
+        public void setMaxQuestionChars(int maxQuestionChars) {
+            this.maxQuestionChars = maxQuestionChars;
+        }
+    }
+}
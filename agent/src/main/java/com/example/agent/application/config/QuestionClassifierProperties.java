@@ -0,0 +1,61 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 问题分类配置
+ * 对应 application.yml 中 agent.chat.classifier 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.classifier")
+public class QuestionClassifierProperties {
+
+    /**
+     * 词库位置，支持 classpath: 和 file: 前缀
+     */
+    private String lexiconLocation = "classpath:classifier/question-lexicon.tsv";
+
+    /**
+     * 检查词库文件是否修改的间隔，为0时不自动重新加载；只对文件系统上的词库生效
+     */
+    private Duration reloadInterval = Duration.ofSeconds(30);
+
+    /**
+     * 获取词库位置
+     * @return 词库位置
+     */
+    public String getLexiconLocation() {
+        return lexiconLocation;
+    }
+
+    /**
+     * 设置词库位置
+     * @param lexiconLocation 词库位置
+     */
+    public void setLexiconLocation(String lexiconLocation) {
+        this.lexiconLocation = lexiconLocation;
+    }
+
+    /**
+     * 获取检查词库文件是否修改的间隔
+     * @return 检查间隔
+     */
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    /**
+     * 设置检查词库文件是否修改的间隔
+     * @param reloadInterval 检查间隔
+     */
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 聊天接口限流配置
+ * 对应 application.yml 中 agent.chat.rate-limit 前缀的配置项；
+ * 会话、用户和客户端 IP 各有一组令牌桶，请求需三者都有令牌才放行
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 需要限流的请求路径前缀
+     */
+    private String pathPrefix = "/api/chat/";
+
+    /**
+     * 每个维度最多保留的令牌桶数，超出时淘汰最近最少使用的桶
+     */
+    private long maxBuckets = 100_000;
+
+    /**
+     * 令牌桶空闲过期时间，超过该时间未访问的桶被淘汰（淘汰后重新创建的桶是满的）
+     */
+    private Duration idleTtl = Duration.ofMinutes(10);
+
+    /**
+     * 是否信任 X-Forwarded-For 请求头中的客户端 IP，仅在部署于可信反向代理之后时开启
+     */
+    private boolean trustForwardedFor = false;
+
+    /**
+     * 按会话限流，会话ID取自 X-Session-Id 请求头，控制器要求其与请求体中的 sessionId 一致
+     */
+    private Bucket session = new Bucket(10, 20);
+
+    /**
+     * 按用户限流，用户ID取自 X-User-Id 请求头
+     */
+    private Bucket user = new Bucket(20, 60);
+
+    /**
+     * 按客户端 IP 限流
+     */
+    private Bucket ip = new Bucket(60, 300);
+
+    /**
+     * 获取是否启用限流
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否启用限流
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取需要限流的请求路径前缀
+     * @return 路径前缀
+     */
+    public String getPathPrefix() {
+        return pathPrefix;
+    }
+
+    /**
+     * 设置需要限流的请求路径前缀
+     * @param pathPrefix 路径前缀
+     */
+    public void setPathPrefix(String pathPrefix) {
+        this.pathPrefix = pathPrefix;
+    }
+
+    /**
+     * 获取每个维度最多保留的令牌桶数
+     * @return 令牌桶数
+     */
+    public long getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    /**
+     * 设置每个维度最多保留的令牌桶数
+     * @param maxBuckets 令牌桶数
+     */
+    public void setMaxBuckets(long maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * 获取令牌桶空闲过期时间
+     * @return 空闲过期时间
+     */
+    public Duration getIdleTtl() {
+        return idleTtl;
+    }
+
+    /**
+     * 设置令牌桶空闲过期时间
+     * @param idleTtl 空闲过期时间
+     */
+    public void setIdleTtl(Duration idleTtl) {
+        this.idleTtl = idleTtl;
+    }
+
+    /**
+     * 获取是否信任 X-Forwarded-For 请求头
+     * @return 是否信任
+     */
+    public boolean isTrustForwardedFor() {
+        return trustForwardedFor;
+    }
+
+    /**
+     * 设置是否信任 X-Forwarded-For 请求头
+     * @param trustForwardedFor 是否信任
+     */
+    public void setTrustForwardedFor(boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    /**
+     * 获取会话维度的令牌桶配置
+     * @return 令牌桶配置
+     */
+    public Bucket getSession() {
+        return session;
+    }
+
+    /**
+     * 设置会话维度的令牌桶配置
+     * @param session 令牌桶配置
+     */
+    public void setSession(Bucket session) {
+        this.session = session;
+    }
+
+    /**
+     * 获取用户维度的令牌桶配置
+     * @return 令牌桶配置
+     */
+    public Bucket getUser() {
+        return user;
+    }
+
+    /**
+     * 设置用户维度的令牌桶配置
+     * @param user 令牌桶配置
+     */
+    public void setUser(Bucket user) {
+        this.user = user;
+    }
+
+    /**
+     * 获取 IP 维度的令牌桶配置
+     * @return 令牌桶配置
+     */
+    public Bucket getIp() {
+        return ip;
+    }
+
+    /**
+     * 设置 IP 维度的令牌桶配置
+     * @param ip 令牌桶配置
+     */
+    public void setIp(Bucket ip) {
+        this.ip = ip;
+    }
+
+    /**
+     * 单个维度的令牌桶配置
+     */
+    public static class Bucket {
+
+        /**
+         * 桶容量，即允许的突发请求数
+         */
+        private int capacity;
+
+        /**
+         * 每分钟补充的令牌数
+         */
+        private int refillPerMinute;
+
+        /**
+         * 默认构造函数，供配置绑定使用
+         */
+        public Bucket() {
+        }
+
+        /**
+         * 构造函数
+         * @param capacity 桶容量
+         * @param refillPerMinute 每分钟补充的令牌数
+         */
+        public Bucket(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.refillPerMinute = refillPerMinute;
+        }
+
+        /**
+         * 获取桶容量
+         * @return 桶容量
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * 设置桶容量
+         * @param capacity 桶容量
+         */
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * 获取每分钟补充的令牌数
+         * @return 令牌数
+         */
+        public int getRefillPerMinute() {
+            return refillPerMinute;
+        }
+
+        /**
+         * 设置每分钟补充的令牌数
+         * @param refillPerMinute 令牌数
+         */
+        public void setRefillPerMinute(int refillPerMinute) {
+            this.refillPerMinute = refillPerMinute;
+        }
+    }
+}
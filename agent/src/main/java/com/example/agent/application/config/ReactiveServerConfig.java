@@ -0,0 +1,51 @@
+package com.example.agent.application.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * WebFlux/Reactor Netty 服务模式配置
+ * 通过 reactive profile 启用（见 application-reactive.yml），控制器代码与 Servlet 模式共用同一套。
+ * 由于 Tomcat 仍在类路径上，Spring Boot 默认会用 Tomcat 承载响应式应用，
+ * 这里显式声明 Netty 服务器工厂，使长连接流由 Reactor Netty 的事件循环承载。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveServerConfig implements WebFluxConfigurer {
+
+    /**
+     * 创建 Reactor Netty 服务器工厂
+     * @param customizers Netty 服务器自定义器
+     * @return Netty 服务器工厂
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<NettyServerCustomizer> customizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.getServerCustomizers().addAll(customizers.orderedStream().toList());
+        return factory;
+    }
+
+    /**
+     * 配置跨域请求，与 Servlet 模式的 {@link WebConfig} 保持一致
+     * @param registry 跨域注册器
+     */
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/**")
+                .allowedOrigins("*")
+                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                .allowedHeaders("*")
+                .allowCredentials(false)
+                .maxAge(3600);
+    }
+}
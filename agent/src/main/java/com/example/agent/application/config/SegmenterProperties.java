@@ -0,0 +1,80 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 中文分词配置
+ * 对应 application.yml 中 agent.chat.segmenter 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.segmenter")
+public class SegmenterProperties {
+
+    /**
+     * 词典位置，每行"词 词频"，词频省略时为 1；兼容 jieba 词典格式（第三列词性被忽略）
+     */
+    private String dictionaryLocation = "classpath:segment/dict.txt";
+
+    /**
+     * 停用词表位置，每行一个词
+     */
+    private String stopWordsLocation = "classpath:segment/stopwords.txt";
+
+    /**
+     * 是否对词典中没有的连续单字使用 HMM 切分，关闭时按单字切分
+     */
+    private boolean hmmEnabled = true;
+
+    /**
+     * 获取词典位置
+     * @return 词典位置
+     */
+    public String getDictionaryLocation() {
+        return dictionaryLocation;
+    }
+
+    /**
+     * 设置词典位置
+     * @param dictionaryLocation 词典位置
+     */
+    public void setDictionaryLocation(String dictionaryLocation) {
+        this.dictionaryLocation = dictionaryLocation;
+    }
+
+    /**
+     * 获取停用词表位置
+     * @return 停用词表位置
+     */
+    public String getStopWordsLocation() {
+        return stopWordsLocation;
+    }
+
+    /**
+     * 设置停用词表位置
+     * @param stopWordsLocation 停用词表位置
+     */
+    public void setStopWordsLocation(String stopWordsLocation) {
+        this.stopWordsLocation = stopWordsLocation;
+    }
+
+    /**
+     * 是否对未登录词使用 HMM 切分
+     * @return 是否启用
+     */
+    public boolean isHmmEnabled() {
+        return hmmEnabled;
+    }
+
+    /**
+     * 设置是否对未登录词使用 HMM 切分
+     * @param hmmEnabled 是否启用
+     */
+    public void setHmmEnabled(boolean hmmEnabled) {
+        this.hmmEnabled = hmmEnabled;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 语义缓存配置
+ * 对应 application.yml 中 agent.chat.semantic-cache 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.semantic-cache")
+public class SemanticCacheProperties {
+
+    /**
+     * 是否启用语义缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 命中所需的最低余弦相似度
+     */
+    private float similarityThreshold = 0.9f;
+
+    /**
+     * 索引的最大问题数，写满时清理过期条目并重建
+     */
+    private int maxEntries = 50000;
+
+    /**
+     * 缓存条目的存活时间，从写入时开始计算
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * HNSW 每层每个节点的最大邻居数（M）
+     */
+    private int maxLinks = 16;
+
+    /**
+     * HNSW 插入时的候选集大小
+     */
+    private int efConstruction = 128;
+
+    /**
+     * HNSW 查询时的候选集大小
+     */
+    private int efSearch = 64;
+
+    /**
+     * 获取是否启用语义缓存
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否启用语义缓存
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取命中所需的最低相似度
+     * @return 最低相似度
+     */
+    public float getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    /**
+     * 设置命中所需的最低相似度
+     * @param similarityThreshold 最低相似度
+     */
+    public void setSimilarityThreshold(float similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    /**
+     * 获取索引的最大问题数
+     * @return 最大问题数
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * 设置索引的最大问题数
+     * @param maxEntries 最大问题数
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 获取缓存条目的存活时间
+     * @return 存活时间
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * 设置缓存条目的存活时间
+     * @param ttl 存活时间
+     */
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * 获取 HNSW 最大邻居数
+     * @return 最大邻居数
+     */
+    public int getMaxLinks() {
+        return maxLinks;
+    }
+
+    /**
+     * 设置 HNSW 最大邻居数
+     * @param maxLinks 最大邻居数
+     */
+    public void setMaxLinks(int maxLinks) {
+        this.maxLinks = maxLinks;
+    }
+
+    /**
+     * 获取 HNSW 插入时的候选集大小
+     * @return 候选集大小
+     */
+    public int getEfConstruction() {
+        return efConstruction;
+    }
+
+    /**
+     * 设置 HNSW 插入时的候选集大小
+     * @param efConstruction 候选集大小
+     */
+    public void setEfConstruction(int efConstruction) {
+        this.efConstruction = efConstruction;
+    }
+
+    /**
+     * 获取 HNSW 查询时的候选集大小
+     * @return 候选集大小
+     */
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * 设置 HNSW 查询时的候选集大小
+     * @param efSearch 候选集大小
+     */
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 会话存储配置
+ * 对应 application.yml 中 agent.chat.store 前缀的配置项；
+ * 顶层的容量和过期时间为默认值，可在 stores 下按存储名称单独覆盖
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.store")
+public class SessionStoreProperties {
+
+    /**
+     * 默认最大容量，按估算的驻留字节数计算
+     */
+    private long maxWeightBytes = 64L * 1024 * 1024;
+
+    /**
+     * 默认空闲过期时间，超过该时间未访问的会话被淘汰
+     */
+    private Duration idleTtl = Duration.ofMinutes(30);
+
+    /**
+     * 按存储名称覆盖的配置
+     */
+    private Map<String, StoreSpec> stores = new HashMap<>();
+
+    /**
+     * 获取指定存储的最大容量
+     * @param name 存储名称
+     * @return 最大容量（字节）
+     */
+    public long maxWeightBytesOf(String name) {
+        StoreSpec spec = stores.get(name);
+        return spec != null && spec.getMaxWeightBytes() != null ? spec.getMaxWeightBytes() : maxWeightBytes;
+    }
+
+    /**
+     * 获取指定存储的空闲过期时间
+     * @param name 存储名称
+     * @return 空闲过期时间
+     */
+    public Duration idleTtlOf(String name) {
+        StoreSpec spec = stores.get(name);
+        return spec != null && spec.getIdleTtl() != null ? spec.getIdleTtl() : idleTtl;
+    }
+
+    /**
+     * 获取默认最大容量
+     * @return 最大容量（字节）
+     */
+    public long getMaxWeightBytes() {
+        return maxWeightBytes;
+    }
+
+    /**
+     * 设置默认最大容量
+     * @param maxWeightBytes 最大容量（字节）
+     */
+    public void setMaxWeightBytes(long maxWeightBytes) {
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * 获取默认空闲过期时间
+     * @return 空闲过期时间
+     */
+    public Duration getIdleTtl() {
+        return idleTtl;
+    }
+
+    /**
+     * 设置默认空闲过期时间
+     * @param idleTtl 空闲过期时间
+     */
+    public void setIdleTtl(Duration idleTtl) {
+        this.idleTtl = idleTtl;
+    }
+
+    /**
+     * 获取按存储名称覆盖的配置
+     * @return 存储配置
+     */
+    public Map<String, StoreSpec> getStores() {
+        return stores;
+    }
+
+    /**
+     * 设置按存储名称覆盖的配置
+     * @param stores 存储配置
+     */
+    public void setStores(Map<String, StoreSpec> stores) {
+        this.stores = stores;
+    }
+
+    /**
+     * 单个存储的配置，未设置的项使用默认值
+     */
+    public static class StoreSpec {
+
+        /**
+         * 最大容量（字节）
+         */
+        private Long maxWeightBytes;
+
+        /**
+         * 空闲过期时间
+         */
+        private Duration idleTtl;
+
+        /**
+         * 获取最大容量
+         * @return 最大容量（字节），未设置时为 null
+         */
+        public Long getMaxWeightBytes() {
+            return maxWeightBytes;
+        }
+
+        /**
+         * 设置最大容量
+         * @param maxWeightBytes 最大容量（字节）
+         */
+        public void setMaxWeightBytes(Long maxWeightBytes) {
+            this.maxWeightBytes = maxWeightBytes;
+        }
+
+        /**
+         * 获取空闲过期时间
+         * @return 空闲过期时间，未设置时为 null
+         */
+        public Duration getIdleTtl() {
+            return idleTtl;
+        }
+
+        /**
+         * 设置空闲过期时间
+         * @param idleTtl 空闲过期时间
+         */
+        public void setIdleTtl(Duration idleTtl) {
+            this.idleTtl = idleTtl;
+        }
+    }
+}
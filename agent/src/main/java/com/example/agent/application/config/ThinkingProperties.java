@@ -0,0 +1,78 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 思考过程配置
+ * 对应 application.yml 中 agent.chat.thinking 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.thinking")
+public class ThinkingProperties {
+
+    /**
+     * 思考步骤的生成方式
+     */
+    public enum Mode {
+        /**
+         * 额外请求一次模型生成思考过程
+         */
+        LLM,
+        /**
+         * 本地规则分析（历史、关键词、领域、问题类型、上下文），不请求上游；
+         * 步骤移植自根模块的 analyzeInput，分类和关键词提取改用 QuestionClassifier 与 KeywordExtractor
+         */
+        LOCAL,
+        /**
+         * 不输出思考步骤
+         */
+        OFF
+    }
+
+    /**
+     * 思考步骤的生成方式
+     */
+    private Mode mode = Mode.LLM;
+
+    /**
+     * 本地模式下展示的最近历史消息条数
+     */
+    private int historyMessages = 5;
+
+    /**
+     * 获取思考步骤的生成方式
+     * @return 生成方式
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 设置思考步骤的生成方式
+     * @param mode 生成方式
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * 获取本地模式下展示的最近历史消息条数
+     * @return 历史消息条数
+     */
+    public int getHistoryMessages() {
+        return historyMessages;
+    }
+
+    /**
+     * 设置本地模式下展示的最近历史消息条数
+     * @param historyMessages 历史消息条数
+     */
+    public void setHistoryMessages(int historyMessages) {
+        this.historyMessages = historyMessages;
+    }
+}
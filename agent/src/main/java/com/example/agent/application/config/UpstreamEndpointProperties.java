@@ -0,0 +1,38 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 上游模型服务地址配置
+ * 对应 application.yml 中 agent.chat.upstream 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.upstream")
+public class UpstreamEndpointProperties {
+
+    /**
+     * DashScope HTTP 接口的基础地址，例如 http://localhost:18080/api/v1/；为空时使用 SDK 默认的公网地址
+     */
+    private String baseUrl;
+
+    /**
+     * 获取 DashScope HTTP 接口的基础地址
+     * @return 基础地址，未配置时为 null
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * 设置 DashScope HTTP 接口的基础地址
+     * @param baseUrl 基础地址
+     */
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+}
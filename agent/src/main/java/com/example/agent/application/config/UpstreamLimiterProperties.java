@@ -0,0 +1,187 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 上游并发限制配置
+ * 对应 application.yml 中 agent.chat.limiter 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.limiter")
+public class UpstreamLimiterProperties {
+
+    /**
+     * 是否启用并发限制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始并发上限
+     */
+    private int initialLimit = 20;
+
+    /**
+     * 并发上限的下界
+     */
+    private int minLimit = 4;
+
+    /**
+     * 并发上限的上界
+     */
+    private int maxLimit = 200;
+
+    /**
+     * 首 token 耗时目标，超过时按 backoffRatio 降低上限
+     */
+    private Duration firstTokenTarget = Duration.ofSeconds(3);
+
+    /**
+     * 乘性降低的比例
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * 等待队列的最大长度，队列已满时立即拒绝
+     */
+    private int queueCapacity = 500;
+
+    /**
+     * 排队时间上限，超过时拒绝该请求
+     */
+    private Duration maxQueueTime = Duration.ofSeconds(2);
+
+    /**
+     * 获取是否启用并发限制
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否启用并发限制
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取初始并发上限
+     * @return 初始并发上限
+     */
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /**
+     * 设置初始并发上限
+     * @param initialLimit 初始并发上限
+     */
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    /**
+     * 获取并发上限的下界
+     * @return 下界
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * 设置并发上限的下界
+     * @param minLimit 下界
+     */
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    /**
+     * 获取并发上限的上界
+     * @return 上界
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * 设置并发上限的上界
+     * @param maxLimit 上界
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * 获取首 token 耗时目标
+     * @return 耗时目标
+     */
+    public Duration getFirstTokenTarget() {
+        return firstTokenTarget;
+    }
+
+    /**
+     * 设置首 token 耗时目标
+     * @param firstTokenTarget 耗时目标
+     */
+    public void setFirstTokenTarget(Duration firstTokenTarget) {
+        this.firstTokenTarget = firstTokenTarget;
+    }
+
+    /**
+     * 获取乘性降低的比例
+     * @return 比例
+     */
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    /**
+     * 设置乘性降低的比例
+     * @param backoffRatio 比例
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * 获取等待队列的最大长度
+     * @return 最大长度
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 设置等待队列的最大长度
+     * @param queueCapacity 最大长度
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * 获取排队时间上限
+     * @return 排队时间上限
+     */
+    public Duration getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    /**
+     * 设置排队时间上限
+     * @param maxQueueTime 排队时间上限
+     */
+    public void setMaxQueueTime(Duration maxQueueTime) {
+        this.maxQueueTime = maxQueueTime;
+    }
+}
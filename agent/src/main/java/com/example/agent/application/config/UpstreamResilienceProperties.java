@@ -0,0 +1,274 @@
+package com.example.agent.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 上游回答流的容错配置
+ * 对应 application.yml 中 agent.chat.resilience 前缀的配置项
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+@ConfigurationProperties(prefix = "agent.chat.resilience")
+public class UpstreamResilienceProperties {
+
+    /**
+     * 首 token 迟迟未到时的补救方式
+     */
+    public enum FirstTokenPolicy {
+        /**
+         * 保留原请求，同时再发起一个请求，取先输出的一个
+         */
+        HEDGE,
+        /**
+         * 取消原请求后重新发起
+         */
+        RETRY,
+        /**
+         * 不补救，只受 firstTokenTimeout 限制
+         */
+        NONE
+    }
+
+    /**
+     * 是否启用容错
+     */
+    private boolean enabled = true;
+
+    /**
+     * 首 token 迟迟未到时的补救方式
+     */
+    private FirstTokenPolicy firstTokenPolicy = FirstTokenPolicy.HEDGE;
+
+    /**
+     * 多久没有首 token 时开始补救
+     */
+    private Duration hedgeDelay = Duration.ofSeconds(4);
+
+    /**
+     * 首 token 的最终期限（包括补救在内），超过时以错误结束
+     */
+    private Duration firstTokenTimeout = Duration.ofSeconds(12);
+
+    /**
+     * 相邻两个片段之间的最长间隔，超过时视为上游停滞
+     */
+    private Duration stallTimeout = Duration.ofSeconds(15);
+
+    /**
+     * 熔断器配置
+     */
+    private Breaker breaker = new Breaker();
+
+    /**
+     * 获取是否启用容错
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否启用容错
+     * @param enabled 是否启用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取首 token 的补救方式
+     * @return 补救方式
+     */
+    public FirstTokenPolicy getFirstTokenPolicy() {
+        return firstTokenPolicy;
+    }
+
+    /**
+     * 设置首 token 的补救方式
+     * @param firstTokenPolicy 补救方式
+     */
+    public void setFirstTokenPolicy(FirstTokenPolicy firstTokenPolicy) {
+        this.firstTokenPolicy = firstTokenPolicy;
+    }
+
+    /**
+     * 获取开始补救的等待时间
+     * @return 等待时间
+     */
+    public Duration getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    /**
+     * 设置开始补救的等待时间
+     * @param hedgeDelay 等待时间
+     */
+    public void setHedgeDelay(Duration hedgeDelay) {
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    /**
+     * 获取首 token 的最终期限
+     * @return 最终期限
+     */
+    public Duration getFirstTokenTimeout() {
+        return firstTokenTimeout;
+    }
+
+    /**
+     * 设置首 token 的最终期限
+     * @param firstTokenTimeout 最终期限
+     */
+    public void setFirstTokenTimeout(Duration firstTokenTimeout) {
+        this.firstTokenTimeout = firstTokenTimeout;
+    }
+
+    /**
+     * 获取片段之间的最长间隔
+     * @return 最长间隔
+     */
+    public Duration getStallTimeout() {
+        return stallTimeout;
+    }
+
+    /**
+     * 设置片段之间的最长间隔
+     * @param stallTimeout 最长间隔
+     */
+    public void setStallTimeout(Duration stallTimeout) {
+        this.stallTimeout = stallTimeout;
+    }
+
+    /**
+     * 获取熔断器配置
+     * @return 熔断器配置
+     */
+    public Breaker getBreaker() {
+        return breaker;
+    }
+
+    /**
+     * 设置熔断器配置
+     * @param breaker 熔断器配置
+     */
+    public void setBreaker(Breaker breaker) {
+        this.breaker = breaker;
+    }
+
+    /**
+     * 熔断器配置
+     */
+    public static class Breaker {
+
+        /**
+         * 统计失败率的滑动窗口大小（最近的调用次数）
+         */
+        private int windowSize = 50;
+
+        /**
+         * 窗口内至少有这么多次调用才计算失败率
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * 失败率达到该值时熔断
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * 熔断持续时间，之后进入半开状态放行少量探测请求
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * 半开状态放行的探测请求数，全部成功后恢复
+         */
+        private int halfOpenProbes = 3;
+
+        /**
+         * 获取滑动窗口大小
+         * @return 窗口大小
+         */
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        /**
+         * 设置滑动窗口大小
+         * @param windowSize 窗口大小
+         */
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        /**
+         * 获取计算失败率的最少调用次数
+         * @return 最少调用次数
+         */
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        /**
+         * 设置计算失败率的最少调用次数
+         * @param minimumCalls 最少调用次数
+         */
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        /**
+         * 获取熔断的失败率阈值
+         * @return 失败率阈值
+         */
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        /**
+         * 设置熔断的失败率阈值
+         * @param failureRateThreshold 失败率阈值
+         */
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        /**
+         * 获取熔断持续时间
+         * @return 熔断持续时间
+         */
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        /**
+         * 设置熔断持续时间
+         * @param openDuration 熔断持续时间
+         */
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        /**
+         * 获取半开状态的探测请求数
+         * @return 探测请求数
+         */
+        public int getHalfOpenProbes() {
+            return halfOpenProbes;
+        }
+
+        /**
+         * 设置半开状态的探测请求数
+         * @param halfOpenProbes 探测请求数
+         */
+        public void setHalfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+        }
+    }
+}
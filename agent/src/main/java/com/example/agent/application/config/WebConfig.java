@@ -1,14 +1,20 @@
 package com.example.agent.application.config;
 
+import com.example.agent.infrastructure.stream.DataBufferHttpMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 /**
  * Web配置类
- * 配置跨域请求
+ * 配置跨域请求（Servlet/Tomcat 服务模式）
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class WebConfig implements WebMvcConfigurer {
 
     @Override
@@ -20,4 +26,13 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowCredentials(false)
                 .maxAge(3600);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 注册 DataBuffer 转换器，使流式接口返回的 NDJSON 字节帧可以直接写出
+     * @param converters 消息转换器列表
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new DataBufferHttpMessageConverter());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.agent.application.exception;
+
+/**
+ * 上游过载异常
+ * 模型调用的并发已达上限且排队时间超出限制时抛出，流式接口将其转换为一条 error 帧
+ */
+public class UpstreamOverloadedException extends BusinessException {
+
+    /**
+     * 构造上游过载异常
+     * @param message 异常信息
+     */
+    public UpstreamOverloadedException(String message) {
+        super(message);
+    }
+}
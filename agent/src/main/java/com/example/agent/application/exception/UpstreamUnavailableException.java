@@ -0,0 +1,16 @@
+package com.example.agent.application.exception;
+
+/**
+ * 上游不可用异常
+ * 模型服务熔断、首 token 超时或回答中途停滞时抛出，流式接口将其转换为一条 error 帧
+ */
+public class UpstreamUnavailableException extends BusinessException {
+
+    /**
+     * 构造上游不可用异常
+     * @param message 异常信息
+     */
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
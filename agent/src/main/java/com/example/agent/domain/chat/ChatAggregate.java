@@ -1,10 +1,19 @@
 package com.example.agent.domain.chat;
 
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
 /**
  * 聊天聚合根
  * 包含聊天相关的所有信息和功能
  */
 public class ChatAggregate {
+
+    /**
+     * 功能类型：回答前的思考过程
+     */
+    public static final String FUNCTION_THINKING = "thinking";
     /**
      * 消息内容
      */
@@ -21,9 +30,9 @@ public class ChatAggregate {
     private String sessionId;
 
     /**
-     * 上下文消息列表
+     * 上下文历史消息，按时间顺序排列，保留 user/assistant 角色
      */
-    private String[] contextMessages;
+    private List<Message> contextHistory;
 
     /**
      * 功能类型
@@ -31,9 +40,15 @@ public class ChatAggregate {
      * image: 图片生成
      * speech: 语音识别
      * function: 函数调用
+     * thinking: 回答前的思考过程
      */
     private String functionType;
 
+    /**
+     * 回答实际使用的模型，由聊天服务选定路由后填入
+     */
+    private String model;
+
     /**
      * 图片生成参数
      */
@@ -73,12 +88,12 @@ public class ChatAggregate {
         this.sessionId = sessionId;
     }
 
-    public String[] getContextMessages() {
-        return contextMessages;
+    public List<Message> getContextHistory() {
+        return contextHistory;
     }
 
-    public void setContextMessages(String[] contextMessages) {
-        this.contextMessages = contextMessages;
+    public void setContextHistory(List<Message> contextHistory) {
+        this.contextHistory = contextHistory;
     }
 
     public String getFunctionType() {
@@ -89,6 +104,14 @@ public class ChatAggregate {
         this.functionType = functionType;
     }
 
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
     public ImageParams getImageParams() {
         return imageParams;
     }
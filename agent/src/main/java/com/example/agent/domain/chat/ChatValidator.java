@@ -14,6 +14,25 @@ import org.springframework.stereotype.Component;
 @Component
 public class ChatValidator {
 
+    /**
+     * 会话ID的最大长度，与 chat_session.id、chat_message.session_id 的列宽一致
+     */
+    public static final int MAX_SESSION_ID_LENGTH = 64;
+
+    /**
+     * 验证会话ID
+     * @param sessionId 会话ID
+     * @throws BusinessException 当会话ID为空或超过最大长度时抛出
+     */
+    public void validateSessionId(String sessionId) {
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw new BusinessException("会话ID不能为空");
+        }
+        if (sessionId.length() > MAX_SESSION_ID_LENGTH) {
+            throw new BusinessException("会话ID长度不能超过" + MAX_SESSION_ID_LENGTH + "字符");
+        }
+    }
+
     /**
      * 验证聊天消息
      * @param message 消息内容
@@ -37,6 +56,7 @@ public class ChatValidator {
         if (chatAggregate == null) {
             throw new BusinessException("聊天请求不能为空");
         }
+        validateSessionId(chatAggregate.getSessionId());
         validateMessage(chatAggregate.getContent());
 
         // 根据功能类型进行不同的验证
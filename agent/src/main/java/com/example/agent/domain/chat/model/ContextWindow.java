@@ -0,0 +1,63 @@
+package com.example.agent.domain.chat.model;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * 上下文窗口
+ * 一次上游请求实际携带的历史消息及其 token 估算
+ */
+public class ContextWindow {
+
+    /**
+     * 放入窗口的历史消息，按时间顺序排列，保留原有的 user/assistant 角色
+     */
+    private final List<Message> messages;
+
+    /**
+     * 整个提示词（系统提示词、历史消息、当前问题）的估算 token 数
+     */
+    private final int promptTokens;
+
+    /**
+     * 因超出预算而未放入窗口的历史消息数
+     */
+    private final int droppedMessages;
+
+    /**
+     * 构造上下文窗口
+     * @param messages 历史消息
+     * @param promptTokens 提示词估算 token 数
+     * @param droppedMessages 未放入窗口的历史消息数
+     */
+    public ContextWindow(List<Message> messages, int promptTokens, int droppedMessages) {
+        this.messages = messages;
+        this.promptTokens = promptTokens;
+        this.droppedMessages = droppedMessages;
+    }
+
+    /**
+     * 获取历史消息
+     * @return 历史消息
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * 获取提示词估算 token 数
+     * @return 估算 token 数
+     */
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    /**
+     * 获取未放入窗口的历史消息数
+     * @return 未放入窗口的历史消息数
+     */
+    public int getDroppedMessages() {
+        return droppedMessages;
+    }
+}
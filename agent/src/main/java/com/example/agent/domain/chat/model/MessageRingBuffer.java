@@ -0,0 +1,160 @@
+package com.example.agent.domain.chat.model;
+
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+/**
+ * 定长环形消息缓冲区
+ * 按时间顺序保存最近的 capacity 条消息，追加和淘汰最早的消息都是 O(1)，不移动已有元素。
+ * {@link #last(int)} 返回不复制数据的只读视图，视图在缓冲区下一次修改前有效，
+ * 之后访问视图抛出 {@link ConcurrentModificationException}；需要跨修改持有时由调用方自行复制。
+ * 本类不是线程安全的，并发访问由持有者负责同步。
+ *
+ * @param <E> 消息类型
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public class MessageRingBuffer<E> {
+
+    private Object[] elements;
+    private int head;
+    private int size;
+    private int modifications;
+
+    /**
+     * 构造函数
+     * @param capacity 最大消息数
+     */
+    public MessageRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * 追加消息，已满时淘汰最早的消息
+     * @param element 消息
+     * @return 被淘汰的消息，未淘汰时返回 null
+     */
+    public E add(E element) {
+        modifications++;
+        int capacity = elements.length;
+        if (size < capacity) {
+            elements[(head + size) % capacity] = element;
+            size++;
+            return null;
+        }
+        E evicted = elementAt(head);
+        elements[head] = element;
+        head = (head + 1) % capacity;
+        return evicted;
+    }
+
+    /**
+     * 按时间顺序获取消息
+     * @param index 下标，0 为最早的消息
+     * @return 消息
+     */
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return elementAt((head + index) % elements.length);
+    }
+
+    /**
+     * 获取最近的消息视图
+     * @param count 消息数，超过当前消息数时返回全部消息
+     * @return 按时间顺序排列的只读视图
+     */
+    public List<E> last(int count) {
+        int n = Math.max(0, Math.min(count, size));
+        return new View(size - n, n, modifications);
+    }
+
+    /**
+     * 调整最大消息数，缩小时淘汰最早的消息
+     * @param capacity 新的最大消息数
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (capacity == elements.length) {
+            return;
+        }
+        int kept = Math.min(size, capacity);
+        Object[] resized = new Object[capacity];
+        for (int i = 0; i < kept; i++) {
+            resized[i] = elements[(head + size - kept + i) % elements.length];
+        }
+        modifications++;
+        elements = resized;
+        head = 0;
+        size = kept;
+    }
+
+    /**
+     * 清空缓冲区
+     */
+    public void clear() {
+        modifications++;
+        for (int i = 0; i < size; i++) {
+            elements[(head + i) % elements.length] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int slot) {
+        return (E) elements[slot];
+    }
+
+    /**
+     * 缓冲区一段连续消息的只读视图
+     */
+    private final class View extends AbstractList<E> {
+
+        private final int offset;
+        private final int length;
+        private final int expectedModifications;
+
+        View(int offset, int length, int expectedModifications) {
+            this.offset = offset;
+            this.length = length;
+            this.expectedModifications = expectedModifications;
+        }
+
+        @Override
+        public E get(int index) {
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + length);
+            }
+            return MessageRingBuffer.this.get(offset + index);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.agent.domain.chat.model;
+
+/**
+ * 问题画像
+ * 本地规则对用户问题的快速分类结果，用于选择模型路由
+ */
+public class QuestionProfile {
+
+    /**
+     * 问题领域，如"编程"、"数学"、"通用"
+     */
+    private final String domain;
+
+    /**
+     * 问题类型，如"方法指导"、"信息查询"、"一般对话"
+     */
+    private final String questionType;
+
+    /**
+     * 问题长度（字符数）
+     */
+    private final int length;
+
+    /**
+     * 构造问题画像
+     * @param domain 问题领域
+     * @param questionType 问题类型
+     * @param length 问题长度
+     */
+    public QuestionProfile(String domain, String questionType, int length) {
+        this.domain = domain;
+        this.questionType = questionType;
+        this.length = length;
+    }
+
+    /**
+     * 获取问题领域
+     * @return 问题领域
+     */
+    public String getDomain() {
+        return domain;
+    }
+
+    /**
+     * 获取问题类型
+     * @return 问题类型
+     */
+    public String getQuestionType() {
+        return questionType;
+    }
+
+    /**
+     * 获取问题长度
+     * @return 字符数
+     */
+    public int getLength() {
+        return length;
+    }
+}
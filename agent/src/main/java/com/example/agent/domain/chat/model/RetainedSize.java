@@ -0,0 +1,44 @@
+package com.example.agent.domain.chat.model;
+
+/**
+ * 驻留内存估算
+ * 按 64 位 JVM 开启压缩指针的对象布局粗略估算，用于会话存储的容量计算；
+ * 定义在领域层，领域对象估算自身驻留字节时不依赖具体的存储实现
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class RetainedSize {
+
+    /**
+     * 普通对象的基础开销（对象头、若干字段）
+     */
+    public static final int OBJECT = 32;
+
+    /**
+     * 集合中每个元素引用及节点的开销
+     */
+    public static final int REFERENCE = 16;
+
+    /**
+     * 消息对象（含属性表）的基础开销
+     */
+    public static final int MESSAGE = 96;
+
+    private RetainedSize() {
+    }
+
+    /**
+     * 估算字符串的驻留字节数
+     * @param text 字符串，可以为 null
+     * @return 估算字节数
+     */
+    public static int ofString(String text) {
+        if (text == null) {
+            return 0;
+        }
+        // String 对象与 byte[] 头部约 40 字节，非 Latin-1 内容按每字符 2 字节存储
+        return 40 + text.length() * 2;
+    }
+}
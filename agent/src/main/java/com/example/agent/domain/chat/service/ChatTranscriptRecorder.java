@@ -0,0 +1,26 @@
+package com.example.agent.domain.chat.service;
+
+import org.springframework.ai.chat.messages.Message;
+
+/**
+ * 会话记录器
+ * 记录写入聊天记忆的每条消息，供持久化等用途；实现不得阻塞调用线程
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface ChatTranscriptRecorder {
+
+    /**
+     * 不做任何记录的实现，未启用持久化时使用
+     */
+    ChatTranscriptRecorder NOOP = (conversationId, message) -> { };
+
+    /**
+     * 记录一条消息
+     * @param conversationId 会话ID
+     * @param message 消息
+     */
+    void record(String conversationId, Message message);
+}
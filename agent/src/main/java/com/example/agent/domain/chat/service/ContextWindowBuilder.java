@@ -0,0 +1,146 @@
+package com.example.agent.domain.chat.service;
+
+import com.example.agent.application.config.ChatContextProperties;
+import com.example.agent.domain.chat.model.ContextWindow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 上下文窗口构建器
+ * 在 token 预算内从最近的对话开始向前装填历史消息，保留真实的 user/assistant 角色。
+ * 预算 = 上下文窗口 - maxTokens - 系统提示词 - 当前问题，确保模型有足够的空间输出回答。
+ * 历史中的系统消息（如滚动摘要）固定保留在窗口开头。
+ * 每条消息的 token 估算只计算一次，结果以消息对象为弱引用键缓存在 Caffeine 中：按对象身份比较，
+ * 读取无需全局锁，消息从记忆中移除后缓存随之回收。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ContextWindowBuilder {
+
+    private final ChatContextProperties properties;
+    private final Cache<Message, Integer> tokenCache = Caffeine.newBuilder().weakKeys().build();
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary historyMessages;
+    private final DistributionSummary droppedMessages;
+
+    /**
+     * 构造函数
+     * @param properties 上下文窗口配置
+     * @param meterRegistry 指标注册表
+     */
+    public ContextWindowBuilder(ChatContextProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.promptTokens = DistributionSummary.builder("chat.prompt.tokens")
+                .description("每次上游请求的估算提示词 token 数")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.historyMessages = DistributionSummary.builder("chat.context.messages")
+                .description("每次上游请求携带的历史消息数")
+                .register(meterRegistry);
+        this.droppedMessages = DistributionSummary.builder("chat.context.dropped")
+                .description("每次上游请求因超出预算而丢弃的历史消息数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 构建上下文窗口
+     * @param history 历史消息，按时间顺序排列，可以为 null
+     * @param systemPrompt 系统提示词
+     * @param userContent 当前用户问题
+     * @param maxTokens 为模型输出预留的 token 数
+     * @return 上下文窗口
+     */
+    public ContextWindow build(List<Message> history, String systemPrompt, String userContent, int maxTokens) {
+        int overhead = properties.getMessageOverheadTokens();
+        int fixedTokens = estimateTokens(systemPrompt) + estimateTokens(userContent) + overhead * 2;
+        int budget = properties.getWindowTokens() - maxTokens - fixedTokens;
+
+        // 历史中的系统消息（如滚动摘要）固定放在窗口开头，优先占用预算
+        List<Message> pinned = new ArrayList<>();
+        List<Message> candidates = new ArrayList<>();
+        if (history != null) {
+            for (Message message : history) {
+                if (message instanceof SystemMessage) {
+                    int tokens = tokensOf(message) + overhead;
+                    pinned.add(message);
+                    fixedTokens += tokens;
+                    budget -= tokens;
+                } else if (message instanceof UserMessage || message instanceof AssistantMessage) {
+                    candidates.add(message);
+                }
+            }
+        }
+
+        // 从最近的消息向前装填，遇到第一条放不下的消息即停止，保证窗口内的对话连续
+        int used = 0;
+        int start = candidates.size();
+        while (start > 0) {
+            int tokens = tokensOf(candidates.get(start - 1)) + overhead;
+            if (used + tokens > budget) {
+                break;
+            }
+            used += tokens;
+            start--;
+        }
+
+        List<Message> window = new ArrayList<>(pinned.size() + candidates.size() - start);
+        window.addAll(pinned);
+        window.addAll(candidates.subList(start, candidates.size()));
+        ContextWindow contextWindow = new ContextWindow(window, fixedTokens + used, start);
+        promptTokens.record(contextWindow.getPromptTokens());
+        historyMessages.record(window.size());
+        droppedMessages.record(start);
+        return contextWindow;
+    }
+
+    /**
+     * 获取消息的估算 token 数，同一消息只计算一次
+     * @param message 消息
+     * @return 估算 token 数
+     */
+    public int tokensOf(Message message) {
+        Integer cached = tokenCache.getIfPresent(message);
+        if (cached != null) {
+            return cached;
+        }
+        int tokens = estimateTokens(message.getContent());
+        tokenCache.put(message, tokens);
+        return tokens;
+    }
+
+    /**
+     * 估算文本的 token 数
+     * 中文等表意文字约每字一个 token，其余字符约每 4 个一个 token
+     * @param text 文本
+     * @return 估算 token 数
+     */
+    public static int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int ideographs = 0;
+        int others = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x2E80 && !Character.isSurrogate(c)) {
+                ideographs++;
+            } else if (!Character.isLowSurrogate(c)) {
+                others++;
+            }
+        }
+        return ideographs + (others + 3) / 4;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.agent.domain.chat.service;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * 对话摘要器
+ * 将新移出窗口的对话增量合并进已有摘要，不重新扫描全部历史
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface ConversationSummarizer {
+
+    /**
+     * 增量更新摘要
+     * @param previousSummary 已有摘要，首次压缩时为 null
+     * @param evicted 本次需要并入摘要的消息，按时间顺序排列
+     * @return 更新后的摘要
+     */
+    String summarize(String previousSummary, List<Message> evicted);
+}
@@ -0,0 +1,103 @@
+package com.example.agent.domain.chat.service;
+
+import com.example.agent.application.config.ChatSummaryProperties;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 抽取式对话摘要器
+ * 在本地提取要点（用户身份、用户问题、回答首句），不额外调用模型。
+ * 摘要超出长度上限时从最早的要点开始丢弃，用户身份要点始终保留。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ExtractiveConversationSummarizer implements ConversationSummarizer {
+
+    private static final String IDENTITY_PREFIX = "用户身份：";
+    private static final String QUESTION_PREFIX = "用户问：";
+    private static final String ANSWER_PREFIX = "助手答：";
+
+    /**
+     * 单个要点的最大字符数
+     */
+    private static final int MAX_POINT_CHARS = 60;
+
+    private final ChatSummaryProperties properties;
+
+    /**
+     * 构造函数
+     * @param properties 滚动摘要配置
+     */
+    public ExtractiveConversationSummarizer(ChatSummaryProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 增量更新摘要
+     * @param previousSummary 已有摘要，首次压缩时为 null
+     * @param evicted 本次需要并入摘要的消息
+     * @return 更新后的摘要
+     */
+    @Override
+    public String summarize(String previousSummary, List<Message> evicted) {
+        List<String> points = new ArrayList<>();
+        if (previousSummary != null && !previousSummary.isEmpty()) {
+            points.addAll(List.of(previousSummary.split("\n")));
+        }
+        for (Message message : evicted) {
+            String content = message.getContent() == null ? "" : message.getContent().trim();
+            if (content.isEmpty()) {
+                continue;
+            }
+            if (message instanceof UserMessage) {
+                if (content.startsWith("我是")) {
+                    points.add(IDENTITY_PREFIX + truncate(content.substring(2).trim()));
+                } else {
+                    points.add(QUESTION_PREFIX + truncate(content));
+                }
+            } else if (message instanceof AssistantMessage) {
+                points.add(ANSWER_PREFIX + truncate(firstSentence(content)));
+            }
+        }
+        return trim(points);
+    }
+
+    private String trim(List<String> points) {
+        int length = 0;
+        for (String point : points) {
+            length += point.length() + 1;
+        }
+        int maxChars = properties.getMaxSummaryChars();
+        for (int i = 0; i < points.size() && length > maxChars; ) {
+            if (points.get(i).startsWith(IDENTITY_PREFIX)) {
+                i++;
+                continue;
+            }
+            length -= points.remove(i).length() + 1;
+        }
+        return String.join("\n", points);
+    }
+
+    private static String firstSentence(String content) {
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '。' || c == '！' || c == '？' || c == '\n' || c == '!' || c == '?') {
+                return content.substring(0, i + 1).trim();
+            }
+        }
+        return content;
+    }
+
+    private static String truncate(String text) {
+        String singleLine = text.replace('\n', ' ');
+        return singleLine.length() <= MAX_POINT_CHARS ? singleLine : singleLine.substring(0, MAX_POINT_CHARS) + "…";
+    }
+}
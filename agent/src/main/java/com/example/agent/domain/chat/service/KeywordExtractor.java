@@ -0,0 +1,21 @@
+package com.example.agent.domain.chat.service;
+
+import java.util.List;
+
+/**
+ * 关键词提取器
+ * 从问题文本中提取关键词，分词词典和停用词表由基础设施层实现
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface KeywordExtractor {
+
+    /**
+     * 提取关键词：分词后去掉单字和停用词，按首次出现的顺序去重
+     * @param text 文本
+     * @return 关键词列表
+     */
+    List<String> keywords(String text);
+}
@@ -0,0 +1,31 @@
+package com.example.agent.domain.chat.service;
+
+import com.example.agent.domain.chat.model.QuestionProfile;
+
+/**
+ * 问题分类器
+ * 识别问题的领域和类型；词库及其重新加载由基础设施层实现，关键词提取见 {@link KeywordExtractor}
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface QuestionClassifier {
+
+    /**
+     * 未识别出领域时的默认领域
+     */
+    String DOMAIN_GENERAL = "通用";
+
+    /**
+     * 未识别出类型时的默认问题类型
+     */
+    String TYPE_CHAT = "一般对话";
+
+    /**
+     * 对问题分类
+     * @param question 用户问题
+     * @return 问题画像
+     */
+    QuestionProfile classify(String question);
+}
@@ -0,0 +1,210 @@
+package com.example.agent.domain.chat.service;
+
+import com.example.agent.application.config.ChatSummaryProperties;
+import com.example.agent.domain.chat.model.RetainedSize;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 滚动摘要服务
+ * 会话中未被摘要覆盖的历史消息超过阈值时，在请求路径之外异步将较早的对话压缩进摘要，
+ * 之后的请求用一条摘要消息替换这些对话，从而限制提示词随会话长度增长。
+ * 每次压缩只处理新移出的消息，已有摘要作为输入增量更新，不重新扫描全部历史。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Service
+public class RollingSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RollingSummaryService.class);
+
+    /**
+     * 摘要消息的前缀
+     */
+    static final String SUMMARY_PREFIX = "以下是之前对话的摘要：\n";
+
+    private final ConversationSummarizer summarizer;
+    private final ContextWindowBuilder contextWindowBuilder;
+    private final ChatSummaryProperties properties;
+    private final SessionStore<SummaryState> states;
+    private final Scheduler scheduler = Schedulers.boundedElastic();
+    private final Timer summaryLag;
+    private final DistributionSummary tokensSaved;
+    private final Counter compressions;
+
+    /**
+     * 构造函数
+     * @param summarizer 对话摘要器
+     * @param contextWindowBuilder 上下文窗口构建器，用于估算 token
+     * @param properties 滚动摘要配置
+     * @param sessionStoreFactory 会话存储工厂
+     * @param meterRegistry 指标注册表
+     */
+    public RollingSummaryService(ConversationSummarizer summarizer, ContextWindowBuilder contextWindowBuilder,
+                                 ChatSummaryProperties properties, SessionStoreFactory sessionStoreFactory,
+                                 MeterRegistry meterRegistry) {
+        this.summarizer = summarizer;
+        this.states = sessionStoreFactory.create("summary", SummaryState::retainedBytes);
+        this.contextWindowBuilder = contextWindowBuilder;
+        this.properties = properties;
+        this.summaryLag = Timer.builder("chat.summary.lag")
+                .description("从触发压缩到摘要可用的耗时")
+                .register(meterRegistry);
+        this.tokensSaved = DistributionSummary.builder("chat.summary.tokens.saved")
+                .description("每次请求因使用摘要而节省的估算 token 数")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.compressions = Counter.builder("chat.summary.compressions")
+                .description("摘要压缩次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 用摘要替换已被覆盖的历史消息
+     * @param conversationId 会话ID
+     * @param history 历史消息，按时间顺序排列
+     * @return 摘要消息加未被覆盖的历史消息；没有摘要时原样返回
+     */
+    public List<Message> compact(String conversationId, List<Message> history) {
+        if (!properties.isEnabled()) {
+            return history;
+        }
+        SummaryState state = states.find(conversationId);
+        Snapshot snapshot = state == null ? null : state.snapshot;
+        if (snapshot == null) {
+            return history;
+        }
+        int from = indexAfter(history, snapshot.lastSummarized);
+        List<Message> compacted = new ArrayList<>(history.size() - from + 1);
+        compacted.add(snapshot.message);
+
+        int replacedTokens = 0;
+        for (int i = 0; i < from; i++) {
+            replacedTokens += contextWindowBuilder.tokensOf(history.get(i));
+        }
+        tokensSaved.record(Math.max(0, replacedTokens - contextWindowBuilder.tokensOf(snapshot.message)));
+
+        compacted.addAll(history.subList(from, history.size()));
+        return compacted;
+    }
+
+    /**
+     * 检查是否需要压缩，需要时异步执行，不阻塞当前请求
+     * @param conversationId 会话ID
+     * @param history 历史消息，按时间顺序排列
+     */
+    public void summarizeIfNeeded(String conversationId, List<Message> history) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        SummaryState state = states.getOrCreate(conversationId, key -> new SummaryState());
+        Snapshot snapshot = state.snapshot;
+        int from = indexAfter(history, snapshot == null ? null : snapshot.lastSummarized);
+        int foldCount = history.size() - from - properties.getKeepRecentMessages();
+        if (history.size() - from < properties.getTriggerMessages() || foldCount <= 0) {
+            return;
+        }
+        if (!state.running.compareAndSet(false, true)) {
+            return;
+        }
+        List<Message> evicted = List.copyOf(history.subList(from, from + foldCount));
+        long requestedNanos = System.nanoTime();
+        Mono.fromRunnable(() -> fold(conversationId, state, evicted, requestedNanos))
+                .subscribeOn(scheduler)
+                .doFinally(signal -> state.running.set(false))
+                .subscribe(null, e -> logger.warn("会话 {} 摘要压缩失败: {}", conversationId, e.getMessage()));
+    }
+
+    /**
+     * 获取会话当前的摘要
+     * @param conversationId 会话ID
+     * @return 摘要内容，不存在时返回 null
+     */
+    public String findSummary(String conversationId) {
+        SummaryState state = states.find(conversationId);
+        Snapshot snapshot = state == null ? null : state.snapshot;
+        return snapshot == null ? null : snapshot.summary;
+    }
+
+    /**
+     * 清除会话的摘要
+     * @param conversationId 会话ID
+     */
+    public void clear(String conversationId) {
+        states.remove(conversationId);
+    }
+
+    private void fold(String conversationId, SummaryState state, List<Message> evicted, long requestedNanos) {
+        Snapshot previous = state.snapshot;
+        String summary = summarizer.summarize(previous == null ? null : previous.summary, evicted);
+        state.snapshot = new Snapshot(summary, evicted.get(evicted.size() - 1));
+        // 重新写回以按新摘要的长度计算容量
+        states.put(conversationId, state);
+        compressions.increment();
+        summaryLag.record(System.nanoTime() - requestedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 查找已摘要的最后一条消息之后的位置
+     * 该消息已不在历史窗口中时，说明窗口内的消息都比它新，返回0
+     */
+    private static int indexAfter(List<Message> history, Message lastSummarized) {
+        if (lastSummarized == null) {
+            return 0;
+        }
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (history.get(i) == lastSummarized) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 单个会话的摘要状态
+     */
+    private static final class SummaryState {
+
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile Snapshot snapshot;
+
+        int retainedBytes() {
+            Snapshot current = snapshot;
+            return RetainedSize.OBJECT * 2
+                    + (current == null ? 0 : RetainedSize.MESSAGE + RetainedSize.ofString(current.summary) * 2);
+        }
+    }
+
+    /**
+     * 摘要快照：摘要内容与它覆盖到的最后一条消息一起发布，保证读取时两者一致
+     */
+    private static final class Snapshot {
+
+        private final String summary;
+        private final Message lastSummarized;
+        private final SystemMessage message;
+
+        Snapshot(String summary, Message lastSummarized) {
+            this.summary = summary;
+            this.lastSummarized = lastSummarized;
+            this.message = new SystemMessage(SUMMARY_PREFIX + summary);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.agent.domain.chat.service;
+
+/**
+ * 会话淘汰监听器
+ * 在会话因容量或空闲过期被淘汰时同步回调，可用于在丢弃前持久化
+ *
+ * @param <V> 会话对象类型
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@FunctionalInterface
+public interface SessionEvictionListener<V> {
+
+    /**
+     * 会话被淘汰
+     * @param sessionId 会话ID
+     * @param value 会话对象
+     * @param cause 淘汰原因，如 SIZE、EXPIRED
+     */
+    void onEvicted(String sessionId, V value, String cause);
+}
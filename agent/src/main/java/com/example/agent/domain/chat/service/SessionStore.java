@@ -0,0 +1,60 @@
+package com.example.agent.domain.chat.service;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 会话存储
+ * 以会话ID为键的有界存储：超出容量或空闲过期的会话会被淘汰。
+ * 会话对象被原地修改后必须通过 {@link #compute} 写回，以便重新计算其占用的容量。
+ *
+ * @param <V> 会话对象类型
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface SessionStore<V> {
+
+    /**
+     * 查找会话对象
+     * @param sessionId 会话ID
+     * @return 会话对象，不存在时返回 null
+     */
+    V find(String sessionId);
+
+    /**
+     * 获取或创建会话对象
+     * @param sessionId 会话ID
+     * @param factory 会话不存在时的创建函数
+     * @return 会话对象
+     */
+    V getOrCreate(String sessionId, Function<String, V> factory);
+
+    /**
+     * 原子地修改会话对象并重新计算容量
+     * @param sessionId 会话ID
+     * @param factory 会话不存在时的创建函数
+     * @param updater 修改函数，返回修改后的会话对象
+     * @return 修改后的会话对象
+     */
+    V compute(String sessionId, Function<String, V> factory, UnaryOperator<V> updater);
+
+    /**
+     * 写入会话对象
+     * @param sessionId 会话ID
+     * @param value 会话对象
+     */
+    void put(String sessionId, V value);
+
+    /**
+     * 移除会话对象，不触发淘汰监听器
+     * @param sessionId 会话ID
+     */
+    void remove(String sessionId);
+
+    /**
+     * 获取当前会话数的估计值
+     * @return 会话数
+     */
+    long estimatedSize();
+}
@@ -0,0 +1,36 @@
+package com.example.agent.domain.chat.service;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * 会话存储工厂
+ * 按名称创建有界会话存储，容量、空闲过期和指标由实现按配置决定；领域服务只依赖该接口，
+ * 具体的存储实现由基础设施层提供并注入
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface SessionStoreFactory {
+
+    /**
+     * 创建会话存储，不注册淘汰监听器
+     * @param name 存储名称，用于配置覆盖和指标标签
+     * @param weigher 估算会话对象驻留字节数的函数
+     * @param <V> 会话对象类型
+     * @return 会话存储
+     */
+    default <V> SessionStore<V> create(String name, ToIntFunction<V> weigher) {
+        return create(name, weigher, null);
+    }
+
+    /**
+     * 创建会话存储
+     * @param name 存储名称，用于配置覆盖和指标标签
+     * @param weigher 估算会话对象驻留字节数的函数
+     * @param listener 淘汰监听器，可以为 null
+     * @param <V> 会话对象类型
+     * @return 会话存储
+     */
+    <V> SessionStore<V> create(String name, ToIntFunction<V> weigher, SessionEvictionListener<V> listener);
+}
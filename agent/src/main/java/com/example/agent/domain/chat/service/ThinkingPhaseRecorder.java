@@ -0,0 +1,29 @@
+package com.example.agent.domain.chat.service;
+
+import com.example.agent.domain.chat.model.ThinkingStep;
+import reactor.core.publisher.Flux;
+
+/**
+ * 思考阶段记录器
+ * 包装思考步骤流，记录思考阶段的耗时、步骤数和结束方式；实现不得改变流中的步骤
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface ThinkingPhaseRecorder {
+
+    /**
+     * 不做任何记录的实现
+     */
+    ThinkingPhaseRecorder NOOP = (sessionId, mode, steps) -> steps;
+
+    /**
+     * 记录一次思考阶段
+     * @param sessionId 会话ID
+     * @param mode 思考模式
+     * @param steps 思考步骤流
+     * @return 被记录的思考步骤流
+     */
+    Flux<ThinkingStep> record(String sessionId, String mode, Flux<ThinkingStep> steps);
+}
@@ -1,29 +1,41 @@
 package com.example.agent.domain.chat.service;
 
 
+import com.example.agent.application.config.ThinkingProperties;
 import com.example.agent.application.service.ChatService;
 import com.example.agent.domain.chat.ChatAggregate;
+import com.example.agent.domain.chat.model.QuestionProfile;
 import com.example.agent.domain.chat.model.StepType;
 import com.example.agent.domain.chat.model.ThinkingStep;
-import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 思考服务
- * 负责处理AI的思考过程和上下文分析
+ * 负责处理AI的思考过程和上下文分析；按 agent.chat.thinking.mode 由模型生成（llm）、
+ * 本地规则生成（local，不请求上游）或不生成（off）
  */
 @Service
 public class ThinkingService {
 
     @Autowired
-    private ChatService chatService;;
+    private ChatService chatService;
+
+    @Autowired
+    private ThinkingProperties thinkingProperties;
+
+    @Autowired
+    private QuestionClassifier questionClassifier;
+
+    @Autowired
+    private KeywordExtractor keywordExtractor;
+
+    @Autowired
+    private ThinkingPhaseRecorder thinkingPhaseRecorder = ThinkingPhaseRecorder.NOOP;
 
 
     /**
@@ -34,6 +46,27 @@ public class ThinkingService {
      * @return 思考步骤流
      */
     public Flux<ThinkingStep> generateThinkingSteps(String input, String sessionId, List<Message> history) {
+        switch (thinkingProperties.getMode()) {
+            case OFF:
+                return Flux.empty();
+            case LOCAL:
+                return recordPhase(sessionId, Flux.defer(() -> Flux.fromIterable(analyzeLocally(input, sessionId, history))));
+            default:
+                return recordPhase(sessionId, generateWithModel(input, sessionId, history));
+        }
+    }
+
+    /**
+     * 交给 {@link ThinkingPhaseRecorder} 记录思考阶段
+     */
+    private Flux<ThinkingStep> recordPhase(String sessionId, Flux<ThinkingStep> steps) {
+        return thinkingPhaseRecorder.record(sessionId, thinkingProperties.getMode().name(), steps);
+    }
+
+    /**
+     * 请求模型生成思考过程
+     */
+    private Flux<ThinkingStep> generateWithModel(String input, String sessionId, List<Message> history) {
         // 1. 构建更详细的思考提示词
         String thinkingPrompt = String.format(
 
@@ -52,20 +85,10 @@ public class ThinkingService {
         ChatAggregate chatAggregate = new ChatAggregate();
         chatAggregate.setContent(thinkingPrompt);
         chatAggregate.setSessionId(sessionId);
+        chatAggregate.setFunctionType(ChatAggregate.FUNCTION_THINKING);
 
         // 添加历史消息作为上下文
-        String[] contextMessages = history.stream()
-                .map(msg -> {
-                    if (msg instanceof UserMessage) {
-                        return "user: " + msg.getContent();
-                    } else if (msg instanceof AssistantMessage) {
-                        return "assistant: " + msg.getContent();
-                    }
-                    return "";
-                })
-                .filter(msg -> !msg.isEmpty())
-                .toArray(String[]::new);
-        chatAggregate.setContextMessages(contextMessages);
+        chatAggregate.setContextHistory(history);
 
         return chatService.processStreamMessage(chatAggregate)
                 .filter(content -> content.trim().length() > 0)
@@ -81,4 +104,62 @@ public class ThinkingService {
 
     }
 
-} 
\ No newline at end of file
+    /**
+     * 本地规则分析：历史对话、关键词、问题领域、问题类型和上下文分析，各生成一个步骤
+     * 移植自根模块 ThinkingService.analyzeInput 的步骤顺序和文案，并非同一份代码：
+     * 关键词提取用 {@link KeywordExtractor}，领域和类型识别用 {@link QuestionClassifier}，而不是根模块的字符串规则；
+     * 历史取自调用方传入的聊天记忆，而不是根模块的 ChatSessionService；不保存 ThinkingContext
+     */
+    private List<ThinkingStep> analyzeLocally(String input, String sessionId, List<Message> history) {
+        List<ThinkingStep> steps = new ArrayList<>(5);
+
+        String recentHistory = buildHistoryString(history, thinkingProperties.getHistoryMessages());
+        steps.add(createStep(StepType.HISTORY_UPDATE, "历史对话：\n" + recentHistory, sessionId, steps.size()));
+
+        List<String> keywords = keywordExtractor.keywords(input);
+        steps.add(createStep(StepType.KEYWORD_EXTRACTION, "提取关键词: " + String.join(", ", keywords),
+                sessionId, steps.size()));
+
+        QuestionProfile profile = questionClassifier.classify(input);
+        steps.add(createStep(StepType.DOMAIN_IDENTIFICATION, "问题领域: " + profile.getDomain(),
+                sessionId, steps.size()));
+        steps.add(createStep(StepType.QUESTION_TYPE, "问题类型: " + profile.getQuestionType(),
+                sessionId, steps.size()));
+
+        String analysis = "上下文分析：\n"
+                + "1. 历史对话内容：\n" + recentHistory + "\n"
+                + "2. 当前问题：" + input + "\n"
+                + "3. 关键词：" + String.join(", ", keywords) + "\n"
+                + "4. 问题领域：" + profile.getDomain() + "\n"
+                + "5. 问题类型：" + profile.getQuestionType() + "\n";
+        steps.add(createStep(StepType.CONTEXT_ANALYSIS, analysis, sessionId, steps.size()));
+        return steps;
+    }
+
+    /**
+     * 把最近的历史消息格式化为"角色: 内容"的多行文本
+     */
+    private static String buildHistoryString(List<Message> history, int limit) {
+        if (history == null || history.isEmpty() || limit <= 0) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Message message : history.subList(Math.max(0, history.size() - limit), history.size())) {
+            builder.append(message.getMessageType().getValue())
+                    .append(": ")
+                    .append(message.getContent())
+                    .append("\n");
+        }
+        return builder.toString();
+    }
+
+    private static ThinkingStep createStep(StepType type, String content, String sessionId, int order) {
+        ThinkingStep step = new ThinkingStep();
+        step.setType(type);
+        step.setContent(content);
+        step.setOrder(order);
+        step.setSessionId(sessionId);
+        step.setTimestamp(System.currentTimeMillis());
+        return step;
+    }
+}
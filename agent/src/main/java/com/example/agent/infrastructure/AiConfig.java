@@ -1,16 +1,32 @@
 package com.example.agent.infrastructure;
 
+import com.example.agent.domain.chat.service.ChatTranscriptRecorder;
+import com.example.agent.domain.chat.service.RollingSummaryService;
+import com.example.agent.domain.chat.service.SessionStoreFactory;
+import com.example.agent.infrastructure.store.BoundedChatMemory;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class AiConfig {
 
+    /**
+     * 聊天记忆
+     * 会话历史因容量或空闲过期被淘汰时一并清除它的滚动摘要，避免同一会话ID之后的新对话带上过期的摘要；
+     * 消息在写入时已交给 {@link ChatTranscriptRecorder} 持久化，淘汰时无需再次保存
+     * @param sessionStoreFactory 会话存储工厂
+     * @param chatTranscriptRecorder 会话记录器
+     * @param rollingSummaryService 滚动摘要服务
+     * @return 聊天记忆
+     */
     @Bean
-    public ChatMemory chatMemory() {
-        return new InMemoryChatMemory();
+    public ChatMemory chatMemory(SessionStoreFactory sessionStoreFactory, ChatTranscriptRecorder chatTranscriptRecorder,
+                                 RollingSummaryService rollingSummaryService) {
+        return new BoundedChatMemory(sessionStoreFactory.create("chat-memory",
+                BoundedChatMemory.ConversationHistory::retainedBytes,
+                (conversationId, history, cause) -> rollingSummaryService.clear(conversationId)),
+                chatTranscriptRecorder);
     }
 
 }
@@ -0,0 +1,34 @@
+package com.example.agent.infrastructure;
+
+import com.alibaba.dashscope.utils.Constants;
+import com.example.agent.application.config.UpstreamEndpointProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * DashScope 接口地址设置
+ * DashScope SDK 在每次请求时读取全局的 {@link Constants#baseHttpApiUrl}，配置了 agent.chat.upstream.base-url 时在启动时覆盖它，
+ * 用于把模型请求指向本地的压测桩服务或其他区域的接入点；未配置时保持 SDK 默认值（也可通过环境变量 DASHSCOPE_HTTP_BASE_URL 设置）。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class DashScopeEndpointConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashScopeEndpointConfigurer.class);
+
+    /**
+     * 构造函数，按配置覆盖 SDK 的接口地址
+     * @param properties 上游服务地址配置
+     */
+    public DashScopeEndpointConfigurer(UpstreamEndpointProperties properties) {
+        String baseUrl = properties.getBaseUrl();
+        if (baseUrl != null && !baseUrl.isBlank()) {
+            Constants.baseHttpApiUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+            logger.info("DashScope 接口地址: {}", Constants.baseHttpApiUrl);
+        }
+    }
+}
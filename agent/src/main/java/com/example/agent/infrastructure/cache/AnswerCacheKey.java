@@ -0,0 +1,52 @@
+package com.example.agent.infrastructure.cache;
+
+/**
+ * 回答缓存键
+ * 包含精确匹配用的摘要，以及语义查找所需的参数指纹和规范化后的问题
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class AnswerCacheKey {
+
+    private final String digest;
+    private final String fingerprint;
+    private final String question;
+    private final boolean contextFree;
+
+    AnswerCacheKey(String digest, String fingerprint, String question, boolean contextFree) {
+        this.digest = digest;
+        this.fingerprint = fingerprint;
+        this.question = question;
+        this.contextFree = contextFree;
+    }
+
+    /**
+     * 精确匹配的缓存键：参数指纹、上下文与规范化问题的 SHA-256
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * 系统提示词与模型参数的指纹
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 规范化后的用户原始问题，精确匹配和语义向量都由它计算
+     */
+    public String getQuestion() {
+        return question;
+    }
+
+    /**
+     * 请求是否不带对话上下文，只有这类请求参与语义缓存
+     */
+    public boolean isContextFree() {
+        return contextFree;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.agent.infrastructure.cache;
+
+import com.alibaba.cloud.ai.tongyi.chat.TongYiChatOptions;
+import com.example.agent.application.config.ChatAnswerCacheProperties;
+import com.example.agent.domain.chat.ChatAggregate;
+import com.example.agent.domain.chat.model.RetainedSize;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回答缓存
+ * 以规范化后的用户原始问题、系统提示词和模型参数（按配置还包括对话上下文）的 SHA-256 作为键缓存完整回答，
+ * 精确匹配未命中时再由 {@link SemanticAnswerCache} 查找语义相近的问题。
+ * 思考过程的请求不参与缓存：它的内容是套了固定模板的提示词，不同问题渲染后的文本高度相似，
+ * 且所有思考请求的模型参数相同，缓存只会把别的问题的分析回放给用户。
+ * 命中时把回答拆成小片段按流回放，前端收到的 NDJSON 帧与上游生成时一致。
+ * 只缓存正常结束的回答；命中、未命中次数以 cache=chat-answer 标签注册为 cache.* 指标，
+ * 命中时省去的上游耗时记录在 chat.cache.saved.latency。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ChatAnswerCache {
+
+    private static final char FIELD_SEPARATOR = '\u001F';
+
+    private final ChatAnswerCacheProperties properties;
+    private final SemanticAnswerCache semanticCache;
+    private final Cache<String, CachedAnswer> cache;
+    private final Timer savedLatency;
+    private final Counter bypassed;
+
+    /**
+     * 构造函数
+     * @param properties 回答缓存配置
+     * @param semanticCache 语义缓存
+     * @param meterRegistry 指标注册表
+     */
+    public ChatAnswerCache(ChatAnswerCacheProperties properties, SemanticAnswerCache semanticCache,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.semanticCache = semanticCache;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxWeightBytes())
+                .<String, CachedAnswer>weigher((key, answer) -> RetainedSize.ofString(key) + answer.retainedBytes())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "chat-answer");
+        this.savedLatency = Timer.builder("chat.cache.saved.latency")
+                .description("缓存命中时省去的上游生成耗时")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("chat.cache.bypassed")
+                .description("因范围限制或思考请求未查询缓存的请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 计算缓存键
+     * @param functionType 功能类型，思考过程的请求不参与缓存
+     * @param systemPrompt 系统提示词
+     * @param options 模型参数
+     * @param context 随请求发送的上下文消息
+     * @param question 当前用户的原始问题
+     * @return 缓存键；未启用缓存或请求不在缓存范围内时返回 null
+     */
+    public AnswerCacheKey findKey(String functionType, String systemPrompt, TongYiChatOptions options,
+                                  List<Message> context, String question) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        boolean hasContext = context != null && !context.isEmpty();
+        if (ChatAggregate.FUNCTION_THINKING.equals(functionType)
+                || (hasContext && properties.getScope() == ChatAnswerCacheProperties.Scope.CONTEXT_FREE)) {
+            bypassed.increment();
+            return null;
+        }
+        String fingerprint = sha256(systemPrompt + FIELD_SEPARATOR + options.getModel() + FIELD_SEPARATOR
+                + options.getTemperature() + FIELD_SEPARATOR + options.getTopP() + FIELD_SEPARATOR
+                + options.getMaxTokens());
+        StringBuilder material = new StringBuilder(256).append(fingerprint).append(FIELD_SEPARATOR);
+        if (hasContext) {
+            for (Message message : context) {
+                material.append(message.getMessageType().getValue()).append(':')
+                        .append(message.getContent()).append(FIELD_SEPARATOR);
+            }
+        }
+        String normalized = normalize(question);
+        material.append(normalized);
+        return new AnswerCacheKey(sha256(material.toString()), fingerprint, normalized, !hasContext);
+    }
+
+    /**
+     * 查找缓存的回答并按流回放，先精确匹配，未命中时对无上下文的问题再做语义查找
+     * @param key 缓存键
+     * @return 回放的回答流；未命中时返回 null
+     */
+    public Flux<String> findReplay(AnswerCacheKey key) {
+        CachedAnswer answer = cache.getIfPresent(key.getDigest());
+        if (answer == null) {
+            return key.isContextFree() ? semanticCache.findReplay(key.getFingerprint(), key.getQuestion()) : null;
+        }
+        savedLatency.record(answer.upstreamNanos, TimeUnit.NANOSECONDS);
+        return Flux.fromIterable(answer.chunks);
+    }
+
+    /**
+     * 为上游回答流挂载缓存写入，流正常结束时缓存完整回答
+     * @param key 缓存键
+     * @param upstream 上游回答流
+     * @return 原样透传的回答流
+     */
+    public Flux<String> cacheOnComplete(AnswerCacheKey key, Flux<String> upstream) {
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            StringBuilder answer = new StringBuilder();
+            return upstream
+                    .doOnNext(answer::append)
+                    .doOnComplete(() -> {
+                        if (answer.length() == 0 || answer.length() > properties.getMaxAnswerChars()) {
+                            return;
+                        }
+                        long upstreamNanos = System.nanoTime() - startNanos;
+                        List<String> chunks = split(answer, properties.getReplayChunkChars());
+                        cache.put(key.getDigest(), new CachedAnswer(chunks, answer.length(), upstreamNanos));
+                        if (key.isContextFree()) {
+                            semanticCache.put(key.getFingerprint(), key.getQuestion(), chunks, upstreamNanos);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 规范化问题：兼容字符统一为标准形式（全角转半角），折叠空白，英文转小写，去掉结尾的标点
+     */
+    static String normalize(String question) {
+        String text = Normalizer.normalize(question == null ? "" : question, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+        int end = text.length();
+        while (end > 0 && isTrailingPunctuation(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return c == '?' || c == '!' || c == '.' || c == '。' || c == '~' || c == ' ';
+    }
+
+    private static List<String> split(CharSequence answer, int chunkChars) {
+        int size = Math.max(1, chunkChars);
+        List<String> chunks = new ArrayList<>(answer.length() / size + 1);
+        int start = 0;
+        while (start < answer.length()) {
+            int end = Math.min(start + size, answer.length());
+            // 不拆开代理对
+            if (end < answer.length() && Character.isHighSurrogate(answer.charAt(end - 1))) {
+                end++;
+            }
+            chunks.add(answer.subSequence(start, end).toString());
+            start = end;
+        }
+        return List.copyOf(chunks);
+    }
+
+    private static String sha256(String material) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(material.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 缓存的回答
+     */
+    private static final class CachedAnswer {
+
+        private final List<String> chunks;
+        private final int length;
+        private final long upstreamNanos;
+
+        CachedAnswer(List<String> chunks, int length, long upstreamNanos) {
+            this.chunks = chunks;
+            this.length = length;
+            this.upstreamNanos = upstreamNanos;
+        }
+
+        int retainedBytes() {
+            return RetainedSize.OBJECT + chunks.size() * (RetainedSize.REFERENCE + 40) + length * 2;
+        }
+    }
+}
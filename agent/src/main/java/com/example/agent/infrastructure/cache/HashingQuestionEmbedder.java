@@ -0,0 +1,159 @@
+package com.example.agent.infrastructure.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * 基于特征哈希的本地问题向量化
+ * 先把问法相近的疑问词（怎么、怎样、如何办理……）统一为同一个词元并去掉语气词，
+ * 再把单字和相邻词元对哈希到固定维度，最后归一化为单位向量。结果完全确定，不依赖外部服务，适合测试和离线环境。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class HashingQuestionEmbedder implements QuestionEmbedder {
+
+    /**
+     * 默认向量维度，必须是 2 的幂
+     */
+    public static final int DEFAULT_DIMENSIONS = 256;
+
+    /**
+     * 参与编码的最大词元数，更长的问题只取开头部分
+     */
+    private static final int MAX_UNITS = 256;
+
+    private static final float UNIGRAM_WEIGHT = 1.0f;
+    private static final float BIGRAM_WEIGHT = 1.5f;
+
+    /**
+     * 同义短语，命中后替换为同一组的规范词元；按顺序匹配，包含其他组短语的长短语必须排在前面
+     */
+    private static final String[][] SYNONYMS = {
+            {"为什么", "为啥", "怎么会"},
+            {"怎么办理", "如何办理", "怎样办理", "怎么样", "怎么", "怎样", "如何", "咋"},
+            {"多少钱", "什么价格", "价格", "费用"},
+    };
+
+    /**
+     * 不影响语义的短语，直接跳过
+     */
+    private static final String[] STOP_PHRASES = {"请问", "一下", "我想", "我要", "可以", "能不能", "吗", "呢", "啊", "吧", "的", "了"};
+
+    private final int dimensions;
+    private final ThreadLocal<int[]> unitBuffer = ThreadLocal.withInitial(() -> new int[MAX_UNITS]);
+
+    /**
+     * 构造函数，使用默认维度
+     */
+    public HashingQuestionEmbedder() {
+        this(DEFAULT_DIMENSIONS);
+    }
+
+    /**
+     * 构造函数
+     * @param dimensions 向量维度，必须是 2 的幂
+     */
+    public HashingQuestionEmbedder(int dimensions) {
+        if (Integer.bitCount(dimensions) != 1) {
+            throw new IllegalArgumentException("dimensions must be a power of two: " + dimensions);
+        }
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public void embed(String question, float[] out) {
+        Arrays.fill(out, 0f);
+        int[] units = unitBuffer.get();
+        int count = tokenize(question == null ? "" : question, units);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int unit = units[i];
+            accumulate(out, mix(unit), UNIGRAM_WEIGHT);
+            if (i > 0) {
+                accumulate(out, mix(previous * 0x9E3779B1 + unit), BIGRAM_WEIGHT);
+            }
+            previous = unit;
+        }
+        normalize(out);
+    }
+
+    /**
+     * 把问题切分为词元：同义短语替换为负数的规范编号，停用短语、空白和标点跳过，其余字符按规范化后的码点输出
+     */
+    private static int tokenize(String text, int[] units) {
+        int count = 0;
+        int i = 0;
+        int length = text.length();
+        scan:
+        while (i < length && count < units.length) {
+            for (int group = 0; group < SYNONYMS.length; group++) {
+                for (String phrase : SYNONYMS[group]) {
+                    if (text.startsWith(phrase, i)) {
+                        units[count++] = -(group + 1);
+                        i += phrase.length();
+                        continue scan;
+                    }
+                }
+            }
+            for (String phrase : STOP_PHRASES) {
+                if (text.startsWith(phrase, i)) {
+                    i += phrase.length();
+                    continue scan;
+                }
+            }
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isWhitespace(codePoint) || !Character.isLetterOrDigit(codePoint)) {
+                continue;
+            }
+            units[count++] = canonical(codePoint);
+        }
+        return count;
+    }
+
+    /**
+     * 全角字母数字转为半角，英文转为小写
+     */
+    private static int canonical(int codePoint) {
+        int c = codePoint;
+        if (c >= 0xFF01 && c <= 0xFF5E) {
+            c -= 0xFEE0;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private void accumulate(float[] out, int hash, float weight) {
+        int index = hash & (dimensions - 1);
+        out[index] += (hash & 0x80000000) == 0 ? weight : -weight;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private static void normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
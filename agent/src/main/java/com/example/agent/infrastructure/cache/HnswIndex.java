@@ -0,0 +1,535 @@
+package com.example.agent.infrastructure.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 分层可导航小世界图（HNSW）近似最近邻索引
+ * 向量须为单位向量，相似度取点积（即余弦相似度）。容量固定，写满后由调用方通过 {@link #copyRetaining(Predicate)}
+ * 在后台构建一个只含保留节点的新索引再替换，原索引在构建期间照常查询。
+ * 查询在读锁下进行，候选堆、结果堆和访问标记使用每个线程复用的工作区，查询路径不分配对象；插入在写锁下进行。
+ * 访问标记是按 ef 与邻居数预估大小的开放寻址集合，不随容量增长。
+ *
+ * @param <T> 节点携带的数据类型
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public class HnswIndex<T> {
+
+    private final int dimensions;
+    private final int capacity;
+    private final int maxLinks;
+    private final int maxLinksLayer0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch;
+
+    private final float[][] vectors;
+    private final Object[] payloads;
+    /**
+     * links[node][level] 为该节点在该层的邻居，下标 0 存放邻居数
+     */
+    private final int[][][] links;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * 构造函数
+     * @param dimensions 向量维度
+     * @param capacity 最大节点数
+     * @param maxLinks 每层每个节点的最大邻居数（M），第 0 层为其两倍
+     * @param efConstruction 插入时的候选集大小
+     * @param efSearch 查询时的候选集大小
+     */
+    public HnswIndex(int dimensions, int capacity, int maxLinks, int efConstruction, int efSearch) {
+        if (dimensions <= 0 || capacity <= 0 || maxLinks < 2 || efConstruction <= 0 || efSearch <= 0) {
+            throw new IllegalArgumentException("invalid HNSW parameters");
+        }
+        this.dimensions = dimensions;
+        this.capacity = capacity;
+        this.maxLinks = maxLinks;
+        this.maxLinksLayer0 = maxLinks * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(maxLinks);
+        this.vectors = new float[capacity][];
+        this.payloads = new Object[capacity];
+        this.links = new int[capacity][][];
+        int maxEf = Math.max(efConstruction, efSearch);
+        int expectedVisits = efSearch * maxLinksLayer0;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(maxEf, expectedVisits));
+    }
+
+    /**
+     * 插入一个向量
+     * @param vector 单位向量，插入后索引持有该数组，调用方不得再修改
+     * @param payload 节点携带的数据
+     * @return 是否插入成功，索引已满时返回 false
+     */
+    public boolean add(float[] vector, T payload) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            if (size >= capacity) {
+                return false;
+            }
+            insert(vector, payload);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找与查询向量最相似的节点
+     * 最高相似度可随后在同一线程通过 {@link #lastSimilarity()} 读取
+     * @param query 单位查询向量
+     * @param minSimilarity 相似度下限
+     * @return 最相似节点的数据；索引为空或最高相似度低于下限时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public T search(float[] query, float minSimilarity) {
+        Scratch s = scratch.get();
+        s.lastSimilarity = Float.NEGATIVE_INFINITY;
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return null;
+            }
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedy(query, ep, level);
+            }
+            searchLayer(query, ep, efSearch, 0, s);
+            int best = s.results.bestId();
+            float bestScore = s.results.bestScore();
+            s.lastSimilarity = bestScore;
+            return bestScore >= minSimilarity ? (T) payloads[best] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取当前线程最近一次查询的最高相似度
+     * @return 最高相似度，索引为空时为负无穷
+     */
+    public float lastSimilarity() {
+        return scratch.get().lastSimilarity;
+    }
+
+    /**
+     * 构建一个参数相同、只含满足条件节点的新索引
+     * 只在复制节点引用时短暂持有读锁，新图的构建不持有本索引的任何锁，期间本索引照常查询和插入
+     * @param keep 保留条件
+     * @return 新索引
+     */
+    @SuppressWarnings("unchecked")
+    public HnswIndex<T> copyRetaining(Predicate<T> keep) {
+        List<float[]> keptVectors = new ArrayList<>();
+        List<T> keptPayloads = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                T payload = (T) payloads[i];
+                if (keep.test(payload)) {
+                    keptVectors.add(vectors[i]);
+                    keptPayloads.add(payload);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        HnswIndex<T> copy = new HnswIndex<>(dimensions, capacity, maxLinks, efConstruction, efSearch);
+        for (int i = 0; i < keptVectors.size(); i++) {
+            copy.add(keptVectors.get(i), keptPayloads.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * 遍历全部节点携带的数据
+     * @param action 处理函数
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<T> action) {
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                action.accept((T) payloads[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取节点数
+     * @return 节点数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取最大节点数
+     * @return 最大节点数
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    private void insert(float[] vector, Object payload) {
+        int node = size++;
+        int level = randomLevel();
+        vectors[node] = vector;
+        payloads[node] = payload;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[(l == 0 ? maxLinksLayer0 : maxLinks) + 1];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedy(vector, ep, l);
+        }
+        Scratch s = scratch.get();
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            searchLayer(vector, ep, efConstruction, l, s);
+            int found = s.results.drainDescending(s.selectedIds);
+            int limit = l == 0 ? maxLinksLayer0 : maxLinks;
+            for (int i = 0; i < Math.min(maxLinks, found); i++) {
+                int neighbor = s.selectedIds[i];
+                link(node, neighbor, l, limit);
+                link(neighbor, node, l, limit);
+            }
+            ep = s.selectedIds[0];
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 添加一条单向边；邻居已满时，若新邻居比现有最远的邻居更近则替换之
+     */
+    private void link(int from, int to, int level, int limit) {
+        int[] neighbors = links[from][level];
+        int count = neighbors[0];
+        if (count < limit) {
+            neighbors[count + 1] = to;
+            neighbors[0] = count + 1;
+            return;
+        }
+        float[] origin = vectors[from];
+        int worst = -1;
+        float worstScore = dot(origin, vectors[to]);
+        for (int i = 1; i <= count; i++) {
+            float score = dot(origin, vectors[neighbors[i]]);
+            if (score < worstScore) {
+                worstScore = score;
+                worst = i;
+            }
+        }
+        if (worst > 0) {
+            neighbors[worst] = to;
+        }
+    }
+
+    private int greedy(float[] query, int entry, int level) {
+        int current = entry;
+        float best = dot(query, vectors[current]);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbors = links[current][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int candidate = neighbors[i];
+                float score = dot(query, vectors[candidate]);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void searchLayer(float[] query, int entry, int ef, int level, Scratch s) {
+        s.visited.clear();
+        s.candidates.clear();
+        s.results.clear();
+        float entryScore = dot(query, vectors[entry]);
+        s.visited.add(entry);
+        s.candidates.push(entry, entryScore);
+        s.results.push(entry, entryScore);
+        while (!s.candidates.isEmpty()) {
+            float candidateScore = s.candidates.topScore();
+            int candidate = s.candidates.pop();
+            if (s.results.size() >= ef && candidateScore < s.results.topScore()) {
+                break;
+            }
+            int[] neighbors = links[candidate][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (!s.visited.add(neighbor)) {
+                    continue;
+                }
+                float score = dot(query, vectors[neighbor]);
+                if (s.results.size() < ef || score > s.results.topScore()) {
+                    s.candidates.push(neighbor, score);
+                    s.results.push(neighbor, score);
+                    if (s.results.size() > ef) {
+                        s.results.pop();
+                    }
+                }
+            }
+        }
+    }
+
+    private int randomLevel() {
+        double u = 1.0 - random.nextDouble();
+        return (int) (-Math.log(u) * levelMultiplier);
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 每个线程复用的查询工作区
+     */
+    private static final class Scratch {
+
+        private final VisitedSet visited;
+        private final ScoreHeap candidates;
+        private final ScoreHeap results;
+        private final int[] selectedIds;
+        private float lastSimilarity;
+
+        Scratch(int maxEf, int expectedVisits) {
+            this.visited = new VisitedSet(expectedVisits);
+            this.candidates = new ScoreHeap(true, maxEf * 4);
+            this.results = new ScoreHeap(false, maxEf + 1);
+            this.selectedIds = new int[maxEf + 1];
+        }
+    }
+
+    /**
+     * 一次层内搜索访问过的节点，开放寻址的整数集合
+     * 槽位按轮次标记，清空只需递增轮次；装载超过一半时扩容，
+     * 扩容后超过初始大小四倍的表在下一次清空时退回初始大小，避免个别大搜索让每个线程长期持有大数组
+     */
+    private static final class VisitedSet {
+
+        private final int initialSlots;
+        private int[] nodes;
+        private int[] stamps;
+        private int epoch;
+        private int count;
+
+        VisitedSet(int expected) {
+            this.initialSlots = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            allocate(initialSlots);
+        }
+
+        void clear() {
+            count = 0;
+            if (nodes.length > initialSlots * 4) {
+                allocate(initialSlots);
+            } else if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * 加入一个节点
+         * @return 节点此前未被访问时返回 true
+         */
+        boolean add(int node) {
+            int mask = nodes.length - 1;
+            int slot = hash(node) & mask;
+            while (stamps[slot] == epoch) {
+                if (nodes[slot] == node) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            nodes[slot] = node;
+            stamps[slot] = epoch;
+            if (++count * 2 > nodes.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private void allocate(int slots) {
+            nodes = new int[slots];
+            stamps = new int[slots];
+            epoch = 1;
+        }
+
+        private void grow() {
+            int[] oldNodes = nodes;
+            int[] oldStamps = stamps;
+            int oldEpoch = epoch;
+            allocate(oldNodes.length * 2);
+            int mask = nodes.length - 1;
+            for (int i = 0; i < oldNodes.length; i++) {
+                if (oldStamps[i] != oldEpoch) {
+                    continue;
+                }
+                int slot = hash(oldNodes[i]) & mask;
+                while (stamps[slot] == epoch) {
+                    slot = (slot + 1) & mask;
+                }
+                nodes[slot] = oldNodes[i];
+                stamps[slot] = epoch;
+            }
+        }
+
+        private static int hash(int node) {
+            int h = node * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * 以并行数组存储的二叉堆，maxHeap 为 true 时堆顶为最高分，否则为最低分
+     */
+    private static final class ScoreHeap {
+
+        private final boolean maxHeap;
+        private int[] ids;
+        private float[] scores;
+        private int size;
+
+        ScoreHeap(boolean maxHeap, int initialCapacity) {
+            this.maxHeap = maxHeap;
+            this.ids = new int[initialCapacity];
+            this.scores = new float[initialCapacity];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int id, float score) {
+            if (size == ids.length) {
+                // 极少发生：候选数超过预估时扩容，之后复用
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = ids[0];
+            int lastId = ids[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && before(scores[right], scores[child])) {
+                    child = right;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                ids[i] = ids[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            ids[i] = lastId;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        /**
+         * 按分数从高到低取出全部元素（仅用于最低分堆）
+         */
+        int drainDescending(int[] out) {
+            int count = size;
+            for (int i = count - 1; i >= 0; i--) {
+                out[i] = pop();
+            }
+            return count;
+        }
+
+        int bestId() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            return ids[best];
+        }
+
+        float bestScore() {
+            float best = scores[0];
+            for (int i = 1; i < size; i++) {
+                best = Math.max(best, scores[i]);
+            }
+            return best;
+        }
+
+        private boolean before(float a, float b) {
+            return maxHeap ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.agent.infrastructure.cache;
+
+/**
+ * 问题向量化接口
+ * 将问题文本编码为单位长度的向量，向量点积即余弦相似度。
+ * 默认使用本地确定性的 {@link HashingQuestionEmbedder}；接入远程向量模型时声明一个 @Primary 的实现即可替换。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public interface QuestionEmbedder {
+
+    /**
+     * 获取向量维度
+     * @return 向量维度
+     */
+    int dimensions();
+
+    /**
+     * 将问题编码为向量，写入调用方提供的数组，不分配新数组
+     * @param question 问题文本
+     * @param out 输出向量，长度等于 {@link #dimensions()}
+     */
+    void embed(String question, float[] out);
+}
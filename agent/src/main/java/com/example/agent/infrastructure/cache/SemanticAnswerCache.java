@@ -0,0 +1,239 @@
+package com.example.agent.infrastructure.cache;
+
+import com.example.agent.application.config.SemanticCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 语义回答缓存
+ * 精确匹配未命中时，把问题向量化后在 HNSW 索引中查找最相似的已回答问题，相似度达到阈值即回放其回答，
+ * 用于覆盖"怎么退货"与"如何办理退货"这类同义问法。只作用于没有对话上下文的问题，
+ * 且系统提示词和模型参数（以精确缓存键前缀的指纹表示）必须一致。
+ * 向量只反映字面上的重合程度，"能退货"与"不能退货"、"订单12345"与"订单12346"的相似度都在 0.8 以上，
+ * 因此命中还要求两个问题中的数字串和否定词完全一致。
+ * 索引写满时在后台构建只含保留条目的新索引后整体替换，写入方（回答流的完成回调）不等待重建，
+ * 重建期间写满的索引照常查询，新的写入被丢弃。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class SemanticAnswerCache {
+
+    private final SemanticCacheProperties properties;
+    private final QuestionEmbedder embedder;
+    private final Scheduler rebuildScheduler;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile HnswIndex<Entry> index;
+    private final ThreadLocal<float[]> queryBuffer;
+    private final Counter hits;
+    private final Counter misses;
+    private final DistributionSummary similarity;
+    private final Timer lookupLatency;
+    private final Timer savedLatency;
+
+    /**
+     * 构造函数
+     * @param properties 语义缓存配置
+     * @param embedder 问题向量化实现
+     * @param meterRegistry 指标注册表
+     */
+    @Autowired
+    public SemanticAnswerCache(SemanticCacheProperties properties, QuestionEmbedder embedder,
+                               MeterRegistry meterRegistry) {
+        this(properties, embedder, meterRegistry, Schedulers.boundedElastic());
+    }
+
+    /**
+     * 构造函数
+     * @param properties 语义缓存配置
+     * @param embedder 问题向量化实现
+     * @param meterRegistry 指标注册表
+     * @param rebuildScheduler 索引写满后重建所用的调度器
+     */
+    SemanticAnswerCache(SemanticCacheProperties properties, QuestionEmbedder embedder,
+                        MeterRegistry meterRegistry, Scheduler rebuildScheduler) {
+        this.properties = properties;
+        this.embedder = embedder;
+        this.rebuildScheduler = rebuildScheduler;
+        this.index = new HnswIndex<>(embedder.dimensions(), properties.getMaxEntries(), properties.getMaxLinks(),
+                properties.getEfConstruction(), properties.getEfSearch());
+        this.queryBuffer = ThreadLocal.withInitial(() -> new float[embedder.dimensions()]);
+        Gauge.builder("chat.semantic.cache.size", this, cache -> cache.index.size())
+                .description("语义索引中的问题数")
+                .register(meterRegistry);
+        this.hits = Counter.builder("chat.semantic.cache.lookups").tag("result", "hit")
+                .description("语义缓存查询次数")
+                .register(meterRegistry);
+        this.misses = Counter.builder("chat.semantic.cache.lookups").tag("result", "miss")
+                .description("语义缓存查询次数")
+                .register(meterRegistry);
+        this.similarity = DistributionSummary.builder("chat.semantic.cache.similarity")
+                .description("每次查询的最高相似度")
+                .register(meterRegistry);
+        this.lookupLatency = Timer.builder("chat.semantic.cache.lookup")
+                .description("向量化加索引查询的耗时")
+                .register(meterRegistry);
+        this.savedLatency = Timer.builder("chat.semantic.cache.saved.latency")
+                .description("语义缓存命中时省去的上游生成耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 否定词，两个问题中出现的次数不同则不视为同义
+     */
+    private static final String NEGATIONS = "不没未别非无";
+
+    /**
+     * 查找语义相近的已回答问题并按流回放其回答
+     * @param fingerprint 系统提示词与模型参数的指纹
+     * @param question 规范化后的用户问题
+     * @return 回放的回答流；未启用或未命中时返回 null
+     */
+    public Flux<String> findReplay(String fingerprint, String question) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        float[] query = queryBuffer.get();
+        embedder.embed(question, query);
+        HnswIndex<Entry> current = index;
+        Entry entry = current.search(query, properties.getSimilarityThreshold());
+        lookupLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        float best = current.lastSimilarity();
+        if (best > Float.NEGATIVE_INFINITY) {
+            similarity.record(best);
+        }
+        if (entry == null || !entry.fingerprint.equals(fingerprint) || entry.isExpired(System.currentTimeMillis())
+                || !entry.literals.equals(literals(question))) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        savedLatency.record(entry.upstreamNanos, TimeUnit.NANOSECONDS);
+        return Flux.fromIterable(entry.chunks);
+    }
+
+    /**
+     * 写入一条已回答的问题
+     * 索引写满时提交一次后台重建并丢弃本条，不在调用线程上重建
+     * @param fingerprint 系统提示词与模型参数的指纹
+     * @param question 规范化后的用户问题
+     * @param chunks 拆分好的回答片段
+     * @param upstreamNanos 上游生成该回答的耗时
+     */
+    public void put(String fingerprint, String question, List<String> chunks, long upstreamNanos) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        float[] vector = new float[embedder.dimensions()];
+        embedder.embed(question, vector);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(fingerprint, literals(question), chunks, upstreamNanos, now,
+                now + properties.getTtl().toMillis());
+        if (!index.add(vector, entry) && rebuilding.compareAndSet(false, true)) {
+            rebuildScheduler.schedule(this::rebuild);
+        }
+    }
+
+    /**
+     * 清理过期条目，剩余条目仍超过四分之三容量时再丢弃最早写入的一半，构建新索引后整体替换
+     * 写满的旧索引不再接受写入，重建期间不会有条目丢失；查询在替换前后分别落在旧索引或新索引上
+     */
+    void rebuild() {
+        try {
+            HnswIndex<Entry> full = index;
+            long now = System.currentTimeMillis();
+            long cutoff = evictionCutoff(full, now);
+            index = full.copyRetaining(candidate -> !candidate.isExpired(now) && candidate.createdAtMillis > cutoff);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 提取问题中必须逐字一致的部分：各段数字串以及否定词，按出现顺序拼接
+     */
+    static String literals(String question) {
+        if (question == null) {
+            return "";
+        }
+        StringBuilder literals = new StringBuilder();
+        boolean inDigits = false;
+        for (int i = 0; i < question.length(); i++) {
+            char c = question.charAt(i);
+            if (Character.isDigit(c)) {
+                literals.append(c);
+                inDigits = true;
+                continue;
+            }
+            if (inDigits) {
+                literals.append(',');
+                inDigits = false;
+            }
+            if (NEGATIONS.indexOf(c) >= 0) {
+                literals.append(c);
+            }
+        }
+        return literals.toString();
+    }
+
+    /**
+     * 计算按写入时间淘汰的分界：未过期条目不超过四分之三容量时不淘汰，否则取其写入时间的中位数
+     */
+    private static long evictionCutoff(HnswIndex<Entry> full, long now) {
+        long[] createdAt = new long[full.capacity()];
+        int[] count = new int[1];
+        full.forEach(candidate -> {
+            if (!candidate.isExpired(now)) {
+                createdAt[count[0]++] = candidate.createdAtMillis;
+            }
+        });
+        if (count[0] <= full.capacity() * 3 / 4) {
+            return Long.MIN_VALUE;
+        }
+        Arrays.sort(createdAt, 0, count[0]);
+        return createdAt[count[0] / 2];
+    }
+
+    /**
+     * 缓存的问题与回答
+     */
+    private static final class Entry {
+
+        private final String fingerprint;
+        private final String literals;
+        private final List<String> chunks;
+        private final long upstreamNanos;
+        private final long createdAtMillis;
+        private final long expiresAtMillis;
+
+        Entry(String fingerprint, String literals, List<String> chunks, long upstreamNanos, long createdAtMillis,
+              long expiresAtMillis) {
+            this.fingerprint = fingerprint;
+            this.literals = literals;
+            this.chunks = chunks;
+            this.upstreamNanos = upstreamNanos;
+            this.createdAtMillis = createdAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+}
@@ -7,15 +7,27 @@ import com.alibaba.cloud.ai.tongyi.image.TongYiImagesModel;
 import com.example.agent.application.service.ChatService;
 import com.example.agent.domain.chat.ChatAggregate;
 import com.example.agent.domain.chat.ChatValidator;
+import com.example.agent.domain.chat.model.ContextWindow;
+import com.example.agent.domain.chat.service.ContextWindowBuilder;
 import com.example.agent.application.exception.BusinessException;
+import com.example.agent.infrastructure.cache.AnswerCacheKey;
+import com.example.agent.infrastructure.cache.ChatAnswerCache;
+import com.example.agent.infrastructure.jfr.ChatEvents;
+import com.example.agent.infrastructure.jfr.UpstreamStreamEvent;
+import com.example.agent.infrastructure.limit.AdaptiveConcurrencyLimiter;
+import com.example.agent.infrastructure.resilience.ResilientModelStream;
+import com.example.agent.infrastructure.routing.ModelRouter;
+import com.example.agent.infrastructure.stream.SingleFlightStreams;
+import org.springframework.ai.chat.ChatResponse;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,18 +42,49 @@ import java.util.List;
 @Service
 public class ChatServiceImpl implements ChatService {
 
+    /**
+     * 系统提示词
+     */
+    private static final String SYSTEM_PROMPT = "你是一个专业的客服助手，请用专业、友好的方式回答用户的问题。";
+
+    /**
+     * 合并请求键的字段分隔符
+     */
+    private static final char KEY_SEPARATOR = '\u001F';
+
     private final TongYiChatModel tongYiChatModel;
     private final ChatValidator chatValidator;
+    private final ContextWindowBuilder contextWindowBuilder;
+    private final ChatAnswerCache answerCache;
+    private final SingleFlightStreams singleFlightStreams;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ResilientModelStream resilientModelStream;
+    private final ModelRouter modelRouter;
 
     /**
      * 构造函数
      * @param tongYiChatModel 通义千问模型
      * @param tongYiImageModel 通义千问图片模型
      * @param chatValidator 聊天验证器
+     * @param contextWindowBuilder 上下文窗口构建器
+     * @param answerCache 回答缓存
+     * @param singleFlightStreams 相同请求的流合并
+     * @param concurrencyLimiter 上游并发限制
+     * @param resilientModelStream 上游回答流的容错包装
+     * @param modelRouter 模型路由
      */
-    public ChatServiceImpl(TongYiChatModel tongYiChatModel, TongYiImagesModel tongYiImageModel, ChatValidator chatValidator) {
+    public ChatServiceImpl(TongYiChatModel tongYiChatModel, TongYiImagesModel tongYiImageModel, ChatValidator chatValidator,
+                           ContextWindowBuilder contextWindowBuilder, ChatAnswerCache answerCache,
+                           SingleFlightStreams singleFlightStreams, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                           ResilientModelStream resilientModelStream, ModelRouter modelRouter) {
         this.tongYiChatModel = tongYiChatModel;
         this.chatValidator = chatValidator;
+        this.contextWindowBuilder = contextWindowBuilder;
+        this.answerCache = answerCache;
+        this.singleFlightStreams = singleFlightStreams;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.resilientModelStream = resilientModelStream;
+        this.modelRouter = modelRouter;
     }
 
     /**
@@ -56,22 +99,34 @@ public class ChatServiceImpl implements ChatService {
             // 验证聊天请求
             chatValidator.validateChatRequest(chatAggregate);
 
+            // 按问题分类选择模型和最大输出 token 数
+            ModelRouter.ModelRoute route = modelRouter.getRoute(chatAggregate);
+            chatAggregate.setModel(route.getModel());
+
             // 调用通义千问API的流式接口
             TongYiChatOptions options = TongYiChatOptions.builder()
-                    .withModel("qwen-turbo")
+                    .withModel(route.getModel())
                     .withTemperature(0.7d)
                     .withTopP(1.0d)
-                    .withMaxTokens(2048)
+                    .withMaxTokens(route.getMaxTokens())
                     .build();
 
             // 创建消息数组
             List<Message> messages = new ArrayList<>();
-            messages.add(new SystemMessage("你是一个专业的客服助手，请用专业、友好的方式回答用户的问题。"));
+            messages.add(new SystemMessage(SYSTEM_PROMPT));
 
-            // 如果有上下文消息，添加到消息列表
-            if (chatAggregate.getContextMessages() != null) {
-                for (String contextMessage : chatAggregate.getContextMessages()) {
-                    messages.add(new UserMessage(contextMessage));
+            // 在 token 预算内添加上下文历史消息，保留 user/assistant 角色
+            ContextWindow contextWindow = contextWindowBuilder.build(
+                    chatAggregate.getContextHistory(), SYSTEM_PROMPT, chatAggregate.getContent(), route.getMaxTokens());
+            messages.addAll(contextWindow.getMessages());
+
+            // 相同问题命中缓存时直接回放，不请求上游；思考过程的请求不查缓存
+            AnswerCacheKey cacheKey = answerCache.findKey(chatAggregate.getFunctionType(), SYSTEM_PROMPT, options,
+                    contextWindow.getMessages(), chatAggregate.getContent());
+            if (cacheKey != null) {
+                Flux<String> replay = answerCache.findReplay(cacheKey);
+                if (replay != null) {
+                    return replay;
                 }
             }
 
@@ -81,26 +136,116 @@ public class ChatServiceImpl implements ChatService {
             // 创建Prompt对象
             Prompt prompt = new Prompt(messages, options);
 
-            // 返回流式响应
+            // 返回流式响应；提示词完全相同的并发请求共享同一个上游调用，缓存也只写入一次
+            // 只有真正发起上游调用的请求占用并发许可，缓存命中和合并进来的请求不排队；
+            // 首 token 补救发起的请求与原请求共用同一个许可
+            return singleFlightStreams.join(flightKey(messages, options), () -> {
+                Flux<String> answer = route.instrument(contextWindow.getPromptTokens(),
+                                concurrencyLimiter.limit(chatAggregate.getSessionId(),
+                                        resilientModelStream.protect(
+                                                () -> streamContent(prompt, route, contextWindow.getPromptTokens(),
+                                                        chatAggregate.getSessionId()))))
+                        // 确保每个响应作为单独事件发送
+                        .distinctUntilChanged();
+                return cacheKey == null ? answer : answerCache.cacheOnComplete(cacheKey, answer);
+            });
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("处理流式聊天请求时发生错误", e);
+        }
+    }
+
+    /**
+     * 发起一次上游调用，只保留非空的文本片段
+     * 调用结束时记录消耗的 token 数：上游返回了 usage 时以其为准（流中为累计值，取最后一次），否则按提示词和输出内容估算；
+     * 开启 JFR 记录时生成 {@link UpstreamStreamEvent}
+     */
+    private Flux<String> streamContent(Prompt prompt, ModelRouter.ModelRoute route, int estimatedPromptTokens,
+                                       String sessionId) {
+        return Flux.defer(() -> {
+            // 0: 上游输入 token，1: 上游输出 token，2: 估算输出 token
+            long[] usage = new long[3];
+            UpstreamStreamEvent event = new UpstreamStreamEvent();
+            boolean recording = event.isEnabled();
+            long startNanos = recording ? System.nanoTime() : 0;
+            event.begin();
             return tongYiChatModel.stream(prompt)
+                    .doOnNext(response -> readUsage(response, usage))
                     .map(response -> {
-                        if (response.getResult() != null && 
-                            response.getResult().getOutput() != null && 
+                        if (response.getResult() != null &&
+                            response.getResult().getOutput() != null &&
                             response.getResult().getOutput().getContent() != null) {
                             return response.getResult().getOutput().getContent();
                         }
                         return "";
                     })
                     .filter(content -> !content.isEmpty())
-                    // 确保每个响应作为单独事件发送
-                    .distinctUntilChanged()
-                    // 添加延迟以确保前端能够正确处理
-                    .delayElements(Duration.ofMillis(50));
-        } catch (BusinessException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException("处理流式聊天请求时发生错误", e);
+                    .doOnNext(content -> {
+                        usage[2] += ContextWindowBuilder.estimateTokens(content);
+                        if (recording) {
+                            if (event.chunks++ == 0) {
+                                event.firstChunk = System.nanoTime() - startNanos;
+                            }
+                            event.bytes += ChatEvents.utf8Length(content);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        boolean reported = usage[0] > 0 || usage[1] > 0;
+                        long promptTokens = reported ? usage[0] : estimatedPromptTokens;
+                        long completionTokens = reported ? usage[1] : usage[2];
+                        route.recordUsage(promptTokens, completionTokens, reported);
+                        event.end();
+                        if (event.shouldCommit()) {
+                            event.sessionId = sessionId;
+                            event.route = route.getName();
+                            event.model = route.getModel();
+                            event.promptTokens = promptTokens;
+                            event.completionTokens = completionTokens;
+                            event.usageReported = reported;
+                            if (event.chunks == 0) {
+                                event.firstChunk = -1;
+                            }
+                            event.outcome = ChatEvents.outcome(signal);
+                            event.commit();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 读取上游响应中的 usage，模型适配层未透传时保持原值
+     */
+    private static void readUsage(ChatResponse response, long[] usage) {
+        ChatResponseMetadata metadata = response.getMetadata();
+        Usage reported = metadata == null ? null : metadata.getUsage();
+        if (reported == null) {
+            return;
+        }
+        Long promptTokens = reported.getPromptTokens();
+        Long generationTokens = reported.getGenerationTokens();
+        if (promptTokens != null && promptTokens > 0) {
+            usage[0] = promptTokens;
+        }
+        if (generationTokens != null && generationTokens > 0) {
+            usage[1] = generationTokens;
+        }
+    }
+
+    /**
+     * 生成合并请求用的键：模型参数与全部消息的角色和内容，完全一致才视为同一请求
+     */
+    private static String flightKey(List<Message> messages, TongYiChatOptions options) {
+        StringBuilder key = new StringBuilder(256)
+                .append(options.getModel()).append(KEY_SEPARATOR)
+                .append(options.getTemperature()).append(KEY_SEPARATOR)
+                .append(options.getTopP()).append(KEY_SEPARATOR)
+                .append(options.getMaxTokens());
+        for (Message message : messages) {
+            key.append(KEY_SEPARATOR).append(message.getMessageType().getValue()).append(':')
+                    .append(message.getContent());
         }
+        return key.toString();
     }
 
 } 
\ No newline at end of file
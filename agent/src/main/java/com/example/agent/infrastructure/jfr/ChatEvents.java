@@ -0,0 +1,51 @@
+package com.example.agent.infrastructure.jfr;
+
+import reactor.core.publisher.SignalType;
+
+/**
+ * JFR 事件的公共取值
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class ChatEvents {
+
+    private ChatEvents() {
+    }
+
+    /**
+     * 将流的结束信号转换为事件中的结束方式
+     * @param signal 结束信号
+     * @return complete、cancel 或 error
+     */
+    public static String outcome(SignalType signal) {
+        if (signal == SignalType.ON_COMPLETE) {
+            return "complete";
+        }
+        return signal == SignalType.CANCEL ? "cancel" : "error";
+    }
+
+    /**
+     * 计算文本的 UTF-8 字节数，不生成字节数组
+     * @param text 文本
+     * @return 字节数
+     */
+    public static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
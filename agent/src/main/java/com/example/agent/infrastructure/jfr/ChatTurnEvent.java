@@ -0,0 +1,76 @@
+package com.example.agent.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 一轮对话的 JFR 事件
+ * 从 NDJSON 流被订阅开始到流结束（完成、出错或客户端断开），持续时间即整轮耗时，
+ * 可与同一时间段的 GC 停顿、锁竞争事件对照定位慢轮次。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Name("com.example.agent.ChatTurn")
+@Label("Chat Turn")
+@Category({"Agent", "Chat"})
+@Description("一轮流式对话，从订阅到流结束")
+@StackTrace(false)
+public class ChatTurnEvent extends jdk.jfr.Event {
+
+    /**
+     * 会话 ID
+     */
+    @Label("Session Id")
+    public String sessionId;
+
+    /**
+     * 接口路径
+     */
+    @Label("Endpoint")
+    public String endpoint;
+
+    /**
+     * 回答使用的模型
+     */
+    @Label("Model")
+    public String model;
+
+    /**
+     * 结束方式：complete、cancel、error
+     */
+    @Label("Outcome")
+    public String outcome;
+
+    /**
+     * 输出的帧数
+     */
+    @Label("Frames")
+    public long frames;
+
+    /**
+     * 回答帧数
+     */
+    @Label("Answer Frames")
+    public long answerFrames;
+
+    /**
+     * 输出的字节数
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * 首个回答帧的耗时，没有回答帧时为 -1
+     */
+    @Label("First Answer")
+    @Timespan(Timespan.NANOSECONDS)
+    public long firstAnswer;
+}
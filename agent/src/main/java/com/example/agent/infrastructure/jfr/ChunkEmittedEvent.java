@@ -0,0 +1,51 @@
+package com.example.agent.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 向客户端输出一帧的 JFR 事件
+ * 持续时间为距上一帧（首帧为距轮次开始）的间隔；默认只记录间隔超过 20ms 的帧，避免逐帧记录的开销
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Name("com.example.agent.ChunkEmitted")
+@Label("Chunk Emitted")
+@Category({"Agent", "Chat"})
+@Description("输出一帧，持续时间为与上一帧的间隔")
+@Threshold("20 ms")
+@StackTrace(false)
+public class ChunkEmittedEvent extends jdk.jfr.Event {
+
+    /**
+     * 会话 ID
+     */
+    @Label("Session Id")
+    public String sessionId;
+
+    /**
+     * 帧类型：thinking、response、error
+     */
+    @Label("Type")
+    public String type;
+
+    /**
+     * 帧在本轮中的序号，从 0 开始
+     */
+    @Label("Index")
+    public long index;
+
+    /**
+     * 编码后的字节数
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,43 @@
+package com.example.agent.infrastructure.jfr;
+
+import com.example.agent.domain.chat.model.ThinkingStep;
+import com.example.agent.domain.chat.service.ThinkingPhaseRecorder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * 以 JFR 事件记录思考阶段
+ * 开启 JFR 记录时为每次思考生成一个 {@link ThinkingPhaseEvent}，未开启时原样返回步骤流
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class JfrThinkingPhaseRecorder implements ThinkingPhaseRecorder {
+
+    @Override
+    public Flux<ThinkingStep> record(String sessionId, String mode, Flux<ThinkingStep> steps) {
+        return Flux.defer(() -> {
+            ThinkingPhaseEvent event = new ThinkingPhaseEvent();
+            if (!event.isEnabled()) {
+                return steps;
+            }
+            event.begin();
+            return steps
+                    .doOnNext(step -> {
+                        event.steps++;
+                        event.bytes += ChatEvents.utf8Length(step.getContent());
+                    })
+                    .doFinally(signal -> {
+                        event.end();
+                        if (event.shouldCommit()) {
+                            event.sessionId = sessionId;
+                            event.mode = mode;
+                            event.outcome = ChatEvents.outcome(signal);
+                            event.commit();
+                        }
+                    });
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.agent.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 写入会话历史的 JFR 事件
+ * 持续时间包括会话存储的加锁更新和转交持久化队列
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Name("com.example.agent.MemoryAppend")
+@Label("Memory Append")
+@Category({"Agent", "Memory"})
+@Description("向会话历史追加消息")
+@StackTrace(false)
+public class MemoryAppendEvent extends jdk.jfr.Event {
+
+    /**
+     * 会话 ID
+     */
+    @Label("Session Id")
+    public String sessionId;
+
+    /**
+     * 追加的消息数
+     */
+    @Label("Messages")
+    public int messages;
+
+    /**
+     * 追加内容的字符数
+     */
+    @Label("Chars")
+    public long chars;
+}
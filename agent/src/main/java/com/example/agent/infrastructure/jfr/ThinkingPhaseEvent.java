@@ -0,0 +1,55 @@
+package com.example.agent.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 思考阶段的 JFR 事件
+ * 从思考步骤流被订阅开始到最后一个步骤输出，持续时间即思考阶段耗时
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Name("com.example.agent.ThinkingPhase")
+@Label("Thinking Phase")
+@Category({"Agent", "Chat"})
+@Description("生成思考步骤的阶段")
+@StackTrace(false)
+public class ThinkingPhaseEvent extends jdk.jfr.Event {
+
+    /**
+     * 会话 ID
+     */
+    @Label("Session Id")
+    public String sessionId;
+
+    /**
+     * 思考模式：LLM、LOCAL、OFF
+     */
+    @Label("Mode")
+    public String mode;
+
+    /**
+     * 输出的思考步骤数
+     */
+    @Label("Steps")
+    public int steps;
+
+    /**
+     * 思考步骤的 UTF-8 字节数
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * 结束方式：complete、cancel、error
+     */
+    @Label("Outcome")
+    public String outcome;
+}
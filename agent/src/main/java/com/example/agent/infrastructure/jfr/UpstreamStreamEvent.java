@@ -0,0 +1,87 @@
+package com.example.agent.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 一次上游模型调用的 JFR 事件
+ * 从发起流式调用到上游流结束；补发请求时一轮对话会有多个事件
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Name("com.example.agent.UpstreamStream")
+@Label("Upstream Stream")
+@Category({"Agent", "Upstream"})
+@Description("一次上游模型的流式调用")
+@StackTrace(false)
+public class UpstreamStreamEvent extends jdk.jfr.Event {
+
+    /**
+     * 会话 ID
+     */
+    @Label("Session Id")
+    public String sessionId;
+
+    /**
+     * 路由名称
+     */
+    @Label("Route")
+    public String route;
+
+    /**
+     * 模型名称
+     */
+    @Label("Model")
+    public String model;
+
+    /**
+     * 收到的非空回答片段数
+     */
+    @Label("Chunks")
+    public int chunks;
+
+    /**
+     * 回答片段的 UTF-8 字节数
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * 输入 token 数
+     */
+    @Label("Prompt Tokens")
+    public long promptTokens;
+
+    /**
+     * 输出 token 数
+     */
+    @Label("Completion Tokens")
+    public long completionTokens;
+
+    /**
+     * token 数是否取自上游返回的 usage，为 false 时为本地估算
+     */
+    @Label("Usage Reported")
+    public boolean usageReported;
+
+    /**
+     * 首个回答片段的耗时，没有收到片段时为 -1
+     */
+    @Label("First Chunk")
+    @Timespan(Timespan.NANOSECONDS)
+    public long firstChunk;
+
+    /**
+     * 结束方式：complete、cancel、error
+     */
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,278 @@
+package com.example.agent.infrastructure.limit;
+
+import com.example.agent.application.config.UpstreamLimiterProperties;
+import com.example.agent.application.exception.UpstreamOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游模型调用的自适应并发限制
+ * 并发上限按首 token 耗时做加性增、乘性减（AIMD）：首 token 在目标耗时内到达时上限缓慢增加，
+ * 超时或上游出错时按比例降低，每个降低周期只降一次，避免同一批慢请求把上限连续压到底。
+ * 超出上限的请求进入有界等待队列，按会话轮转出队，单个会话连续发起的请求不会占满队列头部；
+ * 队列已满或排队时间超过限制时请求以 {@link UpstreamOverloadedException} 结束。
+ * 上限、进行中与排队的请求数注册为 chat.limiter.* 指标。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final String DEFAULT_SESSION = "";
+
+    private final UpstreamLimiterProperties properties;
+    private final Object lock = new Object();
+    private final Map<String, ArrayDeque<Ticket>> waiting = new LinkedHashMap<>();
+    private final Counter rejectedFull;
+    private final Counter rejectedTimeout;
+    private final Timer queueWait;
+    private final Timer firstTokenLatency;
+
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int queued;
+    private long lastDecreaseNanos;
+
+    /**
+     * 构造函数
+     * @param properties 并发限制配置
+     * @param meterRegistry 指标注册表
+     */
+    public AdaptiveConcurrencyLimiter(UpstreamLimiterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), properties.getInitialLimit()));
+        this.lastDecreaseNanos = System.nanoTime();
+        Gauge.builder("chat.limiter.limit", this, limiter -> limiter.limit)
+                .description("当前的上游并发上限")
+                .register(meterRegistry);
+        Gauge.builder("chat.limiter.inflight", this, limiter -> limiter.inFlight)
+                .description("正在进行的上游调用数")
+                .register(meterRegistry);
+        Gauge.builder("chat.limiter.queue.depth", this, limiter -> limiter.queued)
+                .description("等待并发许可的请求数")
+                .register(meterRegistry);
+        this.rejectedFull = Counter.builder("chat.limiter.rejected").tag("reason", "queue_full")
+                .description("因过载被拒绝的请求数")
+                .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("chat.limiter.rejected").tag("reason", "queue_timeout")
+                .description("因过载被拒绝的请求数")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("chat.limiter.queue.wait")
+                .description("获得并发许可前的排队耗时")
+                .register(meterRegistry);
+        this.firstTokenLatency = Timer.builder("chat.limiter.first.token")
+                .description("获得许可到上游输出首个片段的耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在并发许可内执行上游调用
+     * 订阅时申请许可，上游结束（完成、出错或被取消）时归还
+     * @param sessionId 会话ID，用于排队时在会话间轮转
+     * @param upstream 上游回答流
+     * @return 受并发限制的回答流
+     */
+    public Flux<String> limit(String sessionId, Flux<String> upstream) {
+        if (!properties.isEnabled()) {
+            return upstream;
+        }
+        return Flux.defer(() -> {
+            Ticket ticket = new Ticket(sessionId == null ? DEFAULT_SESSION : sessionId);
+            return Mono.<Void>create(sink -> acquire(ticket, sink))
+                    .thenMany(Flux.defer(() -> upstream.doOnNext(content -> onFirstToken(ticket))))
+                    .doFinally(signal -> release(ticket, signal));
+        });
+    }
+
+    private void acquire(Ticket ticket, MonoSink<Void> sink) {
+        ticket.sink = sink;
+        ticket.enqueuedNanos = System.nanoTime();
+        boolean granted = false;
+        boolean rejected = false;
+        synchronized (lock) {
+            if (queued == 0 && inFlight < (int) limit) {
+                grant(ticket);
+                granted = true;
+            } else if (queued >= properties.getQueueCapacity()) {
+                ticket.state = State.REJECTED;
+                rejected = true;
+            } else {
+                waiting.computeIfAbsent(ticket.sessionId, k -> new ArrayDeque<>()).addLast(ticket);
+                queued++;
+            }
+        }
+        if (granted) {
+            queueWait.record(0, TimeUnit.NANOSECONDS);
+            sink.success();
+        } else if (rejected) {
+            rejectedFull.increment();
+            sink.error(new UpstreamOverloadedException("当前咨询人数较多，请稍后再试"));
+        } else {
+            ticket.timeout = Schedulers.parallel().schedule(() -> expire(ticket),
+                    properties.getMaxQueueTime().toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void expire(Ticket ticket) {
+        synchronized (lock) {
+            if (ticket.state != State.WAITING) {
+                return;
+            }
+            dequeue(ticket);
+            ticket.state = State.REJECTED;
+        }
+        rejectedTimeout.increment();
+        ticket.sink.error(new UpstreamOverloadedException("当前咨询人数较多，排队超时，请稍后再试"));
+    }
+
+    private void onFirstToken(Ticket ticket) {
+        if (ticket.firstTokenNanos != 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        ticket.firstTokenNanos = now;
+        long elapsed = now - ticket.grantedNanos;
+        firstTokenLatency.record(elapsed, TimeUnit.NANOSECONDS);
+        List<Ticket> ready;
+        synchronized (lock) {
+            if (elapsed > properties.getFirstTokenTarget().toNanos()) {
+                decrease(ticket);
+            } else if (inFlight * 2 >= limit) {
+                // 只在许可用到一半以上时增加，空闲时上限不会无限增长
+                limit = Math.min(properties.getMaxLimit(), limit + 1.0 / limit);
+            }
+            ready = dispatch();
+        }
+        resume(ready);
+    }
+
+    private void release(Ticket ticket, SignalType signal) {
+        if (ticket.timeout != null) {
+            ticket.timeout.dispose();
+        }
+        List<Ticket> ready;
+        synchronized (lock) {
+            if (ticket.state == State.WAITING) {
+                dequeue(ticket);
+            } else if (ticket.state == State.GRANTED) {
+                inFlight--;
+                // 首 token 之前就出错视为上游过载；取消不代表上游状态，不参与调整
+                if (signal == SignalType.ON_ERROR && ticket.firstTokenNanos == 0) {
+                    decrease(ticket);
+                }
+            }
+            ticket.state = State.RELEASED;
+            ready = dispatch();
+        }
+        resume(ready);
+    }
+
+    /**
+     * 乘性降低上限；只有降低之后获得许可的请求才能再次触发，调用方需持有锁
+     */
+    private void decrease(Ticket ticket) {
+        if (ticket.grantedNanos - lastDecreaseNanos <= 0) {
+            return;
+        }
+        limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+        lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * 在上限内按会话轮转取出等待的请求，调用方需持有锁
+     */
+    private List<Ticket> dispatch() {
+        List<Ticket> ready = null;
+        while (queued > 0 && inFlight < (int) limit) {
+            Iterator<Map.Entry<String, ArrayDeque<Ticket>>> sessions = waiting.entrySet().iterator();
+            Map.Entry<String, ArrayDeque<Ticket>> head = sessions.next();
+            ArrayDeque<Ticket> tickets = head.getValue();
+            Ticket ticket = tickets.pollFirst();
+            sessions.remove();
+            if (!tickets.isEmpty()) {
+                // 同一会话的后续请求排到所有其他会话之后
+                waiting.put(head.getKey(), tickets);
+            }
+            queued--;
+            grant(ticket);
+            if (ready == null) {
+                ready = new ArrayList<>();
+            }
+            ready.add(ticket);
+        }
+        return ready;
+    }
+
+    private void dequeue(Ticket ticket) {
+        ArrayDeque<Ticket> tickets = waiting.get(ticket.sessionId);
+        if (tickets != null && tickets.remove(ticket)) {
+            queued--;
+            if (tickets.isEmpty()) {
+                waiting.remove(ticket.sessionId);
+            }
+        }
+    }
+
+    private void grant(Ticket ticket) {
+        ticket.state = State.GRANTED;
+        ticket.grantedNanos = System.nanoTime();
+        inFlight++;
+    }
+
+    /**
+     * 在锁外通知已获得许可的请求，避免下游在持锁时继续执行
+     */
+    private void resume(List<Ticket> ready) {
+        if (ready == null) {
+            return;
+        }
+        for (Ticket ticket : ready) {
+            if (ticket.timeout != null) {
+                ticket.timeout.dispose();
+            }
+            queueWait.record(ticket.grantedNanos - ticket.enqueuedNanos, TimeUnit.NANOSECONDS);
+            ticket.sink.success();
+        }
+    }
+
+    private enum State {
+        WAITING, GRANTED, REJECTED, RELEASED
+    }
+
+    /**
+     * 一次许可申请
+     */
+    private static final class Ticket {
+
+        private final String sessionId;
+        private volatile State state = State.WAITING;
+        private volatile MonoSink<Void> sink;
+        private volatile Disposable timeout;
+        private long enqueuedNanos;
+        private long grantedNanos;
+        private long firstTokenNanos;
+
+        Ticket(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+}
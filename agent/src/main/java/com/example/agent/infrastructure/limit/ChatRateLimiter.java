@@ -0,0 +1,192 @@
+package com.example.agent.infrastructure.limit;
+
+import com.example.agent.application.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天接口的令牌桶限流
+ * 按客户端 IP、用户和会话三个维度各维护一组 {@link TokenBucket}，依次检查，任一维度没有令牌即拒绝，
+ * 并把此前维度已取出的令牌退回，被拒绝的请求不消耗任何维度的额度。
+ * 令牌桶保存在 Caffeine 缓存中：数量有上限，空闲超时后淘汰；缓存读取走分段的读缓冲，
+ * 桶本身无锁，多核并发检查时不会集中在同一把锁上。被拒绝的请求数按维度注册为 chat.ratelimit.rejected。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ChatRateLimiter {
+
+    /**
+     * 携带会话ID的请求头
+     */
+    public static final String SESSION_HEADER = "X-Session-Id";
+
+    /**
+     * 携带用户ID的请求头
+     */
+    public static final String USER_HEADER = "X-User-Id";
+
+    /**
+     * 代理转发的客户端地址请求头
+     */
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    /**
+     * 被限流时的响应体，与 {@link com.example.agent.infrastructure.response.ErrorResponse} 的结构一致
+     */
+    public static final String REJECTED_BODY = "{\"message\":\"请求过于频繁，请稍后再试\"}";
+
+    private final RateLimitProperties properties;
+    private final Dimension ip;
+    private final Dimension user;
+    private final Dimension session;
+
+    /**
+     * 构造函数
+     * @param properties 限流配置
+     * @param meterRegistry 指标注册表
+     */
+    public ChatRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ip = new Dimension("ip", properties.getIp(), properties, meterRegistry);
+        this.user = new Dimension("user", properties.getUser(), properties, meterRegistry);
+        this.session = new Dimension("session", properties.getSession(), properties, meterRegistry);
+    }
+
+    /**
+     * 判断请求路径是否需要限流
+     * @param path 请求路径
+     * @return 是否需要限流
+     */
+    public boolean applies(String path) {
+        return properties.isEnabled() && path != null && path.startsWith(properties.getPathPrefix());
+    }
+
+    /**
+     * 尝试为一次请求取出令牌
+     * @param clientIp 客户端 IP
+     * @param userId 用户ID，可为 null
+     * @param sessionId 会话ID，可为 null
+     * @return 0 表示放行；大于 0 时为建议的重试等待纳秒数
+     */
+    public long tryAcquire(String clientIp, String userId, String sessionId) {
+        long now = System.nanoTime();
+        TokenBucket ipBucket = ip.bucket(clientIp, now);
+        long wait = ip.tryAcquire(ipBucket, now);
+        if (wait > 0) {
+            return wait;
+        }
+        TokenBucket userBucket = user.bucket(userId, now);
+        wait = user.tryAcquire(userBucket, now);
+        if (wait > 0) {
+            refund(ipBucket);
+            return wait;
+        }
+        wait = session.tryAcquire(session.bucket(sessionId, now), now);
+        if (wait > 0) {
+            refund(userBucket);
+            refund(ipBucket);
+        }
+        return wait;
+    }
+
+    private static void refund(TokenBucket bucket) {
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    /**
+     * 判断请求头中的会话ID能否代表实际写入的会话
+     * 会话维度在过滤器中按 X-Session-Id 请求头计数，请求体要到控制器才解析；
+     * 请求头缺失或与请求体中的会话ID不一致时，客户端可以省略或轮换请求头绕过会话限流，应拒绝该请求
+     * @param path 请求路径
+     * @param headerSessionId X-Session-Id 请求头，可为 null
+     * @param sessionId 请求体中的会话ID
+     * @return 未启用会话限流，或请求头与会话ID一致时返回 true
+     */
+    public boolean isSessionHeaderValid(String path, String headerSessionId, String sessionId) {
+        if (!applies(path) || properties.getSession().getCapacity() <= 0) {
+            return true;
+        }
+        return headerSessionId != null && !headerSessionId.isEmpty() && headerSessionId.equals(sessionId);
+    }
+
+    /**
+     * 从代理请求头或连接地址中解析客户端 IP
+     * @param forwardedFor X-Forwarded-For 请求头，可为 null
+     * @param remoteAddress 连接的远端地址，可为 null
+     * @return 客户端 IP；无法确定时返回 null
+     */
+    public String resolveClientIp(String forwardedFor, String remoteAddress) {
+        if (properties.isTrustForwardedFor() && forwardedFor != null && !forwardedFor.isBlank()) {
+            int comma = forwardedFor.indexOf(',');
+            return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+        }
+        return remoteAddress;
+    }
+
+    /**
+     * 把等待时间换算为 Retry-After 响应头的秒数，向上取整且至少为 1
+     * @param waitNanos 等待纳秒数
+     * @return 秒数
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    /**
+     * 单个限流维度
+     */
+    private static final class Dimension {
+
+        private final RateLimitProperties.Bucket spec;
+        private final Cache<String, TokenBucket> buckets;
+        private final Counter rejected;
+
+        Dimension(String name, RateLimitProperties.Bucket spec, RateLimitProperties properties,
+                  MeterRegistry meterRegistry) {
+            this.spec = spec;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxBuckets())
+                    .expireAfterAccess(properties.getIdleTtl())
+                    .build();
+            Gauge.builder("chat.ratelimit.buckets", buckets, Cache::estimatedSize)
+                    .tag("dimension", name)
+                    .description("内存中的令牌桶数")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("chat.ratelimit.rejected")
+                    .tag("dimension", name)
+                    .description("因限流被拒绝的请求数")
+                    .register(meterRegistry);
+        }
+
+        TokenBucket bucket(String key, long now) {
+            if (key == null || key.isEmpty() || spec.getCapacity() <= 0) {
+                return null;
+            }
+            TokenBucket bucket = buckets.getIfPresent(key);
+            if (bucket == null) {
+                bucket = buckets.get(key, k -> new TokenBucket(spec.getCapacity(), spec.getRefillPerMinute(), now));
+            }
+            return bucket;
+        }
+
+        long tryAcquire(TokenBucket bucket, long now) {
+            if (bucket == null) {
+                return 0;
+            }
+            long wait = bucket.tryAcquire(now);
+            if (wait > 0) {
+                rejected.increment();
+            }
+            return wait;
+        }
+    }
+}
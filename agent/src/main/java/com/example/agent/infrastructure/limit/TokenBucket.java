@@ -0,0 +1,60 @@
+package com.example.agent.infrastructure.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * 以"理论到达时间"表示桶状态（GCRA 算法，与令牌桶等价）：每放行一个请求，理论到达时间推后一个补充间隔，
+ * 推后的时间超出当前时刻加突发容量时拒绝。整个状态是一个 long，放行只需一次 CAS；
+ * 拒绝时只读不写，被同一客户端持续请求时热点桶上也没有写竞争。
+ * 已放行的令牌可以用 {@link #refund()} 退回，即把理论到达时间提前一个补充间隔。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * 构造一个装满令牌的桶
+     * @param capacity 桶容量
+     * @param refillPerMinute 每分钟补充的令牌数
+     * @param nowNanos 当前时刻（System.nanoTime）
+     */
+    public TokenBucket(int capacity, int refillPerMinute, long nowNanos) {
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute);
+        this.burstNanos = intervalNanos * Math.max(1, capacity);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * 尝试取出一个令牌
+     * @param nowNanos 当前时刻（System.nanoTime）
+     * @return 0 表示放行；大于 0 时为下一个令牌可用前还需等待的纳秒数
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long wait = next - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 退回一个已取出的令牌，用于多个桶需要同时放行、其中某个桶拒绝的场景
+     */
+    public void refund() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.agent.infrastructure.logging;
+
+import com.example.agent.application.config.AccessLogProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 对话访问日志
+ * 每轮对话结束时输出一行 key=value 格式的汇总（帧数、字节数、首帧耗时、总耗时、结束方式），不再逐帧打印。
+ * 是否记录在轮次开始时按采样比例决定，失败的轮次可配置为总是记录；问题内容按长度截断并转义换行。
+ * 日志写入名为 chat.access 的 logger，由 logback-spring.xml 中的异步追加器（有界环形队列，队列满时丢弃而不阻塞）写出。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ChatAccessLog {
+
+    private static final Logger accessLogger = LoggerFactory.getLogger("chat.access");
+
+    private final AccessLogProperties properties;
+
+    /**
+     * 构造函数
+     * @param properties 访问日志配置
+     */
+    public ChatAccessLog(AccessLogProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 在轮次开始时决定是否采样
+     * @return 是否记录该轮
+     */
+    public boolean sample() {
+        if (!properties.isEnabled() || !accessLogger.isInfoEnabled()) {
+            return false;
+        }
+        double rate = properties.getSampleRate();
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * 未被采样的轮次结束时，判断是否仍需记录
+     * @param failed 该轮是否失败
+     * @return 是否记录
+     */
+    public boolean shouldLogUnsampled(boolean failed) {
+        return failed && properties.isEnabled() && properties.isAlwaysLogFailures() && accessLogger.isInfoEnabled();
+    }
+
+    /**
+     * 输出一轮对话的汇总
+     * @param turn 轮次汇总
+     */
+    public void log(TurnSummary turn) {
+        StringBuilder line = new StringBuilder(256)
+                .append("endpoint=").append(turn.endpoint)
+                .append(" model=").append(turn.model)
+                .append(" session=").append(turn.sessionId)
+                .append(" outcome=").append(turn.outcome)
+                .append(" sampled=").append(turn.sampled)
+                .append(" durationMs=").append(turn.durationMillis)
+                .append(" firstAnswerMs=").append(turn.firstAnswerMillis)
+                .append(" frames=").append(turn.frames)
+                .append(" thinkingFrames=").append(turn.thinkingFrames)
+                .append(" answerFrames=").append(turn.answerFrames)
+                .append(" errorFrames=").append(turn.errorFrames)
+                .append(" bytes=").append(turn.bytes)
+                .append(" questionChars=").append(turn.question == null ? 0 : turn.question.length());
+        int maxChars = properties.getMaxPayloadChars();
+        if (maxChars > 0 && turn.question != null) {
+            line.append(" question=\"");
+            appendTruncated(line, turn.question, maxChars);
+            line.append('"');
+        }
+        accessLogger.info(line.toString());
+    }
+
+    /**
+     * 追加截断后的文本，转义换行、引号和反斜杠，保证一轮只占一行
+     * @param line 日志行
+     * @param text 文本
+     * @param maxChars 最大字符数
+     */
+    static void appendTruncated(StringBuilder line, String text, int maxChars) {
+        int end = Math.min(text.length(), maxChars);
+        for (int i = 0; i < end; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '"':
+                case '\\':
+                    line.append('\\').append(c);
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+        if (end < text.length()) {
+            line.append("...");
+        }
+    }
+
+    /**
+     * 一轮对话的汇总
+     */
+    public static final class TurnSummary {
+
+        private final String endpoint;
+        private final String model;
+        private final String sessionId;
+        private final String question;
+        private final String outcome;
+        private final boolean sampled;
+        private final long durationMillis;
+        private final long firstAnswerMillis;
+        private final long frames;
+        private final long thinkingFrames;
+        private final long answerFrames;
+        private final long errorFrames;
+        private final long bytes;
+
+        /**
+         * 构造函数
+         * @param endpoint 接口路径
+         * @param model 回答使用的模型
+         * @param sessionId 会话 ID
+         * @param question 用户问题
+         * @param outcome 结束方式：complete、cancel、error
+         * @param sampled 是否为采样记录；为 false 时表示因失败而补记
+         * @param durationMillis 整轮耗时
+         * @param firstAnswerMillis 首个回答帧耗时，没有回答帧时为 -1
+         * @param frames 总帧数
+         * @param thinkingFrames 思考帧数
+         * @param answerFrames 回答帧数
+         * @param errorFrames 错误帧数
+         * @param bytes 输出字节数
+         */
+        public TurnSummary(String endpoint, String model, String sessionId, String question, String outcome,
+                           boolean sampled, long durationMillis, long firstAnswerMillis, long frames,
+                           long thinkingFrames, long answerFrames, long errorFrames, long bytes) {
+            this.endpoint = endpoint;
+            this.model = model;
+            this.sessionId = sessionId;
+            this.question = question;
+            this.outcome = outcome;
+            this.sampled = sampled;
+            this.durationMillis = durationMillis;
+            this.firstAnswerMillis = firstAnswerMillis;
+            this.frames = frames;
+            this.thinkingFrames = thinkingFrames;
+            this.answerFrames = answerFrames;
+            this.errorFrames = errorFrames;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.agent.infrastructure.persistence;
+
+import java.sql.Timestamp;
+
+/**
+ * 待写入 chat_message 表的一条消息
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class ChatMessageRecord {
+
+    /**
+     * 消息类型：用户消息
+     */
+    public static final int TYPE_USER = 1;
+
+    /**
+     * 消息类型：AI响应
+     */
+    public static final int TYPE_ASSISTANT = 2;
+
+    private final String sessionId;
+    private final int messageType;
+    private final String content;
+    private final Timestamp createdAt;
+    private final long enqueuedNanos;
+
+    /**
+     * 构造函数
+     * @param sessionId 会话ID
+     * @param messageType 消息类型
+     * @param content 消息内容
+     * @param createdAt 创建时间
+     * @param enqueuedNanos 进入写入队列的时间（System.nanoTime），用于统计写入延迟
+     */
+    public ChatMessageRecord(String sessionId, int messageType, String content, Timestamp createdAt, long enqueuedNanos) {
+        this.sessionId = sessionId;
+        this.messageType = messageType;
+        this.content = content;
+        this.createdAt = createdAt;
+        this.enqueuedNanos = enqueuedNanos;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public int getMessageType() {
+        return messageType;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.agent.infrastructure.persistence;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话记录仓储
+ * 以 JDBC 批量语句写入 docs/sql/init.sql 中的 chat_session 与 chat_message 表，
+ * 一批消息及其涉及的会话在同一事务中提交。SQL 同时兼容 MySQL 与 MySQL 模式的 H2。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public class ChatTranscriptRepository {
+
+    private static final String UPSERT_SESSION_SQL =
+            "INSERT INTO chat_session (id, user_id, created_at, updated_at, status) VALUES (?, ?, ?, ?, 1) "
+                    + "ON DUPLICATE KEY UPDATE updated_at = VALUES(updated_at)";
+
+    private static final String INSERT_MESSAGE_SQL =
+            "INSERT INTO chat_message (session_id, message_type, content, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String defaultUserId;
+
+    /**
+     * 构造函数
+     * @param jdbcTemplate JDBC 模板
+     * @param transactionManager 事务管理器
+     * @param defaultUserId 写入 chat_session.user_id 的默认值
+     */
+    public ChatTranscriptRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                    String defaultUserId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultUserId = defaultUserId;
+    }
+
+    /**
+     * 在一个事务中写入一批消息，并更新所涉及会话的最后活跃时间
+     * @param records 消息列表，按进入队列的顺序排列
+     */
+    public void writeBatch(List<ChatMessageRecord> records) {
+        // 同一批次内的会话只写一次，取最后一条消息的时间
+        Map<String, Timestamp> sessions = new LinkedHashMap<>();
+        List<Object[]> messageArgs = new ArrayList<>(records.size());
+        for (ChatMessageRecord record : records) {
+            sessions.merge(record.getSessionId(), record.getCreatedAt(),
+                    (previous, current) -> current.after(previous) ? current : previous);
+            messageArgs.add(new Object[]{
+                    record.getSessionId(), record.getMessageType(), record.getContent(), record.getCreatedAt()});
+        }
+        List<Object[]> sessionArgs = new ArrayList<>(sessions.size());
+        sessions.forEach((sessionId, updatedAt) ->
+                sessionArgs.add(new Object[]{sessionId, defaultUserId, updatedAt, updatedAt}));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPSERT_SESSION_SQL, sessionArgs);
+            jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, messageArgs);
+        });
+    }
+}
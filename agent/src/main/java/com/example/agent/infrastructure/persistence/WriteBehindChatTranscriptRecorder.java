@@ -0,0 +1,250 @@
+package com.example.agent.infrastructure.persistence;
+
+import com.example.agent.application.config.ChatPersistenceProperties;
+import com.example.agent.domain.chat.ChatValidator;
+import com.example.agent.domain.chat.service.ChatTranscriptRecorder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.context.SmartLifecycle;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步回写的会话记录器
+ * 请求线程只把消息放入有界队列，不等待数据库；单个后台线程取出队列中已积累的全部消息（不超过 batchSize），
+ * 以批量语句在一个事务中写入并提交。负载越高，每次提交覆盖的消息越多，提交次数不随消息数线性增长。
+ * 队列满时按配置的溢出策略丢弃消息并计数；关闭时在 shutdownTimeout 内写完队列中剩余的消息。
+ * 会话ID为空或超过列宽的消息在入队前拒绝；整批重试后仍失败时改为逐条写入，只丢弃本身无法写入的消息，
+ * 不连累同一批次中其他会话的消息。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public class WriteBehindChatTranscriptRecorder implements ChatTranscriptRecorder, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindChatTranscriptRecorder.class);
+
+    /**
+     * 后台线程等待新消息的最长时间，用于及时响应关闭
+     */
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    /**
+     * 写入失败后重试前的等待时间
+     */
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+
+    private final ChatTranscriptRepository repository;
+    private final ChatPersistenceProperties properties;
+    private final BlockingQueue<ChatMessageRecord> queue;
+    private final Counter dropped;
+    private final Counter rejected;
+    private final Counter failed;
+    private final Counter written;
+    private final DistributionSummary batchSizes;
+    private final Timer writeLag;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * 构造函数
+     * @param repository 会话记录仓储
+     * @param properties 会话持久化配置
+     * @param meterRegistry 指标注册表
+     */
+    public WriteBehindChatTranscriptRecorder(ChatTranscriptRepository repository, ChatPersistenceProperties properties,
+                                             MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        Gauge.builder("chat.persistence.queue.size", queue, BlockingQueue::size)
+                .description("等待写入数据库的消息数")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("chat.persistence.dropped")
+                .description("队列已满被丢弃的消息数")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("chat.persistence.rejected")
+                .description("会话ID为空或超长、未入队的消息数")
+                .register(meterRegistry);
+        this.failed = Counter.builder("chat.persistence.failed")
+                .description("重试后仍写入失败的消息数")
+                .register(meterRegistry);
+        this.written = Counter.builder("chat.persistence.written")
+                .description("已写入数据库的消息数")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("chat.persistence.batch.size")
+                .description("每次提交写入的消息数")
+                .register(meterRegistry);
+        this.writeLag = Timer.builder("chat.persistence.write.lag")
+                .description("消息从进入队列到事务提交的耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 将消息放入写入队列，不阻塞调用线程
+     * @param conversationId 会话ID
+     * @param message 消息
+     */
+    @Override
+    public void record(String conversationId, Message message) {
+        int messageType;
+        if (message instanceof UserMessage) {
+            messageType = ChatMessageRecord.TYPE_USER;
+        } else if (message instanceof AssistantMessage) {
+            messageType = ChatMessageRecord.TYPE_ASSISTANT;
+        } else {
+            return;
+        }
+        String content = message.getContent();
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        if (conversationId == null || conversationId.isEmpty()
+                || conversationId.length() > ChatValidator.MAX_SESSION_ID_LENGTH) {
+            rejected.increment();
+            return;
+        }
+        ChatMessageRecord record = new ChatMessageRecord(conversationId, messageType, content,
+                new Timestamp(System.currentTimeMillis()), System.nanoTime());
+        enqueue(record);
+    }
+
+    private void enqueue(ChatMessageRecord record) {
+        if (queue.offer(record)) {
+            return;
+        }
+        if (properties.getOverflowPolicy() == ChatPersistenceProperties.OverflowPolicy.DROP_OLDEST) {
+            while (!queue.offer(record)) {
+                if (queue.poll() != null) {
+                    dropped.increment();
+                }
+            }
+            return;
+        }
+        dropped.increment();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "chat-transcript-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            writer.interrupt();
+            logger.warn("会话记录写入线程未在 {} 内结束，剩余 {} 条消息未写入",
+                    properties.getShutdownTimeout(), queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drainLoop() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<ChatMessageRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatMessageRecord first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<ChatMessageRecord> batch) throws InterruptedException {
+        RuntimeException error = writeWithRetries(batch);
+        if (error == null) {
+            recordWritten(batch);
+            return;
+        }
+        if (batch.size() == 1) {
+            failed.increment();
+            logger.warn("会话记录写入失败，丢弃 1 条消息: sessionId={}, error={}",
+                    batch.get(0).getSessionId(), error.getMessage());
+            return;
+        }
+        // 整批失败可能只是其中一条消息无法写入，逐条重写以免同批其他消息被一起丢弃
+        logger.warn("会话记录批量写入失败，改为逐条写入 {} 条消息: {}", batch.size(), error.getMessage());
+        for (ChatMessageRecord record : batch) {
+            List<ChatMessageRecord> single = List.of(record);
+            try {
+                repository.writeBatch(single);
+                recordWritten(single);
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.warn("会话记录写入失败，丢弃 1 条消息: sessionId={}, error={}",
+                        record.getSessionId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 写入一批消息，失败时按 maxRetries 重试
+     * @return 重试后仍失败时的最后一个异常，写入成功时为 null
+     */
+    private RuntimeException writeWithRetries(List<ChatMessageRecord> batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                repository.writeBatch(batch);
+                return null;
+            } catch (RuntimeException e) {
+                if (attempt >= properties.getMaxRetries()) {
+                    return e;
+                }
+                Thread.sleep(RETRY_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void recordWritten(List<ChatMessageRecord> batch) {
+        long committedNanos = System.nanoTime();
+        for (ChatMessageRecord record : batch) {
+            writeLag.record(committedNanos - record.getEnqueuedNanos(), TimeUnit.NANOSECONDS);
+        }
+        written.increment(batch.size());
+        batchSizes.record(batch.size());
+    }
+}
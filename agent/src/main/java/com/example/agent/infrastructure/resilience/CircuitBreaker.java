@@ -0,0 +1,147 @@
+package com.example.agent.infrastructure.resilience;
+
+import com.example.agent.application.config.UpstreamResilienceProperties;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 基于调用次数滑动窗口的熔断器
+ * 关闭状态下统计最近 windowSize 次调用的失败率，达到阈值后熔断，熔断期间的调用直接拒绝；
+ * 熔断持续 openDuration 后进入半开状态，放行 halfOpenProbes 个探测请求，全部成功则恢复，任一失败则重新熔断。
+ * 每次状态切换都会换代，旧状态下放行的调用结束时不再计入新状态的统计。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 一次调用的结果
+     */
+    public enum Outcome {
+        SUCCESS, FAILURE,
+        /**
+         * 调用被取消，不代表上游状态，只归还探测名额
+         */
+        IGNORED
+    }
+
+    /**
+     * 拒绝调用时 {@link #tryAcquire()} 的返回值
+     */
+    public static final long REJECTED = -1;
+
+    private final UpstreamResilienceProperties.Breaker spec;
+    private final LongSupplier nanoClock;
+    private final boolean[] window;
+
+    private volatile State state = State.CLOSED;
+    private long generation;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAtNanos;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    /**
+     * 构造函数
+     * @param spec 熔断器配置
+     * @param nanoClock 纳秒时钟
+     */
+    public CircuitBreaker(UpstreamResilienceProperties.Breaker spec, LongSupplier nanoClock) {
+        this.spec = spec;
+        this.nanoClock = nanoClock;
+        this.window = new boolean[Math.max(1, spec.getWindowSize())];
+    }
+
+    /**
+     * 申请一次调用
+     * @return 当前代数，结束时传给 {@link #record(long, Outcome)}；熔断中返回 {@link #REJECTED}
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAtNanos < spec.getOpenDuration().toNanos()) {
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= spec.getHalfOpenProbes()) {
+                return REJECTED;
+            }
+            probesInFlight++;
+        }
+        return generation;
+    }
+
+    /**
+     * 记录一次调用的结果
+     * @param acquiredGeneration 申请调用时返回的代数
+     * @param outcome 调用结果
+     */
+    public synchronized void record(long acquiredGeneration, Outcome outcome) {
+        if (acquiredGeneration != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (outcome == Outcome.FAILURE) {
+                transition(State.OPEN);
+            } else if (outcome == Outcome.SUCCESS && ++probeSuccesses >= spec.getHalfOpenProbes()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED || outcome == Outcome.IGNORED) {
+            return;
+        }
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        boolean failed = outcome == Outcome.FAILURE;
+        window[windowIndex] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+        if (windowCount >= spec.getMinimumCalls()
+                && windowFailures >= spec.getFailureRateThreshold() * windowCount) {
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * 获取当前状态
+     * @return 当前状态
+     */
+    public State getState() {
+        return state;
+    }
+
+    private void transition(State next) {
+        generation++;
+        state = next;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+        } else if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+}
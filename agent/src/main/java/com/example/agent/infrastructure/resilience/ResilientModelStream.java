@@ -0,0 +1,128 @@
+package com.example.agent.infrastructure.resilience;
+
+import com.example.agent.application.config.UpstreamResilienceProperties;
+import com.example.agent.application.exception.UpstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 上游回答流的容错包装
+ * <ul>
+ *     <li>首 token：hedgeDelay 内没有输出时按配置再发起一个请求（HEDGE，取先输出的一个）或取消后重试（RETRY），
+ *     firstTokenTimeout 内仍没有输出则以错误结束；已经输出过片段的流不会重新发起。</li>
+ *     <li>停滞：相邻两个片段间隔超过 stallTimeout 时以错误结束，已输出的部分由调用方按中断处理。</li>
+ *     <li>熔断：按 {@link CircuitBreaker} 统计调用结果，熔断期间直接失败，不再等待上游超时。</li>
+ * </ul>
+ * 以上情况都以 {@link UpstreamUnavailableException} 结束。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ResilientModelStream {
+
+    private final UpstreamResilienceProperties properties;
+    private final CircuitBreaker breaker;
+    private final Counter rejected;
+    private final Counter hedged;
+    private final Counter retried;
+    private final Counter firstTokenTimeouts;
+    private final Counter stallTimeouts;
+
+    /**
+     * 构造函数
+     * @param properties 容错配置
+     * @param meterRegistry 指标注册表
+     */
+    public ResilientModelStream(UpstreamResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.breaker = new CircuitBreaker(properties.getBreaker(), System::nanoTime);
+        Gauge.builder("chat.upstream.breaker.state", breaker, b -> b.getState().ordinal())
+                .description("熔断器状态：0 关闭，1 熔断，2 半开")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("chat.upstream.breaker.rejected")
+                .description("熔断期间直接失败的调用数")
+                .register(meterRegistry);
+        this.hedged = Counter.builder("chat.upstream.retries").tag("policy", "hedge")
+                .description("首 token 超时后补发的请求数")
+                .register(meterRegistry);
+        this.retried = Counter.builder("chat.upstream.retries").tag("policy", "retry")
+                .description("首 token 超时后补发的请求数")
+                .register(meterRegistry);
+        this.firstTokenTimeouts = Counter.builder("chat.upstream.timeouts").tag("phase", "first_token")
+                .description("上游超时次数")
+                .register(meterRegistry);
+        this.stallTimeouts = Counter.builder("chat.upstream.timeouts").tag("phase", "stall")
+                .description("上游超时次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 以容错策略执行上游调用
+     * @param call 发起一次上游调用，补救时会被再次调用
+     * @return 受保护的回答流
+     */
+    public Flux<String> protect(Supplier<Flux<String>> call) {
+        if (!properties.isEnabled()) {
+            return Flux.defer(call);
+        }
+        return Flux.defer(() -> {
+            long generation = breaker.tryAcquire();
+            if (generation == CircuitBreaker.REJECTED) {
+                rejected.increment();
+                return Flux.error(new UpstreamUnavailableException("模型服务暂时不可用，请稍后再试"));
+            }
+            AtomicBoolean emitted = new AtomicBoolean();
+            return firstToken(call)
+                    .timeout(Mono.delay(properties.getFirstTokenTimeout()),
+                            content -> Mono.delay(properties.getStallTimeout()))
+                    .doOnNext(content -> emitted.lazySet(true))
+                    .onErrorMap(TimeoutException.class, e -> {
+                        (emitted.get() ? stallTimeouts : firstTokenTimeouts).increment();
+                        return new UpstreamUnavailableException(emitted.get()
+                                ? "模型服务响应中断，请重新提问" : "模型服务响应超时，请稍后再试");
+                    })
+                    .doFinally(signal -> breaker.record(generation, outcomeOf(signal)));
+        });
+    }
+
+    private Flux<String> firstToken(Supplier<Flux<String>> call) {
+        Flux<String> primary = Flux.defer(call);
+        switch (properties.getFirstTokenPolicy()) {
+            case HEDGE:
+                // 原请求保持进行，延迟后再发起一个，先输出片段（或先结束）的一方胜出，另一方被取消
+                Flux<String> hedge = Flux.defer(() -> {
+                    hedged.increment();
+                    return call.get();
+                }).delaySubscription(properties.getHedgeDelay());
+                return Flux.firstWithSignal(primary, hedge);
+            case RETRY:
+                // 只对首个片段计时，超时时原请求被取消后重新发起一次
+                return primary
+                        .timeout(Mono.delay(properties.getHedgeDelay()), content -> Mono.never())
+                        .onErrorResume(TimeoutException.class, e -> {
+                            retried.increment();
+                            return Flux.defer(call);
+                        });
+            default:
+                return primary;
+        }
+    }
+
+    private static CircuitBreaker.Outcome outcomeOf(SignalType signal) {
+        if (signal == SignalType.ON_COMPLETE) {
+            return CircuitBreaker.Outcome.SUCCESS;
+        }
+        return signal == SignalType.ON_ERROR ? CircuitBreaker.Outcome.FAILURE : CircuitBreaker.Outcome.IGNORED;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.agent.infrastructure.response;
+
+/**
+ * 聊天流帧对象
+ * 对应 NDJSON 流中的一行：{"type": ..., "content": ..., "timestamp": ...}
+ */
+public class ChatStreamFrame {
+
+    /**
+     * 思考步骤帧类型
+     */
+    public static final String TYPE_THINKING = "thinking";
+
+    /**
+     * AI回答帧类型
+     */
+    public static final String TYPE_RESPONSE = "response";
+
+    /**
+     * 错误帧类型，流无法继续时作为最后一帧输出
+     */
+    public static final String TYPE_ERROR = "error";
+
+    /**
+     * 帧类型："thinking"、"response" 或 "error"
+     */
+    private String type;
+
+    /**
+     * 帧内容
+     */
+    private String content;
+
+    /**
+     * 创建时间戳
+     */
+    private Long timestamp;
+
+    /**
+     * 构造聊天流帧，时间戳取当前时间
+     * @param type 帧类型
+     * @param content 帧内容
+     */
+    public ChatStreamFrame(String type, String content) {
+        this.type = type;
+        this.content = content;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取帧类型
+     * @return 帧类型
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * 设置帧类型
+     * @param type 帧类型
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * 获取帧内容
+     * @return 帧内容
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * 设置帧内容
+     * @param content 帧内容
+     */
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    /**
+     * 获取创建时间戳
+     * @return 时间戳
+     */
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 设置创建时间戳
+     * @param timestamp 时间戳
+     */
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.agent.infrastructure.routing;
+
+import com.example.agent.application.config.ModelRoutingProperties;
+import com.example.agent.domain.chat.ChatAggregate;
+import com.example.agent.domain.chat.model.QuestionProfile;
+import com.example.agent.domain.chat.service.ContextWindowBuilder;
+import com.example.agent.domain.chat.service.QuestionClassifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模型路由
+ * 按功能类型和 {@link QuestionClassifier} 的分类结果为每次请求选择模型和最大输出 token 数，
+ * 简单问题和思考过程走便宜、输出短的路由。每条路由的请求数、首 token 耗时、token 间隔、总耗时、估算的
+ * 输入输出 token 数和每次上游调用消耗的 token 数以 route、model 标签注册为 chat.route.* 指标，用于对比各路由的成本和延迟。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ModelRouter {
+
+    private static final ModelRoutingProperties.Route FALLBACK_ROUTE = new ModelRoutingProperties.Route();
+
+    private final ModelRoutingProperties properties;
+    private final QuestionClassifier questionClassifier;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ModelRoute> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     * @param properties 模型路由配置
+     * @param questionClassifier 问题分类器
+     * @param meterRegistry 指标注册表
+     */
+    public ModelRouter(ModelRoutingProperties properties, QuestionClassifier questionClassifier,
+                       MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.questionClassifier = questionClassifier;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 为请求选择路由
+     * @param chatAggregate 聊天聚合对象
+     * @return 选中的路由，不会为 null
+     */
+    public ModelRoute getRoute(ChatAggregate chatAggregate) {
+        String name = properties.getDefaultRoute();
+        if (properties.isEnabled()) {
+            QuestionProfile profile = questionClassifier.classify(chatAggregate.getContent());
+            for (Map.Entry<String, ModelRoutingProperties.Route> entry : properties.getRoutes().entrySet()) {
+                if (matches(entry.getValue(), chatAggregate.getFunctionType(), profile)) {
+                    name = entry.getKey();
+                    break;
+                }
+            }
+        }
+        return resolved.computeIfAbsent(name, this::resolve);
+    }
+
+    private static boolean matches(ModelRoutingProperties.Route route, String functionType, QuestionProfile profile) {
+        return matchesAny(route.getFunctionTypes(), functionType)
+                && matchesAny(route.getDomains(), profile.getDomain())
+                && matchesAny(route.getQuestionTypes(), profile.getQuestionType())
+                && (route.getMaxQuestionChars() <= 0 || profile.getLength() <= route.getMaxQuestionChars());
+    }
+
+    private static boolean matchesAny(List<String> accepted, String value) {
+        return accepted == null || accepted.isEmpty() || accepted.contains(value);
+    }
+
+    private ModelRoute resolve(String name) {
+        ModelRoutingProperties.Route route = properties.getRoutes().getOrDefault(name, FALLBACK_ROUTE);
+        return new ModelRoute(name, route.getModel(), route.getMaxTokens(), meterRegistry);
+    }
+
+    /**
+     * 选中的路由及其指标
+     */
+    public static final class ModelRoute {
+
+        private final String name;
+        private final String model;
+        private final int maxTokens;
+        private final Counter requests;
+        private final Timer firstToken;
+        private final Timer interToken;
+        private final Timer duration;
+        private final DistributionSummary promptTokens;
+        private final DistributionSummary completionTokens;
+        private final Counter upstreamPromptTokens;
+        private final Counter upstreamCompletionTokens;
+        private final Counter estimatedPromptTokens;
+        private final Counter estimatedCompletionTokens;
+
+        ModelRoute(String name, String model, int maxTokens, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.model = model;
+            this.maxTokens = maxTokens;
+            this.requests = Counter.builder("chat.route.requests")
+                    .tags("route", name, "model", model)
+                    .description("各路由的上游请求数")
+                    .register(meterRegistry);
+            this.firstToken = Timer.builder("chat.route.first.token")
+                    .tags("route", name, "model", model)
+                    .description("各路由的首 token 耗时")
+                    .register(meterRegistry);
+            this.interToken = Timer.builder("chat.route.inter.token")
+                    .tags("route", name, "model", model)
+                    .description("各路由上游相邻两个回答片段的间隔")
+                    .register(meterRegistry);
+            this.duration = Timer.builder("chat.route.duration")
+                    .tags("route", name, "model", model)
+                    .description("各路由正常结束的回答总耗时")
+                    .register(meterRegistry);
+            this.promptTokens = DistributionSummary.builder("chat.route.prompt.tokens")
+                    .tags("route", name, "model", model)
+                    .description("各路由的估算输入 token 数")
+                    .register(meterRegistry);
+            this.completionTokens = DistributionSummary.builder("chat.route.completion.tokens")
+                    .tags("route", name, "model", model)
+                    .description("各路由的估算输出 token 数")
+                    .register(meterRegistry);
+            this.upstreamPromptTokens = usageCounter(name, model, "prompt", "upstream", meterRegistry);
+            this.upstreamCompletionTokens = usageCounter(name, model, "completion", "upstream", meterRegistry);
+            this.estimatedPromptTokens = usageCounter(name, model, "prompt", "estimated", meterRegistry);
+            this.estimatedCompletionTokens = usageCounter(name, model, "completion", "estimated", meterRegistry);
+        }
+
+        private static Counter usageCounter(String name, String model, String type, String source,
+                                            MeterRegistry meterRegistry) {
+            return Counter.builder("chat.route.usage.tokens")
+                    .tags("route", name, "model", model, "type", type, "source", source)
+                    .description("各路由上游调用消耗的 token 数，source 为 upstream 时取自上游返回的 usage，为 estimated 时为本地估算")
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 获取路由名称
+         * @return 路由名称
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 获取模型名称
+         * @return 模型名称
+         */
+        public String getModel() {
+            return model;
+        }
+
+        /**
+         * 获取最大输出 token 数
+         * @return 最大输出 token 数
+         */
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        /**
+         * 为上游回答流挂载本路由的指标
+         * @param promptTokenCount 估算的输入 token 数
+         * @param upstream 上游回答流
+         * @return 原样透传的回答流
+         */
+        public Flux<String> instrument(int promptTokenCount, Flux<String> upstream) {
+            return Flux.defer(() -> {
+                requests.increment();
+                promptTokens.record(promptTokenCount);
+                long startNanos = System.nanoTime();
+                long[] lastNanos = new long[1];
+                int[] completion = new int[1];
+                return upstream
+                        .doOnNext(content -> {
+                            long now = System.nanoTime();
+                            if (lastNanos[0] == 0) {
+                                firstToken.record(now - startNanos, TimeUnit.NANOSECONDS);
+                            } else {
+                                interToken.record(now - lastNanos[0], TimeUnit.NANOSECONDS);
+                            }
+                            lastNanos[0] = now;
+                            completion[0] += ContextWindowBuilder.estimateTokens(content);
+                        })
+                        .doFinally(signal -> {
+                            if (completion[0] > 0) {
+                                completionTokens.record(completion[0]);
+                            }
+                            if (signal == SignalType.ON_COMPLETE) {
+                                duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                            }
+                        });
+            });
+        }
+
+        /**
+         * 记录一次上游调用消耗的 token 数
+         * 补发请求等场景下一轮对话可能包含多次上游调用，每次调用分别记录
+         * @param promptTokenCount 输入 token 数
+         * @param completionTokenCount 输出 token 数
+         * @param reportedByUpstream 是否取自上游返回的 usage；为 false 时为本地估算
+         */
+        public void recordUsage(long promptTokenCount, long completionTokenCount, boolean reportedByUpstream) {
+            (reportedByUpstream ? upstreamPromptTokens : estimatedPromptTokens).increment(promptTokenCount);
+            (reportedByUpstream ? upstreamCompletionTokens : estimatedCompletionTokens).increment(completionTokenCount);
+        }
+    }
+}
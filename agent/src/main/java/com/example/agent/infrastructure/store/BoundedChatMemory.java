@@ -0,0 +1,135 @@
+package com.example.agent.infrastructure.store;
+
+import com.example.agent.domain.chat.model.MessageRingBuffer;
+import com.example.agent.domain.chat.model.RetainedSize;
+import com.example.agent.domain.chat.service.ChatTranscriptRecorder;
+import com.example.agent.domain.chat.service.SessionStore;
+import com.example.agent.infrastructure.jfr.MemoryAppendEvent;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 有界聊天记忆
+ * 替代无界的 InMemoryChatMemory：会话整体存放在有界的 {@link SessionStore} 中，
+ * 单个会话最多保留 {@link #MAX_MESSAGES_PER_CONVERSATION} 条消息，超出时丢弃最早的消息。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public class BoundedChatMemory implements ChatMemory {
+
+    /**
+     * 单个会话保留的最大消息数
+     */
+    public static final int MAX_MESSAGES_PER_CONVERSATION = 200;
+
+    private final SessionStore<ConversationHistory> store;
+    private final ChatTranscriptRecorder recorder;
+
+    /**
+     * 构造函数
+     * @param store 会话存储
+     * @param recorder 会话记录器，每条写入的消息都会交给它记录
+     */
+    public BoundedChatMemory(SessionStore<ConversationHistory> store, ChatTranscriptRecorder recorder) {
+        this.store = store;
+        this.recorder = recorder;
+    }
+
+    /**
+     * 追加消息
+     * @param conversationId 会话ID
+     * @param messages 消息列表
+     */
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        MemoryAppendEvent event = new MemoryAppendEvent();
+        event.begin();
+        store.compute(conversationId, key -> new ConversationHistory(), history -> {
+            history.addAll(messages);
+            return history;
+        });
+        for (Message message : messages) {
+            recorder.record(conversationId, message);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = conversationId;
+            event.messages = messages.size();
+            for (Message message : messages) {
+                event.chars += message.getContent() == null ? 0 : message.getContent().length();
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * 获取最近的消息
+     * @param conversationId 会话ID
+     * @param lastN 消息数
+     * @return 按时间顺序排列的最近消息
+     */
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        ConversationHistory history = store.find(conversationId);
+        return history == null ? List.of() : history.last(lastN);
+    }
+
+    /**
+     * 清除会话
+     * @param conversationId 会话ID
+     */
+    @Override
+    public void clear(String conversationId) {
+        store.remove(conversationId);
+    }
+
+    /**
+     * 单个会话的消息历史，维护估算的驻留字节数供会话存储计算容量
+     */
+    public static final class ConversationHistory {
+
+        private final MessageRingBuffer<Message> messages = new MessageRingBuffer<>(MAX_MESSAGES_PER_CONVERSATION);
+        private int retainedBytes = RetainedSize.OBJECT;
+
+        /**
+         * 追加消息，超出上限时丢弃最早的消息
+         * @param added 消息列表
+         */
+        synchronized void addAll(List<Message> added) {
+            for (Message message : added) {
+                retainedBytes += sizeOf(message);
+                Message evicted = messages.add(message);
+                if (evicted != null) {
+                    retainedBytes -= sizeOf(evicted);
+                }
+            }
+        }
+
+        /**
+         * 获取最近的消息
+         * @param lastN 消息数
+         * @return 按时间顺序排列的消息副本
+         */
+        synchronized List<Message> last(int lastN) {
+            // 结果会在锁外使用，必须复制
+            return new ArrayList<>(messages.last(lastN));
+        }
+
+        /**
+         * 获取估算的驻留字节数
+         * @return 驻留字节数
+         */
+        public synchronized int retainedBytes() {
+            return retainedBytes;
+        }
+
+        private static int sizeOf(Message message) {
+            return RetainedSize.MESSAGE + RetainedSize.REFERENCE + RetainedSize.ofString(message.getContent());
+        }
+    }
+}
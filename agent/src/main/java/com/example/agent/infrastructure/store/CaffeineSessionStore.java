@@ -0,0 +1,92 @@
+package com.example.agent.infrastructure.store;
+
+import com.example.agent.domain.chat.service.SessionStore;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 基于 Caffeine 的会话存储
+ * Caffeine 使用 W-TinyLFU 准入策略：新会话只有在访问频率估计高于被淘汰候选时才会挤占容量，
+ * 突发的一次性会话不会把活跃会话挤出内存。
+ *
+ * @param <V> 会话对象类型
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public class CaffeineSessionStore<V> implements SessionStore<V> {
+
+    private final Cache<String, V> cache;
+
+    /**
+     * 构造函数
+     * @param cache 已配置好容量、过期和统计的 Caffeine 缓存
+     */
+    public CaffeineSessionStore(Cache<String, V> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 查找会话对象
+     * @param sessionId 会话ID
+     * @return 会话对象，不存在时返回 null
+     */
+    @Override
+    public V find(String sessionId) {
+        return cache.getIfPresent(sessionId);
+    }
+
+    /**
+     * 获取或创建会话对象
+     * @param sessionId 会话ID
+     * @param factory 会话不存在时的创建函数
+     * @return 会话对象
+     */
+    @Override
+    public V getOrCreate(String sessionId, Function<String, V> factory) {
+        return cache.get(sessionId, factory);
+    }
+
+    /**
+     * 原子地修改会话对象并重新计算容量
+     * @param sessionId 会话ID
+     * @param factory 会话不存在时的创建函数
+     * @param updater 修改函数
+     * @return 修改后的会话对象
+     */
+    @Override
+    public V compute(String sessionId, Function<String, V> factory, UnaryOperator<V> updater) {
+        return cache.asMap().compute(sessionId,
+                (key, current) -> updater.apply(current != null ? current : factory.apply(key)));
+    }
+
+    /**
+     * 写入会话对象
+     * @param sessionId 会话ID
+     * @param value 会话对象
+     */
+    @Override
+    public void put(String sessionId, V value) {
+        cache.put(sessionId, value);
+    }
+
+    /**
+     * 移除会话对象
+     * @param sessionId 会话ID
+     */
+    @Override
+    public void remove(String sessionId) {
+        cache.invalidate(sessionId);
+    }
+
+    /**
+     * 获取当前会话数的估计值
+     * @return 会话数
+     */
+    @Override
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+}
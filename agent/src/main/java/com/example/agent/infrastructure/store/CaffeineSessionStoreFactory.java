@@ -0,0 +1,70 @@
+package com.example.agent.infrastructure.store;
+
+import com.example.agent.application.config.SessionStoreProperties;
+import com.example.agent.domain.chat.model.RetainedSize;
+import com.example.agent.domain.chat.service.SessionEvictionListener;
+import com.example.agent.domain.chat.service.SessionStore;
+import com.example.agent.domain.chat.service.SessionStoreFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * 基于 Caffeine 的会话存储工厂
+ * 按 agent.chat.store 配置创建有界会话存储，命中、未命中、淘汰次数以 cache=session-store.&lt;name&gt; 标签注册为 cache.* 指标
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class CaffeineSessionStoreFactory implements SessionStoreFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineSessionStoreFactory.class);
+
+    private final SessionStoreProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 构造函数
+     * @param properties 会话存储配置
+     * @param meterRegistry 指标注册表
+     */
+    public CaffeineSessionStoreFactory(SessionStoreProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 创建会话存储
+     * @param name 存储名称，用于配置覆盖和指标标签
+     * @param weigher 估算会话对象驻留字节数的函数
+     * @param listener 淘汰监听器，可以为 null
+     * @param <V> 会话对象类型
+     * @return 会话存储
+     */
+    @Override
+    public <V> SessionStore<V> create(String name, ToIntFunction<V> weigher, SessionEvictionListener<V> listener) {
+        Cache<String, V> cache = Caffeine.newBuilder()
+                .maximumWeight(properties.maxWeightBytesOf(name))
+                .<String, V>weigher((key, value) -> RetainedSize.ofString(key) + weigher.applyAsInt(value))
+                .expireAfterAccess(properties.idleTtlOf(name))
+                .evictionListener((String key, V value, RemovalCause cause) -> {
+                    logger.debug("会话存储 {} 淘汰会话 {}，原因: {}", name, key, cause);
+                    if (listener != null && key != null && value != null) {
+                        listener.onEvicted(key, value, cause.name());
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "session-store." + name);
+        return new CaffeineSessionStore<>(cache);
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.agent.infrastructure.stream;
+
+import com.example.agent.infrastructure.jfr.ChatEvents;
+import com.example.agent.infrastructure.jfr.ChatTurnEvent;
+import com.example.agent.infrastructure.jfr.ChunkEmittedEvent;
+import com.example.agent.infrastructure.logging.ChatAccessLog;
+import com.example.agent.infrastructure.response.ChatStreamFrame;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 聊天流轮次指标
+ * 按客户端实际收到的帧统计每轮对话：首个思考帧和首个回答帧的耗时、帧间隔、整轮耗时、
+ * 帧数与每帧字节数、回答阶段每秒输出的帧数，以及客户端断开导致的取消次数。
+ * 所有指标以 endpoint、model 标签注册为 chat.stream.*，经 actuator 的 /actuator/prometheus 导出。
+ * 同一份轮次统计在结束时交给 {@link ChatAccessLog} 按采样输出一行汇总日志；开启 JFR 记录时生成
+ * {@link ChatTurnEvent}，并为间隔超过阈值的帧生成 {@link ChunkEmittedEvent}。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ChatStreamMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final ChatAccessLog accessLog;
+    private final Map<String, TurnMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     * @param meterRegistry 指标注册表
+     * @param accessLog 对话访问日志
+     */
+    public ChatStreamMetrics(MeterRegistry meterRegistry, ChatAccessLog accessLog) {
+        this.meterRegistry = meterRegistry;
+        this.accessLog = accessLog;
+    }
+
+    /**
+     * 为一轮对话的帧流挂载指标统计和访问日志并编码
+     * @param endpoint 接口路径，作为 endpoint 标签
+     * @param model 回答使用的模型，作为 model 标签
+     * @param sessionId 会话 ID，只用于访问日志
+     * @param question 用户问题，只用于访问日志
+     * @param frames 合并后的帧流
+     * @param encoder 帧编码器
+     * @return 编码后的帧流
+     */
+    public Flux<DataBuffer> record(String endpoint, String model, String sessionId, String question,
+                                   Flux<ChatStreamFrame> frames, Function<ChatStreamFrame, DataBuffer> encoder) {
+        TurnMeters turnMeters = meters.computeIfAbsent(endpoint + '\u001F' + model,
+                key -> new TurnMeters(endpoint, model, meterRegistry));
+        return Flux.defer(() -> {
+            TurnState state = new TurnState(System.nanoTime(), accessLog.sample());
+            return frames
+                    .doOnNext(frame -> state.onFrame(turnMeters, frame.getType(), System.nanoTime()))
+                    .map(frame -> {
+                        DataBuffer buffer = encoder.apply(frame);
+                        int bytes = buffer.readableByteCount();
+                        state.bytes += bytes;
+                        turnMeters.bytesPerFrame.record(bytes);
+                        state.onEncoded(sessionId, frame.getType(), bytes);
+                        return buffer;
+                    })
+                    .doFinally(signal -> finish(endpoint, model, sessionId, question, turnMeters, state, signal));
+        });
+    }
+
+    private void finish(String endpoint, String model, String sessionId, String question,
+                        TurnMeters turnMeters, TurnState state, SignalType signal) {
+        long elapsedNanos = System.nanoTime() - state.startNanos;
+        turnMeters.framesPerTurn.record(state.frames);
+        turnMeters.turnDuration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (state.answerFrames > 1 && state.lastAnswerNanos > state.firstAnswerNanos) {
+            turnMeters.answerFrameRate.record(
+                    (state.answerFrames - 1) * 1e9 / (state.lastAnswerNanos - state.firstAnswerNanos));
+        }
+        if (signal == SignalType.CANCEL) {
+            turnMeters.cancelled.increment();
+        }
+        ChatTurnEvent event = state.turnEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.endpoint = endpoint;
+            event.model = model;
+            event.outcome = ChatEvents.outcome(signal);
+            event.frames = state.frames;
+            event.answerFrames = state.answerFrames;
+            event.bytes = state.bytes;
+            event.firstAnswer = state.answerFrames == 0 ? -1 : state.firstAnswerNanos - state.startNanos;
+            event.commit();
+        }
+        boolean failed = signal != SignalType.ON_COMPLETE || state.errorFrames > 0;
+        if (state.sampled || accessLog.shouldLogUnsampled(failed)) {
+            accessLog.log(new ChatAccessLog.TurnSummary(endpoint, model, sessionId, question, ChatEvents.outcome(signal),
+                    state.sampled, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    state.answerFrames == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(state.firstAnswerNanos - state.startNanos),
+                    state.frames, state.thinkingFrames, state.answerFrames, state.errorFrames, state.bytes));
+        }
+    }
+
+    /**
+     * 一轮对话的统计状态，只在该轮的流中按序访问
+     */
+    private static final class TurnState {
+
+        private final long startNanos;
+        private final boolean sampled;
+        private final ChatTurnEvent turnEvent = new ChatTurnEvent();
+        private ChunkEmittedEvent chunkEvent;
+        private long lastFrameNanos;
+        private long firstAnswerNanos;
+        private long lastAnswerNanos;
+        private long frames;
+        private long thinkingFrames;
+        private long answerFrames;
+        private long errorFrames;
+        private long bytes;
+
+        TurnState(long startNanos, boolean sampled) {
+            this.startNanos = startNanos;
+            this.sampled = sampled;
+            turnEvent.begin();
+            ChunkEmittedEvent first = new ChunkEmittedEvent();
+            if (first.isEnabled()) {
+                chunkEvent = first;
+                chunkEvent.begin();
+            }
+        }
+
+        void onEncoded(String sessionId, String type, int bytes) {
+            if (chunkEvent == null) {
+                return;
+            }
+            chunkEvent.end();
+            if (chunkEvent.shouldCommit()) {
+                chunkEvent.sessionId = sessionId;
+                chunkEvent.type = type;
+                chunkEvent.index = frames - 1;
+                chunkEvent.bytes = bytes;
+                chunkEvent.commit();
+            }
+            chunkEvent = new ChunkEmittedEvent();
+            chunkEvent.begin();
+        }
+
+        void onFrame(TurnMeters turnMeters, String type, long now) {
+            if (frames++ > 0) {
+                turnMeters.interFrame.record(now - lastFrameNanos, TimeUnit.NANOSECONDS);
+            }
+            lastFrameNanos = now;
+            if (ChatStreamFrame.TYPE_THINKING.equals(type)) {
+                if (thinkingFrames++ == 0) {
+                    turnMeters.firstThinking.record(now - startNanos, TimeUnit.NANOSECONDS);
+                }
+            } else if (ChatStreamFrame.TYPE_RESPONSE.equals(type)) {
+                if (answerFrames++ == 0) {
+                    firstAnswerNanos = now;
+                    turnMeters.firstAnswer.record(now - startNanos, TimeUnit.NANOSECONDS);
+                }
+                lastAnswerNanos = now;
+            } else if (ChatStreamFrame.TYPE_ERROR.equals(type)) {
+                errorFrames++;
+            }
+        }
+    }
+
+    /**
+     * 一组 endpoint、model 标签下的指标
+     */
+    private static final class TurnMeters {
+
+        private final Timer firstThinking;
+        private final Timer firstAnswer;
+        private final Timer interFrame;
+        private final Timer turnDuration;
+        private final DistributionSummary framesPerTurn;
+        private final DistributionSummary bytesPerFrame;
+        private final DistributionSummary answerFrameRate;
+        private final Counter cancelled;
+
+        TurnMeters(String endpoint, String model, MeterRegistry meterRegistry) {
+            this.firstThinking = Timer.builder("chat.stream.first.thinking")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("请求到首个思考帧的耗时")
+                    .register(meterRegistry);
+            this.firstAnswer = Timer.builder("chat.stream.first.answer")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("请求到首个回答帧的耗时，即用户感知的首字延迟")
+                    .register(meterRegistry);
+            this.interFrame = Timer.builder("chat.stream.inter.frame")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("相邻两帧的间隔")
+                    .register(meterRegistry);
+            this.turnDuration = Timer.builder("chat.stream.turn.duration")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("整轮流的耗时")
+                    .register(meterRegistry);
+            this.framesPerTurn = DistributionSummary.builder("chat.stream.turn.frames")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("每轮对话输出的帧数")
+                    .register(meterRegistry);
+            this.bytesPerFrame = DistributionSummary.builder("chat.stream.frame.bytes")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("每帧的字节数")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            this.answerFrameRate = DistributionSummary.builder("chat.stream.answer.frame.rate")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("回答阶段每秒输出的帧数")
+                    .baseUnit("frames/s")
+                    .register(meterRegistry);
+            this.cancelled = Counter.builder("chat.stream.cancelled")
+                    .tags("endpoint", endpoint, "model", model)
+                    .description("客户端断开导致取消的轮次数")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.agent.infrastructure.stream;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * DataBuffer 消息转换器
+ * 让 Servlet 服务模式也能直接写出 {@link NdjsonFrameEncoder} 生成的 {@link DataBuffer}，
+ * 使控制器在 Servlet 与 WebFlux 两种模式下共用同一返回类型。写出后释放缓冲区。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public class DataBufferHttpMessageConverter extends AbstractHttpMessageConverter<DataBuffer> {
+
+    /**
+     * 构造函数，支持所有媒体类型
+     */
+    public DataBufferHttpMessageConverter() {
+        super(MediaType.ALL);
+    }
+
+    /**
+     * 是否支持指定类型
+     * @param clazz 类型
+     * @return 是否为 DataBuffer 类型
+     */
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return DataBuffer.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * 仅用于写出，不支持读取
+     * @param clazz 类型
+     * @param mediaType 媒体类型
+     * @return 始终返回 false
+     */
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    /**
+     * 不支持读取
+     * @param clazz 类型
+     * @param inputMessage 输入消息
+     * @return 不会返回
+     * @throws HttpMessageNotReadableException 始终抛出
+     */
+    @Override
+    protected DataBuffer readInternal(Class<? extends DataBuffer> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("不支持读取 DataBuffer", inputMessage);
+    }
+
+    /**
+     * 获取内容长度
+     * @param buffer 数据缓冲区
+     * @param contentType 媒体类型
+     * @return 可读字节数
+     */
+    @Override
+    protected Long getContentLength(DataBuffer buffer, MediaType contentType) {
+        return (long) buffer.readableByteCount();
+    }
+
+    /**
+     * 写出缓冲区内容并释放
+     * @param buffer 数据缓冲区
+     * @param outputMessage 输出消息
+     * @throws IOException 写出失败时抛出
+     */
+    @Override
+    protected void writeInternal(DataBuffer buffer, HttpOutputMessage outputMessage) throws IOException {
+        try (InputStream input = buffer.asInputStream(true)) {
+            input.transferTo(outputMessage.getBody());
+        }
+    }
+}
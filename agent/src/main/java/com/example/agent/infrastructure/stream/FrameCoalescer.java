@@ -0,0 +1,182 @@
+package com.example.agent.infrastructure.stream;
+
+import com.example.agent.application.config.ChatStreamProperties;
+import com.example.agent.infrastructure.jfr.ChatEvents;
+import com.example.agent.infrastructure.response.ChatStreamFrame;
+import org.reactivestreams.Subscription;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流帧合并器
+ * 将上游的细粒度增量按时间窗口和字节数合并为较大的帧，替代固定的 delayElements 节流：
+ * 窗口到期或累计字节数达到上限时立即输出（以先到者为准），帧类型变化时也会立即输出，
+ * 因此思考帧和回答帧不会被合并到一起。
+ * 向上游的请求跟随下游需求：下游有未满足的请求时才逐个拉取增量并合并，客户端读取变慢时停止拉取，
+ * 合并器自身最多缓存一个已完成的帧和一个正在合并的帧；下游的 Reactor 上下文原样传给上游。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class FrameCoalescer {
+
+    private final ChatStreamProperties properties;
+    private final Scheduler scheduler;
+
+    /**
+     * 构造函数
+     * @param properties 聊天流配置
+     */
+    public FrameCoalescer(ChatStreamProperties properties) {
+        this.properties = properties;
+        this.scheduler = Schedulers.parallel();
+    }
+
+    /**
+     * 合并流帧
+     * @param frames 上游帧流
+     * @return 合并后的帧流；窗口和字节上限均未配置时原样返回
+     */
+    public Flux<ChatStreamFrame> coalesce(Flux<ChatStreamFrame> frames) {
+        long windowMillis = properties.getCoalesceWindow() == null ? 0 : properties.getCoalesceWindow().toMillis();
+        int maxBytes = properties.getCoalesceMaxBytes();
+        if (windowMillis <= 0 && maxBytes <= 0) {
+            return frames;
+        }
+        return Flux.create(sink -> {
+            PendingFrame pending = new PendingFrame(sink, windowMillis, maxBytes);
+            sink.onRequest(requested -> pending.requestIfDemanded());
+            sink.onDispose(pending::release);
+            frames.contextWrite(sink.contextView()).subscribe(pending);
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    /**
+     * 单个流上待输出的合并帧，同时作为上游的订阅者按下游需求逐个请求增量
+     */
+    private final class PendingFrame extends BaseSubscriber<ChatStreamFrame> {
+
+        private final FluxSink<ChatStreamFrame> sink;
+        private final long windowMillis;
+        private final int maxBytes;
+        private final StringBuilder text = new StringBuilder();
+        private String type;
+        private long bytes;
+        private Disposable timer;
+        private boolean subscribed;
+        private boolean awaiting;
+        private boolean done;
+
+        PendingFrame(FluxSink<ChatStreamFrame> sink, long windowMillis, int maxBytes) {
+            this.sink = sink;
+            this.windowMillis = windowMillis;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            synchronized (this) {
+                subscribed = true;
+            }
+            requestIfDemanded();
+        }
+
+        /**
+         * 追加一个上游增量，处理完后在下游仍有需求时请求下一个
+         * @param frame 上游帧
+         */
+        @Override
+        protected void hookOnNext(ChatStreamFrame frame) {
+            synchronized (this) {
+                awaiting = false;
+                if (type != null && !type.equals(frame.getType())) {
+                    flush();
+                }
+                type = frame.getType();
+                text.append(frame.getContent());
+                bytes += ChatEvents.utf8Length(frame.getContent());
+                if (windowMillis <= 0 || (maxBytes > 0 && bytes >= maxBytes)) {
+                    flush();
+                } else if (timer == null) {
+                    timer = scheduler.schedule(this::flushOnTimer, windowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            requestIfDemanded();
+        }
+
+        /**
+         * 上游出错：先输出已合并的内容再传递错误
+         * @param error 错误
+         */
+        @Override
+        protected synchronized void hookOnError(Throwable error) {
+            done = true;
+            flush();
+            sink.error(error);
+        }
+
+        /**
+         * 上游完成：输出剩余内容后结束
+         */
+        @Override
+        protected synchronized void hookOnComplete() {
+            done = true;
+            flush();
+            sink.complete();
+        }
+
+        /**
+         * 下游有未满足的请求、且没有尚未到达的上游请求时，向上游请求一个增量
+         */
+        void requestIfDemanded() {
+            synchronized (this) {
+                if (!subscribed || awaiting || done || sink.requestedFromDownstream() <= 0) {
+                    return;
+                }
+                awaiting = true;
+            }
+            request(1);
+        }
+
+        /**
+         * 下游取消或流结束时取消上游订阅和尚未触发的窗口定时器
+         */
+        void release() {
+            cancel();
+            synchronized (this) {
+                cancelTimer();
+            }
+        }
+
+        private synchronized void flushOnTimer() {
+            timer = null;
+            flush();
+        }
+
+        private void cancelTimer() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+
+        private void flush() {
+            cancelTimer();
+            if (text.length() == 0) {
+                return;
+            }
+            sink.next(new ChatStreamFrame(type, text.toString()));
+            text.setLength(0);
+            bytes = 0;
+        }
+    }
+}
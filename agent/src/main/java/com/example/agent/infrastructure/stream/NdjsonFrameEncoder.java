@@ -0,0 +1,219 @@
+package com.example.agent.infrastructure.stream;
+
+import com.example.agent.infrastructure.response.ChatStreamFrame;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NDJSON 流帧编码器
+ * 将 {@link ChatStreamFrame} 直接编码为一行 {"type":...,"content":...,"timestamp":...}\n 写入池化的 {@link DataBuffer}，
+ * 常量字段前缀预先编码，内容的 JSON 转义与 UTF-8 编码在写入缓冲区时一次完成，
+ * 不再经过 ObjectMapper 生成中间 String 再由 Spring 二次编码。
+ * 转义规则与 Jackson 默认输出一致：转义双引号、反斜杠和控制字符，非 ASCII 字符按 UTF-8 原样输出。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class NdjsonFrameEncoder {
+
+    private static final byte[] THINKING_PREFIX = prefix(ChatStreamFrame.TYPE_THINKING);
+    private static final byte[] RESPONSE_PREFIX = prefix(ChatStreamFrame.TYPE_RESPONSE);
+    private static final byte[] ERROR_PREFIX = prefix(ChatStreamFrame.TYPE_ERROR);
+    private static final byte[] TIMESTAMP_FIELD = "\",\"timestamp\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 数字的最大位数（含负号）
+     */
+    private static final int MAX_LONG_DIGITS = 20;
+
+    private final DataBufferFactory bufferFactory;
+
+    /**
+     * 构造函数，使用 Netty 池化内存分配器
+     */
+    public NdjsonFrameEncoder() {
+        this(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+    }
+
+    /**
+     * 构造函数
+     * @param bufferFactory 数据缓冲区工厂
+     */
+    public NdjsonFrameEncoder(DataBufferFactory bufferFactory) {
+        this.bufferFactory = bufferFactory;
+    }
+
+    /**
+     * 编码一帧
+     * @param frame 聊天流帧
+     * @return 包含一行 NDJSON 的数据缓冲区，由写出方负责释放
+     */
+    public DataBuffer encode(ChatStreamFrame frame) {
+        return encode(frame.getType(), frame.getContent(), frame.getTimestamp() == null ? 0L : frame.getTimestamp());
+    }
+
+    /**
+     * 编码一帧
+     * @param type 帧类型
+     * @param content 帧内容
+     * @param timestamp 时间戳
+     * @return 包含一行 NDJSON 的数据缓冲区，由写出方负责释放
+     */
+    public DataBuffer encode(String type, String content, long timestamp) {
+        byte[] prefix = prefixOf(type);
+        String text = content == null ? "" : content;
+        int capacity = prefix.length + escapedLength(text) + TIMESTAMP_FIELD.length + MAX_LONG_DIGITS + 2;
+        DataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+        buffer.write(prefix);
+        writeEscaped(buffer, text);
+        buffer.write(TIMESTAMP_FIELD);
+        writeLong(buffer, timestamp);
+        buffer.write((byte) '}');
+        buffer.write((byte) '\n');
+        return buffer;
+    }
+
+    private static byte[] prefix(String type) {
+        return ("{\"type\":\"" + type + "\",\"content\":\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] prefixOf(String type) {
+        if (ChatStreamFrame.TYPE_RESPONSE.equals(type)) {
+            return RESPONSE_PREFIX;
+        }
+        if (ChatStreamFrame.TYPE_THINKING.equals(type)) {
+            return THINKING_PREFIX;
+        }
+        if (ChatStreamFrame.TYPE_ERROR.equals(type)) {
+            return ERROR_PREFIX;
+        }
+        StringBuilder escaped = new StringBuilder("{\"type\":\"");
+        for (int i = 0; i < type.length(); i++) {
+            char c = type.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.append("\",\"content\":\"").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 计算转义并按 UTF-8 编码后的字节数
+     * @param text 文本
+     * @return 字节数
+     */
+    static int escapedLength(String text) {
+        int bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f') {
+                    bytes += 2;
+                } else if (c < 0x20) {
+                    bytes += 6;
+                } else {
+                    bytes += 1;
+                }
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    bytes += 4;
+                    i++;
+                } else {
+                    bytes += 6;
+                }
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static void writeEscaped(DataBuffer buffer, String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '"' -> writeShortEscape(buffer, '"');
+                    case '\\' -> writeShortEscape(buffer, '\\');
+                    case '\n' -> writeShortEscape(buffer, 'n');
+                    case '\r' -> writeShortEscape(buffer, 'r');
+                    case '\t' -> writeShortEscape(buffer, 't');
+                    case '\b' -> writeShortEscape(buffer, 'b');
+                    case '\f' -> writeShortEscape(buffer, 'f');
+                    default -> {
+                        if (c < 0x20) {
+                            writeUnicodeEscape(buffer, c);
+                        } else {
+                            buffer.write((byte) c);
+                        }
+                    }
+                }
+            } else if (c < 0x800) {
+                buffer.write((byte) (0xC0 | (c >> 6)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    buffer.write((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.write((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.write((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.write((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    // 孤立的代理字符无法编码为合法 UTF-8，按 Unicode 转义序列输出
+                    writeUnicodeEscape(buffer, c);
+                }
+            } else {
+                buffer.write((byte) (0xE0 | (c >> 12)));
+                buffer.write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static void writeShortEscape(DataBuffer buffer, char escaped) {
+        buffer.write((byte) '\\');
+        buffer.write((byte) escaped);
+    }
+
+    private static void writeUnicodeEscape(DataBuffer buffer, char c) {
+        buffer.write((byte) '\\');
+        buffer.write((byte) 'u');
+        buffer.write(HEX_DIGITS[(c >> 12) & 0xF]);
+        buffer.write(HEX_DIGITS[(c >> 8) & 0xF]);
+        buffer.write(HEX_DIGITS[(c >> 4) & 0xF]);
+        buffer.write(HEX_DIGITS[c & 0xF]);
+    }
+
+    private static void writeLong(DataBuffer buffer, long value) {
+        if (value == Long.MIN_VALUE) {
+            buffer.write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (value < 0) {
+            buffer.write((byte) '-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            buffer.write((byte) ('0' + (value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+}
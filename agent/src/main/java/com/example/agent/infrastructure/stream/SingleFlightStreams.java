@@ -0,0 +1,75 @@
+package com.example.agent.infrastructure.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求的流合并
+ * 键相同的并发请求共享同一个上游流：第一个请求发起上游调用，之后加入的请求先立即收到已经输出的部分，再接收后续内容。
+ * 上游结束（完成、出错或被取消）时移除该键，之后的请求重新发起调用；
+ * 只有全部订阅者都取消后才取消上游调用，单个用户断开不影响其他用户。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class SingleFlightStreams {
+
+    private final Map<String, Flux<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter started;
+    private final Counter joined;
+
+    /**
+     * 构造函数
+     * @param meterRegistry 指标注册表
+     */
+    public SingleFlightStreams(MeterRegistry meterRegistry) {
+        Gauge.builder("chat.singleflight.inflight", inFlight, Map::size)
+                .description("正在进行的上游流数")
+                .register(meterRegistry);
+        this.started = Counter.builder("chat.singleflight.requests").tag("role", "leader")
+                .description("按是否发起上游调用区分的请求数")
+                .register(meterRegistry);
+        this.joined = Counter.builder("chat.singleflight.requests").tag("role", "follower")
+                .description("按是否发起上游调用区分的请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 加入键相同的进行中的流，不存在时发起新的上游调用
+     * @param key 请求键，键相同表示请求完全一致
+     * @param upstream 发起上游调用的函数，只在没有进行中的流时调用
+     * @return 共享的回答流
+     */
+    public Flux<String> join(String key, Supplier<Flux<String>> upstream) {
+        return Flux.defer(() -> {
+            boolean[] leader = new boolean[1];
+            Flux<String> shared = inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return share(k, upstream.get());
+            });
+            (leader[0] ? started : joined).increment();
+            return shared;
+        });
+    }
+
+    private Flux<String> share(String key, Flux<String> upstream) {
+        AtomicReference<Flux<String>> self = new AtomicReference<>();
+        Flux<String> shared = upstream
+                // 上游结束或因无人订阅被取消时移除，只移除自己，避免误删之后新建的流
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .replay()
+                .refCount(1);
+        self.set(shared);
+        return shared;
+    }
+}
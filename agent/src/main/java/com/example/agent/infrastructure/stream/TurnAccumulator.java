@@ -0,0 +1,121 @@
+package com.example.agent.infrastructure.stream;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 回答轮次累加器
+ * 收集一轮回答的全部增量，在流结束时只向记忆写入一条完整的 AssistantMessage，
+ * 避免每个流片段都成为一条记忆记录。流被取消或出错时，已收到的内容以 partial 标记保留。
+ * 累加用的 StringBuilder 来自有界对象池，轮次结束后归还复用。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class TurnAccumulator {
+
+    /**
+     * 标记不完整回答的消息属性名
+     */
+    public static final String PARTIAL_PROPERTY = "partial";
+
+    /**
+     * 对象池中最多保留的 StringBuilder 数量
+     */
+    private static final int POOL_SIZE = 256;
+
+    /**
+     * 初始容量，覆盖大多数客服回答的长度
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 超过该容量的 StringBuilder 不再归还对象池，避免长回答长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private final ChatMemory chatMemory;
+    private final ArrayBlockingQueue<StringBuilder> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * 构造函数
+     * @param chatMemory 聊天记忆
+     */
+    public TurnAccumulator(ChatMemory chatMemory) {
+        this.chatMemory = chatMemory;
+    }
+
+    /**
+     * 为回答流挂载累加逻辑，流结束时提交一条完整的助手消息
+     * @param conversationId 会话ID
+     * @param deltas 回答增量流
+     * @return 原样透传增量的回答流
+     */
+    public Flux<String> commitOnTerminate(String conversationId, Flux<String> deltas) {
+        return Flux.defer(() -> {
+            Turn turn = new Turn(borrow());
+            return deltas
+                    .doOnNext(turn::append)
+                    .doFinally(signal -> commit(conversationId, turn, signal));
+        });
+    }
+
+    private void commit(String conversationId, Turn turn, SignalType signal) {
+        String text = turn.close();
+        if (text.isEmpty()) {
+            return;
+        }
+        boolean partial = signal != SignalType.ON_COMPLETE;
+        chatMemory.add(conversationId, new AssistantMessage(text, Map.of(PARTIAL_PROPERTY, partial)));
+    }
+
+    private StringBuilder borrow() {
+        StringBuilder builder = pool.poll();
+        return builder != null ? builder : new StringBuilder(INITIAL_CAPACITY);
+    }
+
+    private void release(StringBuilder builder) {
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        builder.setLength(0);
+        pool.offer(builder);
+    }
+
+    /**
+     * 单轮回答的累加状态
+     * 取消信号可能与 onNext 在不同线程并发到达，因此追加和关闭需要互斥
+     */
+    private final class Turn {
+
+        private StringBuilder builder;
+
+        Turn(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        synchronized void append(String delta) {
+            if (builder != null) {
+                builder.append(delta);
+            }
+        }
+
+        synchronized String close() {
+            if (builder == null) {
+                return "";
+            }
+            String text = builder.toString();
+            release(builder);
+            builder = null;
+            return text;
+        }
+    }
+}
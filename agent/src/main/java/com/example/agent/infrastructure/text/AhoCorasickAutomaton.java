@@ -0,0 +1,277 @@
+package com.example.agent.infrastructure.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带权重的 Aho-Corasick 多模式匹配自动机
+ * 构建后只读，可被多个线程同时使用。状态转移保存在以"状态号 + 字符"为键的开放寻址哈希表中，
+ * 中文等大字符集下也不需要为每个状态分配整张转移表；每个词条可以属于多个类别并带有权重。
+ * {@link #scan(CharSequence, float[])} 对输入只扫描一遍，把命中词条的权重累加到调用方提供的数组中，
+ * 匹配过程不分配对象。英文字母匹配时不区分大小写。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class AhoCorasickAutomaton {
+
+    private static final long EMPTY_KEY = -1L;
+
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+    private final int[] failure;
+    /**
+     * 沿失败链最近的一个有输出的状态，没有时为 -1
+     */
+    private final int[] outputLink;
+    /**
+     * 状态自身输出在 outputCategories/outputWeights 中的区间 [outputStart[s], outputStart[s + 1])
+     */
+    private final int[] outputStart;
+    private final int[] outputCategories;
+    private final float[] outputWeights;
+    private final int categoryCount;
+    private final int termCount;
+
+    private AhoCorasickAutomaton(Builder builder) {
+        int states = builder.stateCount;
+        this.categoryCount = builder.categoryCount;
+        this.termCount = builder.terms.size();
+
+        int tableSize = Integer.highestOneBit(Math.max(2, builder.edges.size() * 2 - 1)) << 1;
+        this.transitionKeys = new long[tableSize];
+        this.transitionTargets = new int[tableSize];
+        this.transitionMask = tableSize - 1;
+        Arrays.fill(transitionKeys, EMPTY_KEY);
+        for (Map.Entry<Long, Integer> edge : builder.edges.entrySet()) {
+            int slot = slot(edge.getKey());
+            while (transitionKeys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & transitionMask;
+            }
+            transitionKeys[slot] = edge.getKey();
+            transitionTargets[slot] = edge.getValue();
+        }
+
+        // 按状态号展开每个状态自身的输出
+        this.outputStart = new int[states + 1];
+        int outputs = 0;
+        for (int state = 0; state < states; state++) {
+            outputStart[state] = outputs;
+            List<Output> own = builder.outputs.get(state);
+            outputs += own == null ? 0 : own.size();
+        }
+        outputStart[states] = outputs;
+        this.outputCategories = new int[outputs];
+        this.outputWeights = new float[outputs];
+        for (Map.Entry<Integer, List<Output>> entry : builder.outputs.entrySet()) {
+            int position = outputStart[entry.getKey()];
+            for (Output output : entry.getValue()) {
+                outputCategories[position] = output.category;
+                outputWeights[position] = output.weight;
+                position++;
+            }
+        }
+
+        // 按层序计算失败链和输出链
+        this.failure = new int[states];
+        this.outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : builder.children(0)) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int child : builder.children(state)) {
+                char c = builder.edgeChar(child);
+                int fallback = failure[state];
+                int target;
+                while ((target = transition(fallback, c)) < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = target >= 0 && target != child ? target : 0;
+                int f = failure[child];
+                outputLink[child] = hasOwnOutput(f) ? f : outputLink[f];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 创建构建器
+     * @return 构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 扫描输入，把命中词条的权重按类别累加到 scores
+     * @param text 输入文本
+     * @param scores 各类别的得分，长度不小于 {@link #categoryCount()}；调用方负责清零
+     * @return 命中的词条次数
+     */
+    public int scan(CharSequence text, float[] scores) {
+        int state = 0;
+        int matches = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = next < 0 ? 0 : next;
+            for (int s = hasOwnOutput(state) ? state : outputLink[state]; s > 0; s = outputLink[s]) {
+                for (int o = outputStart[s], end = outputStart[s + 1]; o < end; o++) {
+                    scores[outputCategories[o]] += outputWeights[o];
+                }
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 获取类别数
+     * @return 类别数
+     */
+    public int categoryCount() {
+        return categoryCount;
+    }
+
+    /**
+     * 获取词条数
+     * @return 词条数
+     */
+    public int termCount() {
+        return termCount;
+    }
+
+    private boolean hasOwnOutput(int state) {
+        return outputStart[state + 1] > outputStart[state];
+    }
+
+    private int transition(int state, char c) {
+        long key = key(state, c);
+        int slot = slot(key);
+        while (true) {
+            long candidate = transitionKeys[slot];
+            if (candidate == key) {
+                return transitionTargets[slot];
+            }
+            if (candidate == EMPTY_KEY) {
+                return -1;
+            }
+            slot = (slot + 1) & transitionMask;
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & transitionMask;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * 自动机构建器，非线程安全
+     */
+    public static final class Builder {
+
+        private final Map<Long, Integer> edges = new HashMap<>();
+        private final Map<Integer, List<Output>> outputs = new HashMap<>();
+        private final Map<String, Integer> terms = new HashMap<>();
+        private final List<List<Integer>> childrenOf = new ArrayList<>();
+        private final List<Character> charOf = new ArrayList<>();
+        private int stateCount;
+        private int categoryCount;
+
+        private Builder() {
+            newState('\0');
+        }
+
+        /**
+         * 添加词条；同一词条多次添加到同一类别时权重累加
+         * @param term 词条
+         * @param category 类别编号，从 0 开始
+         * @param weight 权重
+         * @return 当前构建器
+         */
+        public Builder add(String term, int category, float weight) {
+            if (term == null || term.isEmpty() || category < 0) {
+                return this;
+            }
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                char c = fold(term.charAt(i));
+                Integer next = edges.get(key(state, c));
+                if (next == null) {
+                    next = newState(c);
+                    edges.put(key(state, c), next);
+                    childrenOf.get(state).add(next);
+                }
+                state = next;
+            }
+            terms.putIfAbsent(term, state);
+            List<Output> own = outputs.computeIfAbsent(state, k -> new ArrayList<>(1));
+            for (Output output : own) {
+                if (output.category == category) {
+                    output.weight += weight;
+                    return this;
+                }
+            }
+            own.add(new Output(category, weight));
+            categoryCount = Math.max(categoryCount, category + 1);
+            return this;
+        }
+
+        /**
+         * 构建自动机
+         * @return 只读的自动机
+         */
+        public AhoCorasickAutomaton build() {
+            return new AhoCorasickAutomaton(this);
+        }
+
+        private int newState(char c) {
+            childrenOf.add(new ArrayList<>(2));
+            charOf.add(c);
+            return stateCount++;
+        }
+
+        private List<Integer> children(int state) {
+            return childrenOf.get(state);
+        }
+
+        private char edgeChar(int state) {
+            return charOf.get(state);
+        }
+    }
+
+    /**
+     * 构建期间一个词条在某个类别上的权重
+     */
+    private static final class Output {
+
+        private final int category;
+        private float weight;
+
+        Output(int category, float weight) {
+            this.category = category;
+            this.weight = weight;
+        }
+    }
+}
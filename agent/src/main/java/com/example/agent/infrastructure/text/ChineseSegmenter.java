@@ -0,0 +1,224 @@
+package com.example.agent.infrastructure.text;
+
+import com.example.agent.application.config.SegmenterProperties;
+import com.example.agent.domain.chat.service.KeywordExtractor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 中文分词器
+ * 汉字部分用 {@link DoubleArrayTrie} 词典做正向最大匹配，词典中没有的连续单字交给 {@link HmmWordSegmenter} 切分未登录词；
+ * 连续的字母和数字作为一个词，空白和标点作为分隔符。停用词放在 {@link PerfectHashStringSet} 中。
+ * 分词通过 {@link TokenSink} 回调输出词的区间，整个过程不截取子串、不分配对象，适合在每次请求的热路径上执行。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class ChineseSegmenter implements KeywordExtractor {
+
+    private final DoubleArrayTrie dictionary;
+    private final HmmWordSegmenter hmm;
+    private final PerfectHashStringSet stopWords;
+
+    /**
+     * 构造函数，加载词典或停用词表失败时启动失败
+     * @param properties 分词配置
+     * @param resourceLoader 资源加载器
+     * @param meterRegistry 指标注册表
+     */
+    public ChineseSegmenter(SegmenterProperties properties, ResourceLoader resourceLoader,
+                            MeterRegistry meterRegistry) {
+        Map<String, Long> frequencies;
+        List<String> stopWordList;
+        try {
+            frequencies = loadDictionary(resourceLoader.getResource(properties.getDictionaryLocation()));
+            stopWordList = loadLines(resourceLoader.getResource(properties.getStopWordsLocation()));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("分词词典加载失败: " + e.getMessage(), e);
+        }
+        this.dictionary = DoubleArrayTrie.build(new ArrayList<>(frequencies.keySet()));
+        this.hmm = properties.isHmmEnabled() ? new HmmWordSegmenter(frequencies) : null;
+        this.stopWords = PerfectHashStringSet.of(stopWordList);
+        Gauge.builder("chat.segmenter.dictionary.words", dictionary, DoubleArrayTrie::size)
+                .description("分词词典的词数")
+                .register(meterRegistry);
+        Gauge.builder("chat.segmenter.dictionary.bytes", this, ChineseSegmenter::footprintBytes)
+                .description("分词词典和 HMM 模型占用的堆内存估算")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 分词，按顺序输出每个词的区间
+     * @param text 文本
+     * @param sink 词区间的接收方
+     */
+    public void segment(CharSequence text, TokenSink sink) {
+        int length = text.length();
+        int unmatched = -1;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isHan(c)) {
+                int matched = dictionary.longestMatch(text, i, length);
+                if (matched >= 2) {
+                    flushUnmatched(text, unmatched, i, sink);
+                    unmatched = -1;
+                    sink.accept(text, i, i + matched);
+                    i += matched;
+                } else {
+                    // 单字先缓存起来，和相邻的单字一起交给 HMM 判断是否组成未登录词
+                    if (unmatched < 0) {
+                        unmatched = i;
+                    }
+                    i++;
+                }
+                continue;
+            }
+            flushUnmatched(text, unmatched, i, sink);
+            unmatched = -1;
+            if (Character.isLetterOrDigit(c)) {
+                int end = i + 1;
+                while (end < length && Character.isLetterOrDigit(text.charAt(end)) && !isHan(text.charAt(end))) {
+                    end++;
+                }
+                sink.accept(text, i, end);
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        flushUnmatched(text, unmatched, length, sink);
+    }
+
+    /**
+     * 分词
+     * @param text 文本
+     * @return 词列表
+     */
+    public List<String> segment(String text) {
+        List<String> words = new ArrayList<>();
+        if (text != null) {
+            segment(text, (source, start, end) -> words.add(source.subSequence(start, end).toString()));
+        }
+        return words;
+    }
+
+    @Override
+    public List<String> keywords(String text) {
+        Set<String> keywords = new LinkedHashSet<>();
+        if (text != null) {
+            segment(text, (source, start, end) -> {
+                if (end - start > 1 && !stopWords.contains(source, start, end)) {
+                    keywords.add(source.subSequence(start, end).toString());
+                }
+            });
+        }
+        return new ArrayList<>(keywords);
+    }
+
+    /**
+     * 判断文本区间是否是停用词
+     * @param text 文本
+     * @param start 起始位置
+     * @param end 结束位置（不含）
+     * @return 是否是停用词
+     */
+    public boolean isStopWord(CharSequence text, int start, int end) {
+        return stopWords.contains(text, start, end);
+    }
+
+    /**
+     * 估算词典和 HMM 模型占用的堆内存
+     * @return 字节数
+     */
+    public long footprintBytes() {
+        return dictionary.footprintBytes() + (hmm == null ? 0 : hmm.footprintBytes());
+    }
+
+    private void flushUnmatched(CharSequence text, int start, int end, TokenSink sink) {
+        if (start < 0) {
+            return;
+        }
+        if (hmm != null && end - start > 1) {
+            hmm.segment(text, start, end, sink);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            sink.accept(text, i, i + 1);
+        }
+    }
+
+    /**
+     * CJK 统一汉字、扩展 A 区和兼容汉字
+     */
+    private static boolean isHan(char c) {
+        return (c >= '\u4E00' && c <= '\u9FFF') || (c >= '\u3400' && c <= '\u4DBF') || (c >= '\uF900' && c <= '\uFAFF');
+    }
+
+    private static Map<String, Long> loadDictionary(Resource resource) throws IOException {
+        Map<String, Long> frequencies = new LinkedHashMap<>();
+        int lineNumber = 0;
+        for (String line : loadLines(resource)) {
+            lineNumber++;
+            String[] fields = line.split("\\s+");
+            long frequency;
+            try {
+                frequency = fields.length > 1 ? Long.parseLong(fields[1]) : 1L;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("分词词典第 " + lineNumber + " 个词条词频错误: " + line, e);
+            }
+            frequencies.merge(fields[0], frequency, Long::sum);
+        }
+        return frequencies;
+    }
+
+    /**
+     * 读取非空、非 # 开头的行
+     */
+    private static List<String> loadLines(Resource resource) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 词区间的接收方
+     */
+    @FunctionalInterface
+    public interface TokenSink {
+
+        /**
+         * 接收一个词
+         * @param text 原文本
+         * @param start 词的起始位置
+         * @param end 词的结束位置（不含）
+         */
+        void accept(CharSequence text, int start, int end);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.agent.infrastructure.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 双数组字典树
+ * 整棵树只用 base/check 两个 int 数组表示：从状态 b 经字符 c 转移到 p = b + c + 1，当且仅当 check[p] == b；
+ * 以某个状态结尾的词在 p = b 处有一个终止节点，其 base 为负的词编号减一。
+ * 查询只做数组下标运算，不分配对象；同样的词表比按节点存储的字典树紧凑得多。
+ * 构建后只读，可被多个线程同时使用。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class DoubleArrayTrie {
+
+    private final int[] base;
+    private final int[] check;
+    private final int size;
+
+    private DoubleArrayTrie(int[] base, int[] check, int size) {
+        this.base = base;
+        this.check = check;
+        this.size = size;
+    }
+
+    /**
+     * 构建双数组字典树
+     * @param words 词表，构建时会复制后排序去重
+     * @return 字典树
+     */
+    public static DoubleArrayTrie build(List<String> words) {
+        String[] keys = words.stream().filter(w -> w != null && !w.isEmpty()).distinct().sorted()
+                .toArray(String[]::new);
+        return new Builder(keys).build();
+    }
+
+    /**
+     * 查找从 start 开始的最长词
+     * @param text 文本
+     * @param start 起始位置
+     * @param end 结束位置（不含）
+     * @return 最长词的长度；没有以 start 开头的词时返回 0
+     */
+    public int longestMatch(CharSequence text, int start, int end) {
+        int b = base[0];
+        int longest = 0;
+        for (int i = start; i < end; i++) {
+            if (isTerminal(b)) {
+                longest = i - start;
+            }
+            int p = b + text.charAt(i) + 1;
+            if (p >= check.length || check[p] != b) {
+                return longest;
+            }
+            b = base[p];
+        }
+        return isTerminal(b) ? end - start : longest;
+    }
+
+    /**
+     * 判断文本区间是否恰好是一个词
+     * @param text 文本
+     * @param start 起始位置
+     * @param end 结束位置（不含）
+     * @return 是否是词
+     */
+    public boolean contains(CharSequence text, int start, int end) {
+        int b = base[0];
+        for (int i = start; i < end; i++) {
+            int p = b + text.charAt(i) + 1;
+            if (p >= check.length || check[p] != b) {
+                return false;
+            }
+            b = base[p];
+        }
+        return isTerminal(b);
+    }
+
+    /**
+     * 获取词数
+     * @return 词数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 估算两个数组占用的堆内存
+     * @return 字节数
+     */
+    public long footprintBytes() {
+        return 2L * (16 + 4L * base.length);
+    }
+
+    private boolean isTerminal(int b) {
+        return b < check.length && check[b] == b && base[b] < 0;
+    }
+
+    /**
+     * 构建过程：按层为每组兄弟节点寻找互不冲突的起始位置（base），兄弟节点的 check 记为该 base
+     */
+    private static final class Builder {
+
+        private final String[] keys;
+        private int[] base;
+        private int[] check;
+        private boolean[] used;
+        private int nextCheckPos;
+        private int size;
+
+        Builder(String[] keys) {
+            this.keys = keys;
+            int initial = Math.max(1 << 16, keys.length * 4);
+            this.base = new int[initial];
+            this.check = new int[initial];
+            this.used = new boolean[initial];
+        }
+
+        DoubleArrayTrie build() {
+            base[0] = 1;
+            nextCheckPos = 0;
+            if (keys.length > 0) {
+                int rootBegin = insert(fetch(0, keys.length, 0), 0);
+                base[0] = rootBegin;
+            }
+            // 查询时对越界的转移按不存在处理，数组只保留到最后一个使用的位置
+            int length = Math.max(1, size);
+            return new DoubleArrayTrie(Arrays.copyOf(base, length), Arrays.copyOf(check, length), keys.length);
+        }
+
+        /**
+         * 取出 [left, right) 中第 depth 个字符的兄弟节点，每个节点为 {编码, 子区间起点, 子区间终点}，
+         * 编码 0 表示词在此结束
+         */
+        private List<int[]> fetch(int left, int right, int depth) {
+            List<int[]> siblings = new ArrayList<>();
+            int previous = -1;
+            for (int i = left; i < right; i++) {
+                String key = keys[i];
+                int code = key.length() == depth ? 0 : key.charAt(depth) + 1;
+                if (code != previous) {
+                    siblings.add(new int[]{code, i, i + 1});
+                    previous = code;
+                } else {
+                    siblings.get(siblings.size() - 1)[2] = i + 1;
+                }
+            }
+            return siblings;
+        }
+
+        private int insert(List<int[]> siblings, int depth) {
+            int firstCode = siblings.get(0)[0];
+            int lastCode = siblings.get(siblings.size() - 1)[0];
+            int pos = Math.max(firstCode + 1, nextCheckPos) - 1;
+            int nonZero = 0;
+            boolean first = true;
+            int begin;
+            outer:
+            while (true) {
+                pos++;
+                ensureCapacity(pos + 1);
+                if (check[pos] != 0) {
+                    nonZero++;
+                    continue;
+                }
+                if (first) {
+                    nextCheckPos = pos;
+                    first = false;
+                }
+                begin = pos - firstCode;
+                if (begin <= 0) {
+                    continue;
+                }
+                ensureCapacity(begin + lastCode + 1);
+                if (used[begin]) {
+                    continue;
+                }
+                for (int i = 1; i < siblings.size(); i++) {
+                    if (check[begin + siblings.get(i)[0]] != 0) {
+                        continue outer;
+                    }
+                }
+                break;
+            }
+            // 前面的空位已经很少时跳过它们，避免后续查找反复扫描
+            if (1.0 * nonZero / (pos - nextCheckPos + 1) >= 0.95) {
+                nextCheckPos = pos;
+            }
+            used[begin] = true;
+            size = Math.max(size, begin + lastCode + 1);
+            for (int[] sibling : siblings) {
+                check[begin + sibling[0]] = begin;
+            }
+            for (int[] sibling : siblings) {
+                int index = begin + sibling[0];
+                if (sibling[0] == 0) {
+                    base[index] = -sibling[1] - 1;
+                } else {
+                    // 递归插入可能扩容并替换数组，先算出结果再写入
+                    int childBegin = insert(fetch(sibling[1], sibling[2], depth + 1), depth + 1);
+                    base[index] = childBegin;
+                }
+            }
+            return begin;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= base.length) {
+                return;
+            }
+            int capacity = Math.max(required, base.length + (base.length >> 1));
+            base = Arrays.copyOf(base, capacity);
+            check = Arrays.copyOf(check, capacity);
+            used = Arrays.copyOf(used, capacity);
+        }
+    }
+}
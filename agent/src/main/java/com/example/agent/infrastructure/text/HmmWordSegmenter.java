@@ -0,0 +1,227 @@
+package com.example.agent.infrastructure.text;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 未登录词的 HMM 切分
+ * 以 B（词首）、M（词中）、E（词尾）、S（单字词）四个状态标注每个字，Viterbi 求最可能的状态序列后按 E/S 断词。
+ * 模型参数从词典按词频统计得到：字在各位置出现的次数作为发射概率（加一平滑），
+ * 单字词与多字词的比例作为词间转移概率，因此不依赖额外的标注语料。
+ * 构建后只读，每个线程使用各自的 Viterbi 缓冲区，切分过程不分配对象。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+final class HmmWordSegmenter {
+
+    private static final int B = 0;
+    private static final int M = 1;
+    private static final int E = 2;
+    private static final int S = 3;
+    private static final int STATES = 4;
+    private static final float IMPOSSIBLE = Float.NEGATIVE_INFINITY;
+
+    private final float[] start = new float[STATES];
+    private final float[] transition = new float[STATES * STATES];
+    /**
+     * 按 charId * 4 + state 存放的发射对数概率
+     */
+    private final float[] emission;
+    private final float[] unseenEmission = new float[STATES];
+    private final char[] charKeys;
+    private final int[] charIds;
+    private final int charMask;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * 从词典训练模型
+     * @param frequencies 词与词频
+     */
+    HmmWordSegmenter(Map<String, Long> frequencies) {
+        Map<Character, double[]> counts = new HashMap<>();
+        double[] stateTotals = new double[STATES];
+        double single = 0;
+        double multi = 0;
+        double beginToMiddle = 0;
+        double beginToEnd = 0;
+        double middleToMiddle = 0;
+        double middleToEnd = 0;
+        for (Map.Entry<String, Long> entry : frequencies.entrySet()) {
+            String word = entry.getKey();
+            double weight = Math.max(1, entry.getValue());
+            int length = word.length();
+            if (length == 0) {
+                continue;
+            }
+            if (length == 1) {
+                single += weight;
+                count(counts, stateTotals, word.charAt(0), S, weight);
+                continue;
+            }
+            multi += weight;
+            count(counts, stateTotals, word.charAt(0), B, weight);
+            for (int i = 1; i < length - 1; i++) {
+                count(counts, stateTotals, word.charAt(i), M, weight);
+            }
+            count(counts, stateTotals, word.charAt(length - 1), E, weight);
+            if (length == 2) {
+                beginToEnd += weight;
+            } else {
+                beginToMiddle += weight;
+                middleToMiddle += weight * (length - 3);
+                middleToEnd += weight;
+            }
+        }
+
+        double singleRatio = (single + 1) / (single + multi + 2);
+        Arrays.fill(start, IMPOSSIBLE);
+        start[B] = log(1 - singleRatio);
+        start[S] = log(singleRatio);
+        Arrays.fill(transition, IMPOSSIBLE);
+        transition[B * STATES + M] = log((beginToMiddle + 1) / (beginToMiddle + beginToEnd + 2));
+        transition[B * STATES + E] = log((beginToEnd + 1) / (beginToMiddle + beginToEnd + 2));
+        transition[M * STATES + M] = log((middleToMiddle + 1) / (middleToMiddle + middleToEnd + 2));
+        transition[M * STATES + E] = log((middleToEnd + 1) / (middleToMiddle + middleToEnd + 2));
+        for (int from : new int[]{E, S}) {
+            transition[from * STATES + B] = start[B];
+            transition[from * STATES + S] = start[S];
+        }
+
+        int vocabulary = counts.size();
+        int tableSize = Integer.highestOneBit(Math.max(2, vocabulary * 2 - 1)) << 1;
+        this.charKeys = new char[tableSize];
+        this.charIds = new int[tableSize];
+        Arrays.fill(charIds, -1);
+        this.charMask = tableSize - 1;
+        this.emission = new float[vocabulary * STATES];
+        for (int state = 0; state < STATES; state++) {
+            unseenEmission[state] = log(1 / (stateTotals[state] + vocabulary + 1));
+        }
+        int nextId = 0;
+        for (Map.Entry<Character, double[]> entry : counts.entrySet()) {
+            int id = nextId++;
+            int slot = slot(entry.getKey());
+            while (charIds[slot] >= 0) {
+                slot = (slot + 1) & charMask;
+            }
+            charKeys[slot] = entry.getKey();
+            charIds[slot] = id;
+            for (int state = 0; state < STATES; state++) {
+                emission[id * STATES + state] =
+                        log((entry.getValue()[state] + 1) / (stateTotals[state] + vocabulary + 1));
+            }
+        }
+    }
+
+    /**
+     * 切分文本区间，按顺序输出每个词的区间
+     * @param text 文本
+     * @param from 起始位置
+     * @param to 结束位置（不含）
+     * @param sink 词区间的接收方
+     */
+    void segment(CharSequence text, int from, int to, ChineseSegmenter.TokenSink sink) {
+        int length = to - from;
+        if (length <= 0) {
+            return;
+        }
+        Scratch buffers = scratch.get().ensure(length);
+        float[] score = buffers.score;
+        byte[] back = buffers.back;
+        for (int state = 0; state < STATES; state++) {
+            score[state] = start[state] + emit(text.charAt(from), state);
+        }
+        for (int i = 1; i < length; i++) {
+            char c = text.charAt(from + i);
+            for (int state = 0; state < STATES; state++) {
+                float best = IMPOSSIBLE;
+                int bestFrom = S;
+                for (int previous = 0; previous < STATES; previous++) {
+                    float candidate = score[(i - 1) * STATES + previous] + transition[previous * STATES + state];
+                    if (candidate > best) {
+                        best = candidate;
+                        bestFrom = previous;
+                    }
+                }
+                score[i * STATES + state] = best + emit(c, state);
+                back[i * STATES + state] = (byte) bestFrom;
+            }
+        }
+        // 最后一个字只能是词尾或单字词
+        int last = (length - 1) * STATES;
+        int state = score[last + E] >= score[last + S] ? E : S;
+        byte[] states = buffers.states;
+        for (int i = length - 1; i >= 0; i--) {
+            states[i] = (byte) state;
+            state = back[i * STATES + state];
+        }
+        int wordStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (states[i] == E || states[i] == S) {
+                sink.accept(text, from + wordStart, from + i + 1);
+                wordStart = i + 1;
+            }
+        }
+        if (wordStart < length) {
+            sink.accept(text, from + wordStart, to);
+        }
+    }
+
+    /**
+     * 估算模型参数占用的堆内存
+     * @return 字节数
+     */
+    long footprintBytes() {
+        return 16 + 4L * emission.length + 16 + 2L * charKeys.length + 16 + 4L * charIds.length;
+    }
+
+    private float emit(char c, int state) {
+        int slot = slot(c);
+        while (true) {
+            int id = charIds[slot];
+            if (id < 0) {
+                return unseenEmission[state];
+            }
+            if (charKeys[slot] == c) {
+                return emission[id * STATES + state];
+            }
+            slot = (slot + 1) & charMask;
+        }
+    }
+
+    private int slot(char c) {
+        return (c * 0x9E3779B9 >>> 16) & charMask;
+    }
+
+    private static void count(Map<Character, double[]> counts, double[] totals, char c, int state, double weight) {
+        counts.computeIfAbsent(c, k -> new double[STATES])[state] += weight;
+        totals[state] += weight;
+    }
+
+    private static float log(double probability) {
+        return (float) Math.log(probability);
+    }
+
+    /**
+     * 每个线程的 Viterbi 缓冲区
+     */
+    private static final class Scratch {
+
+        private float[] score = new float[64 * STATES];
+        private byte[] back = new byte[64 * STATES];
+        private byte[] states = new byte[64];
+
+        Scratch ensure(int length) {
+            if (states.length < length) {
+                int capacity = Math.max(length, states.length * 2);
+                score = new float[capacity * STATES];
+                back = new byte[capacity * STATES];
+                states = new byte[capacity];
+            }
+            return this;
+        }
+    }
+}
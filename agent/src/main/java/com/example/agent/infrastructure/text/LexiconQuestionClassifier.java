@@ -0,0 +1,139 @@
+package com.example.agent.infrastructure.text;
+
+import com.example.agent.application.config.QuestionClassifierProperties;
+import com.example.agent.domain.chat.model.QuestionProfile;
+import com.example.agent.domain.chat.service.QuestionClassifier;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于词库的问题分类器
+ * 问题领域和问题类型由 {@link WeightedLexicon} 词库打分决定：启动时把词库编译为 Aho-Corasick 自动机，
+ * 每次分类只扫描一遍问题文本，匹配过程不分配对象，可以在每次请求的热路径上执行。
+ * 文件系统上的词库修改后按 reloadInterval 自动重新加载，加载失败时继续使用旧词库。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+@Component
+public class LexiconQuestionClassifier implements QuestionClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LexiconQuestionClassifier.class);
+
+    /**
+     * 词库中问题领域的类别种类
+     */
+    public static final String KIND_DOMAIN = "domain";
+
+    /**
+     * 词库中问题类型的类别种类
+     */
+    public static final String KIND_TYPE = "type";
+
+    private final Resource lexiconResource;
+    private final ThreadLocal<float[]> scoreBuffer = ThreadLocal.withInitial(() -> new float[16]);
+    private final Disposable reloadTask;
+
+    private volatile WeightedLexicon lexicon;
+    private volatile long lexiconModified;
+
+    /**
+     * 构造函数，加载词库失败时启动失败
+     * @param properties 问题分类配置
+     * @param resourceLoader 资源加载器
+     * @param meterRegistry 指标注册表
+     */
+    public LexiconQuestionClassifier(QuestionClassifierProperties properties, ResourceLoader resourceLoader,
+                                     MeterRegistry meterRegistry) {
+        this.lexiconResource = resourceLoader.getResource(properties.getLexiconLocation());
+        try {
+            this.lexiconModified = lexiconResource.isFile() ? lexiconResource.lastModified() : 0L;
+            this.lexicon = load();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("问题分类词库加载失败: " + properties.getLexiconLocation(), e);
+        }
+        Gauge.builder("chat.classifier.terms", this, classifier -> classifier.lexicon.termCount())
+                .description("问题分类词库的词条数")
+                .register(meterRegistry);
+        long interval = properties.getReloadInterval().toMillis();
+        this.reloadTask = interval > 0 && lexiconResource.isFile()
+                ? Schedulers.boundedElastic().schedulePeriodically(this::reloadIfModified,
+                        interval, interval, TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    @Override
+    public QuestionProfile classify(String question) {
+        String input = question == null ? "" : question;
+        WeightedLexicon current = lexicon;
+        float[] scores = scoreBuffer.get();
+        if (scores.length < current.categoryCount()) {
+            scores = new float[current.categoryCount()];
+            scoreBuffer.set(scores);
+        }
+        current.score(input, scores);
+        String domain = current.findBest(KIND_DOMAIN, scores);
+        String questionType = current.findBest(KIND_TYPE, scores);
+        return new QuestionProfile(domain == null ? DOMAIN_GENERAL : domain,
+                questionType == null ? TYPE_CHAT : questionType, input.length());
+    }
+
+    /**
+     * 重新加载词库，失败时保留当前词库
+     * @return 是否加载成功
+     */
+    public synchronized boolean reload() {
+        try {
+            lexicon = load();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("问题分类词库重新加载失败，继续使用旧词库: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 停止词库文件检查
+     */
+    @PreDestroy
+    public void close() {
+        if (reloadTask != null) {
+            reloadTask.dispose();
+        }
+    }
+
+    private void reloadIfModified() {
+        try {
+            long modified = lexiconResource.lastModified();
+            if (modified != lexiconModified) {
+                // 先记录修改时间，格式错误的词库不会在每次检查时重复报错
+                lexiconModified = modified;
+                reload();
+            }
+        } catch (IOException e) {
+            logger.warn("问题分类词库检查失败: {}", e.getMessage());
+        }
+    }
+
+    private WeightedLexicon load() throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(lexiconResource.getInputStream(), StandardCharsets.UTF_8))) {
+            return WeightedLexicon.parse(reader);
+        }
+    }
+}
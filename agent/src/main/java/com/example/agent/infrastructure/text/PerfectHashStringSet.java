@@ -0,0 +1,164 @@
+package com.example.agent.infrastructure.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 最小冲突的静态字符串集合（哈希-位移法构造的完美哈希）
+ * 构建时先按一级哈希把词分到若干桶，从大桶到小桶依次为每个桶找一个种子，使桶内所有词的二级哈希落在互不相同的空槽上；
+ * 查询时一次哈希、取种子、再算一次槽位即可定位，最多比较一个候选词，没有探测链。
+ * 查询直接对文本区间计算哈希，不截取子串、不分配对象；构建后只读，可被多个线程同时使用。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class PerfectHashStringSet {
+
+    private static final int MAX_SEED_ATTEMPTS = 1 << 20;
+
+    private final String[] slots;
+    private final int[] seeds;
+    private final int slotMask;
+    private final int bucketMask;
+    private final int size;
+
+    private PerfectHashStringSet(String[] slots, int[] seeds, int size) {
+        this.slots = slots;
+        this.seeds = seeds;
+        this.slotMask = slots.length - 1;
+        this.bucketMask = seeds.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * 构建集合
+     * @param words 词集合，重复和空词被忽略
+     * @return 集合
+     */
+    public static PerfectHashStringSet of(Collection<String> words) {
+        List<String> keys = new ArrayList<>(new LinkedHashSet<>(words));
+        keys.removeIf(word -> word == null || word.isEmpty());
+        int slotCount = tableSize(keys.size() + keys.size() / 4 + 1);
+        int bucketCount = tableSize(Math.max(1, keys.size() / 4));
+        List<List<String>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (String key : keys) {
+            buckets.get(hash(key, 0, key.length()) & (bucketCount - 1)).add(key);
+        }
+        Integer[] order = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        String[] slots = new String[slotCount];
+        int[] seeds = new int[bucketCount];
+        int[] placed = new int[16];
+        for (int bucket : order) {
+            List<String> members = buckets.get(bucket);
+            if (members.isEmpty()) {
+                break;
+            }
+            if (placed.length < members.size()) {
+                placed = new int[members.size()];
+            }
+            int seed = 1;
+            while (!tryPlace(members, seed, slots, placed)) {
+                if (++seed > MAX_SEED_ATTEMPTS) {
+                    throw new IllegalStateException("无法为词集合构造完美哈希");
+                }
+            }
+            seeds[bucket] = seed;
+        }
+        return new PerfectHashStringSet(slots, seeds, keys.size());
+    }
+
+    /**
+     * 判断文本区间是否在集合中
+     * @param text 文本
+     * @param start 起始位置
+     * @param end 结束位置（不含）
+     * @return 是否在集合中
+     */
+    public boolean contains(CharSequence text, int start, int end) {
+        int h = hash(text, start, end);
+        String candidate = slots[mix(h, seeds[h & bucketMask]) & slotMask];
+        if (candidate == null || candidate.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (candidate.charAt(i - start) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断字符串是否在集合中
+     * @param word 字符串
+     * @return 是否在集合中
+     */
+    public boolean contains(CharSequence word) {
+        return contains(word, 0, word.length());
+    }
+
+    /**
+     * 获取集合大小
+     * @return 词数
+     */
+    public int size() {
+        return size;
+    }
+
+    private static boolean tryPlace(List<String> members, int seed, String[] slots, int[] placed) {
+        int mask = slots.length - 1;
+        for (int i = 0; i < members.size(); i++) {
+            String key = members.get(i);
+            int slot = mix(hash(key, 0, key.length()), seed) & mask;
+            if (slots[slot] != null) {
+                for (int j = 0; j < i; j++) {
+                    slots[placed[j]] = null;
+                }
+                return false;
+            }
+            slots[slot] = key;
+            placed[i] = slot;
+        }
+        return true;
+    }
+
+    private static int tableSize(int minimum) {
+        return Integer.highestOneBit(Math.max(1, minimum - 1)) << 1;
+    }
+
+    /**
+     * FNV-1a
+     */
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0x811C9DC5;
+        for (int i = start; i < end; i++) {
+            h = (h ^ text.charAt(i)) * 0x01000193;
+        }
+        return h;
+    }
+
+    /**
+     * MurmurHash3 的 fmix32，把种子混入一级哈希
+     */
+    private static int mix(int h, int seed) {
+        h ^= seed * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
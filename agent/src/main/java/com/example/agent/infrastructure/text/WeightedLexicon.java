@@ -0,0 +1,124 @@
+package com.example.agent.infrastructure.text;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带权重的分类词库
+ * 每行格式为"类别种类<TAB>类别名<TAB>词条<TAB>权重"，# 开头的行和空行忽略，权重省略时为 1。
+ * 全部词条编译为一个 {@link AhoCorasickAutomaton}，一次扫描同时得到所有种类的类别得分；
+ * 同一种类内得分最高的类别胜出，得分相同时词库中先出现的类别优先。
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+public final class WeightedLexicon {
+
+    private final AhoCorasickAutomaton automaton;
+    private final String[] labels;
+    private final Map<String, int[]> categoriesByKind;
+
+    private WeightedLexicon(AhoCorasickAutomaton automaton, String[] labels, Map<String, int[]> categoriesByKind) {
+        this.automaton = automaton;
+        this.labels = labels;
+        this.categoriesByKind = categoriesByKind;
+    }
+
+    /**
+     * 解析词库
+     * @param reader 词库内容
+     * @return 编译好的词库
+     * @throws IOException 读取失败时抛出
+     * @throws IllegalArgumentException 某一行格式错误时抛出
+     */
+    public static WeightedLexicon parse(BufferedReader reader) throws IOException {
+        AhoCorasickAutomaton.Builder builder = AhoCorasickAutomaton.builder();
+        Map<String, Integer> categories = new LinkedHashMap<>();
+        Map<String, List<Integer>> kinds = new LinkedHashMap<>();
+        List<String> labels = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length < 3 || fields[2].isBlank()) {
+                throw new IllegalArgumentException("词库第 " + lineNumber + " 行格式错误: " + line);
+            }
+            String kind = fields[0].trim();
+            String label = fields[1].trim();
+            float weight;
+            try {
+                weight = fields.length > 3 ? Float.parseFloat(fields[3].trim()) : 1f;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("词库第 " + lineNumber + " 行权重错误: " + line, e);
+            }
+            Integer category = categories.get(kind + '\t' + label);
+            if (category == null) {
+                category = labels.size();
+                categories.put(kind + '\t' + label, category);
+                labels.add(label);
+                kinds.computeIfAbsent(kind, k -> new ArrayList<>()).add(category);
+            }
+            builder.add(fields[2].trim(), category, weight);
+        }
+        Map<String, int[]> categoriesByKind = new HashMap<>();
+        kinds.forEach((kind, ids) -> categoriesByKind.put(kind, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return new WeightedLexicon(builder.build(), labels.toArray(new String[0]), categoriesByKind);
+    }
+
+    /**
+     * 扫描文本，把各类别得分写入 scores
+     * @param text 文本
+     * @param scores 得分数组，长度不小于 {@link #categoryCount()}，会先被清零
+     */
+    public void score(CharSequence text, float[] scores) {
+        Arrays.fill(scores, 0, labels.length, 0f);
+        automaton.scan(text, scores);
+    }
+
+    /**
+     * 取某个种类中得分最高的类别
+     * @param kind 类别种类
+     * @param scores {@link #score(CharSequence, float[])} 得到的得分
+     * @return 类别名；该种类没有任何得分时返回 null
+     */
+    public String findBest(String kind, float[] scores) {
+        int[] candidates = categoriesByKind.get(kind);
+        if (candidates == null) {
+            return null;
+        }
+        int best = -1;
+        for (int category : candidates) {
+            if (scores[category] > 0 && (best < 0 || scores[category] > scores[best])) {
+                best = category;
+            }
+        }
+        return best < 0 ? null : labels[best];
+    }
+
+    /**
+     * 获取类别数
+     * @return 类别数
+     */
+    public int categoryCount() {
+        return labels.length;
+    }
+
+    /**
+     * 获取词条数
+     * @return 词条数
+     */
+    public int termCount() {
+        return automaton.termCount();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.agent.api.controller;
+
+import com.example.agent.application.config.AccessLogProperties;
+import com.example.agent.application.config.ChatStreamProperties;
+import com.example.agent.application.config.RateLimitProperties;
+import com.example.agent.application.exception.BusinessException;
+import com.example.agent.application.exception.UpstreamOverloadedException;
+import com.example.agent.application.exception.UpstreamUnavailableException;
+import com.example.agent.application.service.ChatService;
+import com.example.agent.domain.chat.ChatAggregate;
+import com.example.agent.domain.chat.ChatValidator;
+import com.example.agent.domain.chat.model.ThinkingStep;
+import com.example.agent.domain.chat.service.RollingSummaryService;
+import com.example.agent.domain.chat.service.ThinkingService;
+import com.example.agent.infrastructure.limit.ChatRateLimiter;
+import com.example.agent.infrastructure.logging.ChatAccessLog;
+import com.example.agent.infrastructure.stream.ChatStreamMetrics;
+import com.example.agent.infrastructure.stream.FrameCoalescer;
+import com.example.agent.infrastructure.stream.NdjsonFrameEncoder;
+import com.example.agent.infrastructure.stream.TurnAccumulator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 聊天控制器测试
+ * 覆盖思考调用被并发限制拒绝或被熔断时的降级：跳过思考步骤，回答照常输出，
+ * 回答也失败时以一条 error 帧正常结束响应；以及会话限流所用的请求头必须与请求体中的会话ID一致、会话ID不得超长
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class ChatControllerTest {
+
+    private final ChatService chatService = mock(ChatService.class);
+    private final ThinkingService thinkingService = mock(ThinkingService.class);
+    private final RollingSummaryService rollingSummaryService = mock(RollingSummaryService.class);
+    private final ChatStreamProperties streamProperties = new ChatStreamProperties();
+    private final ChatMemory chatMemory = mock(ChatMemory.class);
+
+    private ChatController controller() {
+        when(rollingSummaryService.compact(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        streamProperties.setCoalesceWindow(Duration.ZERO);
+        AccessLogProperties accessLogProperties = new AccessLogProperties();
+        accessLogProperties.setEnabled(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ChatStreamMetrics streamMetrics = new ChatStreamMetrics(meterRegistry, new ChatAccessLog(accessLogProperties));
+        ChatRateLimiter rateLimiter = new ChatRateLimiter(new RateLimitProperties(), meterRegistry);
+        return new ChatController(chatService, thinkingService, chatMemory, streamProperties,
+                new FrameCoalescer(streamProperties), streamMetrics, new TurnAccumulator(chatMemory),
+                new NdjsonFrameEncoder(new DefaultDataBufferFactory()), rollingSummaryService, rateLimiter,
+                new ChatValidator());
+    }
+
+    private void answerWith(Function<ChatAggregate, Flux<String>> answer) {
+        when(chatService.processStreamMessage(any())).thenAnswer(invocation -> {
+            ChatAggregate chatAggregate = invocation.getArgument(0);
+            chatAggregate.setModel("qwen-turbo");
+            return answer.apply(chatAggregate);
+        });
+    }
+
+    private static ChatRequest request(String sessionId) {
+        ChatRequest request = new ChatRequest();
+        request.setSessionId(sessionId);
+        request.setContent("怎么退货");
+        return request;
+    }
+
+    private List<String> send(ChatController controller) {
+        return controller.sendMessage(request("s1"), "s1")
+                .map(buffer -> {
+                    String line = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return line;
+                })
+                .collectList()
+                .block(Duration.ofSeconds(5));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void overloadedThinkingIsSkippedAndAnswerStillStreams(boolean concurrentThinking) {
+        streamProperties.setConcurrentThinking(concurrentThinking);
+        when(thinkingService.generateThinkingSteps(anyString(), anyString(), any()))
+                .thenReturn(Flux.error(new UpstreamOverloadedException("当前咨询人数较多，请稍后再试")));
+        answerWith(chatAggregate -> Flux.just("请在订单详情页申请退货"));
+
+        List<String> lines = send(controller());
+
+        assertThat(lines).singleElement().satisfies(line -> {
+            assertThat(line).contains("\"type\":\"response\"").contains("请在订单详情页申请退货");
+            assertThat(line).endsWith("\n");
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void openBreakerOnBothBranchesEndsWithOneErrorFrame(boolean concurrentThinking) {
+        streamProperties.setConcurrentThinking(concurrentThinking);
+        when(thinkingService.generateThinkingSteps(anyString(), anyString(), any()))
+                .thenReturn(Flux.error(new UpstreamUnavailableException("模型服务暂时不可用，请稍后再试")));
+        answerWith(chatAggregate -> Flux.error(new UpstreamUnavailableException("模型服务暂时不可用，请稍后再试")));
+
+        List<String> lines = send(controller());
+
+        assertThat(lines).singleElement().satisfies(line ->
+                assertThat(line).contains("\"type\":\"error\"").contains("模型服务暂时不可用"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void thinkingTimeoutAfterFirstStepKeepsEmittedSteps(boolean concurrentThinking) {
+        streamProperties.setConcurrentThinking(concurrentThinking);
+        ThinkingStep step = new ThinkingStep();
+        step.setContent("用户意图分析");
+        when(thinkingService.generateThinkingSteps(anyString(), anyString(), any()))
+                .thenReturn(Flux.just(step).concatWith(
+                        Flux.error(new UpstreamUnavailableException("模型服务响应中断，请重新提问"))));
+        answerWith(chatAggregate -> Flux.just("请在订单详情页申请退货"));
+
+        List<String> lines = send(controller());
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"type\":\"thinking\"").contains("用户意图分析");
+        assertThat(lines.get(1)).contains("\"type\":\"response\"");
+    }
+
+    @Test
+    void rejectsMissingSessionHeader() {
+        ChatController controller = controller();
+
+        assertThatThrownBy(() -> controller.sendMessage(request("s1"), null))
+                .isInstanceOf(BusinessException.class);
+        verify(chatMemory, never()).add(anyString(), any(Message.class));
+    }
+
+    @Test
+    void rejectsSessionHeaderThatDiffersFromBody() {
+        ChatController controller = controller();
+
+        assertThatThrownBy(() -> controller.sendMessage(request("s1"), "rotated-42"))
+                .isInstanceOf(BusinessException.class);
+        verify(chatMemory, never()).add(anyString(), any(Message.class));
+    }
+
+    @Test
+    void rejectsOversizedSessionId() {
+        ChatController controller = controller();
+        String sessionId = "s".repeat(ChatValidator.MAX_SESSION_ID_LENGTH + 1);
+
+        assertThatThrownBy(() -> controller.sendMessage(request(sessionId), sessionId))
+                .isInstanceOf(BusinessException.class);
+        verify(chatMemory, never()).add(anyString(), any(Message.class));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.agent.infrastructure.cache;
+
+import com.alibaba.cloud.ai.tongyi.chat.TongYiChatOptions;
+import com.example.agent.application.config.ChatAnswerCacheProperties;
+import com.example.agent.application.config.SemanticCacheProperties;
+import com.example.agent.domain.chat.ChatAggregate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.UserMessage;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 回答缓存测试
+ * 覆盖缓存键的计算范围：思考请求不参与缓存，键由规范化后的原始问题计算，不同问题不会互相命中
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class ChatAnswerCacheTest {
+
+    private static final String SYSTEM_PROMPT = "你是一个专业的客服助手";
+
+    private final TongYiChatOptions options = TongYiChatOptions.builder()
+            .withModel("qwen-turbo")
+            .withTemperature(0.7d)
+            .withTopP(1.0d)
+            .withMaxTokens(1024)
+            .build();
+
+    private ChatAnswerCache cache;
+
+    /**
+     * 使用默认配置和本地向量化实现创建缓存
+     */
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SemanticAnswerCache semanticCache = new SemanticAnswerCache(new SemanticCacheProperties(),
+                new HashingQuestionEmbedder(), meterRegistry);
+        cache = new ChatAnswerCache(new ChatAnswerCacheProperties(), semanticCache, meterRegistry);
+    }
+
+    /**
+     * 两个不同问题渲染出的思考提示词不计算缓存键，不会互相回放分析
+     */
+    @Test
+    void thinkingPromptsBypassCache() {
+        AnswerCacheKey refund = cache.findKey(ChatAggregate.FUNCTION_THINKING, SYSTEM_PROMPT, options, List.of(),
+                thinkingPrompt("怎么退货"));
+        AnswerCacheKey invoice = cache.findKey(ChatAggregate.FUNCTION_THINKING, SYSTEM_PROMPT, options, List.of(),
+                thinkingPrompt("怎么开发票"));
+
+        assertThat(refund).isNull();
+        assertThat(invoice).isNull();
+    }
+
+    /**
+     * 问题经过规范化后再计算键：全角标点、首尾空白和结尾问号不影响命中
+     */
+    @Test
+    void keyUsesNormalizedQuestion() {
+        AnswerCacheKey first = cache.findKey(null, SYSTEM_PROMPT, options, List.of(), " 怎么退货？");
+        AnswerCacheKey second = cache.findKey(null, SYSTEM_PROMPT, options, List.of(), "怎么退货");
+
+        assertThat(first.getQuestion()).isEqualTo("怎么退货");
+        assertThat(first.getDigest()).isEqualTo(second.getDigest());
+    }
+
+    /**
+     * 缓存的回答只回放给同一问题或同义问法，不回放给其他问题
+     */
+    @Test
+    void differentQuestionsDoNotCollide() {
+        AnswerCacheKey refund = cache.findKey(null, SYSTEM_PROMPT, options, List.of(), "怎么退货");
+        cache.cacheOnComplete(refund, Flux.just("请在订单详情页", "申请退货")).collectList().block();
+
+        assertThat(replay("怎么退货")).containsExactly("请在订单详情页申请退货");
+        assertThat(replay("如何退货")).containsExactly("请在订单详情页申请退货");
+        assertThat(replay("怎么开发票")).isNull();
+        assertThat(replay("今天天气怎么样")).isNull();
+    }
+
+    /**
+     * 带上下文的请求在默认范围下不查缓存
+     */
+    @Test
+    void contextualRequestBypassesCacheByDefault() {
+        AnswerCacheKey key = cache.findKey(null, SYSTEM_PROMPT, options,
+                List.of(new UserMessage("订单12345")), "怎么退货");
+
+        assertThat(key).isNull();
+    }
+
+    private List<String> replay(String question) {
+        AnswerCacheKey key = cache.findKey(null, SYSTEM_PROMPT, options, List.of(), question);
+        Flux<String> replay = cache.findReplay(key);
+        return replay == null ? null : List.of(String.join("", replay.collectList().block()));
+    }
+
+    private static String thinkingPrompt(String question) {
+        return "在回答问题\"" + question + "\"之前，请按照以下步骤进行思考：\n"
+                + "1. 用户意图分析：分析用户的核心诉求和目标\n"
+                + "2. 问题背景理解：理解问题的上下文和背景信息\n"
+                + "3. 相关知识搜索：列出需要用到的相关知识点\n"
+                + "4. 答案框架组织：规划回答的整体框架和结构\n"
+                + "\n请开始分析：";
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.agent.infrastructure.cache;
+
+import com.example.agent.application.config.SemanticCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 语义回答缓存测试
+ * 验证同义问法可以命中，而数字串或否定词不同的问题即使向量相似度较高也不会命中，
+ * 以及索引写满后在后台重建而不是在写入线程上重建
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class SemanticAnswerCacheTest {
+
+    private static final String FINGERPRINT = "fingerprint";
+
+    /**
+     * 同义问法命中，参数指纹不同时不命中
+     */
+    @Test
+    void synonymousQuestionHitsWithSameFingerprint() {
+        SemanticAnswerCache cache = newCache(0.9f);
+        cache.put(FINGERPRINT, "怎么退货", List.of("申请退货"), 1_000_000L);
+
+        assertThat(cache.findReplay(FINGERPRINT, "如何办理退货")).isNotNull();
+        assertThat(cache.findReplay("other", "如何办理退货")).isNull();
+    }
+
+    /**
+     * 否定词不同的问题不命中，即使阈值放宽到两者的相似度以下
+     */
+    @Test
+    void negationMismatchMisses() {
+        SemanticAnswerCache cache = newCache(0.5f);
+        cache.put(FINGERPRINT, "能退货", List.of("可以退货"), 1_000_000L);
+
+        assertThat(cache.findReplay(FINGERPRINT, "不能退货")).isNull();
+    }
+
+    /**
+     * 数字串不同的问题不命中，即使阈值放宽到两者的相似度以下
+     */
+    @Test
+    void digitMismatchMisses() {
+        SemanticAnswerCache cache = newCache(0.5f);
+        cache.put(FINGERPRINT, "订单12345", List.of("已发货"), 1_000_000L);
+
+        assertThat(cache.findReplay(FINGERPRINT, "订单12346")).isNull();
+        assertThat(cache.findReplay(FINGERPRINT, "订单12345")).isNotNull();
+    }
+
+    /**
+     * 必须一致的字面部分按出现顺序提取数字串和否定词
+     */
+    @Test
+    void literalsKeepDigitRunsAndNegations() {
+        assertThat(SemanticAnswerCache.literals("订单12345还没发货，不是3天吗")).isEqualTo("12345,没不3,");
+        assertThat(SemanticAnswerCache.literals("怎么退货")).isEmpty();
+    }
+
+    /**
+     * 索引写满时写入只提交一次后台重建并立即返回，重建完成后替换为新索引
+     */
+    @Test
+    void fullIndexRebuildsOffTheWritingThread() {
+        SemanticCacheProperties properties = new SemanticCacheProperties();
+        properties.setMaxEntries(4);
+        properties.setTtl(Duration.ZERO);
+        List<Runnable> rebuilds = new ArrayList<>();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        SemanticAnswerCache cache = new SemanticAnswerCache(properties, new HashingQuestionEmbedder(), registry,
+                Schedulers.fromExecutor(rebuilds::add));
+        List<String> questions = List.of("怎么退货", "如何换货", "运费多少", "几天到货", "能开发票吗", "支持货到付款吗");
+        for (String question : questions) {
+            cache.put(FINGERPRINT, question, List.of("回答"), 1_000_000L);
+        }
+
+        assertThat(rebuilds).hasSize(1);
+        assertThat(indexSize(registry)).isEqualTo(4);
+
+        rebuilds.get(0).run();
+        assertThat(indexSize(registry)).isZero();
+
+        cache.put(FINGERPRINT, "怎么退货", List.of("回答"), 1_000_000L);
+        assertThat(indexSize(registry)).isEqualTo(1);
+        assertThat(rebuilds).hasSize(1);
+    }
+
+    private static double indexSize(MeterRegistry registry) {
+        return registry.get("chat.semantic.cache.size").gauge().value();
+    }
+
+    private static SemanticAnswerCache newCache(float threshold) {
+        SemanticCacheProperties properties = new SemanticCacheProperties();
+        properties.setSimilarityThreshold(threshold);
+        return new SemanticAnswerCache(properties, new HashingQuestionEmbedder(), new SimpleMeterRegistry());
+    }
+}
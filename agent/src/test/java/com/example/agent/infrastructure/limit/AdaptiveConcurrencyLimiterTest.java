@@ -0,0 +1,201 @@
+package com.example.agent.infrastructure.limit;
+
+import com.example.agent.application.config.UpstreamLimiterProperties;
+import com.example.agent.application.exception.UpstreamOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 自适应并发限制测试
+ * 覆盖许可发放与排队、队列满和排队超时的拒绝、按会话轮转出队，
+ * 以及上限的加性增、乘性减（每个降低周期只降一次）和取消不参与调整
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> started = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    private static UpstreamLimiterProperties properties(int initialLimit) {
+        UpstreamLimiterProperties properties = new UpstreamLimiterProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(100);
+        properties.setBackoffRatio(0.5);
+        properties.setFirstTokenTarget(Duration.ofMinutes(1));
+        properties.setQueueCapacity(10);
+        properties.setMaxQueueTime(Duration.ofMinutes(1));
+        return properties;
+    }
+
+    /**
+     * 发起一次受限调用，上游被订阅（即获得许可）时记录名称
+     */
+    private Disposable call(AdaptiveConcurrencyLimiter limiter, String sessionId, String name,
+                            Sinks.Many<String> upstream) {
+        Flux<String> flux = upstream.asFlux().doOnSubscribe(subscription -> started.add(name));
+        return limiter.limit(sessionId, flux).subscribe(content -> { }, errors::add);
+    }
+
+    private static Sinks.Many<String> upstream() {
+        return Sinks.many().unicast().onBackpressureBuffer();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    @Test
+    void queuesBeyondLimitAndDispatchesOnRelease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(2), meterRegistry);
+        Sinks.Many<String> first = upstream();
+
+        call(limiter, "a", "a1", first);
+        call(limiter, "b", "b1", upstream());
+        call(limiter, "c", "c1", upstream());
+
+        assertThat(started).containsExactly("a1", "b1");
+        assertThat(gauge("chat.limiter.inflight")).isEqualTo(2);
+        assertThat(gauge("chat.limiter.queue.depth")).isEqualTo(1);
+
+        first.tryEmitComplete();
+
+        assertThat(started).containsExactly("a1", "b1", "c1");
+        assertThat(gauge("chat.limiter.queue.depth")).isZero();
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        UpstreamLimiterProperties properties = properties(1);
+        properties.setQueueCapacity(1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+
+        call(limiter, "a", "a1", upstream());
+        call(limiter, "b", "b1", upstream());
+        call(limiter, "c", "c1", upstream());
+
+        assertThat(started).containsExactly("a1");
+        assertThat(errors).singleElement().isInstanceOf(UpstreamOverloadedException.class);
+        assertThat(meterRegistry.counter("chat.limiter.rejected", "reason", "queue_full").count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAfterMaxQueueTime() {
+        UpstreamLimiterProperties properties = properties(1);
+        properties.setMaxQueueTime(Duration.ofMillis(50));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        call(limiter, "a", "a1", upstream());
+
+        StepVerifier.create(limiter.limit("b", Flux.just("never")))
+                .expectError(UpstreamOverloadedException.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(gauge("chat.limiter.queue.depth")).isZero();
+    }
+
+    @Test
+    void dispatchesRoundRobinAcrossSessions() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(1), meterRegistry);
+        Sinks.Many<String> running = upstream();
+        Sinks.Many<String> a1 = upstream();
+        Sinks.Many<String> b1 = upstream();
+        call(limiter, "x", "x1", running);
+        call(limiter, "a", "a1", a1);
+        call(limiter, "a", "a2", upstream());
+        call(limiter, "b", "b1", b1);
+
+        running.tryEmitComplete();
+        a1.tryEmitComplete();
+        b1.tryEmitComplete();
+
+        assertThat(started).containsExactly("x1", "a1", "b1", "a2");
+    }
+
+    @Test
+    void cancelWhileQueuedFreesQueueSlot() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(1), meterRegistry);
+        Sinks.Many<String> running = upstream();
+        call(limiter, "a", "a1", running);
+        Disposable queued = call(limiter, "b", "b1", upstream());
+        call(limiter, "c", "c1", upstream());
+
+        queued.dispose();
+        assertThat(gauge("chat.limiter.queue.depth")).isEqualTo(1);
+
+        running.tryEmitComplete();
+        assertThat(started).containsExactly("a1", "c1");
+    }
+
+    @Test
+    void errorBeforeFirstTokenDecreasesOncePerPeriod() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(8), meterRegistry);
+        Sinks.Many<String> first = upstream();
+        Sinks.Many<String> second = upstream();
+        call(limiter, "a", "a1", first);
+        call(limiter, "b", "b1", second);
+
+        first.tryEmitError(new IllegalStateException("overloaded"));
+        assertThat(gauge("chat.limiter.limit")).isEqualTo(4);
+
+        // 同一批在降低之前获得许可的请求不再继续降低
+        second.tryEmitError(new IllegalStateException("overloaded"));
+        assertThat(gauge("chat.limiter.limit")).isEqualTo(4);
+
+        Sinks.Many<String> third = upstream();
+        call(limiter, "c", "c1", third);
+        third.tryEmitError(new IllegalStateException("overloaded"));
+        assertThat(gauge("chat.limiter.limit")).isEqualTo(2);
+    }
+
+    @Test
+    void slowFirstTokenDecreasesLimit() {
+        UpstreamLimiterProperties properties = properties(8);
+        properties.setFirstTokenTarget(Duration.ZERO);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        Sinks.Many<String> upstream = upstream();
+        call(limiter, "a", "a1", upstream);
+
+        upstream.tryEmitNext("token");
+
+        assertThat(gauge("chat.limiter.limit")).isEqualTo(4);
+    }
+
+    @Test
+    void fastFirstTokenIncreasesLimitOnlyWhenBusy() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(4), meterRegistry);
+        Sinks.Many<String> idle = upstream();
+        call(limiter, "a", "a1", idle);
+        idle.tryEmitNext("token");
+        assertThat(gauge("chat.limiter.limit")).isEqualTo(4);
+
+        Sinks.Many<String> busy = upstream();
+        call(limiter, "b", "b1", busy);
+        busy.tryEmitNext("token");
+        assertThat(gauge("chat.limiter.limit")).isEqualTo(4.25);
+    }
+
+    @Test
+    void cancellationReleasesPermitWithoutDecreasing() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(1), meterRegistry);
+        Disposable running = call(limiter, "a", "a1", upstream());
+        call(limiter, "b", "b1", upstream());
+
+        running.dispose();
+
+        assertThat(started).containsExactly("a1", "b1");
+        assertThat(gauge("chat.limiter.limit")).isEqualTo(1);
+    }
+}
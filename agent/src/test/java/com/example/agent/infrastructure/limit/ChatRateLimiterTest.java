@@ -0,0 +1,86 @@
+package com.example.agent.infrastructure.limit;
+
+import com.example.agent.application.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 聊天限流测试
+ * 覆盖多维度检查的原子性：后面的维度拒绝时，前面维度已取出的令牌被退回；
+ * 以及会话请求头缺失或被轮换时不能代表实际写入的会话
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class ChatRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ChatRateLimiter limiter(int ipCapacity, int userCapacity, int sessionCapacity) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setIp(new RateLimitProperties.Bucket(ipCapacity, 1));
+        properties.setUser(new RateLimitProperties.Bucket(userCapacity, 1));
+        properties.setSession(new RateLimitProperties.Bucket(sessionCapacity, 1));
+        return new ChatRateLimiter(properties, meterRegistry);
+    }
+
+    @Test
+    void userRejectionDoesNotConsumeIpToken() {
+        ChatRateLimiter limiter = limiter(2, 1, 100);
+
+        assertThat(limiter.tryAcquire("10.0.0.1", "alice", null)).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", "alice", null)).isPositive();
+        assertThat(limiter.tryAcquire("10.0.0.1", "bob", null)).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", "carol", null)).isPositive();
+    }
+
+    @Test
+    void sessionRejectionRefundsIpAndUser() {
+        ChatRateLimiter limiter = limiter(2, 2, 1);
+
+        assertThat(limiter.tryAcquire("10.0.0.1", "alice", "s1")).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", "alice", "s1")).isPositive();
+        assertThat(limiter.tryAcquire("10.0.0.1", "alice", "s2")).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", "alice", "s3")).isPositive();
+    }
+
+    @Test
+    void countsRejectionOnlyForRejectingDimension() {
+        ChatRateLimiter limiter = limiter(10, 1, 100);
+        limiter.tryAcquire("10.0.0.1", "alice", null);
+        limiter.tryAcquire("10.0.0.1", "alice", null);
+
+        assertThat(meterRegistry.counter("chat.ratelimit.rejected", "dimension", "user").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chat.ratelimit.rejected", "dimension", "ip").count()).isZero();
+    }
+
+    @Test
+    void missingKeysAreNotLimited() {
+        ChatRateLimiter limiter = limiter(1, 1, 1);
+
+        assertThat(limiter.tryAcquire(null, null, null)).isZero();
+        assertThat(limiter.tryAcquire(null, null, null)).isZero();
+    }
+
+    @Test
+    void sessionHeaderMustMatchBodySessionId() {
+        ChatRateLimiter limiter = limiter(10, 10, 10);
+        String path = "/api/chat/send/thinking";
+
+        assertThat(limiter.isSessionHeaderValid(path, "s1", "s1")).isTrue();
+        assertThat(limiter.isSessionHeaderValid(path, null, "s1")).isFalse();
+        assertThat(limiter.isSessionHeaderValid(path, "", "s1")).isFalse();
+        assertThat(limiter.isSessionHeaderValid(path, "rotated-42", "s1")).isFalse();
+    }
+
+    @Test
+    void sessionHeaderIsNotRequiredWhenSessionLimitIsOff() {
+        ChatRateLimiter limiter = limiter(10, 10, 0);
+
+        assertThat(limiter.isSessionHeaderValid("/api/chat/send/thinking", null, "s1")).isTrue();
+        assertThat(limiter.isSessionHeaderValid("/actuator/health", null, "s1")).isTrue();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.agent.infrastructure.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 令牌桶测试
+ * 覆盖 GCRA 的突发容量、按补充间隔恢复令牌、拒绝时返回的等待时间以及令牌退回
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstUpToCapacityThenRejects() {
+        TokenBucket bucket = new TokenBucket(3, 60, 0);
+
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(2, 60, 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        assertThat(bucket.tryAcquire(SECOND / 2)).isEqualTo(SECOND / 2);
+        assertThat(bucket.tryAcquire(SECOND)).isZero();
+        assertThat(bucket.tryAcquire(SECOND)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void idleTimeDoesNotAccumulateBeyondCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 60, 0);
+        long later = 100 * SECOND;
+
+        assertThat(bucket.tryAcquire(later)).isZero();
+        assertThat(bucket.tryAcquire(later)).isZero();
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    @Test
+    void refundReturnsOneToken() {
+        TokenBucket bucket = new TokenBucket(1, 60, 0);
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isPositive();
+
+        bucket.refund();
+
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isPositive();
+    }
+}
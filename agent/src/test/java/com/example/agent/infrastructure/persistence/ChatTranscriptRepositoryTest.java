@@ -0,0 +1,98 @@
+package com.example.agent.infrastructure.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 会话记录仓储测试
+ * 在 MySQL 模式的嵌入式 H2 上执行 db/chat-schema-h2.sql，验证批量插入消息和会话的 upsert
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class ChatTranscriptRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ChatTranscriptRepository repository;
+
+    /**
+     * 为每个测试创建独立的内存库
+     */
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = h2DataSource();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new ChatTranscriptRepository(jdbcTemplate, new DataSourceTransactionManager(dataSource), "anonymous");
+    }
+
+    /**
+     * 一批消息全部写入，同一会话只产生一行，updated_at 取批次内最后的时间
+     */
+    @Test
+    void writesMessagesAndUpsertsSessionOncePerBatch() {
+        Timestamp first = Timestamp.valueOf("2024-04-14 10:00:00");
+        Timestamp last = Timestamp.valueOf("2024-04-14 10:00:05");
+        repository.writeBatch(List.of(
+                record("s1", ChatMessageRecord.TYPE_USER, "怎么退货", first),
+                record("s1", ChatMessageRecord.TYPE_ASSISTANT, "请在订单详情页申请", last),
+                record("s2", ChatMessageRecord.TYPE_USER, "发票怎么开", first)));
+
+        assertThat(count("chat_message")).isEqualTo(3);
+        assertThat(count("chat_session")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT updated_at FROM chat_session WHERE id = 's1'", Timestamp.class))
+                .isEqualTo(last);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT content FROM chat_message WHERE session_id = 's1' ORDER BY id", String.class))
+                .containsExactly("怎么退货", "请在订单详情页申请");
+    }
+
+    /**
+     * 后续批次再次写到已有会话时只更新 updated_at，不重复插入会话，也不改变 created_at
+     */
+    @Test
+    void laterBatchUpdatesExistingSession() {
+        Timestamp first = Timestamp.valueOf("2024-04-14 10:00:00");
+        Timestamp later = Timestamp.valueOf("2024-04-14 11:30:00");
+        repository.writeBatch(List.of(record("s1", ChatMessageRecord.TYPE_USER, "你好", first)));
+        repository.writeBatch(List.of(record("s1", ChatMessageRecord.TYPE_USER, "还在吗", later)));
+
+        assertThat(count("chat_session")).isEqualTo(1);
+        assertThat(count("chat_message")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT created_at FROM chat_session WHERE id = 's1'", Timestamp.class))
+                .isEqualTo(first);
+        assertThat(jdbcTemplate.queryForObject("SELECT updated_at FROM chat_session WHERE id = 's1'", Timestamp.class))
+                .isEqualTo(later);
+    }
+
+    /**
+     * 创建 MySQL 模式的内存 H2 并建表，库名随机，测试之间互不影响
+     * @return 数据源
+     */
+    static DataSource h2DataSource() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/chat-schema-h2.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static ChatMessageRecord record(String sessionId, int type, String content, Timestamp createdAt) {
+        return new ChatMessageRecord(sessionId, type, content, createdAt, System.nanoTime());
+    }
+}
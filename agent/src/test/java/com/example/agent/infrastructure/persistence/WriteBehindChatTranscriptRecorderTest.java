@@ -0,0 +1,191 @@
+package com.example.agent.infrastructure.persistence;
+
+import com.example.agent.application.config.ChatPersistenceProperties;
+import com.example.agent.domain.chat.ChatValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 异步回写会话记录器测试
+ * 在 MySQL 模式的嵌入式 H2 上验证两种溢出策略、关闭时写完队列、会话ID超长的消息不入队、
+ * 单条无法写入的消息不连累同批其他消息，以及写入相关指标
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class WriteBehindChatTranscriptRecorderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private WriteBehindChatTranscriptRecorder recorder;
+
+    /**
+     * 每个测试结束后停止写入线程
+     */
+    @AfterEach
+    void tearDown() {
+        if (recorder != null) {
+            recorder.stop();
+        }
+    }
+
+    /**
+     * 队列满时 DROP_NEWEST 丢弃新到的消息，已入队的消息照常写入
+     */
+    @Test
+    void dropNewestKeepsQueuedMessages() {
+        recorder = newRecorder(2, ChatPersistenceProperties.OverflowPolicy.DROP_NEWEST);
+        recorder.record("s1", new UserMessage("m1"));
+        recorder.record("s1", new UserMessage("m2"));
+        recorder.record("s1", new UserMessage("m3"));
+
+        recorder.start();
+        recorder.stop();
+
+        assertThat(contents()).containsExactly("m1", "m2");
+        assertThat(meterRegistry.counter("chat.persistence.dropped").count()).isEqualTo(1);
+    }
+
+    /**
+     * 队列满时 DROP_OLDEST 丢弃队列中最早的消息，为新消息腾出位置
+     */
+    @Test
+    void dropOldestKeepsNewestMessages() {
+        recorder = newRecorder(2, ChatPersistenceProperties.OverflowPolicy.DROP_OLDEST);
+        recorder.record("s1", new UserMessage("m1"));
+        recorder.record("s1", new UserMessage("m2"));
+        recorder.record("s1", new UserMessage("m3"));
+
+        recorder.start();
+        recorder.stop();
+
+        assertThat(contents()).containsExactly("m2", "m3");
+        assertThat(meterRegistry.counter("chat.persistence.dropped").count()).isEqualTo(1);
+    }
+
+    /**
+     * stop() 在返回前写完队列中剩余的消息，按批次提交并记录写入延迟
+     */
+    @Test
+    void stopDrainsQueue() {
+        recorder = newRecorder(1000, ChatPersistenceProperties.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 600; i++) {
+            recorder.record("s" + (i % 7), i % 2 == 0 ? new UserMessage("q" + i) : new AssistantMessage("a" + i));
+        }
+
+        recorder.start();
+        recorder.stop();
+
+        assertThat(recorder.isRunning()).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_message", Integer.class)).isEqualTo(600);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_session", Integer.class)).isEqualTo(7);
+        assertThat(meterRegistry.counter("chat.persistence.written").count()).isEqualTo(600);
+        assertThat(meterRegistry.timer("chat.persistence.write.lag").count()).isEqualTo(600);
+        // 批大小为 256，至少分三次提交
+        assertThat(meterRegistry.summary("chat.persistence.batch.size").count()).isGreaterThanOrEqualTo(3);
+    }
+
+    /**
+     * 只记录用户消息和 AI 回答，系统消息和空内容不入队
+     */
+    @Test
+    void ignoresSystemAndEmptyMessages() {
+        recorder = newRecorder(10, ChatPersistenceProperties.OverflowPolicy.DROP_NEWEST);
+        recorder.record("s1", new SystemMessage("你是客服助手"));
+        recorder.record("s1", new UserMessage(""));
+        recorder.record("s1", new AssistantMessage("好的"));
+
+        recorder.start();
+        recorder.stop();
+
+        assertThat(contents()).containsExactly("好的");
+        assertThat(jdbcTemplate.queryForObject("SELECT message_type FROM chat_message", Integer.class))
+                .isEqualTo(ChatMessageRecord.TYPE_ASSISTANT);
+    }
+
+    /**
+     * 会话ID超过列宽的消息在入队前拒绝，不进入批量写入
+     */
+    @Test
+    void rejectsOversizedSessionId() {
+        recorder = newRecorder(10, ChatPersistenceProperties.OverflowPolicy.DROP_NEWEST);
+        recorder.record("s1", new UserMessage("m1"));
+        recorder.record("s".repeat(ChatValidator.MAX_SESSION_ID_LENGTH + 1), new UserMessage("oversized"));
+        recorder.record("s2", new UserMessage("m2"));
+
+        recorder.start();
+        recorder.stop();
+
+        assertThat(contents()).containsExactly("m1", "m2");
+        assertThat(meterRegistry.counter("chat.persistence.rejected").count()).isEqualTo(1);
+    }
+
+    /**
+     * 批次中有一条消息无法写入时整批失败，改为逐条写入后只丢弃这一条，同批其他会话的消息照常写入
+     */
+    @Test
+    void poisonRecordDoesNotDropItsBatch() {
+        DataSource dataSource = ChatTranscriptRepositoryTest.h2DataSource();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        ChatPersistenceProperties properties = properties(10, ChatPersistenceProperties.OverflowPolicy.DROP_NEWEST);
+        properties.setMaxRetries(0);
+        ChatTranscriptRepository repository = new ChatTranscriptRepository(jdbcTemplate,
+                new DataSourceTransactionManager(dataSource), properties.getDefaultUserId()) {
+            @Override
+            public void writeBatch(List<ChatMessageRecord> records) {
+                if (records.stream().anyMatch(record -> "poison".equals(record.getContent()))) {
+                    throw new DataIntegrityViolationException("poison");
+                }
+                super.writeBatch(records);
+            }
+        };
+        recorder = new WriteBehindChatTranscriptRecorder(repository, properties, meterRegistry);
+        recorder.record("s1", new UserMessage("m1"));
+        recorder.record("s2", new UserMessage("poison"));
+        recorder.record("s3", new UserMessage("m3"));
+
+        recorder.start();
+        recorder.stop();
+
+        assertThat(contents()).containsExactly("m1", "m3");
+        assertThat(meterRegistry.counter("chat.persistence.failed").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chat.persistence.written").count()).isEqualTo(2);
+    }
+
+    private WriteBehindChatTranscriptRecorder newRecorder(int queueCapacity,
+                                                          ChatPersistenceProperties.OverflowPolicy overflowPolicy) {
+        DataSource dataSource = ChatTranscriptRepositoryTest.h2DataSource();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        ChatPersistenceProperties properties = properties(queueCapacity, overflowPolicy);
+        ChatTranscriptRepository repository = new ChatTranscriptRepository(jdbcTemplate,
+                new DataSourceTransactionManager(dataSource), properties.getDefaultUserId());
+        return new WriteBehindChatTranscriptRecorder(repository, properties, meterRegistry);
+    }
+
+    private static ChatPersistenceProperties properties(int queueCapacity,
+                                                        ChatPersistenceProperties.OverflowPolicy overflowPolicy) {
+        ChatPersistenceProperties properties = new ChatPersistenceProperties();
+        properties.setQueueCapacity(queueCapacity);
+        properties.setOverflowPolicy(overflowPolicy);
+        properties.setShutdownTimeout(Duration.ofSeconds(30));
+        return properties;
+    }
+
+    private List<String> contents() {
+        return jdbcTemplate.queryForList("SELECT content FROM chat_message ORDER BY id", String.class);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.agent.infrastructure.resilience;
+
+import com.example.agent.application.config.UpstreamResilienceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 熔断器测试
+ * 覆盖状态切换：失败率达到阈值时熔断，熔断期满进入半开，探测全部成功后恢复、任一失败重新熔断，
+ * 以及滑动窗口淘汰旧结果、旧代调用结果被忽略、取消的探测归还名额
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(spec(), clock::get);
+
+    private static UpstreamResilienceProperties.Breaker spec() {
+        UpstreamResilienceProperties.Breaker spec = new UpstreamResilienceProperties.Breaker();
+        spec.setWindowSize(4);
+        spec.setMinimumCalls(4);
+        spec.setFailureRateThreshold(0.5);
+        spec.setOpenDuration(OPEN_DURATION);
+        spec.setHalfOpenProbes(2);
+        return spec;
+    }
+
+    private void call(CircuitBreaker.Outcome outcome) {
+        long generation = breaker.tryAcquire();
+        assertThat(generation).isNotEqualTo(CircuitBreaker.REJECTED);
+        breaker.record(generation, outcome);
+    }
+
+    private void trip() {
+        for (int i = 0; i < 4; i++) {
+            call(CircuitBreaker.Outcome.FAILURE);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void staysClosedUntilMinimumCalls() {
+        call(CircuitBreaker.Outcome.FAILURE);
+        call(CircuitBreaker.Outcome.FAILURE);
+        call(CircuitBreaker.Outcome.FAILURE);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(CircuitBreaker.Outcome.SUCCESS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void oldOutcomesSlideOutOfWindow() {
+        call(CircuitBreaker.Outcome.FAILURE);
+        for (int i = 0; i < 4; i++) {
+            call(CircuitBreaker.Outcome.SUCCESS);
+        }
+        call(CircuitBreaker.Outcome.FAILURE);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(CircuitBreaker.Outcome.FAILURE);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void ignoredOutcomesDoNotCountWhenClosed() {
+        for (int i = 0; i < 10; i++) {
+            call(CircuitBreaker.Outcome.IGNORED);
+        }
+        call(CircuitBreaker.Outcome.FAILURE);
+        call(CircuitBreaker.Outcome.FAILURE);
+        call(CircuitBreaker.Outcome.SUCCESS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void rejectsWhileOpen() {
+        trip();
+
+        clock.addAndGet(OPEN_DURATION.toNanos() - 1);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenLimitsProbesAndClosesWhenAllSucceed() {
+        trip();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(first).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(second).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+
+        breaker.record(first, CircuitBreaker.Outcome.SUCCESS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+
+        breaker.record(second, CircuitBreaker.Outcome.SUCCESS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void probeFailureReopens() {
+        trip();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+
+        long probe = breaker.tryAcquire();
+        breaker.record(probe, CircuitBreaker.Outcome.FAILURE);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void ignoredProbeReturnsItsSlot() {
+        trip();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+
+        long first = breaker.tryAcquire();
+        breaker.tryAcquire();
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+
+        breaker.record(first, CircuitBreaker.Outcome.IGNORED);
+        assertThat(breaker.tryAcquire()).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void outcomesFromAnEarlierGenerationAreIgnored() {
+        long stale = breaker.tryAcquire();
+        trip();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        long probe = breaker.tryAcquire();
+
+        breaker.record(stale, CircuitBreaker.Outcome.FAILURE);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.record(probe, CircuitBreaker.Outcome.SUCCESS);
+        breaker.record(breaker.tryAcquire(), CircuitBreaker.Outcome.SUCCESS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.agent.infrastructure.stream;
+
+import com.example.agent.application.config.ChatStreamProperties;
+import com.example.agent.infrastructure.response.ChatStreamFrame;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 流帧合并器测试
+ * 覆盖按类型、字节数和完成信号输出合并帧，以及向上游的请求跟随下游需求、上下文向上游传递
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class FrameCoalescerTest {
+
+    /**
+     * 同类型的增量合并为一帧，类型变化时先输出已合并的内容
+     */
+    @Test
+    void mergesDeltasAndSplitsOnTypeChange() {
+        FrameCoalescer coalescer = newCoalescer(Duration.ofHours(1), 1024);
+
+        StepVerifier.create(describe(coalescer.coalesce(Flux.just(
+                        thinking("分析"), thinking("问题"), response("您好"), response("，请稍等")))))
+                .expectNext("thinking:分析问题", "response:您好，请稍等")
+                .verifyComplete();
+    }
+
+    /**
+     * 累计字节数达到上限时立即输出，不等窗口到期
+     */
+    @Test
+    void flushesWhenByteLimitReached() {
+        FrameCoalescer coalescer = newCoalescer(Duration.ofHours(1), 4);
+
+        StepVerifier.create(describe(coalescer.coalesce(Flux.just(response("ab"), response("cd"), response("ef")))))
+                .expectNext("response:abcd", "response:ef")
+                .verifyComplete();
+    }
+
+    /**
+     * 窗口到期时输出已合并的内容，不等上游结束
+     */
+    @Test
+    void flushesWhenWindowExpires() {
+        FrameCoalescer coalescer = newCoalescer(Duration.ofMillis(20), 1024);
+        Flux<ChatStreamFrame> frames = Flux.concat(Flux.just(response("a"), response("b")),
+                Flux.just(response("c")).delaySubscription(Duration.ofMillis(500)));
+
+        StepVerifier.create(describe(coalescer.coalesce(frames)))
+                .expectNext("response:ab", "response:c")
+                .verifyComplete();
+    }
+
+    /**
+     * 下游不再请求时停止向上游请求，合并器不会无界缓存
+     */
+    @Test
+    void requestsUpstreamOnlyWhileDownstreamHasDemand() {
+        FrameCoalescer coalescer = newCoalescer(Duration.ofHours(1), 1);
+        AtomicLong upstreamRequested = new AtomicLong();
+        Flux<ChatStreamFrame> frames = Flux.range(0, 10_000)
+                .map(i -> response("x"))
+                .doOnRequest(upstreamRequested::addAndGet);
+
+        StepVerifier.create(coalescer.coalesce(frames), 0)
+                .thenRequest(2)
+                .expectNextCount(2)
+                .then(() -> assertThat(upstreamRequested.get()).isLessThanOrEqualTo(3))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 上游出错时先输出已合并的内容再传递错误
+     */
+    @Test
+    void flushesPendingFrameBeforeError() {
+        FrameCoalescer coalescer = newCoalescer(Duration.ofHours(1), 1024);
+        Flux<ChatStreamFrame> frames = Flux.concat(Flux.just(response("部分回答")),
+                Flux.error(new IllegalStateException("upstream failed")));
+
+        StepVerifier.create(describe(coalescer.coalesce(frames)))
+                .expectNext("response:部分回答")
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 下游写入的 Reactor 上下文对上游可见
+     */
+    @Test
+    void propagatesDownstreamContext() {
+        FrameCoalescer coalescer = newCoalescer(Duration.ofHours(1), 1024);
+        Flux<ChatStreamFrame> frames = Flux.deferContextual(context -> Flux.just(response(context.get("sessionId"))));
+
+        StepVerifier.create(describe(coalescer.coalesce(frames)).contextWrite(Context.of("sessionId", "s-1")))
+                .expectNext("response:s-1")
+                .verifyComplete();
+    }
+
+    private static FrameCoalescer newCoalescer(Duration window, int maxBytes) {
+        ChatStreamProperties properties = new ChatStreamProperties();
+        properties.setCoalesceWindow(window);
+        properties.setCoalesceMaxBytes(maxBytes);
+        return new FrameCoalescer(properties);
+    }
+
+    private static Flux<String> describe(Flux<ChatStreamFrame> frames) {
+        return frames.map(frame -> frame.getType() + ":" + frame.getContent());
+    }
+
+    private static ChatStreamFrame thinking(String content) {
+        return new ChatStreamFrame(ChatStreamFrame.TYPE_THINKING, content);
+    }
+
+    private static ChatStreamFrame response(String content) {
+        return new ChatStreamFrame(ChatStreamFrame.TYPE_RESPONSE, content);
+    }
+}
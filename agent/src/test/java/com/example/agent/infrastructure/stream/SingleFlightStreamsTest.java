@@ -0,0 +1,138 @@
+package com.example.agent.infrastructure.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 相同请求的流合并测试
+ * 覆盖并发请求共享上游、后加入的请求回放已输出的内容、结束后重新发起调用，
+ * 以及只有全部订阅者取消时才取消上游
+ *
+ * @author example
+ * @version 1.0
+ * @since 2024-04-14
+ */
+class SingleFlightStreamsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlightStreams streams = new SingleFlightStreams(meterRegistry);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private Sinks.Many<String> upstream;
+
+    private final Supplier<Flux<String>> call = () -> {
+        calls.incrementAndGet();
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+        return upstream.asFlux().doOnCancel(() -> cancelled.set(true));
+    };
+
+    private Disposable subscribe(String key, List<String> received) {
+        return streams.join(key, call).subscribe(received::add);
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("chat.singleflight.inflight").gauge().value();
+    }
+
+    @Test
+    void concurrentRequestsShareOneUpstream() {
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        subscribe("k", first);
+        subscribe("k", second);
+
+        upstream.tryEmitNext("你好");
+        upstream.tryEmitNext("世界");
+        upstream.tryEmitComplete();
+
+        assertThat(calls).hasValue(1);
+        assertThat(first).containsExactly("你好", "世界");
+        assertThat(second).containsExactly("你好", "世界");
+        assertThat(meterRegistry.counter("chat.singleflight.requests", "role", "leader").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chat.singleflight.requests", "role", "follower").count()).isEqualTo(1);
+    }
+
+    @Test
+    void lateJoinerReplaysEmittedContent() {
+        List<String> first = new ArrayList<>();
+        List<String> late = new ArrayList<>();
+        subscribe("k", first);
+        upstream.tryEmitNext("你好");
+
+        subscribe("k", late);
+        assertThat(late).containsExactly("你好");
+
+        upstream.tryEmitNext("世界");
+        assertThat(late).containsExactly("你好", "世界");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void differentKeysDoNotShare() {
+        subscribe("k1", new ArrayList<>());
+        subscribe("k2", new ArrayList<>());
+
+        assertThat(calls).hasValue(2);
+        assertThat(inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void completedStreamIsRemovedAndNextRequestCallsAgain() {
+        subscribe("k", new ArrayList<>());
+        upstream.tryEmitComplete();
+        assertThat(inFlight()).isZero();
+
+        subscribe("k", new ArrayList<>());
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void failedStreamIsRemoved() {
+        List<Throwable> errors = new ArrayList<>();
+        streams.join("k", call).subscribe(content -> { }, errors::add);
+        upstream.tryEmitError(new IllegalStateException("upstream"));
+
+        assertThat(errors).hasSize(1);
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void oneSubscriberCancellingKeepsUpstreamForOthers() {
+        List<String> staying = new ArrayList<>();
+        Disposable leaving = subscribe("k", new ArrayList<>());
+        subscribe("k", staying);
+
+        leaving.dispose();
+        upstream.tryEmitNext("你好");
+
+        assertThat(cancelled).isFalse();
+        assertThat(staying).containsExactly("你好");
+        assertThat(inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void allSubscribersCancellingCancelsUpstream() {
+        Disposable first = subscribe("k", new ArrayList<>());
+        Disposable second = subscribe("k", new ArrayList<>());
+
+        first.dispose();
+        second.dispose();
+
+        assertThat(cancelled).isTrue();
+        assertThat(inFlight()).isZero();
+
+        subscribe("k", new ArrayList<>());
+        assertThat(calls).hasValue(2);
+    }
+}
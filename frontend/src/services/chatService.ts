@@ -284,6 +284,8 @@ export class ChatService {
                 method: 'POST',
                 headers: {
                     'Content-Type': 'application/json',
+                    // 服务端按会话限流，会话ID同时放在请求头中
+                    'X-Session-Id': sessionId,
                 },
                 body: JSON.stringify({ 
                     content,
@@ -1,98 +1,91 @@
 package com.example.agent.domain.chat.model;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
 /**
  * 聊天记忆模型
- * 用于存储和管理聊天历史
+ * 用于存储和管理聊天历史；同一会话可能被并发请求同时读写，读写方法以本对象为锁，读取的历史均为副本
  */
 public class ChatMemory {
+    private static final int MAX_KEY_QUESTIONS = 10; // 摘要中保留的用户问题数
+
     private String sessionId;           // 会话ID
-    private List<ChatMessage> messages; // 消息历史
+    private MessageRingBuffer<ChatMessage> messages; // 消息历史
     private Map<String, Object> metadata; // 元数据
-    private String summary;             // 对话摘要
-    private int maxHistorySize;         // 最大历史记录数
+    private String summary;             // 对话摘要（缓存，关键信息变化后置空，读取时重新拼接）
+    private String identity;            // 用户身份要点
+    private Deque<String> keyQuestions; // 最近的用户问题要点
 
     public ChatMemory(String sessionId) {
         this.sessionId = sessionId;
-        this.messages = new ArrayList<>();
+        this.messages = new MessageRingBuffer<>(20); // 默认保存最近20条消息
         this.metadata = new HashMap<>();
-        this.maxHistorySize = 20; // 默认保存最近20条消息
+        this.keyQuestions = new ArrayDeque<>();
     }
 
     /**
      * 添加消息到记忆
+     * 超过最大历史记录数时环形缓冲区直接覆盖最旧的消息
      */
-    public void addMessage(ChatMessage message) {
+    public synchronized void addMessage(ChatMessage message) {
         messages.add(message);
-        // 如果超过最大历史记录数，移除最旧的消息
-        if (messages.size() > maxHistorySize) {
-            messages.remove(0);
-        }
         // 更新摘要
-        updateSummary();
+        updateSummary(message);
     }
 
     /**
      * 获取最近的聊天历史
+     * 结果会在锁外使用，返回副本
      */
-    public List<ChatMessage> getRecentHistory(int count) {
-        int start = Math.max(0, messages.size() - count);
-        return new ArrayList<>(messages.subList(start, messages.size()));
+    public synchronized List<ChatMessage> getRecentHistory(int count) {
+        return new ArrayList<>(messages.last(count));
     }
 
     /**
      * 获取完整的聊天历史
      */
-    public List<ChatMessage> getFullHistory() {
-        return new ArrayList<>(messages);
+    public synchronized List<ChatMessage> getFullHistory() {
+        return new ArrayList<>(messages.last(messages.size()));
     }
 
     /**
-     * 更新对话摘要
+     * 增量更新对话摘要
+     * 只处理新加入的消息，不再重新扫描全部历史；摘要文本在读取时才拼接
      */
-    private void updateSummary() {
-        // 简单的摘要生成逻辑
-        StringBuilder summaryBuilder = new StringBuilder();
-        summaryBuilder.append("对话摘要：\n");
-        
-        // 提取关键信息
-        List<String> keyPoints = new ArrayList<>();
-        for (ChatMessage message : messages) {
-            if (message.getRole().equals("user")) {
-                String content = message.getContent();
-                if (content.startsWith("我是")) {
-                    keyPoints.add("用户身份：" + content.substring(2));
-                } else if (content.contains("？") || content.contains("?")) {
-                    keyPoints.add("用户问题：" + content);
-                }
-            }
+    private void updateSummary(ChatMessage message) {
+        if (!message.getRole().equals("user")) {
+            return;
         }
-        
-        // 生成摘要
-        if (!keyPoints.isEmpty()) {
-            summaryBuilder.append(String.join("\n", keyPoints));
+        String content = message.getContent();
+        if (content.startsWith("我是")) {
+            identity = "用户身份：" + content.substring(2);
+        } else if (content.contains("？") || content.contains("?")) {
+            keyQuestions.addLast("用户问题：" + content);
+            if (keyQuestions.size() > MAX_KEY_QUESTIONS) {
+                keyQuestions.removeFirst();
+            }
         } else {
-            summaryBuilder.append("暂无关键信息");
+            return;
         }
-        
-        this.summary = summaryBuilder.toString();
+        summary = null;
     }
 
     /**
      * 添加元数据
      */
-    public void addMetadata(String key, Object value) {
+    public synchronized void addMetadata(String key, Object value) {
         metadata.put(key, value);
     }
 
     /**
      * 获取元数据
      */
-    public Object getMetadata(String key) {
+    public synchronized Object getMetadata(String key) {
         return metadata.get(key);
     }
 
@@ -101,11 +94,26 @@ public class ChatMemory {
         return sessionId;
     }
 
-    public String getSummary() {
+    public synchronized String getSummary() {
+        if (summary == null) {
+            StringBuilder summaryBuilder = new StringBuilder();
+            summaryBuilder.append("对话摘要：\n");
+            if (identity == null && keyQuestions.isEmpty()) {
+                summaryBuilder.append("暂无关键信息");
+            } else {
+                List<String> keyPoints = new ArrayList<>(keyQuestions.size() + 1);
+                if (identity != null) {
+                    keyPoints.add(identity);
+                }
+                keyPoints.addAll(keyQuestions);
+                summaryBuilder.append(String.join("\n", keyPoints));
+            }
+            summary = summaryBuilder.toString();
+        }
         return summary;
     }
 
-    public void setMaxHistorySize(int maxHistorySize) {
-        this.maxHistorySize = maxHistorySize;
+    public synchronized void setMaxHistorySize(int maxHistorySize) {
+        messages.setCapacity(maxHistorySize);
     }
 } 
\ No newline at end of file
@@ -5,27 +5,43 @@ import java.util.List;
 
 /**
  * 聊天会话实体
+ * 同一会话可能被并发请求同时读写，读写方法以本对象为锁，读取的消息均为副本
  */
 public class ChatSession {
+    private static final int MAX_MESSAGES = 200; // 会话保留的最大消息数
+
     private String sessionId;           // 会话ID
     private String userName;            // 用户名称
-    private List<ChatMessage> messages; // 消息历史
+    private MessageRingBuffer<ChatMessage> messages; // 消息历史
 
     public ChatSession(String sessionId) {
         this.sessionId = sessionId;
-        this.messages = new ArrayList<>();
+        this.messages = new MessageRingBuffer<>(MAX_MESSAGES);
     }
 
-    public void addMessage(ChatMessage message) {
+    /**
+     * 添加消息，超过最大消息数时覆盖最旧的消息
+     * 用户的自我介绍（"我是..."）在消息到达时即记录为用户名，不再回溯历史
+     */
+    public synchronized void addMessage(ChatMessage message) {
+        if ("user".equals(message.getRole()) && message.getContent() != null) {
+            String content = message.getContent().trim();
+            if (content.startsWith("我是")) {
+                this.userName = content.substring(2).trim();
+            }
+        }
         this.messages.add(message);
     }
 
-    public List<ChatMessage> getRecentMessages(int count) {
-        int start = Math.max(0, messages.size() - count);
-        return new ArrayList<>(messages.subList(start, messages.size()));
+    /**
+     * 获取最近的消息
+     * 结果会在锁外使用，返回副本
+     */
+    public synchronized List<ChatMessage> getRecentMessages(int count) {
+        return new ArrayList<>(messages.last(count));
     }
 
-    public void setUserName(String userName) {
+    public synchronized void setUserName(String userName) {
         this.userName = userName;
     }
 
@@ -33,11 +49,11 @@ public class ChatSession {
         return sessionId;
     }
 
-    public String getUserName() {
+    public synchronized String getUserName() {
         return userName;
     }
 
-    public List<ChatMessage> getMessages() {
-        return messages;
+    public synchronized List<ChatMessage> getMessages() {
+        return new ArrayList<>(messages.last(messages.size()));
     }
 } 
\ No newline at end of file
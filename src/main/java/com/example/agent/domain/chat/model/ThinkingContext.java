@@ -8,6 +8,9 @@ import java.util.ArrayList;
  * 用于存储AI的思考过程和上下文信息
  */
 public class ThinkingContext {
+    private static final String SUMMARY_PREFIX = "对话摘要：";
+    private static final int MAX_SUMMARY_LENGTH = 500; // 摘要最大长度
+
     private String sessionId;           // 会话ID
     private String userInput;           // 用户输入
     private List<String> keywords;      // 提取的关键词
@@ -15,6 +18,7 @@ public class ThinkingContext {
     private String questionType;        // 问题类型
     private List<String> history;       // 历史对话
     private String summary;             // 对话摘要
+    private int summarizedCount;        // 已并入摘要的历史条数
 
     public ThinkingContext(String sessionId, String userInput) {
         this.sessionId = sessionId;
@@ -92,11 +96,24 @@ public class ThinkingContext {
     }
 
     /**
-     * 生成对话摘要
+     * 增量生成对话摘要
+     * 只把上次摘要之后新增的历史并入摘要，摘要超出长度上限时丢弃最早的部分
      */
     private void generateSummary() {
-        // TODO: 实现摘要生成逻辑
-        this.summary = "对话摘要：" + String.join("; ", this.history.subList(0, 5));
+        StringBuilder summaryBuilder = new StringBuilder(summary == null ? SUMMARY_PREFIX : summary);
+        // setHistory 可能替换为更短的列表，此时从头开始并入
+        int from = summarizedCount <= history.size() ? summarizedCount : 0;
+        for (int i = from; i < history.size(); i++) {
+            if (summaryBuilder.length() > SUMMARY_PREFIX.length()) {
+                summaryBuilder.append("; ");
+            }
+            summaryBuilder.append(history.get(i));
+        }
+        summarizedCount = history.size();
+        if (summaryBuilder.length() > MAX_SUMMARY_LENGTH) {
+            summaryBuilder.delete(SUMMARY_PREFIX.length(), summaryBuilder.length() - MAX_SUMMARY_LENGTH + SUMMARY_PREFIX.length());
+        }
+        this.summary = summaryBuilder.toString();
     }
 }
 
@@ -33,6 +33,7 @@ public class ChatMemoryService {
 
     /**
      * 获取最近的聊天历史
+     * 返回在会话锁内复制的副本，遍历时不受同一会话并发写入的影响
      */
     public List<ChatMessage> getRecentHistory(String sessionId, int count) {
         ChatMemory memory = memoryStore.get(sessionId);
@@ -32,18 +32,8 @@ public class ChatSessionService {
      * @param message 消息对象
      */
     public void addMessage(String sessionId, ChatMessage message) {
+        // 用户的自我介绍由会话在添加消息时记录
         ChatSession session = getOrCreateSession(sessionId);
-        
-        // 如果是用户消息，检查是否包含自我介绍
-        if (message.getRole().equals("user")) {
-            String content = message.getContent().trim();
-            if (content.startsWith("我是")) {
-                String userName = content.substring(2).trim();
-                session.setUserName(userName);
-                System.out.println("设置用户名: " + userName + " 到会话: " + sessionId);
-            }
-        }
-        
         session.addMessage(message);
     }
 
@@ -51,7 +41,7 @@ public class ChatSessionService {
      * 获取最近的聊天历史
      * @param sessionId 会话ID
      * @param count 获取的消息数量
-     * @return 消息列表
+     * @return 消息列表副本，与并发写入同一会话的请求互不影响
      */
     public List<ChatMessage> getRecentHistory(String sessionId, int count) {
         ChatSession session = sessionStore.get(sessionId);
@@ -14,9 +14,8 @@ import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
-import java.util.Arrays;
+import java.util.Set;
 import java.util.StringBuilder;
-import java.time.Duration;
 
 /**
  * 思考服务
@@ -29,6 +28,15 @@ import java.time.Duration;
 @Service
 public class ThinkingService {
     
+    /**
+     * 提取关键词时排除的常见词
+     */
+    private static final Set<String> COMMON_WORDS = Set.of(
+        "的", "了", "是", "在", "我", "有", "和", "就", "不", "人",
+        "都", "一", "一个", "上", "也", "很", "到", "说", "要", "去",
+        "你", "会", "着", "没有", "看", "好", "自己", "这"
+    );
+
     private final ChatSessionService chatSessionService;
     private final Map<String, ThinkingContext> contextStore = new ConcurrentHashMap<>();
 
@@ -133,7 +141,7 @@ public class ThinkingService {
      * @return 思考上下文对象
      */
     private ThinkingContext getOrCreateContext(String sessionId, String userInput) {
-        return contextStore.computeIfAbsent(sessionId, 
+        return contextStore.computeIfAbsent(sessionId,
             key -> new ThinkingContext(sessionId, userInput));
     }
 
@@ -162,7 +170,7 @@ public class ThinkingService {
         List<String> keywords = new ArrayList<>();
         String[] words = input.split("\\s+");
         for (String word : words) {
-            if (word.length() > 1 && !existCommonWord(word)) {
+            if (word.length() > 1 && !COMMON_WORDS.contains(word)) {
                 keywords.add(word);
             }
         }
@@ -204,21 +212,6 @@ public class ThinkingService {
         return "一般对话";
     }
 
-    /**
-     * 检查是否为常见词
-     *
-     * @param word 待检查的词
-     * @return 如果是常见词返回true，否则返回false
-     */
-    private boolean existCommonWord(String word) {
-        String[] commonWords = {
-            "的", "了", "是", "在", "我", "有", "和", "就", "不", "人", 
-            "都", "一", "一个", "上", "也", "很", "到", "说", "要", "去", 
-            "你", "会", "着", "没有", "看", "好", "自己", "这"
-        };
-        return Arrays.asList(commonWords).contains(word);
-    }
-
     /**
      * 获取指定会话的思考上下文
      *
@@ -248,7 +241,6 @@ public class ThinkingService {
      */
     public Flux<ThinkingStep> generateThinkingSteps(String content, String sessionId, List<Message> history) {
         List<ThinkingStep> steps = analyzeInput(sessionId, content);
-        return Flux.fromIterable(steps)
-                  .delayElements(Duration.ofMillis(500)); // 添加延迟以模拟思考过程
+        return Flux.fromIterable(steps);
     }
 } 
\ No newline at end of file